@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.DoomObject;
+import com.blackrook.doom.HexenObject;
+import com.blackrook.doom.WadBuffer;
+import com.blackrook.doom.struct.Blockmap;
+import com.blackrook.doom.struct.Linedef;
+import com.blackrook.doom.struct.Patch;
+import com.blackrook.doom.struct.Reject;
+import com.blackrook.doom.struct.Sector;
+import com.blackrook.doom.struct.Sidedef;
+import com.blackrook.doom.struct.Thing;
+import com.blackrook.doom.struct.Vertex;
+import com.blackrook.doom.udmf.UDMFTable;
+import com.blackrook.doom.udmf.UDMFUtil;
+import com.blackrook.doom.udmf.UDMFWriter;
+
+/**
+ * Synthetic data for the benchmarks. Everything is generated deterministically,
+ * so that results are comparable between runs and machines.
+ * @author Matthew Tropiano
+ */
+public final class BenchFixtures
+{
+	/** Name of the map in the map WADs. */
+	public static final String MAP_NAME = "MAP01";
+
+	/** Size of a grid cell in map units. */
+	private static final int CELL_SIZE = 64;
+	/** Size of a blockmap block in map units. */
+	private static final int BLOCK_SIZE = 128;
+
+	private BenchFixtures() {}
+
+	/**
+	 * Creates a WAD with a set of lumps named "LMPnnnnn", each filled with a repeating pattern.
+	 * @param lumpCount the amount of lumps.
+	 * @param lumpSize the size of each lump in bytes.
+	 * @return the WAD in memory.
+	 * @throws IOException if the WAD could not be built.
+	 */
+	public static WadBuffer createWad(int lumpCount, int lumpSize) throws IOException
+	{
+		WadBuffer out = new WadBuffer();
+		String[] names = new String[lumpCount];
+		byte[][] data = new byte[lumpCount][];
+		for (int i = 0; i < lumpCount; i++)
+		{
+			names[i] = getLumpName(i);
+			data[i] = new byte[lumpSize];
+			for (int j = 0; j < lumpSize; j++)
+				data[i][j] = (byte)(i + j);
+		}
+		out.addAll(names, data);
+		return out;
+	}
+
+	/**
+	 * Creates a WAD file in the temporary directory that is deleted on exit.
+	 * @param lumpCount the amount of lumps.
+	 * @param lumpSize the size of each lump in bytes.
+	 * @return the created file.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static File createWadFile(int lumpCount, int lumpSize) throws IOException
+	{
+		File out = File.createTempFile("doombench", ".wad");
+		out.deleteOnExit();
+		createWad(lumpCount, lumpSize).writeToFile(out);
+		return out;
+	}
+
+	/**
+	 * Returns the name of a lump in {@link #createWad(int, int)}.
+	 * @param index the lump index.
+	 */
+	public static String getLumpName(int index)
+	{
+		return String.format("LMP%05d", index);
+	}
+
+	/**
+	 * Creates a WAD containing a Doom-format map called {@link #MAP_NAME}.
+	 * The map is a square grid of square sectors, one thing in each, with a REJECT and BLOCKMAP.
+	 * @param gridSize the amount of sectors along each side of the grid.
+	 * @return the WAD in memory.
+	 * @throws IOException if the WAD could not be built.
+	 */
+	public static WadBuffer createDoomMapWad(int gridSize) throws IOException
+	{
+		GridMap map = new GridMap(gridSize);
+		WadBuffer out = new WadBuffer();
+		out.addMarker(MAP_NAME);
+		out.add("things", toDoomBytes(map.things));
+		out.add("linedefs", toDoomBytes(map.linedefs));
+		map.addCommonLumps(out);
+		return out;
+	}
+
+	/**
+	 * Creates a WAD containing the map from {@link #createDoomMapWad(int)} in Hexen format.
+	 * @param gridSize the amount of sectors along each side of the grid.
+	 * @return the WAD in memory.
+	 * @throws IOException if the WAD could not be built.
+	 */
+	public static WadBuffer createHexenMapWad(int gridSize) throws IOException
+	{
+		GridMap map = new GridMap(gridSize);
+		WadBuffer out = new WadBuffer();
+		out.addMarker(MAP_NAME);
+		out.add("things", toHexenBytes(map.things));
+		out.add("linedefs", toHexenBytes(map.linedefs));
+		map.addCommonLumps(out);
+		out.add("behavior", new byte[]{'A', 'C', 'S', 0, 8, 0, 0, 0, 0, 0, 0, 0});
+		return out;
+	}
+
+	/**
+	 * Creates a WAD containing the map from {@link #createDoomMapWad(int)} in UDMF format.
+	 * @param gridSize the amount of sectors along each side of the grid.
+	 * @return the WAD in memory.
+	 * @throws IOException if the WAD could not be built.
+	 */
+	public static WadBuffer createUDMFMapWad(int gridSize) throws IOException
+	{
+		WadBuffer out = new WadBuffer();
+		out.addMarker(MAP_NAME);
+		out.add("textmap", toUDMFBytes(createUDMFTable(gridSize)));
+		out.addMarker("endmap");
+		return out;
+	}
+
+	/**
+	 * Creates a UDMF table from the map from {@link #createDoomMapWad(int)}.
+	 * @param gridSize the amount of sectors along each side of the grid.
+	 * @return the table, in the "doom" namespace.
+	 * @throws IOException if the map could not be built.
+	 */
+	public static UDMFTable createUDMFTable(int gridSize) throws IOException
+	{
+		return UDMFUtil.mapToUDMF(UDMFUtil.DOOM_NAMESPACE, new DoomMap(createDoomMapWad(gridSize), MAP_NAME));
+	}
+
+	/**
+	 * Creates the BLOCKMAP lump data for the map from {@link #createDoomMapWad(int)}.
+	 * @param gridSize the amount of sectors along each side of the grid.
+	 * @return the lump data.
+	 * @throws IOException if the blockmap could not be built.
+	 */
+	public static byte[] createBlockmapBytes(int gridSize) throws IOException
+	{
+		return new GridMap(gridSize).blockmap;
+	}
+
+	/**
+	 * Writes a UDMF table to a byte array.
+	 * @param table the table to write.
+	 * @return the UDMF text as bytes.
+	 * @throws IOException if the table could not be written.
+	 */
+	public static byte[] toUDMFBytes(UDMFTable table) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		UDMFWriter.writeData(table, bos);
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Creates a patch with a diagonal pattern of opaque and transparent runs.
+	 * @param width the patch width.
+	 * @param height the patch height.
+	 * @return the patch.
+	 */
+	public static Patch createPatch(int width, int height)
+	{
+		Patch out = new Patch(width, height);
+		for (int x = 0; x < width; x++)
+			for (int y = 0; y < height; y++)
+				out.setPixel(x, y, ((x + y) / 16) % 3 == 0 ? -1 : (x * 7 + y * 3) & 0x0ff);
+		return out;
+	}
+
+	private static byte[] toDoomBytes(List<? extends DoomObject> objects) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DoomMap.writeDoomObjects(objects, bos);
+		return bos.toByteArray();
+	}
+
+	private static byte[] toHexenBytes(List<? extends HexenObject> objects) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DoomMap.writeHexenObjects(objects, bos);
+		return bos.toByteArray();
+	}
+
+	/**
+	 * A grid of square sectors.
+	 */
+	private static class GridMap
+	{
+		private List<Vertex> vertices;
+		private List<Sector> sectors;
+		private List<Linedef> linedefs;
+		private List<Sidedef> sidedefs;
+		private List<Thing> things;
+		private byte[] reject;
+		private byte[] blockmap;
+
+		private GridMap(int gridSize) throws IOException
+		{
+			vertices = new List<Vertex>();
+			sectors = new List<Sector>();
+			linedefs = new List<Linedef>();
+			sidedefs = new List<Sidedef>();
+			things = new List<Thing>();
+
+			for (int y = 0; y <= gridSize; y++)
+				for (int x = 0; x <= gridSize; x++)
+				{
+					Vertex v = new Vertex();
+					v.setX(x * CELL_SIZE);
+					v.setY(y * CELL_SIZE);
+					vertices.add(v);
+				}
+
+			for (int y = 0; y < gridSize; y++)
+				for (int x = 0; x < gridSize; x++)
+				{
+					Sector s = new Sector();
+					s.setFloorHeight((x + y) % 4 * 8);
+					s.setCeilingHeight(128);
+					s.setFloorTexture("FLOOR0_1");
+					s.setCeilingTexture("CEIL1_1");
+					s.setLightLevel(160);
+					sectors.add(s);
+
+					Thing t = new Thing();
+					t.setX(x * CELL_SIZE + CELL_SIZE / 2);
+					t.setY(y * CELL_SIZE + CELL_SIZE / 2);
+					t.setAngle((x * 45) % 360);
+					t.setType(x == 0 && y == 0 ? 1 : 2014);
+					t.setAppearsOnEasy(true);
+					t.setAppearsOnNormal(true);
+					t.setAppearsOnHard(true);
+					things.add(t);
+				}
+
+			// horizontal lines, then vertical lines.
+			for (int y = 0; y <= gridSize; y++)
+				for (int x = 0; x < gridSize; x++)
+					addLine(vertexIndex(gridSize, x, y), vertexIndex(gridSize, x + 1, y),
+						y < gridSize ? sectorIndex(gridSize, x, y) : -1,
+						y > 0 ? sectorIndex(gridSize, x, y - 1) : -1);
+			for (int x = 0; x <= gridSize; x++)
+				for (int y = 0; y < gridSize; y++)
+					addLine(vertexIndex(gridSize, x, y + 1), vertexIndex(gridSize, x, y),
+						x < gridSize ? sectorIndex(gridSize, x, y) : -1,
+						x > 0 ? sectorIndex(gridSize, x - 1, y) : -1);
+
+			reject = new Reject(sectors.size()).getDoomBytes();
+			blockmap = createBlockmap().getDoomBytes();
+		}
+
+		/**
+		 * Adds the lumps that are the same in Doom and Hexen formats.
+		 */
+		private void addCommonLumps(WadBuffer out) throws IOException
+		{
+			out.add("sidedefs", toDoomBytes(sidedefs));
+			out.add("vertexes", toDoomBytes(vertices));
+			out.add("sectors", toDoomBytes(sectors));
+			out.add("reject", reject);
+			out.add("blockmap", blockmap);
+		}
+
+		private static int vertexIndex(int gridSize, int x, int y)
+		{
+			return y * (gridSize + 1) + x;
+		}
+
+		private static int sectorIndex(int gridSize, int x, int y)
+		{
+			return y * gridSize + x;
+		}
+
+		private void addLine(int v1, int v2, int front, int back)
+		{
+			// keep a front side on every line.
+			if (front < 0)
+			{
+				front = back;
+				back = -1;
+				int t = v1;
+				v1 = v2;
+				v2 = t;
+			}
+
+			Linedef line = new Linedef();
+			line.setVertexStart(v1);
+			line.setVertexEnd(v2);
+			line.setFrontSidedef(addSide(front, back < 0 ? "STARTAN2" : "-"));
+			if (back >= 0)
+			{
+				line.setBackSidedef(addSide(back, "-"));
+				line.setTwoSided(true);
+			}
+			else
+			{
+				line.setBackSidedef(-1);
+				line.setImpassable(true);
+			}
+			linedefs.add(line);
+		}
+
+		private int addSide(int sector, String middle)
+		{
+			Sidedef side = new Sidedef();
+			side.setSectorRef(sector);
+			side.setUpperTexture("-");
+			side.setMiddleTexture(middle);
+			side.setLowerTexture("-");
+			sidedefs.add(side);
+			return sidedefs.size() - 1;
+		}
+
+		private Blockmap createBlockmap()
+		{
+			Blockmap out = new Blockmap(-8, -8);
+			for (int i = 0; i < linedefs.size(); i++)
+			{
+				Linedef line = linedefs.getByIndex(i);
+				Vertex v1 = vertices.getByIndex(line.getVertexStart());
+				Vertex v2 = vertices.getByIndex(line.getVertexEnd());
+				int x0 = (int)(Math.min(v1.getX(), v2.getX()) + 8) / BLOCK_SIZE;
+				int x1 = (int)(Math.max(v1.getX(), v2.getX()) + 8) / BLOCK_SIZE;
+				int y0 = (int)(Math.min(v1.getY(), v2.getY()) + 8) / BLOCK_SIZE;
+				int y1 = (int)(Math.max(v1.getY(), v2.getY()) + 8) / BLOCK_SIZE;
+				for (int x = x0; x <= x1; x++)
+					for (int y = y0; y <= y1; y++)
+						out.addIndex(x, y, i);
+			}
+			return out;
+		}
+
+	}
+
+}
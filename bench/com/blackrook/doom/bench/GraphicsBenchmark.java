@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.bench;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.doom.struct.Palette;
+import com.blackrook.doom.struct.Patch;
+
+/**
+ * Benchmarks for graphic conversion.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GraphicsBenchmark
+{
+	/** Amount of colors to match per invocation. */
+	private static final int COLOR_COUNT = 4096;
+
+	/** Width and height of the patch. */
+	@Param({"64", "256"})
+	public int patchSize;
+
+	private Patch patch;
+	private byte[] patchBytes;
+	private Color[] colors;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		patch = BenchFixtures.createPatch(patchSize, patchSize);
+		patchBytes = patch.getDoomBytes();
+		colors = new Color[COLOR_COUNT];
+		Random random = new Random(COLOR_COUNT);
+		for (int i = 0; i < COLOR_COUNT; i++)
+			colors[i] = new Color(random.nextInt(0x01000000));
+	}
+
+	@Benchmark
+	public Patch readPatchStream() throws IOException
+	{
+		Patch out = new Patch();
+		out.readDoomBytes(new ByteArrayInputStream(patchBytes));
+		return out;
+	}
+
+	@Benchmark
+	public Patch readPatchBuffer() throws IOException
+	{
+		Patch out = new Patch();
+		out.readDoomBytes(ByteBuffer.wrap(patchBytes));
+		return out;
+	}
+
+	@Benchmark
+	public byte[] writePatch() throws IOException
+	{
+		return patch.getDoomBytes();
+	}
+
+	@Benchmark
+	public void nearestColor(Blackhole bh)
+	{
+		for (int i = 0; i < COLOR_COUNT; i++)
+			bh.consume(Palette.DOOM.getNearestColorIndex(colors[i]));
+	}
+
+}
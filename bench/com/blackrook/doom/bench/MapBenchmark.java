@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.WadBuffer;
+import com.blackrook.doom.struct.Blockmap;
+
+/**
+ * Benchmarks for reading maps in each format, and map lumps.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MapBenchmark
+{
+	/** Amount of sectors along each side of the map grid. */
+	@Param({"16", "64"})
+	public int gridSize;
+
+	private WadBuffer doomWad;
+	private WadBuffer hexenWad;
+	private WadBuffer udmfWad;
+	private byte[] blockmapBytes;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		doomWad = BenchFixtures.createDoomMapWad(gridSize);
+		hexenWad = BenchFixtures.createHexenMapWad(gridSize);
+		udmfWad = BenchFixtures.createUDMFMapWad(gridSize);
+		blockmapBytes = BenchFixtures.createBlockmapBytes(gridSize);
+	}
+
+	@Benchmark
+	public DoomMap readDoomMap() throws IOException
+	{
+		return new DoomMap(doomWad, BenchFixtures.MAP_NAME);
+	}
+
+	@Benchmark
+	public DoomMap readHexenMap() throws IOException
+	{
+		return new DoomMap(hexenWad, BenchFixtures.MAP_NAME);
+	}
+
+	@Benchmark
+	public DoomMap readUDMFMap() throws IOException
+	{
+		return new DoomMap(udmfWad, BenchFixtures.MAP_NAME);
+	}
+
+	@Benchmark
+	public Blockmap readBlockmap() throws IOException
+	{
+		Blockmap out = new Blockmap();
+		out.readDoomBytes(new ByteArrayInputStream(blockmapBytes));
+		return out;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.WadBuffer;
+import com.blackrook.doom.udmf.UDMFEventReader;
+import com.blackrook.doom.udmf.UDMFReader;
+import com.blackrook.doom.udmf.UDMFTable;
+import com.blackrook.doom.udmf.UDMFWriter;
+
+/**
+ * Benchmarks for reading and writing UDMF text.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UDMFBenchmark
+{
+	/** Amount of sectors along each side of the map grid. */
+	@Param({"16", "64"})
+	public int gridSize;
+
+	private UDMFTable table;
+	private byte[] text;
+	private WadBuffer mapWad;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		table = BenchFixtures.createUDMFTable(gridSize);
+		text = BenchFixtures.toUDMFBytes(table);
+		mapWad = BenchFixtures.createUDMFMapWad(gridSize);
+	}
+
+	@Benchmark
+	public UDMFTable readData() throws IOException
+	{
+		return UDMFReader.readData(new ByteArrayInputStream(text));
+	}
+
+	@Benchmark
+	public UDMFTable readDataBuffer()
+	{
+		return UDMFReader.readData(ByteBuffer.wrap(text));
+	}
+
+	@Benchmark
+	public int countStructs()
+	{
+		UDMFEventReader reader = new UDMFEventReader(ByteBuffer.wrap(text));
+		int out = 0;
+		while (reader.nextStruct() != null)
+			out++;
+		return out;
+	}
+
+	@Benchmark
+	public DoomMap readMap() throws IOException
+	{
+		return new DoomMap(mapWad, BenchFixtures.MAP_NAME);
+	}
+
+	@Benchmark
+	public DoomMap readMapLinedefs() throws IOException
+	{
+		return new DoomMap(mapWad, BenchFixtures.MAP_NAME, EnumSet.of(DoomMap.Lump.LINEDEFS), false);
+	}
+
+	@Benchmark
+	public byte[] writeData() throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(text.length);
+		UDMFWriter.writeData(table, bos);
+		return bos.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] writeDataCompact() throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(text.length);
+		UDMFWriter.writeData(table, bos, true);
+		return bos.toByteArray();
+	}
+
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.doom.MappedWadFile;
+import com.blackrook.doom.WadBuffer;
+import com.blackrook.doom.WadFile;
+
+/**
+ * Benchmarks for opening WADs and reading entry data.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WadBenchmark
+{
+	/** Size of each lump in bytes. */
+	private static final int LUMP_SIZE = 256;
+
+	/** Amount of lumps in the WAD. */
+	@Param({"1000", "50000"})
+	public int lumpCount;
+
+	private File wadFile;
+	private byte[] wadBytes;
+	private String lastLumpName;
+
+	private WadFile openWadFile;
+	private WadBuffer openWadBuffer;
+	private MappedWadFile openMappedWadFile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		WadBuffer wad = BenchFixtures.createWad(lumpCount, LUMP_SIZE);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wad.writeToStream(bos);
+		wadBytes = bos.toByteArray();
+		wadFile = BenchFixtures.createWadFile(lumpCount, LUMP_SIZE);
+		lastLumpName = BenchFixtures.getLumpName(lumpCount - 1);
+
+		openWadFile = new WadFile(wadFile);
+		openWadBuffer = new WadBuffer(wadFile);
+		openMappedWadFile = new MappedWadFile(wadFile);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		openWadFile.close();
+		openWadBuffer.close();
+		openMappedWadFile.close();
+	}
+
+	@Benchmark
+	public void openWadFile(Blackhole bh) throws IOException
+	{
+		WadFile wad = new WadFile(wadFile);
+		bh.consume(wad.getSize());
+		wad.close();
+	}
+
+	@Benchmark
+	public void openMappedWadFile(Blackhole bh) throws IOException
+	{
+		MappedWadFile wad = new MappedWadFile(wadFile);
+		bh.consume(wad.getSize());
+		wad.close();
+	}
+
+	@Benchmark
+	public WadBuffer openWadBufferFromFile() throws IOException
+	{
+		return new WadBuffer(wadFile);
+	}
+
+	@Benchmark
+	public WadBuffer openWadBufferFromStream() throws IOException
+	{
+		return new WadBuffer(new ByteArrayInputStream(wadBytes));
+	}
+
+	@Benchmark
+	public byte[] getDataWadFile() throws IOException
+	{
+		return openWadFile.getData(lastLumpName);
+	}
+
+	@Benchmark
+	public byte[] getDataWadBuffer() throws IOException
+	{
+		return openWadBuffer.getData(lastLumpName);
+	}
+
+	@Benchmark
+	public byte[] getDataMappedWadFile() throws IOException
+	{
+		return openMappedWadFile.getData(lastLumpName);
+	}
+
+	@Benchmark
+	public void getDataAllWadFile(Blackhole bh) throws IOException
+	{
+		for (int i = 0; i < lumpCount; i++)
+			bh.consume(openWadFile.getData(i));
+	}
+
+	@Benchmark
+	public void getDataAllWadBuffer(Blackhole bh) throws IOException
+	{
+		for (int i = 0; i < lumpCount; i++)
+			bh.consume(openWadBuffer.getData(i));
+	}
+
+}
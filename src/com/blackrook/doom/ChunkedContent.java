@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A growable byte store made of separately-allocated chunks, used as the content of a {@link WadBuffer}.
+ * <p>
+ * Content is addressed as one contiguous run of bytes, but is never held in one array:
+ * appends fill or add chunks, deletions split or drop chunks without moving the remaining data,
+ * and the whole store can be written to a stream or channel chunk by chunk.
+ * <p>
+ * Chunks may also be <i>lazy</i>: a reference to a region of a source file that is only read
+ * into memory when its data is first requested. Lazy chunks that are never touched are copied
+ * straight from the source file when this store is written out.
+ * <p>
+ * This class is not thread-safe.
+ * @since 2.11.0
+ * @author Matthew Tropiano
+ */
+public final class ChunkedContent
+{
+	/** Default capacity of newly-allocated chunks. */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+	/** Size of the buffer used for copying lazy chunks to streams. */
+	private static final int COPY_BUFFER_SIZE = 65536;
+
+	/** Capacity of newly-allocated chunks. */
+	private int chunkSize;
+	/** The chunks, in content order. */
+	private Chunk[] chunks;
+	/** The content offset of each chunk. */
+	private int[] chunkStarts;
+	/** Amount of chunks used. */
+	private int chunkCount;
+	/** Total content size. */
+	private int size;
+	/** The source file for lazy chunks. Can be null. */
+	private FileChannel source;
+
+	/**
+	 * Creates a new, empty store with the default chunk size.
+	 */
+	public ChunkedContent()
+	{
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new, empty store.
+	 * @param chunkSize the capacity of newly-allocated chunks.
+	 * @throws IllegalArgumentException if chunkSize is less than 1.
+	 */
+	public ChunkedContent(int chunkSize)
+	{
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be greater than 0.");
+		this.chunkSize = chunkSize;
+		this.chunks = new Chunk[8];
+		this.chunkStarts = new int[8];
+		this.chunkCount = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the total amount of bytes in this store.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes all content. The lazy source, if any, is kept open.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < chunkCount; i++)
+			chunks[i] = null;
+		chunkCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Sets the file that lazy chunks are read from.
+	 * This store takes ownership of the channel, and closes it on {@link #close()}.
+	 * @param source the source channel.
+	 */
+	void setSource(FileChannel source)
+	{
+		this.source = source;
+	}
+
+	/**
+	 * Returns true if a source file is still attached to this store.
+	 */
+	public boolean hasSource()
+	{
+		return source != null;
+	}
+
+	/**
+	 * Appends bytes to the end of this store.
+	 * @param data the data to append.
+	 */
+	public void append(byte[] data)
+	{
+		append(data, 0, data.length);
+	}
+
+	/**
+	 * Appends bytes to the end of this store.
+	 * The data is copied into the free space of the last chunk if it fits,
+	 * or into a new chunk if it doesn't.
+	 * @param data the source array.
+	 * @param offset the offset into the array.
+	 * @param length the amount of bytes to append.
+	 */
+	public void append(byte[] data, int offset, int length)
+	{
+		if (length == 0)
+			return;
+		Chunk last = chunkCount > 0 ? chunks[chunkCount - 1] : null;
+		if (last == null || last.getFreeSpace() < length)
+		{
+			last = new Chunk(new byte[Math.max(chunkSize, length)], 0, 0);
+			addChunk(last);
+		}
+		System.arraycopy(data, offset, last.data, last.start + last.length, length);
+		last.length += length;
+		size += length;
+	}
+
+	/**
+	 * Appends bytes read from an input stream to the end of this store,
+	 * reading directly into chunks.
+	 * @param in the input stream to read from.
+	 * @param length the amount of bytes to read.
+	 * @throws IOException if the stream ends early or can't be read.
+	 */
+	public void append(InputStream in, int length) throws IOException
+	{
+		int remaining = length;
+		while (remaining > 0)
+		{
+			Chunk last = chunkCount > 0 ? chunks[chunkCount - 1] : null;
+			if (last == null || last.getFreeSpace() == 0)
+			{
+				last = new Chunk(new byte[Math.min(chunkSize, remaining)], 0, 0);
+				addChunk(last);
+			}
+			int n = in.read(last.data, last.start + last.length, Math.min(last.getFreeSpace(), remaining));
+			if (n < 0)
+				throw new IOException("Reached unexpected end of stream.");
+			last.length += n;
+			size += n;
+			remaining -= n;
+		}
+	}
+
+	/**
+	 * Appends a lazy chunk that refers to a region of the source file.
+	 * @param filePosition the position of the data in the source file.
+	 * @param length the length of the data.
+	 */
+	void appendLazy(long filePosition, int length)
+	{
+		if (length == 0)
+			return;
+		Chunk c = new Chunk(null, 0, length);
+		c.filePosition = filePosition;
+		addChunk(c);
+		size += length;
+	}
+
+	/**
+	 * Copies bytes out of this store.
+	 * @param offset the content offset to start from.
+	 * @param out the output array, filled completely.
+	 * @throws IOException if lazy data could not be read.
+	 * @throws IndexOutOfBoundsException if the requested range is outside of this store.
+	 */
+	public void getData(int offset, byte[] out) throws IOException
+	{
+		getData(offset, out, 0, out.length);
+	}
+
+	/**
+	 * Copies bytes out of this store.
+	 * @param offset the content offset to start from.
+	 * @param out the output array.
+	 * @param outOffset the offset into the output array.
+	 * @param length the amount of bytes to copy.
+	 * @throws IOException if lazy data could not be read.
+	 * @throws IndexOutOfBoundsException if the requested range is outside of this store.
+	 */
+	public void getData(int offset, byte[] out, int outOffset, int length) throws IOException
+	{
+		checkRange(offset, length);
+		if (length == 0)
+			return;
+		int i = findChunk(offset);
+		int k = offset - chunkStarts[i];
+		while (length > 0)
+		{
+			Chunk c = load(chunks[i]);
+			int n = Math.min(length, c.length - k);
+			System.arraycopy(c.data, c.start + k, out, outOffset, n);
+			outOffset += n;
+			length -= n;
+			k = 0;
+			i++;
+		}
+	}
+
+	/**
+	 * Returns a region of this store as a read-only ByteBuffer.
+	 * If the region lies within a single chunk, the buffer is a view of that chunk
+	 * and no data is copied; otherwise, the region is copied into a new buffer.
+	 * The returned buffer's position is 0.
+	 * @param offset the content offset to start from.
+	 * @param length the length of the region.
+	 * @return the buffer.
+	 * @throws IOException if lazy data could not be read.
+	 * @throws IndexOutOfBoundsException if the requested range is outside of this store.
+	 */
+	public ByteBuffer getBuffer(int offset, int length) throws IOException
+	{
+		checkRange(offset, length);
+		if (length == 0)
+			return ByteBuffer.allocate(0).asReadOnlyBuffer();
+		int i = findChunk(offset);
+		int k = offset - chunkStarts[i];
+		if (k + length <= chunks[i].length)
+		{
+			Chunk c = load(chunks[i]);
+			return ByteBuffer.wrap(c.data, c.start + k, length).slice().asReadOnlyBuffer();
+		}
+		byte[] out = new byte[length];
+		getData(offset, out);
+		return ByteBuffer.wrap(out).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Deletes a region of bytes from this store.
+	 * Chunks are split at the region boundaries and the chunks in between are dropped;
+	 * no content is moved.
+	 * @param offset the content offset to start from.
+	 * @param length the amount of bytes to delete.
+	 * @throws IndexOutOfBoundsException if the requested range is outside of this store.
+	 */
+	public void delete(int offset, int length)
+	{
+		checkRange(offset, length);
+		if (length == 0)
+			return;
+		int first = splitAt(offset);
+		int last = splitAt(offset + length);
+		int removed = last - first;
+		System.arraycopy(chunks, last, chunks, first, chunkCount - last);
+		for (int i = chunkCount - removed; i < chunkCount; i++)
+			chunks[i] = null;
+		chunkCount -= removed;
+		size -= length;
+		updateStarts(first);
+	}
+
+	/**
+	 * Reads all lazy chunks into memory.
+	 * @throws IOException if lazy data could not be read.
+	 */
+	public void loadAll() throws IOException
+	{
+		for (int i = 0; i < chunkCount; i++)
+			load(chunks[i]);
+	}
+
+	/**
+	 * Returns true if all chunks are in memory.
+	 */
+	public boolean isLoaded()
+	{
+		for (int i = 0; i < chunkCount; i++)
+			if (chunks[i].data == null)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Writes the entire contents of this store to an output stream.
+	 * Lazy chunks are copied from the source file through a small buffer without being loaded.
+	 * Does not close the stream.
+	 * @param out the output stream.
+	 * @throws IOException if a read or write error occurs.
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		ByteBuffer buffer = null;
+		for (int i = 0; i < chunkCount; i++)
+		{
+			Chunk c = chunks[i];
+			if (c.data != null)
+			{
+				out.write(c.data, c.start, c.length);
+				continue;
+			}
+
+			if (buffer == null)
+				buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+			long pos = c.filePosition;
+			long end = pos + c.length;
+			while (pos < end)
+			{
+				buffer.clear();
+				buffer.limit((int)Math.min(buffer.capacity(), end - pos));
+				readSource(buffer, pos);
+				out.write(buffer.array(), 0, buffer.position());
+				pos += buffer.position();
+			}
+		}
+	}
+
+	/**
+	 * Writes the entire contents of this store to a channel.
+	 * Lazy chunks are transferred from the source file without being loaded.
+	 * Does not close the channel.
+	 * @param out the output channel.
+	 * @throws IOException if a read or write error occurs.
+	 */
+	public void writeTo(WritableByteChannel out) throws IOException
+	{
+		for (int i = 0; i < chunkCount; i++)
+		{
+			Chunk c = chunks[i];
+			if (c.data != null)
+			{
+				ByteBuffer buf = ByteBuffer.wrap(c.data, c.start, c.length);
+				while (buf.hasRemaining())
+					out.write(buf);
+				continue;
+			}
+
+			FileChannel src = getSource();
+			long pos = c.filePosition;
+			long end = pos + c.length;
+			while (pos < end)
+			{
+				long n = src.transferTo(pos, end - pos, out);
+				if (n <= 0)
+					throw new IOException("Could not transfer data from source file.");
+				pos += n;
+			}
+		}
+	}
+
+	/**
+	 * Closes the source file, if any.
+	 * Lazy chunks that were never loaded can no longer be read.
+	 * @throws IOException if the file could not be closed.
+	 */
+	public void close() throws IOException
+	{
+		if (source != null)
+		{
+			source.close();
+			source = null;
+		}
+	}
+
+	private void checkRange(int offset, int length)
+	{
+		if (offset < 0 || length < 0 || offset + length > size || offset + length < 0)
+			throw new IndexOutOfBoundsException("Range "+offset+" to "+(offset+length)+" is outside of content size "+size);
+	}
+
+	private FileChannel getSource() throws IOException
+	{
+		if (source == null)
+			throw new IOException("Source file for unloaded data is closed.");
+		return source;
+	}
+
+	/**
+	 * Fills a buffer from the source file at a position.
+	 */
+	private void readSource(ByteBuffer buffer, long position) throws IOException
+	{
+		FileChannel src = getSource();
+		while (buffer.hasRemaining())
+		{
+			if (src.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("Reached unexpected end of source file.");
+		}
+	}
+
+	/**
+	 * Reads a lazy chunk into memory, if necessary.
+	 */
+	private Chunk load(Chunk c) throws IOException
+	{
+		if (c.data == null)
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(c.length);
+			readSource(buffer, c.filePosition);
+			c.data = buffer.array();
+			c.start = 0;
+			c.filePosition = -1L;
+		}
+		return c;
+	}
+
+	/**
+	 * Adds a chunk to the end of the chunk list.
+	 */
+	private void addChunk(Chunk c)
+	{
+		ensureCapacity(chunkCount + 1);
+		chunks[chunkCount] = c;
+		chunkStarts[chunkCount] = size;
+		chunkCount++;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity <= chunks.length)
+			return;
+		int newCapacity = Math.max(capacity, chunks.length * 2);
+		Chunk[] newChunks = new Chunk[newCapacity];
+		int[] newStarts = new int[newCapacity];
+		System.arraycopy(chunks, 0, newChunks, 0, chunkCount);
+		System.arraycopy(chunkStarts, 0, newStarts, 0, chunkCount);
+		chunks = newChunks;
+		chunkStarts = newStarts;
+	}
+
+	/**
+	 * Recalculates chunk starts from a chunk index onward.
+	 */
+	private void updateStarts(int from)
+	{
+		int start = from > 0 ? chunkStarts[from - 1] + chunks[from - 1].length : 0;
+		for (int i = from; i < chunkCount; i++)
+		{
+			chunkStarts[i] = start;
+			start += chunks[i].length;
+		}
+	}
+
+	/**
+	 * Finds the index of the chunk that contains a content offset (which must be less than size).
+	 */
+	private int findChunk(int offset)
+	{
+		int lo = 0, hi = chunkCount - 1;
+		while (lo < hi)
+		{
+			int mid = (lo + hi + 1) >>> 1;
+			if (chunkStarts[mid] <= offset)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Makes sure that a chunk starts at a content offset, splitting a chunk if needed.
+	 * @return the index of the chunk that starts at the offset, or the chunk count if offset is the content size.
+	 */
+	private int splitAt(int offset)
+	{
+		if (offset == size)
+			return chunkCount;
+		int i = findChunk(offset);
+		int k = offset - chunkStarts[i];
+		if (k == 0)
+			return i;
+
+		Chunk c = chunks[i];
+		Chunk tail;
+		if (c.data != null)
+			tail = new Chunk(c.data, c.start + k, c.length - k);
+		else
+		{
+			tail = new Chunk(null, 0, c.length - k);
+			tail.filePosition = c.filePosition + k;
+		}
+		// the head no longer owns the space after it.
+		c.length = k;
+		c.sealed = true;
+
+		ensureCapacity(chunkCount + 1);
+		System.arraycopy(chunks, i + 1, chunks, i + 2, chunkCount - (i + 1));
+		System.arraycopy(chunkStarts, i + 1, chunkStarts, i + 2, chunkCount - (i + 1));
+		chunks[i + 1] = tail;
+		chunkStarts[i + 1] = offset;
+		chunkCount++;
+		return i + 1;
+	}
+
+	/**
+	 * A single chunk of content.
+	 */
+	private static class Chunk
+	{
+		/** Chunk data. Null if not loaded yet. */
+		private byte[] data;
+		/** Start of this chunk's content in the data array. */
+		private int start;
+		/** Length of this chunk's content. */
+		private int length;
+		/** If true, the space after this chunk's content is not free. */
+		private boolean sealed;
+		/** Position of this chunk's content in the source file, if not loaded. */
+		private long filePosition;
+
+		private Chunk(byte[] data, int start, int length)
+		{
+			this.data = data;
+			this.start = start;
+			this.length = length;
+			this.sealed = false;
+			this.filePosition = -1L;
+		}
+
+		/**
+		 * Returns the amount of bytes that can be appended to this chunk in place.
+		 */
+		private int getFreeSpace()
+		{
+			return data != null && !sealed ? data.length - (start + length) : 0;
+		}
+	}
+
+}
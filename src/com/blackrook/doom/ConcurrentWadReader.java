@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only view of a WAD file that is safe to read from multiple threads at once.
+ * <p>
+ * All entry data is read with positional reads on a {@link FileChannel}, so there is no
+ * shared file pointer, and the entry list is fixed when this reader is created.
+ * A reader can be opened on its own from a file, or created from an open {@link WadFile}
+ * via {@link WadFile#newReader()}, in which case it reflects that file's entry list at the
+ * time of creation. Either way, the reader has its own channel.
+ * <p>
+ * If a thread is interrupted while it is reading, the channel is closed (as with any
+ * interruptible channel), and this reader throws {@link java.nio.channels.ClosedChannelException}s
+ * from then on. Other readers on the same file are not affected.
+ * <p>
+ * This may not be added to or changed.
+ * @since 2.11.0
+ * @author Matthew Tropiano
+ */
+public class ConcurrentWadReader extends ReadOnlyWad
+{
+	/** The channel to read from. */
+	private final FileChannel channel;
+
+	/**
+	 * Opens a reader on a WAD file specified by "path."
+	 * @param path the path to the File.
+	 * @throws IOException if the file can't be read.
+	 * @throws WadException if the file isn't a Wad file.
+	 * @throws NullPointerException if "path" is null.
+	 */
+	public ConcurrentWadReader(String path) throws IOException
+	{
+		this(new File(path));
+	}
+
+	/**
+	 * Opens a reader on a WAD file.
+	 * The file stays open until this reader is closed.
+	 * @param f the file.
+	 * @throws IOException if the file can't be read.
+	 * @throws WadException if the file isn't a Wad file.
+	 * @throws NullPointerException if "f" is null.
+	 */
+	public ConcurrentWadReader(File f) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+		this.channel = file.getChannel();
+		try {
+			readDirectory();
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a reader on an open channel, which it closes when it is closed.
+	 * The directory must not be changed afterward.
+	 * @param channel the channel to read from.
+	 * @param type the WAD type.
+	 * @param entries the entry list to use.
+	 */
+	ConcurrentWadReader(FileChannel channel, Type type, WadDirectory entries)
+	{
+		super(type, entries);
+		this.channel = channel;
+	}
+
+	@Override
+	protected long getContentLength() throws IOException
+	{
+		return channel.size();
+	}
+
+	/**
+	 * Reads a region of the file into a new buffer, with a single positional read.
+	 */
+	@Override
+	protected ByteBuffer readContent(long position, int length) throws IOException
+	{
+		ByteBuffer out = ByteBuffer.allocate(length);
+		while (out.hasRemaining())
+		{
+			if (channel.read(out, position + out.position()) < 0)
+				throw new IOException("Reached unexpected end of file.");
+		}
+		out.flip();
+		return out.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The data is read straight into the returned array.
+	 */
+	@Override
+	public byte[] getData(DoomWadEntry entry) throws IOException
+	{
+		return getDataBuffer(entry).array();
+	}
+
+	/**
+	 * Closes this reader and its channel.
+	 * Readers created by {@link WadFile#newReader()} leave the WadFile open.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+}
@@ -12,8 +12,18 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 import com.blackrook.commons.Common;
 import com.blackrook.commons.list.List;
@@ -30,6 +40,7 @@ import com.blackrook.doom.struct.Sidedef;
 import com.blackrook.doom.struct.TextData;
 import com.blackrook.doom.struct.Thing;
 import com.blackrook.doom.struct.Vertex;
+import com.blackrook.doom.udmf.UDMFEventReader;
 import com.blackrook.doom.udmf.UDMFParseException;
 import com.blackrook.doom.udmf.UDMFReader;
 import com.blackrook.doom.udmf.UDMFStruct;
@@ -58,6 +69,9 @@ import com.blackrook.doom.util.DoomUtil;
  * <p>
  * Optionally, SEGS, SSECTORS, NODES, REJECT, and BLOCKMAP are loaded
  * if they are found.
+ * <p>
+ * A subset of the lumps can be loaded, either immediately or on first access, 
+ * by passing a set of {@link Lump}s to the constructor.
  * 
  * @author Matthew Tropiano
  */
@@ -74,6 +88,45 @@ public class DoomMap
 		UDMF
 	}
 	
+	/**
+	 * Enumeration of the lumps in a map that can be selectively loaded.
+	 * For UDMF maps, the things, linedefs, sidedefs, vertices and sectors
+	 * are all read from the TEXTMAP lump.
+	 * @since 2.11.0
+	 */
+	public static enum Lump
+	{
+		THINGS,
+		LINEDEFS,
+		SIDEDEFS,
+		VERTEXES,
+		SECTORS,
+		SEGS,
+		SSECTORS,
+		NODES,
+		REJECT,
+		BLOCKMAP,
+		ZNODES,
+		BEHAVIOR,
+		SCRIPTS;
+		
+		/**
+		 * Returns the name of the entry that holds this lump in a non-UDMF map.
+		 */
+		public String getEntryName()
+		{
+			return name().toLowerCase();
+		}
+		
+		/**
+		 * Returns true if this lump is map geometry (things, linedefs, sidedefs, vertices or sectors).
+		 */
+		public boolean isGeometry()
+		{
+			return ordinal() <= SECTORS.ordinal();
+		}
+	}
+	
 	/** This map's vertices. */
 	private List<Thing> things;
 	/** This map's linedefs. */
@@ -99,6 +152,8 @@ public class DoomMap
 	
 	/** ZDoom Node chunk. */
 	private RawData zNodes;
+	/** If true, zNodes was set by setZNodes(), and is not replaced by extended nodes read from NODES. */
+	private boolean zNodesSet;
 	/** Behavior chunk. */
 	private RawData behavior;
 	/** Script content. */
@@ -109,6 +164,35 @@ public class DoomMap
 	/** The originating UDMF Namespace, if any. */
 	private String originalUDMFNamespace;
 
+	/** The WAD to read pending lumps from, if any. */
+	private DoomWad sourceWad;
+	/** The index of the map header in the source WAD. */
+	private int sourceHeaderIndex;
+	/** The amount of entries of the map in the source WAD, including the header. */
+	private int sourceMapLength;
+	/** The selected lumps that have not been read yet. */
+	private EnumSet<Lump> pendingLumps = EnumSet.noneOf(Lump.class);
+
+	/**
+	 * Constructs a new, empty DoomMap.
+	 * @param format			the format to write this map in.
+	 * @param udmfNamespace		the UDMF namespace name to write this map with, if format is UDMF (else null).
+	 * @throws NullPointerException	if format is null.
+	 * @since 2.11.0
+	 */
+	public DoomMap(Format format, String udmfNamespace)
+	{
+		if (format == null)
+			throw new NullPointerException("format cannot be null.");
+		things = new List<Thing>();
+		linedefs = new List<Linedef>();
+		sidedefs = new List<Sidedef>();
+		vertices = new List<Vertex>();
+		sectors = new List<Sector>();
+		originalFormat = format;
+		originalUDMFNamespace = udmfNamespace;
+	}
+
 	/**
 	 * Constructs a DoomMap from an existing map in a DoomWad.
 	 * Please note that this constructor will try to figure out what format the data is in.
@@ -123,31 +207,7 @@ public class DoomMap
 	 */
 	public DoomMap(DoomWad wf, GameType gameType, String headerName) throws IOException
 	{
-		blockmap = new Blockmap();
-		behavior = new RawData();
-
-		Format type = detectFormat(wf, headerName, gameType);
-		if (type == null)
-			throw new WadException("No such entry \""+headerName+"\" in the Wad.");
-		
-		int headerIndex = wf.getIndexOf(headerName);
-
-		switch (type)
-		{
-			case DOOM:
-				makeDoomMap(wf, headerIndex);
-				break;
-			case HEXEN:
-				makeHexenMap(wf, headerIndex);
-				break;
-			case STRIFE:
-				makeStrifeMap(wf, headerIndex);
-				break;
-			case UDMF:
-				makeUDMFMap(wf, headerIndex);
-				break;
-		}
-		
+		this(wf, gameType, headerName, EnumSet.allOf(Lump.class), false);
 	}
 	
 	/**
@@ -162,199 +222,444 @@ public class DoomMap
 	 */
 	public DoomMap(DoomWad wf, String headerName) throws IOException
 	{
-		blockmap = new Blockmap();
-		behavior = new RawData();
+		this(wf, headerName, EnumSet.allOf(Lump.class), false);
+	}
+
+	/**
+	 * Constructs a DoomMap from a selection of the lumps of an existing map in a DoomWad.
+	 * Please note that this constructor will try to figure out what format the data is in.
+	 * <p>
+	 * Lumps that are not selected are never read: their accessors return null, their counts
+	 * (like {@link #getThingCount()}) return 0, and they are left out by {@link #writeToWad(String, WadFile)},
+	 * which refuses to write the map if any geometry lump was left out.
+	 * If <code>lazy</code> is true, selected lumps are not read until they are first accessed,
+	 * so the DoomWad must remain open and unchanged until they are (or until {@link #loadLumps()} is called),
+	 * and accessors throw an {@link IllegalStateException} if a lump can't be read at that point.
+	 * Lazy loading is not thread-safe.
+	 * @param wf					the DoomWad to use.
+	 * @param gameType				the known gametype.
+	 * @param headerName			the name of the map to read.
+	 * @param lumps					the lumps to read.
+	 * @param lazy					if true, read lumps on first access instead of now.
+	 * @throws MapException 		if important data couldn't be retreived from the map.
+	 * @throws WadException 		if headername is not a valid entry in wf.
+	 * @throws IOException			if the wad file can't be read.
+	 * @throws NullPointerException	if wf, headername, or lumps is null.
+	 * @since 2.11.0
+	 */
+	public DoomMap(DoomWad wf, GameType gameType, String headerName, Set<Lump> lumps, boolean lazy) throws IOException
+	{
+		this(wf, detectFormat(wf, headerName, gameType), headerName, lumps, lazy);
+	}
 
-		Format type = detectFormat(wf, headerName);
+	/**
+	 * Constructs a DoomMap from a selection of the lumps of an existing map in a DoomWad.
+	 * Please note that this constructor will try to figure out what format the data is in.
+	 * <p>
+	 * Lumps that are not selected are never read: their accessors return null, their counts
+	 * (like {@link #getThingCount()}) return 0, and they are left out by {@link #writeToWad(String, WadFile)},
+	 * which refuses to write the map if any geometry lump was left out.
+	 * If <code>lazy</code> is true, selected lumps are not read until they are first accessed,
+	 * so the DoomWad must remain open and unchanged until they are (or until {@link #loadLumps()} is called),
+	 * and accessors throw an {@link IllegalStateException} if a lump can't be read at that point.
+	 * Lazy loading is not thread-safe.
+	 * @param wf					the DoomWad to use.
+	 * @param headerName			the name of the map to read.
+	 * @param lumps					the lumps to read.
+	 * @param lazy					if true, read lumps on first access instead of now.
+	 * @throws MapException 		if important data couldn't be retreived from the map.
+	 * @throws WadException 		if headername is not a valid entry in wf.
+	 * @throws IOException			if the wad file can't be read.
+	 * @throws NullPointerException	if wf, headername, or lumps is null.
+	 * @since 2.11.0
+	 */
+	public DoomMap(DoomWad wf, String headerName, Set<Lump> lumps, boolean lazy) throws IOException
+	{
+		this(wf, detectFormat(wf, headerName), headerName, lumps, lazy);
+	}
+
+	private DoomMap(DoomWad wf, Format type, String headerName, Set<Lump> lumps, boolean lazy) throws IOException
+	{
+		this(wf, type, headerName, wf.getIndexOf(headerName), lumps, lazy);
+	}
+
+	// Constructs a map from the header at an index in a DoomWad. The name is for the error message.
+	private DoomMap(DoomWad wf, Format type, String headerName, int headerIndex, Set<Lump> lumps, boolean lazy) throws IOException
+	{
 		if (type == null)
 			throw new WadException("No such entry \""+headerName+"\" in the Wad.");
 		
-		int headerIndex = wf.getIndexOf(headerName);
+		originalFormat = type;
+		sourceWad = wf;
+		sourceHeaderIndex = headerIndex;
+		sourceMapLength = getMapContentLength(wf, headerIndex);
+		pendingLumps.addAll(lumps);
+
+		if (lumps.contains(Lump.BLOCKMAP))
+			blockmap = new Blockmap();
+		if (lumps.contains(Lump.BEHAVIOR))
+			behavior = new RawData();
 
-		switch (type)
+		if (!lazy)
+			loadLumps();
+	}
+
+	// Drops a geometry list, as if its lump was not selected for loading. Used by PackedDoomMap.
+	void unloadGeometry(Lump lump)
+	{
+		pendingLumps.remove(lump);
+		switch (lump)
 		{
-			case DOOM:
-				makeDoomMap(wf, headerIndex);
+			case THINGS:
+				things = null;
 				break;
-			case HEXEN:
-				makeHexenMap(wf, headerIndex);
+			case LINEDEFS:
+				linedefs = null;
 				break;
-			case STRIFE:
-				makeStrifeMap(wf, headerIndex);
+			case SIDEDEFS:
+				sidedefs = null;
 				break;
-			case UDMF:
-				makeUDMFMap(wf, headerIndex);
+			case VERTEXES:
+				vertices = null;
 				break;
+			case SECTORS:
+				sectors = null;
+				break;
+			default:
+				throw new IllegalArgumentException(lump + " is not geometry.");
 		}
-		
 	}
 
-	private void makeDoomMap(DoomWad wf, int headerIndex) throws IOException
+	/**
+	 * Reads all selected lumps that have not been read yet.
+	 * This only does anything on maps that were constructed with lazy loading.
+	 * @throws MapException if important data couldn't be retreived from the map.
+	 * @throws IOException if the wad file can't be read.
+	 * @since 2.11.0
+	 */
+	public void loadLumps() throws IOException
 	{
-		byte[] lumpData;
-		
-		originalFormat = Format.DOOM;
-		
-		lumpData = wf.getData("things", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Thing data couldn't be loaded.");
-		things = readDoomThingLump(lumpData);
-		
-		lumpData = wf.getData("linedefs", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Linedef data couldn't be loaded.");
-		linedefs = readDoomLinedefLump(lumpData);
-		
-		finishMap(wf, headerIndex);
+		for (Lump lump : Lump.values())
+			if (pendingLumps.contains(lump))
+				loadLump(lump);
+		releaseSource();
 	}
-
-	private void makeHexenMap(DoomWad wf, int headerIndex) throws IOException
+	
+	/**
+	 * Returns true if a lump was selected for loading and has not been read yet.
+	 * @param lump the lump to check.
+	 * @since 2.11.0
+	 */
+	public boolean isPending(Lump lump)
 	{
-		byte[] lumpData;
-		
-		originalFormat = Format.HEXEN;
-		
-		lumpData = wf.getData("things", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Thing data couldn't be loaded.");
-		things = readHexenThingLump(lumpData);
-		
-		lumpData = wf.getData("linedefs", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Linedef data couldn't be loaded.");
-		linedefs = readHexenLinedefLump(lumpData);
-		
-		finishMap(wf, headerIndex);
-		finishMisc(wf, headerIndex);
+		return pendingLumps.contains(lump);
 	}
 
-	private void makeStrifeMap(DoomWad wf, int headerIndex) throws IOException
+	// Loads a lump for an accessor, if pending.
+	private void loadPending(Lump lump)
+	{
+		if (!pendingLumps.contains(lump))
+			return;
+		try {
+			loadLump(lump);
+		} catch (IOException e) {
+			throw new IllegalStateException("Couldn't load map lump "+lump.getEntryName().toUpperCase()+".", e);
+		}
+		releaseSource();
+	}
+	
+	// Drops the reference to the source WAD once nothing else can be read from it.
+	private void releaseSource()
 	{
-		byte[] lumpData;
-		
-		originalFormat = Format.STRIFE;
-		
-		lumpData = wf.getData("things", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Thing data couldn't be loaded.");
-		things = readStrifeThingLump(lumpData);
-		
-		lumpData = wf.getData("linedefs", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Linedef data couldn't be loaded.");
-		linedefs = readStrifeLinedefLump(lumpData);
-		
-		finishMap(wf, headerIndex);
+		if (pendingLumps.isEmpty() && (originalFormat != Format.UDMF || originalUDMFNamespace != null))
+			sourceWad = null;
 	}
 
-	private void makeUDMFMap(DoomWad wf, int headerIndex) throws IOException
+	private void loadLump(Lump lump) throws IOException
 	{
-		originalFormat = Format.UDMF;
-		
-		int endIndex = wf.getIndexOf("endmap", headerIndex);
-		if (endIndex == -1)
-			throw new MapException("No such entry \"ENDMAP\" in the WAD: TEXTMAP without ENDMAP.");
-	
-		int textIndex = wf.getIndexOf("textmap", headerIndex);
-	
-		if (textIndex > endIndex)
-			throw new MapException("Malformed WAD: TEXTMAP after ENDMAP.");
+		if (originalFormat == Format.UDMF && lump.isGeometry())
+		{
+			loadUDMFMap();
+			return;
+		}
 
+		pendingLumps.remove(lump);
 		
-		UDMFTable udmfTable = readUDMFTable(wf.getData(textIndex));
-		UDMFNamespace udmfNamespace = readUDMFNamespace(udmfTable);
+		ByteBuffer lumpData;
+		byte[] lumpBytes;
+		switch (lump)
+		{
+			case THINGS:
+				lumpData = getLumpBuffer("things");
+				if (lumpData == null)
+					throw new MapException("Thing data couldn't be loaded.");
+				if (originalFormat == Format.HEXEN)
+					things = readHexenThingLump(lumpData);
+				else if (originalFormat == Format.STRIFE)
+					things = readStrifeThingLump(lumpData);
+				else
+					things = readDoomThingLump(lumpData);
+				break;
 
-		originalUDMFNamespace = udmfNamespace.getName();
-	
-		linedefs = readUDMFLinedefs(udmfNamespace, udmfTable);
-		sidedefs = readUDMFSidedefs(udmfNamespace, udmfTable);
-		things = readUDMFThings(udmfNamespace, udmfTable);
-		vertices = readUDMFVertices(udmfNamespace, udmfTable);
-		sectors = readUDMFSectors(udmfNamespace, udmfTable);
-		
-		finishNodes(wf, headerIndex);
-		finishMisc(wf, headerIndex);
+			case LINEDEFS:
+				lumpData = getLumpBuffer("linedefs");
+				if (lumpData == null)
+					throw new MapException("Linedef data couldn't be loaded.");
+				if (originalFormat == Format.HEXEN)
+					linedefs = readHexenLinedefLump(lumpData);
+				else if (originalFormat == Format.STRIFE)
+					linedefs = readStrifeLinedefLump(lumpData);
+				else
+					linedefs = readDoomLinedefLump(lumpData);
+				break;
+
+			case SIDEDEFS:
+				lumpData = getLumpBuffer("sidedefs");
+				if (lumpData == null)
+					throw new MapException("Sidedefs data couldn't be loaded.");
+				sidedefs = readSidedefLump(lumpData);
+				break;
+
+			case VERTEXES:
+				lumpData = getLumpBuffer("vertexes");
+				if (lumpData == null)
+					throw new MapException("Vertex data couldn't be loaded.");
+				vertices = readVertexLump(lumpData);
+				break;
+
+			case SECTORS:
+				lumpData = getLumpBuffer("sectors");
+				if (lumpData == null)
+					throw new MapException("Sector data couldn't be loaded.");
+				sectors = readSectorLump(lumpData);
+				break;
+
+			case ZNODES:
+				lumpBytes = getLumpData("znodes");
+				if (lumpBytes != null)
+					zNodes = new RawData(lumpBytes);
+				else if (originalFormat != Format.UDMF)
+				{
+					// binary maps store ZDoom extended nodes in NODES.
+					lumpBytes = getLumpData("nodes");
+					if (lumpBytes != null && isExtendedNodes(lumpBytes))
+						zNodes = new RawData(lumpBytes);
+				}
+				break;
+
+			case NODES:
+				lumpBytes = getLumpData("nodes");
+				if (lumpBytes != null)
+				{
+					// ZDoom extended nodes can be stored in NODES.
+					if (isExtendedNodes(lumpBytes))
+					{
+						if (!zNodesSet && zNodes == null)
+							zNodes = new RawData(lumpBytes);
+						pendingLumps.remove(Lump.ZNODES);
+					}
+					else
+						nodes = readBSPNodeLump(lumpBytes);
+				}
+				break;
+
+			case SEGS:
+				lumpBytes = getLumpData("segs");
+				if (lumpBytes != null)
+					segs = readBSPSegmentLump(lumpBytes);
+				break;
+
+			case SSECTORS:
+				lumpBytes = getLumpData("ssectors");
+				if (lumpBytes != null)
+					subsectors = readBSPSubsectorLump(lumpBytes);
+				break;
+
+			case REJECT:
+				lumpData = getLumpBuffer("reject");
+				if (lumpData != null)
+				{
+					if (!lumpData.hasRemaining())
+						reject = null;
+					else
+					{
+						reject = new Reject(getRejectSectorCount());
+						reject.readDoomBytes(lumpData);
+					}
+				}
+				break;
+
+			case BLOCKMAP:
+				lumpData = getLumpBuffer("blockmap");
+				if (lumpData != null)
+				{
+					if (!lumpData.hasRemaining())
+						blockmap = null;
+					else
+					{
+						blockmap = new Blockmap();
+						blockmap.readDoomBytes(lumpData);
+					}
+				}
+				break;
+
+			case BEHAVIOR:
+				if (originalFormat == Format.DOOM || originalFormat == Format.STRIFE)
+					break;
+				lumpBytes = getLumpData("behavior");
+				if (lumpBytes != null)
+					behavior = new RawData(lumpBytes);
+				break;
+
+			case SCRIPTS:
+				if (originalFormat == Format.DOOM || originalFormat == Format.STRIFE)
+					break;
+				lumpBytes = getLumpData("scripts");
+				if (lumpBytes != null)
+					scripts = new TextData(Common.getTextualContents(new ByteArrayInputStream(lumpBytes), "ASCII"));
+				break;
+		}
 	}
 
-	private void finishMap(DoomWad wf, int headerIndex) throws IOException
+	// Returns the index of a lump in the source map, or -1 if the map has no such lump.
+	private int getLumpIndex(String name)
 	{
-		byte[] lumpData;
+		int i = sourceWad.getIndexOf(name, sourceHeaderIndex + 1);
+		return i != -1 && i < sourceHeaderIndex + sourceMapLength ? i : -1;
+	}
 
-		lumpData = wf.getData("sidedefs", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Sidedefs data couldn't be loaded.");
-		sidedefs = readSidedefLump(lumpData);
-		
-		lumpData = wf.getData("vertexes", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Vertex data couldn't be loaded.");
-		vertices = readVertexLump(lumpData);
-		
-		lumpData = wf.getData("sectors", headerIndex);
-		if (lumpData == null)
-			throw new MapException("Sector data couldn't be loaded.");
-		sectors = readSectorLump(lumpData);
+	// Returns the data of a lump in the source map as a buffer, or null if the map has no such lump.
+	private ByteBuffer getLumpBuffer(String name) throws IOException
+	{
+		int i = getLumpIndex(name);
+		return i != -1 ? sourceWad.getDataBuffer(i) : null;
+	}
 
-		finishNodes(wf, headerIndex);
+	// Returns the data of a lump in the source map, or null if the map has no such lump.
+	private byte[] getLumpData(String name) throws IOException
+	{
+		int i = getLumpIndex(name);
+		return i != -1 ? sourceWad.getData(i) : null;
 	}
-	
-	private void finishNodes(DoomWad wf, int headerIndex) throws IOException
+
+	// Returns true if NODES lump data is in a ZDoom extended format.
+	private static boolean isExtendedNodes(byte[] lumpBytes)
 	{
-		byte[] lumpData;
+		return lumpBytes.length >= 4
+			&& (lumpBytes[0] == 'X' || lumpBytes[0] == 'Z')
+			&& lumpBytes[1] == 'N' && lumpBytes[2] == 'O' && lumpBytes[3] == 'D';
+	}
 
-		lumpData = wf.getData("znodes", headerIndex);
-		if (lumpData != null)
-			zNodes = new RawData(lumpData);
+	// Returns the amount of sectors, for sizing the reject, without decoding the sectors if they aren't wanted.
+	private int getRejectSectorCount() throws IOException
+	{
+		if (pendingLumps.contains(Lump.SECTORS))
+			loadLump(Lump.SECTORS);
+		if (sectors != null)
+			return sectors.size();
+		if (originalFormat == Format.UDMF)
+		{
+			UDMFEventReader reader = new UDMFEventReader(readTextMap());
+			int count = 0;
+			String type;
+			while ((type = reader.nextStruct()) != null)
+				if (type.equalsIgnoreCase("sector"))
+					count++;
+			return count;
+		}
 
-		lumpData = wf.getData("nodes", headerIndex);
-		if (lumpData != null)
-			nodes = readBSPNodeLump(lumpData);
+		ByteBuffer lumpData = getLumpBuffer("sectors");
+		if (lumpData == null)
+			throw new MapException("Sector data couldn't be loaded.");
+		return lumpData.remaining() / Sector.getDoomLength();
+	}
 	
-		lumpData = wf.getData("segs", headerIndex);
-		if (lumpData != null)
-			segs = readBSPSegmentLump(lumpData);
+	// Returns the TEXTMAP data.
+	private ByteBuffer readTextMap() throws IOException
+	{
+		int endIndex = sourceWad.getIndexOf("endmap", sourceHeaderIndex);
+		if (endIndex == -1)
+			throw new MapException("No such entry \"ENDMAP\" in the WAD: TEXTMAP without ENDMAP.");
 	
-		lumpData = wf.getData("ssectors", headerIndex);
-		if (lumpData != null)
-			subsectors = readBSPSubsectorLump(lumpData);
+		int textIndex = sourceWad.getIndexOf("textmap", sourceHeaderIndex);
 	
-		lumpData = wf.getData("reject", headerIndex);
-		if (lumpData != null)
+		if (textIndex > endIndex)
+			throw new MapException("Malformed WAD: TEXTMAP after ENDMAP.");
+
+		return sourceWad.getDataBuffer(textIndex);
+	}
+
+	/*
+	 * Reads all pending geometry lumps from the TEXTMAP, and the namespace.
+	 * Each structure is handed to the namespace's read...Attribs() as it is reached, which
+	 * sets its fields on the new object as they are read, and structures of types that are
+	 * not pending are skipped.
+	 */
+	private void loadUDMFMap() throws IOException
+	{
+		UDMFEventReader reader = new UDMFEventReader(readTextMap());
+		UDMFNamespace udmfNamespace = null;
+
+		List<Linedef> linedefList = pendingLumps.contains(Lump.LINEDEFS) ? new List<Linedef>() : null;
+		List<Sidedef> sidedefList = pendingLumps.contains(Lump.SIDEDEFS) ? new List<Sidedef>() : null;
+		List<Thing> thingList = pendingLumps.contains(Lump.THINGS) ? new List<Thing>() : null;
+		List<Vertex> vertexList = pendingLumps.contains(Lump.VERTEXES) ? new List<Vertex>() : null;
+		List<Sector> sectorList = pendingLumps.contains(Lump.SECTORS) ? new List<Sector>() : null;
+
+		String type;
+		while ((type = reader.nextStruct()) != null)
 		{
-			if (lumpData.length == 0)
-				reject = null;
-			else
+			if (udmfNamespace == null)
+				udmfNamespace = readUDMFNamespace(reader.getGlobalFields());
+
+			if (linedefList != null && type.equalsIgnoreCase("linedef"))
 			{
-				ByteArrayInputStream bis = new ByteArrayInputStream(lumpData);
-				reject = new Reject(sectors.size());
-				reject.readDoomBytes(bis);
+				Linedef obj = new Linedef();
+				udmfNamespace.readLinedefAttribs(reader, obj);
+				linedefList.add(obj);
 			}
-		}
-	
-		lumpData = wf.getData("blockmap", headerIndex);
-		if (lumpData != null)
-		{
-			if (lumpData.length == 0)
-				blockmap = null;
-			else
+			else if (sidedefList != null && type.equalsIgnoreCase("sidedef"))
+			{
+				Sidedef obj = new Sidedef();
+				udmfNamespace.readSidedefAttribs(reader, obj);
+				sidedefList.add(obj);
+			}
+			else if (thingList != null && type.equalsIgnoreCase("thing"))
+			{
+				Thing obj = new Thing();
+				udmfNamespace.readThingAttribs(reader, obj);
+				thingList.add(obj);
+			}
+			else if (vertexList != null && type.equalsIgnoreCase("vertex"))
+			{
+				Vertex obj = new Vertex();
+				udmfNamespace.readVertexAttribs(reader, obj);
+				vertexList.add(obj);
+			}
+			else if (sectorList != null && type.equalsIgnoreCase("sector"))
 			{
-				ByteArrayInputStream bis = new ByteArrayInputStream(lumpData);
-				blockmap = new Blockmap();
-				blockmap.readDoomBytes(bis);
+				Sector obj = new Sector();
+				udmfNamespace.readSectorAttribs(reader, obj);
+				sectorList.add(obj);
 			}
 		}
-	}
+		if (udmfNamespace == null)
+			udmfNamespace = readUDMFNamespace(reader.getGlobalFields());
 
-	private void finishMisc(DoomWad wf, int headerIndex) throws IOException
-	{
-		byte[] lumpData = wf.getData("behavior", headerIndex);
-		if (lumpData != null)
-			behavior = new RawData(lumpData);
-		lumpData = wf.getData("scripts", headerIndex);
-		if (lumpData != null)
-			scripts = new TextData(Common.getTextualContents(new ByteArrayInputStream(lumpData), "ASCII"));
-	}
+		originalUDMFNamespace = udmfNamespace.getName();
 	
+		if (pendingLumps.remove(Lump.LINEDEFS))
+			linedefs = linedefList;
+		if (pendingLumps.remove(Lump.SIDEDEFS))
+			sidedefs = sidedefList;
+		if (pendingLumps.remove(Lump.THINGS))
+			things = thingList;
+		if (pendingLumps.remove(Lump.VERTEXES))
+			vertices = vertexList;
+		if (pendingLumps.remove(Lump.SECTORS))
+			sectors = sectorList;
+	}
+
 	/**
 	 * Returns the map's originating format type.
 	 */
@@ -368,6 +673,18 @@ public class DoomMap
 	 */
 	public String getOriginalUDMFNamespace()
 	{
+		if (originalUDMFNamespace == null && originalFormat == Format.UDMF && sourceWad != null)
+		{
+			try {
+				// the namespace comes before the first structure.
+				UDMFEventReader reader = new UDMFEventReader(readTextMap());
+				reader.nextStruct();
+				originalUDMFNamespace = readUDMFNamespace(reader.getGlobalFields()).getName();
+			} catch (IOException e) {
+				throw new IllegalStateException("Couldn't read map TEXTMAP.", e);
+			}
+			releaseSource();
+		}
 		return originalUDMFNamespace;
 	}
 
@@ -465,7 +782,12 @@ public class DoomMap
 	 */
 	public static int getMapContentIndices(DoomWad wad, String headerName)
 	{
-		int start = wad.getIndexOf(headerName);
+		return getMapContentLength(wad, wad.getIndexOf(headerName));
+	}
+	
+	// Returns the amount of entries in a map, including the header at the start index.
+	private static int getMapContentLength(DoomWad wad, int start)
+	{
 		int end = 0;
 		
 		if (start + 1 == wad.getSize())
@@ -486,16 +808,181 @@ public class DoomMap
 		
 		return end - start;
 	}
+
+	/**
+	 * Reads every map in a WAD, decoding them in parallel on a new {@link ForkJoinPool}.
+	 * @param wad the WAD to read.
+	 * @return the maps, in the order of their headers in the WAD.
+	 * @throws MapException if important data couldn't be retreived from a map.
+	 * @throws IOException if the WAD can't be read, or the current thread is interrupted while waiting.
+	 * @see #loadAll(DoomWad, GameType, Executor)
+	 * @since 2.11.0
+	 */
+	public static DoomMap[] loadAll(DoomWad wad) throws IOException
+	{
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return loadAll(wad, null, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Reads every map in a WAD, decoding them in parallel.
+	 * @param wad the WAD to read.
+	 * @param executor the executor to decode the maps with.
+	 * @return the maps, in the order of their headers in the WAD.
+	 * @throws MapException if important data couldn't be retreived from a map.
+	 * @throws IOException if the WAD can't be read, or the current thread is interrupted while waiting.
+	 * @see #loadAll(DoomWad, GameType, Executor)
+	 * @since 2.11.0
+	 */
+	public static DoomMap[] loadAll(DoomWad wad, Executor executor) throws IOException
+	{
+		return loadAll(wad, null, executor);
+	}
+
+	/**
+	 * Reads every map in a WAD, decoding them in parallel.
+	 * <p>
+	 * Each map is read straight from the WAD by the task that decodes it, with no intermediate copy.
+	 * A {@link WadFile} is read through a {@link ConcurrentWadReader} with its own channel
+	 * (see {@link WadFile#newReader()}), which is closed before this method returns.
+	 * A {@link ConcurrentWadReader} or a {@link MappedWadFile} is safe to read from multiple 
+	 * threads and is read directly. Any other DoomWad is not known to be thread-safe, so the 
+	 * entries of each map are copied from it on the calling thread first, in directory order.
+	 * <p>
+	 * This method returns once all maps are decoded. If one fails, the tasks that have not
+	 * started yet are cancelled.
+	 * @param wad the WAD to read.
+	 * @param gameType the known game type. If null, it will make an attempt to find it, if needed.
+	 * @param executor the executor to decode the maps with.
+	 * @return the maps, in the order of their headers in the WAD (see {@link #getAllMapIndices(DoomWad)}).
+	 * @throws MapException if important data couldn't be retreived from a map.
+	 * @throws IOException if the WAD can't be read, or the current thread is interrupted while waiting.
+	 * @throws NullPointerException if wad or executor is null.
+	 * @since 2.11.0
+	 */
+	public static DoomMap[] loadAll(DoomWad wad, GameType gameType, Executor executor) throws IOException
+	{
+		ConcurrentWadReader reader = wad instanceof WadFile ? ((WadFile)wad).newReader() : null;
+		try {
+			if (reader != null)
+				return loadAll(reader, gameType, executor, false);
+			else if (wad instanceof ConcurrentWadReader || wad instanceof MappedWadFile)
+				return loadAll(wad, gameType, executor, false);
+			else
+				return loadAll(wad, gameType, executor, true);
+		} finally {
+			if (reader != null)
+				reader.close();
+		}
+	}
+
+	// Reads every map in a WAD, in tasks on an executor, from the WAD itself or from copies of each map.
+	private static DoomMap[] loadAll(DoomWad wad, GameType gameType, Executor executor, boolean copy) throws IOException
+	{
+		int[] indices = getAllMapIndices(wad);
+		List<FutureTask<DoomMap>> tasks = new List<FutureTask<DoomMap>>(indices.length);
+		boolean done = false;
+		try {
+			for (int index : indices)
+			{
+				int length = getMapContentLength(wad, index);
+				boolean textmap = containsInMap(wad, index, length, "textmap");
+				boolean behavior = containsInMap(wad, index, length, "behavior");
+				
+				// Strife maps can only be told apart from Doom maps by the rest of the WAD.
+				if (gameType == null && !textmap && !behavior)
+					gameType = DoomUtil.intuitGameType(wad);
+
+				final Format format;
+				if (textmap)
+					format = Format.UDMF;
+				else if (behavior)
+					format = Format.HEXEN;
+				else
+					format = gameType == GameType.STRIFE ? Format.STRIFE : Format.DOOM;
+
+				final DoomWad source = copy ? copyMap(wad, index, length) : wad;
+				final String headerName = wad.getEntry(index).getName();
+				final int headerIndex = copy ? 0 : index;
+				FutureTask<DoomMap> task = new FutureTask<DoomMap>(new Callable<DoomMap>()
+				{
+					@Override
+					public DoomMap call() throws IOException
+					{
+						return new DoomMap(source, format, headerName, headerIndex, EnumSet.allOf(Lump.class), false);
+					}
+				});
+				tasks.add(task);
+				executor.execute(task);
+			}
+			
+			DoomMap[] out = new DoomMap[indices.length];
+			for (int i = 0; i < out.length; i++)
+				out[i] = getResult(tasks.getByIndex(i));
+			done = true;
+			return out;
+		} finally {
+			if (!done)
+				for (FutureTask<DoomMap> task : tasks)
+					task.cancel(false);
+		}
+	}
+
+	// Returns true if an entry is in the entries of a map, after the header.
+	private static boolean containsInMap(DoomWad wad, int headerIndex, int length, String name)
+	{
+		int i = wad.getIndexOf(name, headerIndex + 1);
+		return i != -1 && i < headerIndex + length;
+	}
+
+	// Copies the entries of a map into a new WAD.
+	private static WadBuffer copyMap(DoomWad wad, int headerIndex, int length) throws IOException
+	{
+		String[] names = new String[length];
+		byte[][] data = new byte[length][];
+		for (int i = 0; i < length; i++)
+		{
+			names[i] = wad.getEntry(headerIndex + i).getName();
+			data[i] = wad.getData(headerIndex + i);
+		}
+		WadBuffer out = new WadBuffer();
+		out.addAll(names, data);
+		return out;
+	}
+	
+	// Waits for a map task and returns its map, rethrowing what it threw.
+	private static DoomMap getResult(FutureTask<DoomMap> task) throws IOException
+	{
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a map to load.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException)cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else if (cause instanceof Error)
+				throw (Error)cause;
+			else
+				throw new IOException(cause);
+		}
+	}
 	
 	/**
 	 * Reads in a Doom Linedef lump and returns it as a list of Doom Linedefs.
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Linedef> readDoomLinedefLump(InputStream in) throws IOException
 	{
-		return (List<Linedef>)readDoomObjects(Linedef.class, in, in.available()/Linedef.getDoomLength());
+		return readDoomLinedefLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Linedef.getDoomLength()*Linedef.getDoomLength())));
 	}
 	
 	/**
@@ -505,7 +992,28 @@ public class DoomMap
 	 */
 	public static List<Linedef> readDoomLinedefLump(byte[] b) throws IOException
 	{
-		return readDoomLinedefLump(new ByteArrayInputStream(b));
+		return readDoomLinedefLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Doom Linedef lump and returns it as a list of Doom Linedefs.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Linedef> readDoomLinedefLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Linedef.getDoomLength();
+		List<Linedef> out = new List<Linedef>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Linedef obj = new Linedef();
+			obj.readDoomBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -513,10 +1021,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Thing> readDoomThingLump(InputStream in) throws IOException
 	{
-		return (List<Thing>)readDoomObjects(Thing.class, in, in.available()/Thing.getDoomLength());
+		return readDoomThingLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Thing.getDoomLength()*Thing.getDoomLength())));
 	}
 	
 	/**
@@ -526,7 +1033,28 @@ public class DoomMap
 	 */
 	public static List<Thing> readDoomThingLump(byte[] b) throws IOException
 	{
-		return readDoomThingLump(new ByteArrayInputStream(b));
+		return readDoomThingLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Doom Thing lump and returns it as a list of Doom Things.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Thing> readDoomThingLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Thing.getDoomLength();
+		List<Thing> out = new List<Thing>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Thing obj = new Thing();
+			obj.readDoomBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -534,10 +1062,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Linedef> readHexenLinedefLump(InputStream in) throws IOException
 	{
-		return (List<Linedef>)readHexenObjects(Linedef.class, in, in.available()/Linedef.getHexenLength());
+		return readHexenLinedefLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Linedef.getHexenLength()*Linedef.getHexenLength())));
 	}
 	
 	/**
@@ -547,7 +1074,28 @@ public class DoomMap
 	 */
 	public static List<Linedef> readHexenLinedefLump(byte[] b) throws IOException
 	{
-		return readHexenLinedefLump(new ByteArrayInputStream(b));
+		return readHexenLinedefLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Hexen Linedef lump and returns it as a list of Hexen Linedefs.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Linedef> readHexenLinedefLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Linedef.getHexenLength();
+		List<Linedef> out = new List<Linedef>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Linedef obj = new Linedef();
+			obj.readHexenBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -555,10 +1103,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Thing> readHexenThingLump(InputStream in) throws IOException
 	{
-		return (List<Thing>)readHexenObjects(Thing.class, in, in.available()/Thing.getHexenLength());
+		return readHexenThingLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Thing.getHexenLength()*Thing.getHexenLength())));
 	}
 	
 	/**
@@ -568,7 +1115,28 @@ public class DoomMap
 	 */
 	public static List<Thing> readHexenThingLump(byte[] b) throws IOException
 	{
-		return readHexenThingLump(new ByteArrayInputStream(b));
+		return readHexenThingLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Hexen Thing lump and returns it as a list of Hexen Things.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Thing> readHexenThingLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Thing.getHexenLength();
+		List<Thing> out = new List<Thing>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Thing obj = new Thing();
+			obj.readHexenBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -576,10 +1144,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Linedef> readStrifeLinedefLump(InputStream in) throws IOException
 	{
-		return (List<Linedef>)readStrifeObjects(Linedef.class, in, in.available()/Linedef.getStrifeLength());
+		return readStrifeLinedefLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Linedef.getStrifeLength()*Linedef.getStrifeLength())));
 	}
 	
 	/**
@@ -589,7 +1156,28 @@ public class DoomMap
 	 */
 	public static List<Linedef> readStrifeLinedefLump(byte[] b) throws IOException
 	{
-		return readStrifeLinedefLump(new ByteArrayInputStream(b));
+		return readStrifeLinedefLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Strife Linedef lump and returns it as a list of Strife Linedefs.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Linedef> readStrifeLinedefLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Linedef.getStrifeLength();
+		List<Linedef> out = new List<Linedef>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Linedef obj = new Linedef();
+			obj.readStrifeBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -597,10 +1185,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Thing> readStrifeThingLump(InputStream in) throws IOException
 	{
-		return (List<Thing>)readStrifeObjects(Thing.class, in, in.available()/Thing.getStrifeLength());
+		return readStrifeThingLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Thing.getStrifeLength()*Thing.getStrifeLength())));
 	}
 	
 	/**
@@ -610,7 +1197,28 @@ public class DoomMap
 	 */
 	public static List<Thing> readStrifeThingLump(byte[] b) throws IOException
 	{
-		return readStrifeThingLump(new ByteArrayInputStream(b));
+		return readStrifeThingLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Strife Thing lump and returns it as a list of Strife Things.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Thing> readStrifeThingLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Thing.getStrifeLength();
+		List<Thing> out = new List<Thing>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Thing obj = new Thing();
+			obj.readStrifeBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -618,10 +1226,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Sidedef> readSidedefLump(InputStream in) throws IOException
 	{
-		return (List<Sidedef>)readDoomObjects(Sidedef.class, in, in.available()/Sidedef.getDoomLength());
+		return readSidedefLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Sidedef.getDoomLength()*Sidedef.getDoomLength())));
 	}
 	
 	/**
@@ -631,7 +1238,28 @@ public class DoomMap
 	 */
 	public static List<Sidedef> readSidedefLump(byte[] b) throws IOException
 	{
-		return readSidedefLump(new ByteArrayInputStream(b));
+		return readSidedefLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Sidedef lump and returns it as a list of Sidedefs.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Sidedef> readSidedefLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Sidedef.getDoomLength();
+		List<Sidedef> out = new List<Sidedef>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Sidedef obj = new Sidedef();
+			obj.readDoomBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -639,10 +1267,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Vertex> readVertexLump(InputStream in) throws IOException
 	{
-		return (List<Vertex>)readDoomObjects(Vertex.class, in, in.available()/Vertex.getDoomLength());
+		return readVertexLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Vertex.getDoomLength()*Vertex.getDoomLength())));
 	}
 	
 	/**
@@ -652,7 +1279,28 @@ public class DoomMap
 	 */
 	public static List<Vertex> readVertexLump(byte[] b) throws IOException
 	{
-		return readVertexLump(new ByteArrayInputStream(b));
+		return readVertexLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Vertex lump and returns it as a list of Vertices.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Vertex> readVertexLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Vertex.getDoomLength();
+		List<Vertex> out = new List<Vertex>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Vertex obj = new Vertex();
+			obj.readDoomBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 	
 	/**
@@ -660,10 +1308,9 @@ public class DoomMap
 	 * @param in	the input stream to use.
 	 * @throws IOException if a read error occurs.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Sector> readSectorLump(InputStream in) throws IOException
 	{
-		return (List<Sector>)readDoomObjects(Sector.class, in, in.available()/Sector.getDoomLength());
+		return readSectorLump(ByteBuffer.wrap(readLumpBytes(in, in.available()/Sector.getDoomLength()*Sector.getDoomLength())));
 	}
 	
 	/**
@@ -673,7 +1320,28 @@ public class DoomMap
 	 */
 	public static List<Sector> readSectorLump(byte[] b) throws IOException
 	{
-		return readSectorLump(new ByteArrayInputStream(b));
+		return readSectorLump(ByteBuffer.wrap(b));
+	}
+	
+	/**
+	 * Reads in a Sector lump and returns it as a list of Sectors.
+	 * The lump is read from the buffer's position to its limit, in little-endian order,
+	 * and the buffer's position is not changed.
+	 * @param buffer	the buffer that contains the lump.
+	 * @since 2.11.0
+	 */
+	public static List<Sector> readSectorLump(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int count = buf.remaining() / Sector.getDoomLength();
+		List<Sector> out = new List<Sector>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Sector obj = new Sector();
+			obj.readDoomBytes(buf);
+			out.add(obj);
+		}
+		return out;
 	}
 
 	/**
@@ -699,7 +1367,19 @@ public class DoomMap
 	 */
 	public static UDMFTable readUDMFTable(byte[] b) throws IOException, UDMFParseException
 	{
-		return readUDMFTable(new ByteArrayInputStream(b));
+		return readUDMFTable(ByteBuffer.wrap(b));
+	}
+
+	/**
+	 * Reads a UDMFTable from "textmap" data.
+	 * @param buf	the buffer holding the lump data (from its position to its limit).
+	 * @return a parsed UDMFTable object.
+	 * @throws UDMFParseException if an error occurs during UDMF parsing.
+	 * @since 2.11.0
+	 */
+	public static UDMFTable readUDMFTable(ByteBuffer buf) throws UDMFParseException
+	{
+		return UDMFReader.readData(buf);
 	}
 
 	/**
@@ -710,7 +1390,13 @@ public class DoomMap
 	 */
 	public static UDMFNamespace readUDMFNamespace(UDMFTable table) throws MapException
 	{
-		String namespace = table.getGlobalFields().get("namespace");
+		return readUDMFNamespace(table.getGlobalFields());
+	}
+
+	// Pulls a namespace from a set of global fields.
+	private static UDMFNamespace readUDMFNamespace(UDMFStruct globalFields) throws MapException
+	{
+		String namespace = globalFields.get("namespace");
 		if (namespace == null)
 			throw new MapException("Malformed UDMF Map: No global \"namespace\" declaration.");
 		
@@ -884,61 +1570,30 @@ public class DoomMap
 		return readBSPNodeLump(new ByteArrayInputStream(b));
 	}
 	
-	// generic function for reading doom object lumps.
-	private static List<? extends DoomObject> readDoomObjects(
-			Class<? extends DoomObject> objClass, InputStream in, int objCount) throws IOException
-	{
-		List<DoomObject> out = new List<DoomObject>();
-
-		for (int i = 0; i < objCount; i++)
-		{
-			DoomObject obj = null;
-			try{
-				obj = objClass.newInstance();
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			}
-			obj.readDoomBytes(in);
-			out.add(obj);
-		}
-
-		return out;
-	}
-	
-	// generic function for reading hexen object lumps.
-	private static List<? extends HexenObject> readHexenObjects(
-			Class<? extends HexenObject> objClass, InputStream in, int objCount) throws IOException
+	// reads a lump of known length from a stream.
+	private static byte[] readLumpBytes(InputStream in, int length) throws IOException
 	{
-		List<HexenObject> out = new List<HexenObject>();
-
-		for (int i = 0; i < objCount; i++)
+		byte[] out = new byte[length];
+		int n = 0;
+		while (n < length)
 		{
-			HexenObject obj = null;
-			try{
-				obj = objClass.newInstance();
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			}
-			obj.readHexenBytes(in);
-			out.add(obj);
+			int read = in.read(out, n, length - n);
+			if (read < 0)
+				throw new IOException("Unexpected end of stream.");
+			n += read;
 		}
-
 		return out;
 	}
 	
-	// generic function for reading strife object lumps.
-	private static List<? extends StrifeObject> readStrifeObjects(
-			Class<? extends StrifeObject> objClass, InputStream in, int objCount) throws IOException
+	// generic function for reading doom object lumps.
+	private static List<? extends DoomObject> readDoomObjects(
+			Class<? extends DoomObject> objClass, InputStream in, int objCount) throws IOException
 	{
-		List<StrifeObject> out = new List<StrifeObject>();
+		List<DoomObject> out = new List<DoomObject>();
 
 		for (int i = 0; i < objCount; i++)
 		{
-			StrifeObject obj = null;
+			DoomObject obj = null;
 			try{
 				obj = objClass.newInstance();
 			} catch (InstantiationException e) {
@@ -946,7 +1601,7 @@ public class DoomMap
 			} catch (IllegalAccessException e) {
 				e.printStackTrace();
 			}
-			obj.readStrifeBytes(in);
+			obj.readDoomBytes(in);
 			out.add(obj);
 		}
 
@@ -1054,14 +1709,52 @@ public class DoomMap
 	
 	/**
 	 * Writes this map to a WAD file.
+	 * The geometry (things, linedefs, sidedefs, vertices and sectors) must have been loaded, since the
+	 * map can't be played without it. Optional lumps that were not selected when this map was read 
+	 * (BSP nodes, REJECT, BLOCKMAP, BEHAVIOR and SCRIPTS) are not written.
+	 * The entries are added in a single {@link WadFile#beginBatch() batch}, so the WAD's 
+	 * entry list is only rewritten once. If writing fails partway through, the batch is
+	 * {@link WadFile#rollback() rolled back}, so no part of the map is added.
 	 * @param headerName the name of the map header. This is autocorrected.
 	 * @param wf the WAD file to write to.
+	 * @throws MapException if a geometry lump was not selected when this map was read.
+	 * Nothing is written in this case.
 	 * @throws IOException if an error occurs during the write.
 	 * @throws DataExportException if the export results in a loss of precision or
 	 * some object info is incompatible with the output format.
 	 * @since 2.6.0
 	 */
 	public void writeToWad(String headerName, WadFile wf) throws IOException 
+	{
+		loadLumps();
+		checkGeometry();
+		wf.beginBatch();
+		boolean written = false;
+		try {
+			writeMapEntries(headerName, wf);
+			written = true;
+		} finally {
+			if (written)
+				wf.commit();
+			else
+				wf.rollback();
+		}
+	}
+	
+	// Throws a MapException if a geometry lump was not loaded, and so can't be written.
+	private void checkGeometry() throws MapException
+	{
+		List<?>[] geometry = {things, linedefs, sidedefs, vertices, sectors};
+		for (Lump lump : Lump.values())
+			if (lump.isGeometry() && geometry[lump.ordinal()] == null)
+				throw new MapException("Map can't be written: "+lump+" was not selected for loading.");
+	}
+
+	/**
+	 * Writes the entries of this map to a WAD file.
+	 * The geometry must have been checked by {@link #checkGeometry()}.
+	 */
+	private void writeMapEntries(String headerName, WadFile wf) throws IOException 
 	{
 		wf.addMarker(headerName);
 		Format type = getOriginalFormat();
@@ -1085,12 +1778,21 @@ public class DoomMap
 			
 			writeDoomObjectsToWad("sidedefs", getSidedefList(), wf);
 			writeDoomObjectsToWad("vertexes", getVertexList(), wf);
-			if (segs != null)
-				writeDoomObjectsToWad("segs", getBSPSegmentList(), wf);
-			if (subsectors != null)
-				writeDoomObjectsToWad("ssectors", getBSPSubsectorList(), wf);
-			if (nodes != null)
-				writeDoomObjectsToWad("nodes", getBSPNodeList(), wf);
+			if (nodes == null && zNodes != null)
+			{
+				wf.add("segs", new byte[0]);
+				wf.add("ssectors", new byte[0]);
+				wf.add("nodes", zNodes.getDoomBytes());
+			}
+			else
+			{
+				if (segs != null)
+					writeDoomObjectsToWad("segs", getBSPSegmentList(), wf);
+				if (subsectors != null)
+					writeDoomObjectsToWad("ssectors", getBSPSubsectorList(), wf);
+				if (nodes != null)
+					writeDoomObjectsToWad("nodes", getBSPNodeList(), wf);
+			}
 			writeDoomObjectsToWad("sectors", getSectorList(), wf);
 			
 			if (reject != null)
@@ -1104,7 +1806,7 @@ public class DoomMap
 		}
 		else // UDMF
 		{
-			UDMFTable table = UDMFUtil.mapToUDMF(UDMFUtil.getNamespaceForName(originalUDMFNamespace), this);
+			UDMFTable table = UDMFUtil.mapToUDMF(UDMFUtil.getNamespaceForName(getOriginalUDMFNamespace()), this);
 			ByteArrayOutputStream bos = new ByteArrayOutputStream();
 			UDMFWriter.writeData(table, bos);
 			wf.add("textmap",bos.toByteArray());
@@ -1119,72 +1821,124 @@ public class DoomMap
 	}
 	
 
-	/** Returns the list of {@link Thing}s. */
-	public List<Thing> getThingList() 						{return things;}
-	/** Returns the list of {@link Linedef}s. */
-	public List<Linedef> getLinedefList() 					{return linedefs;}
-	/** Returns the list of {@link Sidedef}s. */
-	public List<Sidedef> getSidedefList()					{return sidedefs;}
-	/** Returns the list of {@link Vertex}-es. */
-	public List<Vertex> getVertexList()						{return vertices;}
-	/** Returns the list of {@link Sector}s. */
-	public List<Sector> getSectorList()						{return sectors;}
+	/** Returns the list of {@link Thing}s, or null if they were not selected for loading. */
+	public List<Thing> getThingList() 						{loadPending(Lump.THINGS); return things;}
+	/** Returns the list of {@link Linedef}s, or null if they were not selected for loading. */
+	public List<Linedef> getLinedefList() 					{loadPending(Lump.LINEDEFS); return linedefs;}
+	/** Returns the list of {@link Sidedef}s, or null if they were not selected for loading. */
+	public List<Sidedef> getSidedefList()					{loadPending(Lump.SIDEDEFS); return sidedefs;}
+	/** Returns the list of {@link Vertex}-es, or null if they were not selected for loading. */
+	public List<Vertex> getVertexList()						{loadPending(Lump.VERTEXES); return vertices;}
+	/** Returns the list of {@link Sector}s, or null if they were not selected for loading. */
+	public List<Sector> getSectorList()						{loadPending(Lump.SECTORS); return sectors;}
 	
 	/**
 	 * Returns the BSP segments in the map.
 	 * May be null if no nodes were loaded.  
 	 */
-	public List<BSPSegment> getBSPSegmentList()				{return segs;}
+	public List<BSPSegment> getBSPSegmentList()				{loadPending(Lump.SEGS); return segs;}
 	/**
 	 * Returns the BSP Subsectors in the map.
 	 * May be null if no nodes were loaded.  
 	 */
-	public List<BSPSubsector> getBSPSubsectorList()			{return subsectors;}
+	public List<BSPSubsector> getBSPSubsectorList()			{loadPending(Lump.SSECTORS); return subsectors;}
 	/**
 	 * Returns the BSP nodes in the map.
 	 * May be null if no nodes were loaded.  
 	 */
-	public List<BSPNode> getBSPNodeList()					{return nodes;}
+	public List<BSPNode> getBSPNodeList()					{loadPending(Lump.NODES); return nodes;}
 	/** May return null if not loaded. */
-	public Reject getReject()								{return reject;}
+	public Reject getReject()								{loadPending(Lump.REJECT); return reject;}
 	/** May return null if not loaded. */
-	public Blockmap getBlockmap()							{return blockmap;}
+	public Blockmap getBlockmap()							{loadPending(Lump.BLOCKMAP); return blockmap;}
 	
 	/** 
 	 * Returns raw ZDoom node data.
+	 * In binary-format maps, this is read from the NODES lump if it holds ZDoom extended nodes,
+	 * if either ZNODES or NODES was selected for loading.
 	 * @since 2.6.0
 	 */
-	public RawData getZNodes()								{return zNodes;}
+	public RawData getZNodes()
+	{
+		loadPending(Lump.ZNODES);
+		if (originalFormat != Format.UDMF)
+			loadPending(Lump.NODES);
+		return zNodes;
+	}
+
 	/** Returns the binary ACS executable lump. */
-	public RawData getBehavior()							{return behavior;}
+	public RawData getBehavior()							{loadPending(Lump.BEHAVIOR); return behavior;}
 	/** Returns the uncompiled script lump. */
-	public TextData getScripts()							{return scripts;}
-
-	public Thing getThing(int n)							{return things.getByIndex(n);}
-	public Linedef getLinedef(int n)						{return linedefs.getByIndex(n);}
-	public Sidedef getSidedef(int n)						{return sidedefs.getByIndex(n);}
-	public Vertex getVertex(int n)							{return vertices.getByIndex(n);}
-	public Sector getSector(int n)							{return sectors.getByIndex(n);}
-	public BSPSegment getBSPSegment(int n)					{return segs.getByIndex(n);}
-	public BSPSubsector getBSPSubsector(int n)				{return subsectors.getByIndex(n);}
-	public BSPNode getBSPNode(int n)						{return nodes.getByIndex(n);}
-	
-	/** Returns the number of Things in the List. */
-	public int getThingCount()								{return things.size();}
-	/** Returns the number of Linedefs in the List. */
-	public int getLinedefCount()							{return linedefs.size();}
-	/** Returns the number of Sidedefs in the List. */
-	public int getSidedefCount()							{return sidedefs.size();}
-	/** Returns the number of Vertices in the List. */
-	public int getVertexCount()								{return vertices.size();}
-	/** Returns the number of Sectors in the List. */
-	public int getSectorCount()								{return sectors.size();}
-	/** Returns the number of BSP segments in the List. */
-	public int getBSPSegmentCount()							{return segs.size();}
-	/** Returns the number of BSP subsectors in the List. */
-	public int getBSPSubsectorCount()						{return subsectors.size();}
-	/** Returns the number of BSP nodes in the List. */
-	public int getBSPNodesCount()							{return nodes.size();}
+	public TextData getScripts()							{loadPending(Lump.SCRIPTS); return scripts;}
+
+	/** 
+	 * Sets the reject lump (can be null).
+	 * @since 2.11.0
+	 */
+	public void setReject(Reject reject)					{pendingLumps.remove(Lump.REJECT); this.reject = reject;}
+	/** 
+	 * Sets the blockmap lump (can be null).
+	 * @since 2.11.0
+	 */
+	public void setBlockmap(Blockmap blockmap)				{pendingLumps.remove(Lump.BLOCKMAP); this.blockmap = blockmap;}
+	/** 
+	 * Sets the BSP segments (can be null).
+	 * @since 2.11.0
+	 */
+	public void setBSPSegmentList(List<BSPSegment> segs)	{pendingLumps.remove(Lump.SEGS); this.segs = segs;}
+	/** 
+	 * Sets the BSP subsectors (can be null).
+	 * @since 2.11.0
+	 */
+	public void setBSPSubsectorList(List<BSPSubsector> subsectors)	{pendingLumps.remove(Lump.SSECTORS); this.subsectors = subsectors;}
+	/** 
+	 * Sets the BSP nodes (can be null).
+	 * @since 2.11.0
+	 */
+	public void setBSPNodeList(List<BSPNode> nodes)			{pendingLumps.remove(Lump.NODES); this.nodes = nodes;}
+	/** 
+	 * Sets the raw ZDoom node data (can be null).
+	 * In binary-format maps, these are written to the NODES lump (with empty SEGS and SSECTORS)
+	 * if there are no BSP nodes. Extended nodes that are read from NODES later do not replace these.
+	 * @since 2.11.0
+	 */
+	public void setZNodes(RawData zNodes)					{pendingLumps.remove(Lump.ZNODES); this.zNodes = zNodes; zNodesSet = true;}
+	/** 
+	 * Sets the binary ACS executable lump (can be null).
+	 * @since 2.11.0
+	 */
+	public void setBehavior(RawData behavior)				{pendingLumps.remove(Lump.BEHAVIOR); this.behavior = behavior;}
+	/** 
+	 * Sets the uncompiled script lump (can be null).
+	 * @since 2.11.0
+	 */
+	public void setScripts(TextData scripts)				{pendingLumps.remove(Lump.SCRIPTS); this.scripts = scripts;}
+
+	public Thing getThing(int n)							{return getThingList().getByIndex(n);}
+	public Linedef getLinedef(int n)						{return getLinedefList().getByIndex(n);}
+	public Sidedef getSidedef(int n)						{return getSidedefList().getByIndex(n);}
+	public Vertex getVertex(int n)							{return getVertexList().getByIndex(n);}
+	public Sector getSector(int n)							{return getSectorList().getByIndex(n);}
+	public BSPSegment getBSPSegment(int n)					{return getBSPSegmentList().getByIndex(n);}
+	public BSPSubsector getBSPSubsector(int n)				{return getBSPSubsectorList().getByIndex(n);}
+	public BSPNode getBSPNode(int n)						{return getBSPNodeList().getByIndex(n);}
+	
+	/** Returns the number of Things in the List, or 0 if they were not loaded. */
+	public int getThingCount()								{List<?> list = getThingList(); return list != null ? list.size() : 0;}
+	/** Returns the number of Linedefs in the List, or 0 if they were not loaded. */
+	public int getLinedefCount()							{List<?> list = getLinedefList(); return list != null ? list.size() : 0;}
+	/** Returns the number of Sidedefs in the List, or 0 if they were not loaded. */
+	public int getSidedefCount()							{List<?> list = getSidedefList(); return list != null ? list.size() : 0;}
+	/** Returns the number of Vertices in the List, or 0 if they were not loaded. */
+	public int getVertexCount()								{List<?> list = getVertexList(); return list != null ? list.size() : 0;}
+	/** Returns the number of Sectors in the List, or 0 if they were not loaded. */
+	public int getSectorCount()								{List<?> list = getSectorList(); return list != null ? list.size() : 0;}
+	/** Returns the number of BSP segments in the List, or 0 if they were not loaded. */
+	public int getBSPSegmentCount()							{List<?> list = getBSPSegmentList(); return list != null ? list.size() : 0;}
+	/** Returns the number of BSP subsectors in the List, or 0 if they were not loaded. */
+	public int getBSPSubsectorCount()						{List<?> list = getBSPSubsectorList(); return list != null ? list.size() : 0;}
+	/** Returns the number of BSP nodes in the List, or 0 if they were not loaded. */
+	public int getBSPNodesCount()							{List<?> list = getBSPNodeList(); return list != null ? list.size() : 0;}
 
 	/**
 	 * Returns the front sidedef for a specific linedef.
@@ -13,6 +13,8 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.zip.ZipEntry;
@@ -166,6 +168,10 @@ public class DoomPK3 extends ZipFile implements Closeable
 	 */
 	public byte[] getData(ZipEntry entry) throws IOException
 	{
+		long size = entry.getSize();
+		if (size >= 0)
+			return readFully(entry, (int)size);
+		
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		InputStream in = getInputStream(entry);
 		Common.relay(in, bos);
@@ -173,6 +179,52 @@ public class DoomPK3 extends ZipFile implements Closeable
 		return bos.toByteArray();
 	}
 
+	/**
+	 * Gets the data in one entry in the PK3 as a little-endian ByteBuffer.
+	 * If the uncompressed size of the entry is known, the entry is inflated
+	 * directly into the buffer's backing array.
+	 * @param entry the entry to extract.
+	 * @return a ByteBuffer of the entry's data, positioned at 0.
+	 * @since 2.11.0
+	 */
+	public ByteBuffer getDataBuffer(ZipEntry entry) throws IOException
+	{
+		return ByteBuffer.wrap(getData(entry)).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Gets the data in one entry in the PK3 by entry name (path and all) as a little-endian ByteBuffer.
+	 * @param entry the entry to extract.
+	 * @return a ByteBuffer of the entry's data, positioned at 0.
+	 * @since 2.11.0
+	 */
+	public ByteBuffer getDataBuffer(String entry) throws IOException
+	{
+		return getDataBuffer(getEntry(entry));
+	}
+
+	/**
+	 * Reads an entry of a known size into a new array, without intermediate buffering.
+	 */
+	private byte[] readFully(ZipEntry entry, int size) throws IOException
+	{
+		byte[] out = new byte[size];
+		InputStream in = getInputStream(entry);
+		try {
+			int total = 0;
+			while (total < size)
+			{
+				int n = in.read(out, total, size - total);
+				if (n < 0)
+					throw new IOException("Reached unexpected end of entry \""+entry.getName()+"\".");
+				total += n;
+			}
+		} finally {
+			Common.close(in);
+		}
+		return out;
+	}
+
 	/**
 	 * Gets the data in one entry in the PK3 as an input stream.
 	 * The data is extracted fully before it is returned as a stream.
@@ -9,6 +9,7 @@ package com.blackrook.doom;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 /**
@@ -189,6 +190,58 @@ public interface DoomWad
 	 */
 	public InputStream getDataAsStream(DoomWadEntry entry) throws IOException;
 
+	/**
+	 * Retrieves the data of a particular entry index as a little-endian ByteBuffer.
+	 * Depending on the implementation, the buffer may be a read-only view of
+	 * shared memory, so it should be treated as read-only.
+	 * @param n	the index of the entry in the file.
+	 * @return	a ByteBuffer of the data, positioned at 0, or null if it can't be retrieved.
+	 * @throws IOException if the data couldn't be retrieved.
+	 * @throws ArrayIndexOutOfBoundsException if n < 0 or > size.
+	 * @since 2.11.0
+	 */
+	public ByteBuffer getDataBuffer(int n) throws IOException;
+
+	/**
+	 * Retrieves the data of the first occurrence of a particular entry as a little-endian ByteBuffer.
+	 * Depending on the implementation, the buffer may be a read-only view of
+	 * shared memory, so it should be treated as read-only.
+	 * @param entry	the name of the entry to find.
+	 * @return		a ByteBuffer of the data, positioned at 0, or null if the entry doesn't exist.
+	 * @throws IOException if the data couldn't be retrieved.
+	 * @throws NullPointerException if "entry" is null.
+	 * @since 2.11.0
+	 */
+	public ByteBuffer getDataBuffer(String entry) throws IOException;
+
+	/**
+	 * Retrieves the data of the first occurrence of a particular entry from a starting index
+	 * as a little-endian ByteBuffer.
+	 * Depending on the implementation, the buffer may be a read-only view of
+	 * shared memory, so it should be treated as read-only.
+	 * @param entry	the name of the entry to find.
+	 * @param start	the index with which to start the search.
+	 * @return		a ByteBuffer of the data, positioned at 0, or null if the entry doesn't exist.
+	 * @throws IOException if the data couldn't be retrieved.
+	 * @throws NullPointerException if "entry" is null.
+	 * @throws ArrayIndexOutOfBoundsException if start < 0 or > size.
+	 * @since 2.11.0
+	 */
+	public ByteBuffer getDataBuffer(String entry, int start) throws IOException;
+
+	/**
+	 * Retrieves the data of the specified entry as a little-endian ByteBuffer.
+	 * Depending on the implementation, the buffer may be a read-only view of
+	 * shared memory, so it should be treated as read-only.
+	 * @param entry	the entry to use.
+	 * @return a ByteBuffer of the data, positioned at 0.
+	 * @throws IOException if the data couldn't be retrieved 
+	 * or the entry's offsets breach the file extents.
+	 * @throws NullPointerException if "entry" is null.
+	 * @since 2.11.0
+	 */
+	public ByteBuffer getDataBuffer(DoomWadEntry entry) throws IOException;
+
 	/**
 	 * Returns the number of entries in this Wad file.
 	 */
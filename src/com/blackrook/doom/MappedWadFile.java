@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only WAD that maps its entire file into memory via {@link FileChannel#map}.
+ * <p>
+ * The file is opened once, mapped, and its descriptor is released immediately;
+ * the mapping stays valid until this object is closed and collected.
+ * Entry data can be fetched as read-only, little-endian {@link ByteBuffer} slices of
+ * the mapping via {@link #getDataBuffer(DoomWadEntry)}, which involves no copying at all.
+ * The byte array accessors still return copies, as required by {@link DoomWad}.
+ * <p>
+ * This may not be added to or changed. Reads from this class are safe
+ * to perform from multiple threads.
+ * @since 2.11.0
+ * @author Matthew Tropiano
+ */
+public class MappedWadFile extends ReadOnlyWad
+{
+	/** WAD File's name (equivalent to File.getName()). */
+	private String fileName;
+	/** WAD File's path (equivalent to File.getPath()). */
+	private String filePath;
+	/** WAD File's absolute path (equivalent to File.getAbsolutePath()). */
+	private String fileAbsolutePath;
+
+	/** The mapped file content. */
+	private ByteBuffer content;
+
+	/**
+	 * Opens and maps a WAD file from a file specified by "path."
+	 * @param path the path to the File.
+	 * @throws IOException if the file can't be read.
+	 * @throws WadException if the file isn't a Wad file.
+	 * @throws NullPointerException if "path" is null.
+	 */
+	public MappedWadFile(String path) throws IOException
+	{
+		this(new File(path));
+	}
+
+	/**
+	 * Opens and maps a WAD file.
+	 * @param f the file.
+	 * @throws IOException if the file can't be read.
+	 * @throws WadException if the file isn't a Wad file.
+	 * @throws NullPointerException if "f" is null.
+	 */
+	public MappedWadFile(File f) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new WadException("File is too large to be a Wad file.");
+			content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			file.close();
+		}
+		content.order(ByteOrder.LITTLE_ENDIAN);
+
+		fileName = f.getName();
+		filePath = f.getPath();
+		fileAbsolutePath = f.getAbsolutePath();
+
+		readDirectory();
+	}
+
+	@Override
+	protected long getContentLength() throws IOException
+	{
+		ByteBuffer buf = content;
+		if (buf == null)
+			throw new IOException("This WAD is closed.");
+		return buf.capacity();
+	}
+
+	/**
+	 * Returns a read-only, little-endian slice of the mapped file. No data is copied.
+	 */
+	@Override
+	protected ByteBuffer readContent(long position, int length) throws IOException
+	{
+		ByteBuffer buf = content;
+		if (buf == null)
+			throw new IOException("This WAD is closed.");
+
+		ByteBuffer out = buf.duplicate();
+		out.limit((int)position + length);
+		out.position((int)position);
+		return out.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned stream reads directly from the mapped file; no data is copied up front.
+	 */
+	@Override
+	public InputStream getDataAsStream(DoomWadEntry entry) throws IOException
+	{
+		return new BufferInputStream(getDataBuffer(entry));
+	}
+
+	/**
+	 * Returns this Wad's file name.
+	 */
+	public String getFileName()
+	{
+		return fileName;
+	}
+
+	/**
+	 * Returns this Wad's file path.
+	 */
+	public String getFilePath()
+	{
+		return filePath;
+	}
+
+	/**
+	 * Returns this Wad's file absolute path.
+	 */
+	public String getFileAbsolutePath()
+	{
+		return fileAbsolutePath;
+	}
+
+	/**
+	 * Releases this object's reference to the mapped file.
+	 * The mapping itself is released when it is garbage-collected,
+	 * so slices returned by {@link #getDataBuffer(DoomWadEntry)} remain valid.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		content = null;
+	}
+
+	/**
+	 * An input stream that reads from a ByteBuffer.
+	 */
+	private static class BufferInputStream extends InputStream
+	{
+		private ByteBuffer buffer;
+
+		private BufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			return buffer.hasRemaining() ? buffer.get() & 0x0ff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+				return 0;
+			if (!buffer.hasRemaining())
+				return -1;
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException
+		{
+			int s = (int)Math.max(0L, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + s);
+			return s;
+		}
+
+		@Override
+		public int available() throws IOException
+		{
+			return buffer.remaining();
+		}
+	}
+
+}
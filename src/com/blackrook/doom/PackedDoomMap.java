@@ -0,0 +1,713 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom;
+
+import java.awt.Color;
+import java.util.EnumSet;
+
+import com.blackrook.commons.hash.HashMap;
+import com.blackrook.commons.list.List;
+import com.blackrook.doom.DoomMap.Format;
+import com.blackrook.doom.DoomMap.Lump;
+import com.blackrook.doom.struct.BSPNode;
+import com.blackrook.doom.struct.BSPSegment;
+import com.blackrook.doom.struct.BSPSubsector;
+import com.blackrook.doom.struct.Blockmap;
+import com.blackrook.doom.struct.Linedef;
+import com.blackrook.doom.struct.RawData;
+import com.blackrook.doom.struct.Reject;
+import com.blackrook.doom.struct.Sector;
+import com.blackrook.doom.struct.Sidedef;
+import com.blackrook.doom.struct.TextData;
+import com.blackrook.doom.struct.Thing;
+import com.blackrook.doom.struct.Vertex;
+
+/**
+ * A compact, read-only copy of a {@link DoomMap}'s things, linedefs, sidedefs, vertices and sectors.
+ * <p>
+ * Instead of one object per map object, each field is stored in a primitive array indexed
+ * by object index, boolean flags are packed into one value per object, and strings
+ * (texture names, comments, render styles) and colors are stored once in a shared table
+ * and referenced by index. This takes a fraction of the memory of a DoomMap, which makes it
+ * suitable for keeping many maps resident at once.
+ * <p>
+ * The BSP segs, subsectors and nodes, reject, blockmap, ZDoom nodes, behavior and script data are kept as-is.
+ * <p>
+ * Geometry that was not loaded in the source map (see {@link DoomMap.Lump}) has a count of 0 here,
+ * and is left unloaded (null) in the map made by {@link #toDoomMap()}.
+ * <p>
+ * Individual objects can be recreated with the <code>createXXX(int)</code> methods, and the whole
+ * map with {@link #toDoomMap()}.
+ * @since 2.11.0
+ * @author Matthew Tropiano
+ */
+public class PackedDoomMap
+{
+	/** Amount of special arguments per thing or linedef. */
+	private static final int ARGUMENT_COUNT = 5;
+	/** Amount of texture scale or offset values per sidedef (x and y for each texture). */
+	private static final int SIDEDEF_TEXTURE_VALUES = 6;
+	/** Amount of plane values per sector (x/y offsets and scales, and rotation for each plane). */
+	private static final int SECTOR_PLANE_VALUES = 10;
+
+	/** The originating format. */
+	private Format format;
+	/** The originating UDMF Namespace, if any. */
+	private String udmfNamespace;
+
+	/** Shared strings. */
+	private String[] strings;
+	/** Shared colors. */
+	private Color[] colors;
+	/** The geometry lumps that were not loaded in the source map. */
+	private EnumSet<Lump> unloaded;
+
+	private int thingCount;
+	private float[] thingX;
+	private float[] thingY;
+	private float[] thingZ;
+	private int[] thingAngle;
+	private int[] thingType;
+	private int[] thingId;
+	private int[] thingSpecial;
+	private int[] thingArguments;
+	private int[] thingComment;
+	private long[] thingFlags;
+
+	private int linedefCount;
+	private int[] linedefVertexStart;
+	private int[] linedefVertexEnd;
+	private int[] linedefSpecial;
+	private int[] linedefId;
+	private int[] linedefFrontSidedef;
+	private int[] linedefBackSidedef;
+	private int[] linedefArguments;
+	private int[] linedefComment;
+	private int[] linedefRenderStyle;
+	private float[] linedefAlpha;
+	private long[] linedefFlags;
+
+	private int sidedefCount;
+	private int[] sidedefOffsetX;
+	private int[] sidedefOffsetY;
+	private int[] sidedefUpperTexture;
+	private int[] sidedefMiddleTexture;
+	private int[] sidedefLowerTexture;
+	private int[] sidedefSectorRef;
+	private int[] sidedefComment;
+	private int[] sidedefLight;
+	private float[] sidedefTextureScales;
+	private float[] sidedefTextureOffsets;
+	private byte[] sidedefFlags;
+
+	private int vertexCount;
+	private float[] vertexX;
+	private float[] vertexY;
+
+	private int sectorCount;
+	private int[] sectorFloorHeight;
+	private int[] sectorCeilingHeight;
+	private int[] sectorFloorTexture;
+	private int[] sectorCeilingTexture;
+	private int[] sectorLightLevel;
+	private int[] sectorSpecial;
+	private int[] sectorTag;
+	private int[] sectorComment;
+	private int[] sectorFloorLighting;
+	private int[] sectorCeilingLighting;
+	private int[] sectorLightColor;
+	private int[] sectorFadeColor;
+	private float[] sectorPlaneValues;
+	private float[] sectorGravity;
+	private float[] sectorDesaturation;
+	private byte[] sectorFlags;
+
+	/** BSP segments. */
+	private List<BSPSegment> segs;
+	/** BSP subsectors. */
+	private List<BSPSubsector> subsectors;
+	/** BSP nodes. */
+	private List<BSPNode> nodes;
+	/** This map's reject lump. */
+	private Reject reject;
+	/** This map's blockmap lump. */
+	private Blockmap blockmap;
+	/** ZDoom Node chunk. */
+	private RawData zNodes;
+	/** Behavior chunk. */
+	private RawData behavior;
+	/** Script content. */
+	private TextData scripts;
+
+	/**
+	 * Creates a packed copy of a map.
+	 * The BSP lists, reject, blockmap, ZDoom nodes, behavior and script objects are shared with the source map, not copied.
+	 * Geometry lists that are null in the map (not selected for loading) are packed as empty, and remembered as not loaded.
+	 * @param map the map to copy.
+	 * @throws NullPointerException if map is null.
+	 */
+	public PackedDoomMap(DoomMap map)
+	{
+		format = map.getOriginalFormat();
+		udmfNamespace = map.getOriginalUDMFNamespace();
+
+		Table<String> stringTable = new Table<String>();
+		Table<Color> colorTable = new Table<Color>();
+
+		unloaded = EnumSet.noneOf(Lump.class);
+		packThings(checkLoaded(map.getThingList(), Lump.THINGS), stringTable);
+		packLinedefs(checkLoaded(map.getLinedefList(), Lump.LINEDEFS), stringTable);
+		packSidedefs(checkLoaded(map.getSidedefList(), Lump.SIDEDEFS), stringTable);
+		packVertices(checkLoaded(map.getVertexList(), Lump.VERTEXES));
+		packSectors(checkLoaded(map.getSectorList(), Lump.SECTORS), stringTable, colorTable);
+
+		strings = stringTable.toArray(new String[stringTable.size()]);
+		colors = colorTable.toArray(new Color[colorTable.size()]);
+
+		segs = map.getBSPSegmentList();
+		subsectors = map.getBSPSubsectorList();
+		nodes = map.getBSPNodeList();
+		reject = map.getReject();
+		blockmap = map.getBlockmap();
+		zNodes = map.getZNodes();
+		behavior = map.getBehavior();
+		scripts = map.getScripts();
+	}
+
+	// Returns a list of geometry, or an empty list if it was not loaded (and remembers that).
+	private <T> List<T> checkLoaded(List<T> list, Lump lump)
+	{
+		if (list != null)
+			return list;
+		unloaded.add(lump);
+		return new List<T>(1);
+	}
+
+	private void packThings(List<Thing> list, Table<String> stringTable)
+	{
+		int n = thingCount = list.size();
+		thingX = new float[n];
+		thingY = new float[n];
+		thingZ = new float[n];
+		thingAngle = new int[n];
+		thingType = new int[n];
+		thingId = new int[n];
+		thingSpecial = new int[n];
+		thingArguments = new int[n * ARGUMENT_COUNT];
+		thingComment = new int[n];
+		thingFlags = new long[n];
+		for (int i = 0; i < n; i++)
+		{
+			Thing t = list.getByIndex(i);
+			thingX[i] = t.getX();
+			thingY[i] = t.getY();
+			thingZ[i] = t.getZ();
+			thingAngle[i] = t.getAngle();
+			thingType[i] = t.getType();
+			thingId[i] = t.getId();
+			thingSpecial[i] = t.getSpecial();
+			int a = i * ARGUMENT_COUNT;
+			thingArguments[a] = t.getArgument0();
+			thingArguments[a + 1] = t.getArgument1();
+			thingArguments[a + 2] = t.getArgument2();
+			thingArguments[a + 3] = t.getArgument3();
+			thingArguments[a + 4] = t.getArgument4();
+			thingComment[i] = stringTable.getId(t.getComment());
+			thingFlags[i] = t.getPackedFlags();
+		}
+	}
+
+	private void packLinedefs(List<Linedef> list, Table<String> stringTable)
+	{
+		int n = linedefCount = list.size();
+		linedefVertexStart = new int[n];
+		linedefVertexEnd = new int[n];
+		linedefSpecial = new int[n];
+		linedefId = new int[n];
+		linedefFrontSidedef = new int[n];
+		linedefBackSidedef = new int[n];
+		linedefArguments = new int[n * ARGUMENT_COUNT];
+		linedefComment = new int[n];
+		linedefRenderStyle = new int[n];
+		linedefAlpha = new float[n];
+		linedefFlags = new long[n];
+		for (int i = 0; i < n; i++)
+		{
+			Linedef l = list.getByIndex(i);
+			linedefVertexStart[i] = l.getVertexStart();
+			linedefVertexEnd[i] = l.getVertexEnd();
+			linedefSpecial[i] = l.getSpecial();
+			linedefId[i] = l.getId();
+			linedefFrontSidedef[i] = l.getFrontSidedef();
+			linedefBackSidedef[i] = l.getBackSidedef();
+			int a = i * ARGUMENT_COUNT;
+			linedefArguments[a] = l.getArgument0();
+			linedefArguments[a + 1] = l.getArgument1();
+			linedefArguments[a + 2] = l.getArgument2();
+			linedefArguments[a + 3] = l.getArgument3();
+			linedefArguments[a + 4] = l.getArgument4();
+			linedefComment[i] = stringTable.getId(l.getComment());
+			linedefRenderStyle[i] = stringTable.getId(l.getRenderStyle());
+			linedefAlpha[i] = l.getAlpha();
+			linedefFlags[i] = l.getPackedFlags();
+		}
+	}
+
+	private void packSidedefs(List<Sidedef> list, Table<String> stringTable)
+	{
+		int n = sidedefCount = list.size();
+		sidedefOffsetX = new int[n];
+		sidedefOffsetY = new int[n];
+		sidedefUpperTexture = new int[n];
+		sidedefMiddleTexture = new int[n];
+		sidedefLowerTexture = new int[n];
+		sidedefSectorRef = new int[n];
+		sidedefComment = new int[n];
+		sidedefLight = new int[n];
+		sidedefTextureScales = new float[n * SIDEDEF_TEXTURE_VALUES];
+		sidedefTextureOffsets = new float[n * SIDEDEF_TEXTURE_VALUES];
+		sidedefFlags = new byte[n];
+		for (int i = 0; i < n; i++)
+		{
+			Sidedef s = list.getByIndex(i);
+			sidedefOffsetX[i] = s.getOffsetX();
+			sidedefOffsetY[i] = s.getOffsetY();
+			sidedefUpperTexture[i] = stringTable.getId(s.getUpperTexture());
+			sidedefMiddleTexture[i] = stringTable.getId(s.getMiddleTexture());
+			sidedefLowerTexture[i] = stringTable.getId(s.getLowerTexture());
+			sidedefSectorRef[i] = s.getSectorRef();
+			sidedefComment[i] = stringTable.getId(s.getComment());
+			sidedefLight[i] = s.getLight();
+			int t = i * SIDEDEF_TEXTURE_VALUES;
+			sidedefTextureScales[t] = s.getUpperTextureScaleX();
+			sidedefTextureScales[t + 1] = s.getUpperTextureScaleY();
+			sidedefTextureScales[t + 2] = s.getMiddleTextureScaleX();
+			sidedefTextureScales[t + 3] = s.getMiddleTextureScaleY();
+			sidedefTextureScales[t + 4] = s.getLowerTextureScaleX();
+			sidedefTextureScales[t + 5] = s.getLowerTextureScaleY();
+			sidedefTextureOffsets[t] = s.getUpperTextureOffsetX();
+			sidedefTextureOffsets[t + 1] = s.getUpperTextureOffsetY();
+			sidedefTextureOffsets[t + 2] = s.getMiddleTextureOffsetX();
+			sidedefTextureOffsets[t + 3] = s.getMiddleTextureOffsetY();
+			sidedefTextureOffsets[t + 4] = s.getLowerTextureOffsetX();
+			sidedefTextureOffsets[t + 5] = s.getLowerTextureOffsetY();
+			sidedefFlags[i] = (byte)s.getPackedFlags();
+		}
+	}
+
+	private void packVertices(List<Vertex> list)
+	{
+		int n = vertexCount = list.size();
+		vertexX = new float[n];
+		vertexY = new float[n];
+		for (int i = 0; i < n; i++)
+		{
+			Vertex v = list.getByIndex(i);
+			vertexX[i] = v.getX();
+			vertexY[i] = v.getY();
+		}
+	}
+
+	private void packSectors(List<Sector> list, Table<String> stringTable, Table<Color> colorTable)
+	{
+		int n = sectorCount = list.size();
+		sectorFloorHeight = new int[n];
+		sectorCeilingHeight = new int[n];
+		sectorFloorTexture = new int[n];
+		sectorCeilingTexture = new int[n];
+		sectorLightLevel = new int[n];
+		sectorSpecial = new int[n];
+		sectorTag = new int[n];
+		sectorComment = new int[n];
+		sectorFloorLighting = new int[n];
+		sectorCeilingLighting = new int[n];
+		sectorLightColor = new int[n];
+		sectorFadeColor = new int[n];
+		sectorPlaneValues = new float[n * SECTOR_PLANE_VALUES];
+		sectorGravity = new float[n];
+		sectorDesaturation = new float[n];
+		sectorFlags = new byte[n];
+		for (int i = 0; i < n; i++)
+		{
+			Sector s = list.getByIndex(i);
+			sectorFloorHeight[i] = s.getFloorHeight();
+			sectorCeilingHeight[i] = s.getCeilingHeight();
+			sectorFloorTexture[i] = stringTable.getId(s.getFloorTexture());
+			sectorCeilingTexture[i] = stringTable.getId(s.getCeilingTexture());
+			sectorLightLevel[i] = s.getLightLevel();
+			sectorSpecial[i] = s.getSpecial();
+			sectorTag[i] = s.getTag();
+			sectorComment[i] = stringTable.getId(s.getComment());
+			sectorFloorLighting[i] = s.getFloorLighting();
+			sectorCeilingLighting[i] = s.getCeilingLighting();
+			sectorLightColor[i] = colorTable.getId(s.getLightColor());
+			sectorFadeColor[i] = colorTable.getId(s.getFadeColor());
+			int p = i * SECTOR_PLANE_VALUES;
+			sectorPlaneValues[p] = s.getFloorOffsetX();
+			sectorPlaneValues[p + 1] = s.getFloorOffsetY();
+			sectorPlaneValues[p + 2] = s.getCeilingOffsetX();
+			sectorPlaneValues[p + 3] = s.getCeilingOffsetY();
+			sectorPlaneValues[p + 4] = s.getFloorScaleX();
+			sectorPlaneValues[p + 5] = s.getFloorScaleY();
+			sectorPlaneValues[p + 6] = s.getCeilingScaleX();
+			sectorPlaneValues[p + 7] = s.getCeilingScaleY();
+			sectorPlaneValues[p + 8] = s.getFloorRotation();
+			sectorPlaneValues[p + 9] = s.getCeilingRotation();
+			sectorGravity[i] = s.getGravity();
+			sectorDesaturation[i] = s.getDesaturation();
+			sectorFlags[i] = (byte)s.getPackedFlags();
+		}
+	}
+
+	/**
+	 * Creates a new {@link DoomMap} with the contents of this map.
+	 * The BSP lists, reject, blockmap, ZDoom nodes, behavior and script objects are shared, not copied.
+	 * Geometry that was not loaded in the source map is null in the new map, as it was in the source.
+	 * @return a new DoomMap.
+	 */
+	public DoomMap toDoomMap()
+	{
+		DoomMap out = new DoomMap(format, udmfNamespace);
+		for (int i = 0; i < thingCount; i++)
+			out.getThingList().add(createThing(i));
+		for (int i = 0; i < linedefCount; i++)
+			out.getLinedefList().add(createLinedef(i));
+		for (int i = 0; i < sidedefCount; i++)
+			out.getSidedefList().add(createSidedef(i));
+		for (int i = 0; i < vertexCount; i++)
+			out.getVertexList().add(createVertex(i));
+		for (int i = 0; i < sectorCount; i++)
+			out.getSectorList().add(createSector(i));
+		out.setBSPSegmentList(segs);
+		out.setBSPSubsectorList(subsectors);
+		out.setBSPNodeList(nodes);
+		out.setReject(reject);
+		out.setBlockmap(blockmap);
+		out.setZNodes(zNodes);
+		out.setBehavior(behavior);
+		out.setScripts(scripts);
+		for (Lump lump : unloaded)
+			out.unloadGeometry(lump);
+		return out;
+	}
+
+	/**
+	 * Returns the map's originating format type.
+	 */
+	public Format getOriginalFormat()
+	{
+		return format;
+	}
+
+	/**
+	 * The originating UDMF Namespace, if any (null if not from UDMF).
+	 */
+	public String getOriginalUDMFNamespace()
+	{
+		return udmfNamespace;
+	}
+
+	/** Returns the BSP segments. May be null if no nodes were loaded. */
+	public List<BSPSegment> getBSPSegmentList()				{return segs;}
+	/** Returns the BSP subsectors. May be null if no nodes were loaded. */
+	public List<BSPSubsector> getBSPSubsectorList()			{return subsectors;}
+	/** Returns the BSP nodes. May be null if no nodes were loaded. */
+	public List<BSPNode> getBSPNodeList()					{return nodes;}
+	/** May return null if not loaded. */
+	public Reject getReject()								{return reject;}
+	/** May return null if not loaded. */
+	public Blockmap getBlockmap()							{return blockmap;}
+	/** Returns raw ZDoom node data. */
+	public RawData getZNodes()								{return zNodes;}
+	/** Returns the binary ACS executable lump. */
+	public RawData getBehavior()							{return behavior;}
+	/** Returns the uncompiled script lump. */
+	public TextData getScripts()							{return scripts;}
+
+	/**
+	 * Returns true if a geometry lump was loaded in the source map.
+	 * If not, its count is 0, and its list is null in the map made by {@link #toDoomMap()}.
+	 * @param lump the lump (see {@link Lump#isGeometry()}).
+	 */
+	public boolean isLoaded(Lump lump)
+	{
+		return !unloaded.contains(lump);
+	}
+
+	/** Returns the number of Things. */
+	public int getThingCount()								{return thingCount;}
+	/** Returns the number of Linedefs. */
+	public int getLinedefCount()							{return linedefCount;}
+	/** Returns the number of Sidedefs. */
+	public int getSidedefCount()							{return sidedefCount;}
+	/** Returns the number of Vertices. */
+	public int getVertexCount()								{return vertexCount;}
+	/** Returns the number of Sectors. */
+	public int getSectorCount()								{return sectorCount;}
+
+	public float getThingX(int n)							{return thingX[n];}
+	public float getThingY(int n)							{return thingY[n];}
+	public float getThingZ(int n)							{return thingZ[n];}
+	public int getThingAngle(int n)							{return thingAngle[n];}
+	public int getThingType(int n)							{return thingType[n];}
+	public int getThingId(int n)							{return thingId[n];}
+	public int getThingSpecial(int n)						{return thingSpecial[n];}
+	/** Returns argument <code>arg</code> (0 to 4) of a thing. */
+	public int getThingArgument(int n, int arg)				{return thingArguments[n * ARGUMENT_COUNT + checkArgument(arg)];}
+	public String getThingComment(int n)					{return getString(thingComment[n]);}
+	/** Returns a thing's flags, as returned by {@link Thing#getPackedFlags()}. */
+	public long getThingPackedFlags(int n)					{return thingFlags[n];}
+
+	public int getLinedefVertexStart(int n)					{return linedefVertexStart[n];}
+	public int getLinedefVertexEnd(int n)					{return linedefVertexEnd[n];}
+	public int getLinedefSpecial(int n)						{return linedefSpecial[n];}
+	public int getLinedefId(int n)							{return linedefId[n];}
+	public int getLinedefFrontSidedef(int n)				{return linedefFrontSidedef[n];}
+	public int getLinedefBackSidedef(int n)					{return linedefBackSidedef[n];}
+	/** Returns argument <code>arg</code> (0 to 4) of a linedef. */
+	public int getLinedefArgument(int n, int arg)			{return linedefArguments[n * ARGUMENT_COUNT + checkArgument(arg)];}
+	public String getLinedefComment(int n)					{return getString(linedefComment[n]);}
+	public String getLinedefRenderStyle(int n)				{return getString(linedefRenderStyle[n]);}
+	public float getLinedefAlpha(int n)						{return linedefAlpha[n];}
+	/** Returns a linedef's flags, as returned by {@link Linedef#getPackedFlags()}. */
+	public long getLinedefPackedFlags(int n)				{return linedefFlags[n];}
+
+	public int getSidedefOffsetX(int n)						{return sidedefOffsetX[n];}
+	public int getSidedefOffsetY(int n)						{return sidedefOffsetY[n];}
+	public String getSidedefUpperTexture(int n)				{return getString(sidedefUpperTexture[n]);}
+	public String getSidedefMiddleTexture(int n)			{return getString(sidedefMiddleTexture[n]);}
+	public String getSidedefLowerTexture(int n)				{return getString(sidedefLowerTexture[n]);}
+	public int getSidedefSectorRef(int n)					{return sidedefSectorRef[n];}
+	public String getSidedefComment(int n)					{return getString(sidedefComment[n]);}
+	public int getSidedefLight(int n)						{return sidedefLight[n];}
+
+	public float getVertexX(int n)							{return vertexX[n];}
+	public float getVertexY(int n)							{return vertexY[n];}
+
+	public int getSectorFloorHeight(int n)					{return sectorFloorHeight[n];}
+	public int getSectorCeilingHeight(int n)				{return sectorCeilingHeight[n];}
+	public String getSectorFloorTexture(int n)				{return getString(sectorFloorTexture[n]);}
+	public String getSectorCeilingTexture(int n)			{return getString(sectorCeilingTexture[n]);}
+	public int getSectorLightLevel(int n)					{return sectorLightLevel[n];}
+	public int getSectorSpecial(int n)						{return sectorSpecial[n];}
+	public int getSectorTag(int n)							{return sectorTag[n];}
+	public String getSectorComment(int n)					{return getString(sectorComment[n]);}
+
+	/**
+	 * Creates a new Thing with the contents of a packed thing.
+	 * @param n the thing index.
+	 * @return a new Thing.
+	 * @throws ArrayIndexOutOfBoundsException if n is out of range.
+	 */
+	public Thing createThing(int n)
+	{
+		checkIndex(n, thingCount);
+		Thing out = new Thing();
+		out.setX(thingX[n]);
+		out.setY(thingY[n]);
+		out.setZ(thingZ[n]);
+		out.setAngle(thingAngle[n]);
+		out.setType(thingType[n]);
+		out.setId(thingId[n]);
+		out.setSpecial(thingSpecial[n]);
+		int a = n * ARGUMENT_COUNT;
+		out.setArgument0(thingArguments[a]);
+		out.setArgument1(thingArguments[a + 1]);
+		out.setArgument2(thingArguments[a + 2]);
+		out.setArgument3(thingArguments[a + 3]);
+		out.setArgument4(thingArguments[a + 4]);
+		out.setComment(getString(thingComment[n]));
+		out.setPackedFlags(thingFlags[n]);
+		return out;
+	}
+
+	/**
+	 * Creates a new Linedef with the contents of a packed linedef.
+	 * @param n the linedef index.
+	 * @return a new Linedef.
+	 * @throws ArrayIndexOutOfBoundsException if n is out of range.
+	 */
+	public Linedef createLinedef(int n)
+	{
+		checkIndex(n, linedefCount);
+		Linedef out = new Linedef();
+		out.setVertexStart(linedefVertexStart[n]);
+		out.setVertexEnd(linedefVertexEnd[n]);
+		out.setSpecial(linedefSpecial[n]);
+		out.setId(linedefId[n]);
+		out.setFrontSidedef(linedefFrontSidedef[n]);
+		out.setBackSidedef(linedefBackSidedef[n]);
+		int a = n * ARGUMENT_COUNT;
+		out.setArgument0(linedefArguments[a]);
+		out.setArgument1(linedefArguments[a + 1]);
+		out.setArgument2(linedefArguments[a + 2]);
+		out.setArgument3(linedefArguments[a + 3]);
+		out.setArgument4(linedefArguments[a + 4]);
+		out.setComment(getString(linedefComment[n]));
+		out.setRenderStyle(getString(linedefRenderStyle[n]));
+		out.setAlpha(linedefAlpha[n]);
+		out.setPackedFlags(linedefFlags[n]);
+		return out;
+	}
+
+	/**
+	 * Creates a new Sidedef with the contents of a packed sidedef.
+	 * @param n the sidedef index.
+	 * @return a new Sidedef.
+	 * @throws ArrayIndexOutOfBoundsException if n is out of range.
+	 */
+	public Sidedef createSidedef(int n)
+	{
+		checkIndex(n, sidedefCount);
+		Sidedef out = new Sidedef();
+		out.setOffsetX(sidedefOffsetX[n]);
+		out.setOffsetY(sidedefOffsetY[n]);
+		out.setUpperTexture(getString(sidedefUpperTexture[n]));
+		out.setMiddleTexture(getString(sidedefMiddleTexture[n]));
+		out.setLowerTexture(getString(sidedefLowerTexture[n]));
+		out.setSectorRef(sidedefSectorRef[n]);
+		out.setComment(getString(sidedefComment[n]));
+		out.setLight(sidedefLight[n]);
+		int t = n * SIDEDEF_TEXTURE_VALUES;
+		out.setUpperTextureScaleX(sidedefTextureScales[t]);
+		out.setUpperTextureScaleY(sidedefTextureScales[t + 1]);
+		out.setMiddleTextureScaleX(sidedefTextureScales[t + 2]);
+		out.setMiddleTextureScaleY(sidedefTextureScales[t + 3]);
+		out.setLowerTextureScaleX(sidedefTextureScales[t + 4]);
+		out.setLowerTextureScaleY(sidedefTextureScales[t + 5]);
+		out.setUpperTextureOffsetX(sidedefTextureOffsets[t]);
+		out.setUpperTextureOffsetY(sidedefTextureOffsets[t + 1]);
+		out.setMiddleTextureOffsetX(sidedefTextureOffsets[t + 2]);
+		out.setMiddleTextureOffsetY(sidedefTextureOffsets[t + 3]);
+		out.setLowerTextureOffsetX(sidedefTextureOffsets[t + 4]);
+		out.setLowerTextureOffsetY(sidedefTextureOffsets[t + 5]);
+		out.setPackedFlags(sidedefFlags[n] & 0x0ff);
+		return out;
+	}
+
+	/**
+	 * Creates a new Vertex with the contents of a packed vertex.
+	 * @param n the vertex index.
+	 * @return a new Vertex.
+	 * @throws ArrayIndexOutOfBoundsException if n is out of range.
+	 */
+	public Vertex createVertex(int n)
+	{
+		checkIndex(n, vertexCount);
+		Vertex out = new Vertex();
+		out.setX(vertexX[n]);
+		out.setY(vertexY[n]);
+		return out;
+	}
+
+	/**
+	 * Creates a new Sector with the contents of a packed sector.
+	 * @param n the sector index.
+	 * @return a new Sector.
+	 * @throws ArrayIndexOutOfBoundsException if n is out of range.
+	 */
+	public Sector createSector(int n)
+	{
+		checkIndex(n, sectorCount);
+		Sector out = new Sector();
+		out.setFloorHeight(sectorFloorHeight[n]);
+		out.setCeilingHeight(sectorCeilingHeight[n]);
+		out.setFloorTexture(getString(sectorFloorTexture[n]));
+		out.setCeilingTexture(getString(sectorCeilingTexture[n]));
+		out.setLightLevel(sectorLightLevel[n]);
+		out.setSpecial(sectorSpecial[n]);
+		out.setTag(sectorTag[n]);
+		out.setComment(getString(sectorComment[n]));
+		out.setFloorLighting(sectorFloorLighting[n]);
+		out.setCeilingLighting(sectorCeilingLighting[n]);
+		out.setLightColor(getColor(sectorLightColor[n]));
+		out.setFadeColor(getColor(sectorFadeColor[n]));
+		int p = n * SECTOR_PLANE_VALUES;
+		out.setFloorOffsetX(sectorPlaneValues[p]);
+		out.setFloorOffsetY(sectorPlaneValues[p + 1]);
+		out.setCeilingOffsetX(sectorPlaneValues[p + 2]);
+		out.setCeilingOffsetY(sectorPlaneValues[p + 3]);
+		out.setFloorScaleX(sectorPlaneValues[p + 4]);
+		out.setFloorScaleY(sectorPlaneValues[p + 5]);
+		out.setCeilingScaleX(sectorPlaneValues[p + 6]);
+		out.setCeilingScaleY(sectorPlaneValues[p + 7]);
+		out.setFloorRotation(sectorPlaneValues[p + 8]);
+		out.setCeilingRotation(sectorPlaneValues[p + 9]);
+		out.setGravity(sectorGravity[n]);
+		out.setDesaturation(sectorDesaturation[n]);
+		out.setPackedFlags(sectorFlags[n] & 0x0ff);
+		return out;
+	}
+
+	private String getString(int id)
+	{
+		return id < 0 ? null : strings[id];
+	}
+
+	private Color getColor(int id)
+	{
+		return id < 0 ? null : colors[id];
+	}
+
+	private static int checkArgument(int arg)
+	{
+		if (arg < 0 || arg >= ARGUMENT_COUNT)
+			throw new ArrayIndexOutOfBoundsException("Argument index must be from 0 to " + (ARGUMENT_COUNT - 1) + ".");
+		return arg;
+	}
+
+	private static void checkIndex(int n, int count)
+	{
+		if (n < 0 || n >= count)
+			throw new ArrayIndexOutOfBoundsException("Index " + n + " is out of range.");
+	}
+
+	/**
+	 * A table of distinct values, used while packing.
+	 * Null values are not stored, and have the id -1.
+	 */
+	private static class Table<T>
+	{
+		private HashMap<T, Integer> idMap;
+		private List<T> values;
+
+		private Table()
+		{
+			idMap = new HashMap<T, Integer>();
+			values = new List<T>();
+		}
+
+		private int getId(T value)
+		{
+			if (value == null)
+				return -1;
+			Integer id = idMap.get(value);
+			if (id == null)
+			{
+				id = values.size();
+				values.add(value);
+				idMap.put(value, id);
+			}
+			return id;
+		}
+
+		private int size()
+		{
+			return values.size();
+		}
+
+		private T[] toArray(T[] out)
+		{
+			for (int i = 0; i < out.length; i++)
+				out[i] = values.getByIndex(i);
+			return out;
+		}
+
+	}
+
+}
@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The common base of WAD implementations that read a WAD file that can't be added to or changed.
+ * <p>
+ * This reads the header and entry list, and does all of the entry lookups. Subclasses only
+ * provide the file's content, through {@link #getContentLength()} and {@link #readContent(long, int)}.
+ * The entry list is fixed once it is read, and lookups do not cache anything,
+ * so reads are safe to perform from multiple threads if the subclass's content reads are.
+ * <p>
+ * All methods that would add to or change the WAD throw an {@link UnsupportedOperationException}.
+ * @since 2.11.0
+ * @author Matthew Tropiano
+ */
+public abstract class ReadOnlyWad implements DoomWad, Closeable
+{
+	/** Type of Wad File (IWAD or PWAD). */
+	private Type type;
+	/** The list of entries. */
+	private WadDirectory entries;
+
+	/**
+	 * Creates a new WAD whose header and entry list must be read with {@link #readDirectory()}.
+	 */
+	protected ReadOnlyWad()
+	{
+	}
+
+	/**
+	 * Creates a new WAD with a known entry list, which must not be changed afterward.
+	 * @param type the WAD type.
+	 * @param entries the entry list to use.
+	 */
+	protected ReadOnlyWad(Type type, WadDirectory entries)
+	{
+		this.type = type;
+		this.entries = entries;
+	}
+
+	/**
+	 * Reads the header and entry list from the content.
+	 * @throws WadException if the content isn't a Wad file, or the entry list is outside of it.
+	 * @throws IOException if the content can't be read.
+	 */
+	protected void readDirectory() throws IOException
+	{
+		if (getContentLength() < 12)
+			throw new WadException("Not a Wad file or supported Wad file type.");
+
+		ByteBuffer header = readContent(0, 12);
+		byte[] typeBytes = new byte[4];
+		header.get(typeBytes);
+		String head = new String(typeBytes, "ASCII");
+		if (head.equals(Type.IWAD.toString()))
+			type = Type.IWAD;
+		else if (head.equals(Type.PWAD.toString()))
+			type = Type.PWAD;
+		else
+			throw new WadException("Not a Wad file or supported Wad file type.");
+
+		int entryCount = header.getInt();
+		int entryListOffset = header.getInt();
+		if (entryCount < 0 || entryListOffset < 0
+				|| (long)entryListOffset + (long)entryCount * DoomWadEntry.WADENTRY_LEN > getContentLength())
+			throw new WadException("Entry list extends past the end of the file.");
+
+		entries = new WadDirectory(entryCount);
+		entries.read(readContent(entryListOffset, entryCount * DoomWadEntry.WADENTRY_LEN), entryCount);
+	}
+
+	/**
+	 * Returns the length of the content, in bytes.
+	 * @throws IOException if the length can't be found, or this is closed.
+	 */
+	protected abstract long getContentLength() throws IOException;
+
+	/**
+	 * Reads a region of the content, which is known to be inside of it.
+	 * @param position the position of the region.
+	 * @param length the length of the region, in bytes.
+	 * @return a little-endian buffer with the region's bytes between position 0 and its limit.
+	 * @throws IOException if the content can't be read, or this is closed.
+	 */
+	protected abstract ByteBuffer readContent(long position, int length) throws IOException;
+
+	@Override
+	public DoomWadEntry getEntry(int n)
+	{
+		return entries.createEntry(n);
+	}
+
+	@Override
+	public DoomWadEntry getEntry(String s)
+	{
+		int i = getIndexOf(s, 0);
+		return i != -1 ? getEntry(i) : null;
+	}
+
+	@Override
+	public DoomWadEntry getEntry(String s, int startingIndex)
+	{
+		int i = getIndexOf(s, startingIndex);
+		return i != -1 ? getEntry(i) : null;
+	}
+
+	@Override
+	public DoomWadEntry getLastEntry(String s)
+	{
+		int i = getLastIndexOf(s);
+		return i != -1 ? getEntry(i) : null;
+	}
+
+	@Override
+	public DoomWadEntry getNthEntry(String s, int n)
+	{
+		int i = entries.getIndex().nthIndexOf(WadEntryIndex.getKey(s), n);
+		return i != -1 ? getEntry(i) : null;
+	}
+
+	@Override
+	public DoomWadEntry[] getAllEntries()
+	{
+		DoomWadEntry[] out = new DoomWadEntry[entries.size()];
+		for (int i = 0; i < out.length; i++)
+			out[i] = entries.createEntry(i);
+		return out;
+	}
+
+	@Override
+	public DoomWadEntry[] getAllEntries(String s)
+	{
+		int[] indices = entries.getIndex().getIndices(WadEntryIndex.getKey(s));
+		DoomWadEntry[] out = new DoomWadEntry[indices.length];
+		for (int i = 0; i < indices.length; i++)
+			out[i] = getEntry(indices[i]);
+		return out;
+	}
+
+	@Override
+	public int getIndexOf(String entryname)
+	{
+		return getIndexOf(entryname,0);
+	}
+
+	@Override
+	public int getIndexOf(String entryname, int start)
+	{
+		return entries.getIndex().indexOf(WadEntryIndex.getKey(entryname), start);
+	}
+
+	@Override
+	public int getLastIndexOf(String entryname)
+	{
+		return entries.getIndex().lastIndexOf(WadEntryIndex.getKey(entryname));
+	}
+
+	@Override
+	public byte[] getData(int n) throws IOException
+	{
+		DoomWadEntry e = getEntry(n);
+		return e != null ? getData(e) : null;
+	}
+
+	@Override
+	public byte[] getData(String entry) throws IOException
+	{
+		DoomWadEntry e = getEntry(entry);
+		return e != null ? getData(e) : null;
+	}
+
+	@Override
+	public byte[] getData(String entry, int start) throws IOException
+	{
+		int i = getIndexOf(entry,start);
+		return i != -1 ? getData(i) : null;
+	}
+
+	@Override
+	public byte[] getData(DoomWadEntry entry) throws IOException
+	{
+		ByteBuffer buf = getDataBuffer(entry);
+		byte[] out = new byte[buf.remaining()];
+		buf.get(out);
+		return out;
+	}
+
+	@Override
+	public InputStream getDataAsStream(int n) throws IOException
+	{
+		DoomWadEntry e = getEntry(n);
+		return e != null ? getDataAsStream(e) : null;
+	}
+
+	@Override
+	public InputStream getDataAsStream(String entry) throws IOException
+	{
+		DoomWadEntry e = getEntry(entry);
+		return e != null ? getDataAsStream(e) : null;
+	}
+
+	@Override
+	public InputStream getDataAsStream(String entry, int start) throws IOException
+	{
+		int i = getIndexOf(entry,start);
+		return i != -1 ? getDataAsStream(i) : null;
+	}
+
+	@Override
+	public InputStream getDataAsStream(DoomWadEntry entry) throws IOException
+	{
+		return new ByteArrayInputStream(getData(entry));
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(int n) throws IOException
+	{
+		DoomWadEntry e = getEntry(n);
+		return e != null ? getDataBuffer(e) : null;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry) throws IOException
+	{
+		DoomWadEntry e = getEntry(entry);
+		return e != null ? getDataBuffer(e) : null;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry, int start) throws IOException
+	{
+		int i = getIndexOf(entry,start);
+		return i != -1 ? getDataBuffer(i) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The buffer is little-endian, its position is 0, and its limit is the entry size.
+	 * @throws IOException if the entry refers to data outside of the file, or this is closed.
+	 */
+	@Override
+	public ByteBuffer getDataBuffer(DoomWadEntry entry) throws IOException
+	{
+		int offset = entry.getOffset();
+		int size = entry.getSize();
+		if (offset < 0 || size < 0 || (long)offset + size > getContentLength())
+			throw new IOException("Entry \""+entry.getName()+"\" refers to data outside of the file.");
+		return readContent(offset, size);
+	}
+
+	@Override
+	public int getSize()
+	{
+		return entries.size();
+	}
+
+	@Override
+	public boolean contains(String entry)
+	{
+		return getIndexOf(entry, 0) != -1;
+	}
+
+	@Override
+	public boolean contains(String entry, int index)
+	{
+		return getIndexOf(entry, index) > -1;
+	}
+
+	@Override
+	public void add(String entryname, byte[] data) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support add()");
+	}
+
+	@Override
+	public void addAt(int index, String entryname, byte[] data) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support addAt()");
+	}
+
+	@Override
+	public void addAll(String[] entrynames, byte[][] data) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support addAll()");
+	}
+
+	@Override
+	public void addMarker(String name) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support addMarker()");
+	}
+
+	@Override
+	public DoomWadEntry createMarker(String name)
+	{
+		throw new UnsupportedOperationException("This class does not support createMarker()");
+	}
+
+	@Override
+	public void replaceEntry(int index, byte[] data) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support replaceEntry()");
+	}
+
+	@Override
+	public void renameEntry(int index, String newName) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support renameEntry()");
+	}
+
+	@Override
+	public void deleteEntry(int n) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support deleteEntry()");
+	}
+
+	@Override
+	public DoomWadEntry[] mapEntries(int startIndex, int maxLength)
+	{
+		if (startIndex < 0)
+			throw new IllegalArgumentException("Starting index cannot be less than 0.");
+
+		int len = Math.min(maxLength, getSize() - startIndex);
+		if (len <= 0)
+			return new DoomWadEntry[0];
+		DoomWadEntry[] out = new DoomWadEntry[len];
+		for (int i = 0; i < len; i++)
+			out[i] = getEntry(startIndex + i);
+		return out;
+	}
+
+	@Override
+	public void unmapEntries(int startIndex, DoomWadEntry[] entries) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support unmapEntries()");
+	}
+
+	@Override
+	public void setEntries(DoomWadEntry[] entryList) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support setEntries()");
+	}
+
+	@Override
+	public Iterator<DoomWadEntry> getEntryIterator()
+	{
+		return Arrays.asList(getAllEntries()).iterator();
+	}
+
+	@Override
+	public boolean isIWAD()
+	{
+		return type == Type.IWAD;
+	}
+
+	@Override
+	public boolean isPWAD()
+	{
+		return type == Type.PWAD;
+	}
+
+}
@@ -9,19 +9,21 @@ package com.blackrook.doom;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import com.blackrook.commons.Common;
-import com.blackrook.commons.hash.CaseInsensitiveHashedQueueMap;
-import com.blackrook.commons.linkedlist.Queue;
-import com.blackrook.commons.list.DataList;
-import com.blackrook.commons.list.List;
 import com.blackrook.doom.util.DoomUtil;
 import com.blackrook.io.SuperReader;
 import com.blackrook.io.SuperWriter;
@@ -29,18 +31,23 @@ import com.blackrook.io.SuperWriter;
 /**
  * An implementation of DoomWad where any and all WAD information is manipulated in memory.
  * This loads everything in the WAD into memory as uninterpreted raw bytes.
+ * <p>
+ * The data is kept in a {@link ChunkedContent} store, so it is never held in, or copied to, one large array.
+ * A WadBuffer read from a file can also be opened in <i>lazy</i> mode, where each entry's data is only read
+ * from the file when it is first requested, and untouched data is copied straight from the file when this
+ * buffer is written out. In lazy mode, the file is kept open until {@link #close()} is called.
  * @author Matthew Tropiano
  */
-public class WadBuffer implements DoomWad
+public class WadBuffer implements DoomWad, Closeable
 {
 	/** Type of Wad File (IWAD or PWAD). */
 	private Type type;
 	/** The data itself. */
-	protected DataList content;
+	protected ChunkedContent content;
 	/** The list of entries. */
-	protected List<DoomWadEntry> entries;
-	/** A Hashtable of this Wad's entries. */
-	private CaseInsensitiveHashedQueueMap<DoomWadEntry> entryTable;
+	protected WadDirectory entries;
+	/** The file this was read from, if any. */
+	private File sourceFile;
 
 	/**
 	 * Creates an empty WadBuffer (as a PWAD).
@@ -56,9 +63,8 @@ public class WadBuffer implements DoomWad
 	public WadBuffer(Type type)
 	{
 		this.type = type;
-		content = new DataList();
-		entries = new List<DoomWadEntry>();
-		entryTable = new CaseInsensitiveHashedQueueMap<DoomWadEntry>();
+		content = new ChunkedContent();
+		entries = new WadDirectory();
 	}
 	
 	/**
@@ -75,11 +81,35 @@ public class WadBuffer implements DoomWad
 	 * @param f the file to read.
 	 */
 	public WadBuffer(File f) throws IOException
+	{
+		this(f, false);
+	}
+	
+	/**
+	 * Creates a new WadBuffer using the contents of a file, denoted by the path.
+	 * @param path the path to the file to read.
+	 * @param lazy if true, entry data is only read from the file when it is first needed,
+	 * and the file is kept open until this buffer is closed.
+	 * @since 2.11.0
+	 */
+	public WadBuffer(String path, boolean lazy) throws IOException
+	{
+		this(new File(path), lazy);
+	}
+	
+	/**
+	 * Creates a new WadBuffer using the contents of a file.
+	 * Each entry's data is kept in its own chunk, so fetching it as a buffer needs no copy.
+	 * @param f the file to read.
+	 * @param lazy if true, entry data is only read from the file when it is first needed,
+	 * and the file is kept open until this buffer is closed.
+	 * @since 2.11.0
+	 */
+	public WadBuffer(File f, boolean lazy) throws IOException
 	{
 		this();
-		FileInputStream fis = new FileInputStream(f);
-		readWad(fis);
-		fis.close();
+		readWad(f, lazy);
+		sourceFile = f;
 	}
 	
 	/**
@@ -101,35 +131,103 @@ public class WadBuffer implements DoomWad
 		SuperReader sr = new SuperReader(in, SuperReader.LITTLE_ENDIAN);
 		content.clear();
 		entries.clear();
-		entryTable.clear();
 
 		try {
 			type = Type.valueOf(sr.readASCIIString(4));
 		} catch (IllegalArgumentException e) {
 			throw new WadException("Not a WAD file.");
 		}
-		int entries = sr.readInt();
+		int entryCount = sr.readInt();
 		int contentsize = sr.readInt() - 12;
 		
-		byte[] buffer = new byte[65536];
-		int bytes = 0;
-		int n = 0;
-		while (bytes < contentsize)
-		{
-			n = sr.readBytes(buffer, Math.min(contentsize - bytes, buffer.length));
-			content.append(buffer, 0, n);
-			bytes += n;
-		}
+		content.append(in, contentsize);
 		
-		byte[] entrybuffer = new byte[16];
-		for (int x = 0; x < entries; x++)
+		byte[] list = new byte[entryCount * DoomWadEntry.WADENTRY_LEN];
+		sr.readBytes(list);
+		entries.read(ByteBuffer.wrap(list), entryCount);
+	}
+	
+	/**
+	 * Reads in a wad from a file, splitting the content at entry boundaries.
+	 * @param f the file.
+	 * @param lazy if true, keep the file open and read data on demand.
+	 */
+	private void readWad(File f, boolean lazy) throws IOException
+	{
+		content.close();
+		content.clear();
+		entries.clear();
+
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+		FileChannel channel = file.getChannel();
+		try {
+			ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			byte[] typeBytes = new byte[4];
+			header.get(typeBytes);
+			try {
+				type = Type.valueOf(new String(typeBytes, "ASCII"));
+			} catch (IllegalArgumentException e) {
+				throw new WadException("Not a WAD file.");
+			}
+			int entryCount = header.getInt();
+			int listOffset = header.getInt();
+			if (entryCount < 0 || listOffset < 12 
+					|| (long)listOffset + (long)entryCount * DoomWadEntry.WADENTRY_LEN > channel.size())
+				throw new WadException("Bad WAD header.");
+			
+			ByteBuffer list = ByteBuffer.allocate(entryCount * DoomWadEntry.WADENTRY_LEN);
+			readFully(channel, list, listOffset);
+			list.order(ByteOrder.LITTLE_ENDIAN);
+			int[] bounds = new int[entryCount * 2 + 2];
+			int b = 0;
+			bounds[b++] = 12;
+			bounds[b++] = listOffset;
+			for (int x = 0; x < entryCount; x++)
+			{
+				int offset = list.getInt();
+				int size = list.getInt();
+				entries.add(list.getLong(), size, offset);
+				bounds[b++] = Math.max(12, Math.min(listOffset, offset));
+				bounds[b++] = Math.max(12, Math.min(listOffset, offset + size));
+			}
+			
+			// each run of data between entry boundaries becomes its own chunk.
+			Arrays.sort(bounds);
+			content.setSource(channel);
+			for (int i = 1; i < bounds.length; i++)
+				if (bounds[i] > bounds[i - 1])
+					content.appendLazy(bounds[i - 1], bounds[i] - bounds[i - 1]);
+
+			if (!lazy)
+			{
+				content.loadAll();
+				content.close();
+			}
+		} catch (IOException e) {
+			content.clear();
+			content.close();
+			file.close();
+			throw e;
+		} finally {
+			if (!lazy)
+				file.close();
+		}
+	}
+
+	/**
+	 * Fills a buffer from a channel at a position.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
 		{
-			sr.readBytes(entrybuffer);
-			Entry entry = new Entry(entrybuffer);
-			addEntry(entry);
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new WadException("Reached unexpected end of file.");
 		}
+		buffer.flip();
 	}
-	
+
 	/**
 	 * Converts a DoomWadEntry offset to the offset into the data vector.
 	 */
@@ -146,16 +244,9 @@ public class WadBuffer implements DoomWad
 		return contentOffset + 12; 
 	}
 	
-	private void addEntry(DoomWadEntry wfe)
-	{
-		entries.add(wfe);
-		entryTable.enqueue(wfe.getName(),wfe);
-	}
-	
 	private DoomWadEntry removeEntry(int n)
 	{
-		DoomWadEntry wfe = entries.removeIndex(n);
-		return wfe;
+		return entries.remove(n);
 	}
 
 	/**
@@ -171,49 +262,86 @@ public class WadBuffer implements DoomWad
 		sw.writeASCIIString(type.name());
 		sw.writeInt(entries.size());		// number of entries.
 		sw.writeInt(12 + content.size());	// offset to entry list.
-		sw.writeBytes(content.toByteArray());
-		for (DoomWadEntry entry : entries)
-		{
-			sw.writeInt(entry.getOffset());
-			sw.writeInt(entry.getSize());
-			sw.writeASCIIString(DoomUtil.coerceToEntry(entry.getName()));
-		}
+		content.writeTo(out);
+		out.write(entries.toBytes());
+	}
+	
+	/**
+	 * Writes the contents of this buffer out to a channel in Wad format.
+	 * Data that was not loaded yet in lazy mode is transferred straight from the source file.
+	 * Does not close the channel.
+	 * @param out the channel to write to.
+	 * @throws IOException if a problem occurs during the write.
+	 * @since 2.11.0
+	 */
+	public void writeToChannel(WritableByteChannel out) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(type.name().getBytes("ASCII"));
+		header.putInt(entries.size());		// number of entries.
+		header.putInt(12 + content.size());	// offset to entry list.
+		header.flip();
+		writeFully(out, header);
+		
+		content.writeTo(out);
+		
+		writeFully(out, ByteBuffer.wrap(entries.toBytes()));
+	}
+	
+	private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+			out.write(buffer);
 	}
 	
 	/**
 	 * Writes the contents of this buffer out to a file in Wad format.
-	 * The target file will be overwritten.
+	 * The target file will be overwritten. If this buffer was opened lazily from the
+	 * same file, all of its data is loaded first.
 	 * @param f the file to write to.
 	 * @throws IOException if a problem occurs during the write.
 	 * @since 2.5.0
 	 */
 	public void writeToFile(File f) throws IOException
 	{
+		if (sourceFile != null && content.hasSource() 
+				&& sourceFile.getCanonicalFile().equals(f.getCanonicalFile()))
+			content.loadAll();
+		
 		FileOutputStream fos = new FileOutputStream(f);
-		writeToStream(fos);
-		Common.close(fos);
+		try {
+			writeToChannel(fos.getChannel());
+		} finally {
+			Common.close(fos);
+		}
+	}
+	
+	/**
+	 * Closes the source file of a lazily-read buffer. Data that was not loaded
+	 * can no longer be read afterward. Does nothing if this buffer was not read lazily.
+	 * @throws IOException if the file could not be closed.
+	 * @since 2.11.0
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		content.close();
 	}
 	
 	@Override
 	public void add(String entryname, byte[] data) throws IOException
 	{
-		String name = DoomUtil.coerceToEntrySize(entryname);
 		int ofs = toEntryOffset(content.size());
-		Entry e = new Entry(name, data.length, ofs);
 		content.append(data);
-		entries.add(e);
-		entryTable.enqueue(name, e);
+		entries.add(entryname, data.length, ofs);
 	}
 
 	@Override
 	public void addAt(int index, String entryname, byte[] data) throws IOException
 	{
-		String name = DoomUtil.coerceToEntrySize(entryname);
 		int ofs = toEntryOffset(content.size());
-		Entry e = new Entry(name, data.length, ofs);
 		content.append(data);
-		entries.add(index, e);
-		entryTable.enqueue(name, e);
+		entries.add(index, entryname, data.length, ofs);
 	}
 	
 	@Override
@@ -238,7 +366,7 @@ public class WadBuffer implements DoomWad
 	@Override	
 	public boolean contains(String entry)
 	{
-		return entryTable.containsKey(entry);
+		return getIndexOf(entry, 0) != -1;
 	}
 	
 	@Override	
@@ -257,24 +385,28 @@ public class WadBuffer implements DoomWad
 
 		int cofs = getContentOffset(wfe);
 
-		content.delete(cofs, wfe.getSize());
+		try {
+			content.delete(cofs, wfe.getSize());
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException(e);
+		}
 		
-		// adjust offsets from last entry.
-		for (int i = n; i < entries.size(); i++)
+		// adjust offsets of entries that followed the removed data.
+		int entryEnd = wfe.getOffset() + wfe.getSize();
+		for (int i = 0; i < entries.size(); i++)
 		{
-			Entry e = (Entry)entries.getByIndex(i);
-			e.offset -= wfe.getSize();
+			if (wfe.getSize() > 0 && entries.getOffset(i) >= entryEnd)
+				entries.setOffset(i, entries.getOffset(i) - wfe.getSize());
 		}
 	}
 
 	@Override
 	public void renameEntry(int index, String newName) throws IOException
 	{
-		Entry entry = (Entry)getEntry(index);
-		if (entry == null)
+		if (index < 0 || index >= entries.size())
 			throw new IOException("Index is out of range.");
 		
-		entry.name = DoomUtil.coerceToEntrySize(newName);
+		entries.setName(index, newName);
 	}
 
 	@Override
@@ -307,7 +439,7 @@ public class WadBuffer implements DoomWad
 	public void unmapEntries(int startIndex, DoomWadEntry[] entryList) throws IOException
 	{
 		for (int i = 0; i < entryList.length; i++)
-			entries.replace(startIndex + i, entryList[i]);
+			entries.set(startIndex + i, entryList[i]);
 	}
 
 	@Override
@@ -389,18 +521,54 @@ public class WadBuffer implements DoomWad
 		return new ByteArrayInputStream(getData(entry));
 	}
 
+	@Override
+	public ByteBuffer getDataBuffer(int n) throws IOException
+	{
+		DoomWadEntry e = getEntry(n);
+		return e != null ? getDataBuffer(e) : null;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry) throws IOException
+	{
+		DoomWadEntry e = getEntry(entry);
+		return e != null ? getDataBuffer(e) : null;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry, int start) throws IOException
+	{
+		int i = getIndexOf(entry,start);
+		return i != -1 ? getDataBuffer(i) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the entry's data is stored in a single chunk, the returned buffer is a read-only view of it
+	 * and no data is copied.
+	 */
+	@Override
+	public ByteBuffer getDataBuffer(DoomWadEntry entry) throws IOException
+	{
+		try {
+			return content.getBuffer(getContentOffset(entry), entry.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException(e);
+		}
+	}
+
 	@Override	
 	public DoomWadEntry getEntry(int n)
 	{
-		return entries.getByIndex(n);
+		return entries.getEntry(n);
 	}
 
 	@Override	
 	public DoomWadEntry getEntry(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.head() : null;
+		int i = getIndexOf(s, 0);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
@@ -413,40 +581,30 @@ public class WadBuffer implements DoomWad
 	@Override	
 	public DoomWadEntry getLastEntry(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.tail() : null;
+		int i = getLastIndexOf(s);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
 	public DoomWadEntry getNthEntry(String s, int n)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.get(n) : null;
+		int i = entries.getIndex().nthIndexOf(WadEntryIndex.getKey(s), n);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
 	public DoomWadEntry[] getAllEntries()
 	{
-		DoomWadEntry[] out = new DoomWadEntry[entries.size()];
-		entries.toArray(out);
-		return out;
+		return entries.toArray();
 	}
 	
 	@Override	
 	public DoomWadEntry[] getAllEntries(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> w = entryTable.get(s);
-		DoomWadEntry[] out = null;
-		if (w != null)
-		{
-			out = new DoomWadEntry[w.size()];
-			w.toArray(out);
-		}
-		else
-			out = new DoomWadEntry[0];
+		int[] indices = entries.getIndex().getIndices(WadEntryIndex.getKey(s));
+		DoomWadEntry[] out = new DoomWadEntry[indices.length];
+		for (int i = 0; i < indices.length; i++)
+			out[i] = getEntry(indices[i]);
 		return out;
 	}
 
@@ -459,28 +617,19 @@ public class WadBuffer implements DoomWad
 	@Override	
 	public int getIndexOf(String entryname, int start)
 	{
-		entryname = DoomUtil.coerceToEntrySize(entryname);
-		for (int i = start; i < entries.size(); i++)
-			if (entries.getByIndex(i).getName().equalsIgnoreCase(entryname))
-				return i;
-		return -1;
+		return entries.getIndex().indexOf(WadEntryIndex.getKey(entryname), start);
 	}
 	
 	@Override	
 	public int getLastIndexOf(String entryname)
 	{
-		entryname = DoomUtil.coerceToEntrySize(entryname);
-		int out = -1;
-		for (int i = 0; i < entries.size(); i++)
-			if (entries.getByIndex(i).getName().equalsIgnoreCase(entryname))
-				out = i;
-		return out;
+		return entries.getIndex().lastIndexOf(WadEntryIndex.getKey(entryname));
 	}
 	
 	@Override
 	public Iterator<DoomWadEntry> getEntryIterator()
 	{
-		return (Iterator<DoomWadEntry>)entries.iterator();
+		return entries.iterator();
 	}
 	
 	/**
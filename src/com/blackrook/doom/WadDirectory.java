@@ -0,0 +1,532 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A packed WAD entry list.
+ * <p>
+ * Entry offsets, sizes and raw 8-byte names are kept in parallel primitive arrays
+ * (names as <code>long</code>s, first character in the lowest byte, as they are stored in a WAD),
+ * and {@link DoomWadEntry} objects are only created when an entry is asked for.
+ * Name strings are only decoded when {@link DoomWadEntry#getName()} is called.
+ * Entries returned by {@link #getEntry(int)} are cached, and are kept up to date
+ * by this directory when their entry is renamed or moved.
+ * <p>
+ * Names are indexed by a {@link WadEntryIndex}, which is kept up to date on appends
+ * and rebuilt on the next lookup after any other change.
+ * <p>
+ * This class is not thread-safe for writes. Once built, it may be read by many threads
+ * through methods that do not cache anything, such as {@link #createEntry(int)}.
+ * @since 2.11.0
+ * @author Matthew Tropiano
+ */
+public final class WadDirectory implements Iterable<DoomWadEntry>
+{
+	/** Amount of entries. */
+	private int count;
+	/** Entry offsets. */
+	private int[] offsets;
+	/** Entry sizes. */
+	private int[] sizes;
+	/** Raw entry names. */
+	private long[] names;
+	/** Entry objects handed out so far. */
+	private Entry[] views;
+
+	/** The name index. */
+	private WadEntryIndex index;
+	/** If true, the name index needs rebuilding. */
+	private boolean indexDirty;
+
+	/**
+	 * Creates a new, empty directory.
+	 */
+	public WadDirectory()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates a new, empty directory.
+	 * @param capacity the initial entry capacity.
+	 */
+	public WadDirectory(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		count = 0;
+		offsets = new int[capacity];
+		sizes = new int[capacity];
+		names = new long[capacity];
+		views = new Entry[capacity];
+		index = new WadEntryIndex(capacity);
+		indexDirty = false;
+	}
+
+	/**
+	 * Creates a new directory with a copy of another directory's entries.
+	 * @param source the directory to copy.
+	 */
+	public WadDirectory(WadDirectory source)
+	{
+		this(source.count);
+		for (int i = 0; i < source.count; i++)
+			add(source.names[i], source.sizes[i], source.offsets[i]);
+	}
+
+	/**
+	 * Decodes a raw entry name into a String.
+	 * The name ends at the first zero byte, and lowercase letters are uppercased,
+	 * same as {@link com.blackrook.doom.util.DoomUtil#nameFix(String)}.
+	 * @param rawName the raw name.
+	 * @return the decoded name.
+	 */
+	public static String decodeName(long rawName)
+	{
+		char[] out = new char[8];
+		int len = 0;
+		while (len < 8)
+		{
+			int ch = (int)(rawName >>> (8 * len)) & 0x0ff;
+			if (ch == 0)
+				break;
+			else if (ch >= 'a' && ch <= 'z')
+				ch -= 32;
+			else if (ch > 0x7f)
+				ch = '\uFFFD';
+			out[len++] = (char)ch;
+		}
+		return new String(out, 0, len);
+	}
+
+	/**
+	 * Returns the amount of entries in this directory.
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Removes all entries from this directory.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < count; i++)
+			views[i] = null;
+		count = 0;
+		index.clear();
+		indexDirty = false;
+	}
+
+	/**
+	 * Returns the offset of the entry at an index.
+	 * @param i the entry index.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public int getOffset(int i)
+	{
+		checkIndex(i);
+		return offsets[i];
+	}
+
+	/**
+	 * Returns the size of the entry at an index.
+	 * @param i the entry index.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public int getSize(int i)
+	{
+		checkIndex(i);
+		return sizes[i];
+	}
+
+	/**
+	 * Returns the raw name of the entry at an index.
+	 * @param i the entry index.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public long getRawName(int i)
+	{
+		checkIndex(i);
+		return names[i];
+	}
+
+	/**
+	 * Returns the decoded name of the entry at an index.
+	 * @param i the entry index.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public String getName(int i)
+	{
+		checkIndex(i);
+		return decodeName(names[i]);
+	}
+
+	/**
+	 * Returns the entry at an index. The same object is returned on each call
+	 * until the entry is removed or replaced.
+	 * @param i the entry index.
+	 * @return the entry, or null if the index is out of range.
+	 */
+	public DoomWadEntry getEntry(int i)
+	{
+		if (i < 0 || i >= count)
+			return null;
+		if (views[i] == null)
+			views[i] = new Entry(names[i], sizes[i], offsets[i]);
+		return views[i];
+	}
+
+	/**
+	 * Creates a new, uncached entry object for the entry at an index.
+	 * The entry object is a snapshot, and does not change along with this directory.
+	 * @param i the entry index.
+	 * @return the entry, or null if the index is out of range.
+	 */
+	public DoomWadEntry createEntry(int i)
+	{
+		if (i < 0 || i >= count)
+			return null;
+		return new Entry(names[i], sizes[i], offsets[i]);
+	}
+
+	/**
+	 * Returns all entries in this directory, in order.
+	 */
+	public DoomWadEntry[] toArray()
+	{
+		DoomWadEntry[] out = new DoomWadEntry[count];
+		for (int i = 0; i < count; i++)
+			out[i] = getEntry(i);
+		return out;
+	}
+
+	/**
+	 * Appends an entry.
+	 * @param rawName the raw entry name.
+	 * @param size the entry size.
+	 * @param offset the entry offset.
+	 */
+	public void add(long rawName, int size, int offset)
+	{
+		ensureCapacity(count + 1);
+		names[count] = rawName;
+		sizes[count] = size;
+		offsets[count] = offset;
+		views[count] = null;
+		if (!indexDirty)
+			index.add(WadEntryIndex.getEntryKey(rawName), count);
+		count++;
+	}
+
+	/**
+	 * Appends an entry.
+	 * @param name the entry name (coerced to a valid name).
+	 * @param size the entry size.
+	 * @param offset the entry offset.
+	 */
+	public void add(String name, int size, int offset)
+	{
+		add(WadEntryIndex.getKey(name), size, offset);
+	}
+
+	/**
+	 * Appends a copy of an entry.
+	 * @param entry the entry to copy (name is coerced to a valid name).
+	 */
+	public void add(DoomWadEntry entry)
+	{
+		add(entry.getName(), entry.getSize(), entry.getOffset());
+	}
+
+	/**
+	 * Inserts an entry.
+	 * @param i the index to insert the entry at.
+	 * @param name the entry name (coerced to a valid name).
+	 * @param size the entry size.
+	 * @param offset the entry offset.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public void add(int i, String name, int size, int offset)
+	{
+		if (i == count)
+		{
+			add(name, size, offset);
+			return;
+		}
+		checkIndex(i);
+		ensureCapacity(count + 1);
+		int len = count - i;
+		System.arraycopy(names, i, names, i + 1, len);
+		System.arraycopy(sizes, i, sizes, i + 1, len);
+		System.arraycopy(offsets, i, offsets, i + 1, len);
+		System.arraycopy(views, i, views, i + 1, len);
+		names[i] = WadEntryIndex.getKey(name);
+		sizes[i] = size;
+		offsets[i] = offset;
+		views[i] = null;
+		count++;
+		indexDirty = true;
+	}
+
+	/**
+	 * Appends entries read from raw WAD directory data
+	 * (little-endian offset, size and 8-byte name per entry).
+	 * Blank entries (no name and no data) are skipped, so that every WAD implementation
+	 * gives the same entries the same indices.
+	 * The buffer's byte order is set to little-endian, and its position is advanced past the entries.
+	 * @param buffer the buffer to read from.
+	 * @param amount the amount of entries to read.
+	 */
+	public void read(ByteBuffer buffer, int amount)
+	{
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		ensureCapacity(count + amount);
+		for (int i = 0; i < amount; i++)
+		{
+			int offset = buffer.getInt();
+			int size = buffer.getInt();
+			long name = buffer.getLong();
+			if ((name & 0x0ffL) != 0 || size > 0)
+				add(name, size, offset);
+		}
+	}
+
+	/**
+	 * Replaces the entry at an index with a copy of another entry.
+	 * @param i the entry index.
+	 * @param entry the entry to copy (name is coerced to a valid name).
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public void set(int i, DoomWadEntry entry)
+	{
+		checkIndex(i);
+		names[i] = WadEntryIndex.getKey(entry.getName());
+		sizes[i] = entry.getSize();
+		offsets[i] = entry.getOffset();
+		views[i] = null;
+		indexDirty = true;
+	}
+
+	/**
+	 * Renames the entry at an index.
+	 * @param i the entry index.
+	 * @param name the new name (coerced to a valid name).
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public void setName(int i, String name)
+	{
+		checkIndex(i);
+		names[i] = WadEntryIndex.getKey(name);
+		if (views[i] != null)
+		{
+			views[i].name = names[i];
+			views[i].nameString = null;
+		}
+		indexDirty = true;
+	}
+
+	/**
+	 * Sets the offset of the entry at an index.
+	 * @param i the entry index.
+	 * @param offset the new offset.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public void setOffset(int i, int offset)
+	{
+		checkIndex(i);
+		offsets[i] = offset;
+		if (views[i] != null)
+			views[i].offset = offset;
+	}
+
+	/**
+	 * Removes the entry at an index.
+	 * @param i the entry index.
+	 * @return the removed entry, or null if the index is out of range.
+	 */
+	public DoomWadEntry remove(int i)
+	{
+		DoomWadEntry out = getEntry(i);
+		if (out == null)
+			return null;
+		int len = count - i - 1;
+		System.arraycopy(names, i + 1, names, i, len);
+		System.arraycopy(sizes, i + 1, sizes, i, len);
+		System.arraycopy(offsets, i + 1, offsets, i, len);
+		System.arraycopy(views, i + 1, views, i, len);
+		count--;
+		views[count] = null;
+		indexDirty = true;
+		return out;
+	}
+
+	/**
+	 * Returns the name index for this directory, rebuilding it first if needed.
+	 */
+	public WadEntryIndex getIndex()
+	{
+		if (indexDirty)
+		{
+			index.clear();
+			for (int i = 0; i < count; i++)
+				index.add(WadEntryIndex.getEntryKey(names[i]), i);
+			indexDirty = false;
+		}
+		return index;
+	}
+
+	/**
+	 * Writes this directory as raw WAD directory data (little-endian offset, size and 8-byte name per entry).
+	 * The buffer's byte order is set to little-endian.
+	 * @param buffer the buffer to write to.
+	 * @throws java.nio.BufferOverflowException if the buffer does not have enough space remaining.
+	 */
+	public void write(ByteBuffer buffer)
+	{
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < count; i++)
+		{
+			buffer.putInt(offsets[i]);
+			buffer.putInt(sizes[i]);
+			buffer.putLong(names[i]);
+		}
+	}
+
+	/**
+	 * Returns this directory as raw WAD directory data (little-endian offset, size and 8-byte name per entry).
+	 */
+	public byte[] toBytes()
+	{
+		ByteBuffer out = ByteBuffer.allocate(count * DoomWadEntry.WADENTRY_LEN);
+		write(out);
+		return out.array();
+	}
+
+	@Override
+	public Iterator<DoomWadEntry> iterator()
+	{
+		return new Iterator<DoomWadEntry>()
+		{
+			private int next = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				return next < count;
+			}
+
+			@Override
+			public DoomWadEntry next()
+			{
+				if (next >= count)
+					throw new NoSuchElementException();
+				return getEntry(next++);
+			}
+
+			@Override
+			public void remove()
+			{
+				if (next == 0)
+					throw new IllegalStateException();
+				WadDirectory.this.remove(--next);
+			}
+		};
+	}
+
+	private void checkIndex(int i)
+	{
+		if (i < 0 || i >= count)
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity <= names.length)
+			return;
+		int newCapacity = Math.max(capacity, names.length * 2);
+		int[] newOffsets = new int[newCapacity];
+		int[] newSizes = new int[newCapacity];
+		long[] newNames = new long[newCapacity];
+		Entry[] newViews = new Entry[newCapacity];
+		System.arraycopy(offsets, 0, newOffsets, 0, count);
+		System.arraycopy(sizes, 0, newSizes, 0, count);
+		System.arraycopy(names, 0, newNames, 0, count);
+		System.arraycopy(views, 0, newViews, 0, count);
+		offsets = newOffsets;
+		sizes = newSizes;
+		names = newNames;
+		views = newViews;
+	}
+
+	/**
+	 * An entry in a directory.
+	 * @author Matthew Tropiano
+	 */
+	private static final class Entry implements DoomWadEntry
+	{
+		/** Raw entry name. */
+		long name;
+		/** Decoded entry name, if decoded. */
+		String nameString;
+		/** Entry size.*/
+		int size;
+		/** Entry offset.*/
+		int offset;
+
+		private Entry(long name, int size, int offset)
+		{
+			this.name = name;
+			this.nameString = null;
+			this.size = size;
+			this.offset = offset;
+		}
+
+		@Override
+		public int getOffset()
+		{
+			return offset;
+		}
+
+		@Override
+		public int getSize()
+		{
+			return size;
+		}
+
+		@Override
+		public String getName()
+		{
+			if (nameString == null)
+				nameString = decodeName(name);
+			return nameString;
+		}
+
+		@Override
+		public byte[] toBytes()
+		{
+			ByteBuffer out = ByteBuffer.allocate(WADENTRY_LEN).order(ByteOrder.LITTLE_ENDIAN);
+			out.putInt(offset);
+			out.putInt(size);
+			out.putLong(name);
+			return out.array();
+		}
+
+		public String toString()
+		{
+			return getName()+" Size: "+size+", Offset: "+offset;
+		}
+
+	}
+
+}
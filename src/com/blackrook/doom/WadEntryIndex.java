@@ -0,0 +1,382 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom;
+
+import com.blackrook.doom.util.DoomUtil;
+
+/**
+ * A compact index of entry names to entry list positions.
+ * <p>
+ * Entry names are packed into 8-byte <code>long</code> keys (one uppercase ASCII character per byte,
+ * first character in the lowest byte, zero-padded), which are stored in an open-addressing hash table
+ * that maps each key to a sorted array of the positions of the entries that have that name.
+ * Looking up a name never allocates, and finding the first occurrence of a name at or after a
+ * position is a binary search.
+ * <p>
+ * This class is not thread-safe for writes, but may be read by many threads once built.
+ * @since 2.11.0
+ * @author Matthew Tropiano
+ */
+public final class WadEntryIndex
+{
+	/** Key for entry names that can never be matched by a lookup. */
+	public static final long UNMATCHABLE_KEY = -1L;
+
+	/** Initial capacity of each position list. */
+	private static final int INITIAL_LIST_CAPACITY = 2;
+
+	/** Hash table keys. */
+	private long[] keys;
+	/** Hash table values: position list index + 1, or 0 if the slot is empty. */
+	private int[] slots;
+	/** Position lists. */
+	private int[][] lists;
+	/** Position list lengths. */
+	private int[] listSizes;
+	/** Amount of distinct keys. */
+	private int keyCount;
+	/** Amount of positions. */
+	private int size;
+
+	/**
+	 * Creates a new, empty index.
+	 */
+	public WadEntryIndex()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates a new, empty index.
+	 * @param capacity the expected amount of distinct names.
+	 */
+	public WadEntryIndex(int capacity)
+	{
+		int tableSize = 16;
+		while (tableSize < capacity * 2)
+			tableSize <<= 1;
+		keys = new long[tableSize];
+		slots = new int[tableSize];
+		lists = new int[Math.max(capacity, 4)][];
+		listSizes = new int[lists.length];
+		keyCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the lookup key for an entry name, coerced the same way as
+	 * {@link DoomUtil#coerceToEntrySize(String)}: leading whitespace is skipped,
+	 * characters are uppercased, carats become backslashes, and the name ends at
+	 * the first invalid character or after 8 characters.
+	 * @param name the name to use.
+	 * @return the corresponding key.
+	 */
+	public static long getKey(String name)
+	{
+		int len = name.length();
+		int c = 0;
+		while (c < len && name.charAt(c) <= ' ')
+			c++;
+
+		long out = 0L;
+		for (int i = 0; i < DoomUtil.ENTRY_NAME_SIZE && c < len; i++, c++)
+		{
+			char ch = Character.toUpperCase(name.charAt(c));
+			if (ch == '^')
+				ch = '\\';
+			else if (!validEntryChar(ch))
+				break;
+			out |= (long)ch << (8 * i);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the key for the name of an entry in an entry list.
+	 * Unlike {@link #getKey(String)}, the name is not coerced, just uppercased: names that
+	 * {@link #getKey(String)} could never produce (longer than 8 characters or containing
+	 * invalid characters) can never match a lookup.
+	 * @param entryName the entry name.
+	 * @return the corresponding key.
+	 */
+	public static long getEntryKey(String entryName)
+	{
+		int len = entryName.length();
+		if (len > DoomUtil.ENTRY_NAME_SIZE)
+			return UNMATCHABLE_KEY;
+		long out = 0L;
+		for (int i = 0; i < len; i++)
+		{
+			char ch = Character.toUpperCase(entryName.charAt(i));
+			if (ch > 0x7f)
+				return UNMATCHABLE_KEY;
+			out |= (long)ch << (8 * i);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the key for a raw 8-byte entry name, packed into a <code>long</code>
+	 * as it is stored in a WAD (first character in the lowest byte).
+	 * The name ends at the first zero byte, and lowercase letters are uppercased.
+	 * @param rawName the raw name.
+	 * @return the corresponding key.
+	 */
+	public static long getEntryKey(long rawName)
+	{
+		long out = 0L;
+		for (int i = 0; i < DoomUtil.ENTRY_NAME_SIZE; i++)
+		{
+			int ch = (int)(rawName >>> (8 * i)) & 0x0ff;
+			if (ch == 0)
+				break;
+			if (ch >= 'a' && ch <= 'z')
+				ch -= 32;
+			else if (ch > 0x7f)
+				return UNMATCHABLE_KEY;
+			out |= (long)ch << (8 * i);
+		}
+		return out;
+	}
+
+	/**
+	 * Converts a key back into a name.
+	 * @param key the key.
+	 * @return the corresponding name.
+	 */
+	public static String getName(long key)
+	{
+		char[] out = new char[DoomUtil.ENTRY_NAME_SIZE];
+		int i = 0;
+		while (i < DoomUtil.ENTRY_NAME_SIZE && ((key >>> (8 * i)) & 0x0ff) != 0)
+		{
+			out[i] = (char)((key >>> (8 * i)) & 0x0ff);
+			i++;
+		}
+		return new String(out, 0, i);
+	}
+
+	private static boolean validEntryChar(char ch)
+	{
+		return ch == '[' || ch == ']' || ch == '\\' ||
+			ch == '_' || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '-';
+	}
+
+	/**
+	 * Removes everything from this index.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = 0;
+		for (int i = 0; i < keyCount; i++)
+			listSizes[i] = 0;
+		keyCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Rebuilds this index from a list of entries, in order.
+	 * @param entries the entries to index.
+	 */
+	public void set(Iterable<? extends DoomWadEntry> entries)
+	{
+		clear();
+		int i = 0;
+		for (DoomWadEntry e : entries)
+			add(getEntryKey(e.getName()), i++);
+	}
+
+	/**
+	 * Returns the total amount of positions in this index.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Adds a position for a key.
+	 * Adding positions in ascending order is fastest.
+	 * @param key the name key.
+	 * @param position the entry list position.
+	 */
+	public void add(long key, int position)
+	{
+		int slot = findSlot(key);
+		int list;
+		if (slots[slot] == 0)
+		{
+			list = keyCount++;
+			if (list == lists.length)
+			{
+				int[][] newLists = new int[lists.length * 2][];
+				int[] newSizes = new int[lists.length * 2];
+				System.arraycopy(lists, 0, newLists, 0, lists.length);
+				System.arraycopy(listSizes, 0, newSizes, 0, listSizes.length);
+				lists = newLists;
+				listSizes = newSizes;
+			}
+			keys[slot] = key;
+			slots[slot] = list + 1;
+			if (keyCount * 2 > keys.length)
+				rehash();
+		}
+		else
+			list = slots[slot] - 1;
+
+		int[] positions = lists[list];
+		int len = listSizes[list];
+		if (positions == null)
+			positions = lists[list] = new int[INITIAL_LIST_CAPACITY];
+		else if (len == positions.length)
+		{
+			int[] newPositions = new int[len * 2];
+			System.arraycopy(positions, 0, newPositions, 0, len);
+			positions = lists[list] = newPositions;
+		}
+
+		if (len == 0 || positions[len - 1] < position)
+			positions[len] = position;
+		else
+		{
+			int at = search(positions, len, position);
+			System.arraycopy(positions, at, positions, at + 1, len - at);
+			positions[at] = position;
+		}
+		listSizes[list] = len + 1;
+		size++;
+	}
+
+	/**
+	 * Returns the position of the first entry with a key at or after a starting position.
+	 * @param key the name key.
+	 * @param start the starting position.
+	 * @return the position, or -1 if not found.
+	 */
+	public int indexOf(long key, int start)
+	{
+		int list = getList(key);
+		if (list < 0)
+			return -1;
+		int len = listSizes[list];
+		int at = search(lists[list], len, start);
+		return at < len ? lists[list][at] : -1;
+	}
+
+	/**
+	 * Returns the position of the last entry with a key.
+	 * @param key the name key.
+	 * @return the position, or -1 if not found.
+	 */
+	public int lastIndexOf(long key)
+	{
+		int list = getList(key);
+		return list >= 0 ? lists[list][listSizes[list] - 1] : -1;
+	}
+
+	/**
+	 * Returns the position of the nth entry with a key.
+	 * @param key the name key.
+	 * @param n the occurrence, starting from 0.
+	 * @return the position, or -1 if not found.
+	 */
+	public int nthIndexOf(long key, int n)
+	{
+		int list = getList(key);
+		return list >= 0 && n >= 0 && n < listSizes[list] ? lists[list][n] : -1;
+	}
+
+	/**
+	 * Returns the amount of entries with a key.
+	 * @param key the name key.
+	 */
+	public int count(long key)
+	{
+		int list = getList(key);
+		return list >= 0 ? listSizes[list] : 0;
+	}
+
+	/**
+	 * Returns the positions of all entries with a key, in ascending order.
+	 * @param key the name key.
+	 * @return a new array of positions, which may be empty.
+	 */
+	public int[] getIndices(long key)
+	{
+		int list = getList(key);
+		if (list < 0)
+			return new int[0];
+		int[] out = new int[listSizes[list]];
+		System.arraycopy(lists[list], 0, out, 0, out.length);
+		return out;
+	}
+
+	/**
+	 * Returns the position list index for a key, or -1 if none.
+	 */
+	private int getList(long key)
+	{
+		int slot = findSlot(key);
+		int list = slots[slot] - 1;
+		return list >= 0 && listSizes[list] > 0 ? list : -1;
+	}
+
+	/**
+	 * Finds the table slot for a key: either the one holding it, or the empty one where it would go.
+	 */
+	private int findSlot(long key)
+	{
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (slots[slot] != 0 && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void rehash()
+	{
+		long[] oldKeys = keys;
+		int[] oldSlots = slots;
+		keys = new long[oldKeys.length * 2];
+		slots = new int[oldSlots.length * 2];
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldSlots[i] != 0)
+			{
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				slots[slot] = oldSlots[i];
+			}
+		}
+	}
+
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+
+	/**
+	 * Returns the index of the first value in a sorted array that is greater than or equal to a value.
+	 */
+	private static int search(int[] array, int length, int value)
+	{
+		int lo = 0, hi = length;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (array[mid] < value)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+}
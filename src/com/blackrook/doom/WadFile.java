@@ -8,12 +8,15 @@
 package com.blackrook.doom;
 
 import java.io.*;
+import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Iterator;
 
 import com.blackrook.commons.Common;
-import com.blackrook.commons.hash.CaseInsensitiveHashedQueueMap;
-import com.blackrook.commons.linkedlist.Queue;
-import com.blackrook.commons.list.List;
 import com.blackrook.doom.util.DoomUtil;
 import com.blackrook.io.SuperReader;
 import com.blackrook.io.SuperWriter;
@@ -26,10 +29,22 @@ import com.blackrook.io.SuperWriter;
  * Many writing I/O operations will cause the opened file to be changed many times, the length of time of 
  * which being dictated by the length of the entry list (as the list grows, so does the time it takes to write/change it).
  * </p>
+ * <p>
+ * Several changes can be grouped with {@link #beginBatch()} and {@link #commit()}, in which case the entry list
+ * and header are only written (and synced) once, at commit time, or discarded with {@link #rollback()}.
+ * </p>
+ * <p>
+ * If {@link #setDeferredCompaction(boolean) deferred compaction} is enabled, deleted entries are only removed from the 
+ * entry list, leaving their data in place as unused space, which can be reclaimed later with {@link #compact()}.
+ * Replaced entries always leave their old data as unused space.
+ * </p>
  * @author Matthew Tropiano
  */
 public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 {
+	/** Size of the buffer used for moving entry data around. */
+	private static final int MOVE_BUFFER_SIZE = 65536;
+
 	/** WAD File's name (equivalent to File.getName()). */
 	private String fileName;
 	/** WAD File's path (equivalent to File.getPath()). */
@@ -38,16 +53,23 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	private String fileAbsolutePath;
 	
 	/** List of this Wad's entries. */
-	private List<DoomWadEntry> entries;
-
-	/** A Hashtable of this Wad's entries. */
-	private CaseInsensitiveHashedQueueMap<DoomWadEntry> entryTable;
+	private WadDirectory entries;
 
 	/** Type of Wad File (IWAD or PWAD). */
 	private Type type;
 
 	/** Offset of the beginning of the entry list. */
 	private int entryListOffset;
+
+	/** Number of open batches. The entry list is only written when this is 0. */
+	private int batchDepth;
+	/** The entry list at the start of each open batch. */
+	private WadDirectory[] batchEntries;
+	/** The entry list offset at the start of each open batch. */
+	private int[] batchListOffsets;
+
+	/** If true, deletions only remove entries from the entry list. */
+	private boolean deferredCompaction;
 	
 	/**
 	 * Opens a WadFile from a file specified by "path."
@@ -74,7 +96,7 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	 */
 	public WadFile(File f) throws IOException, WadException
 	{
-		super(f,"rws");
+		super(f,"rw");
 		byte[] buffer = new byte[4];
 
 		// read header
@@ -99,22 +121,20 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 		read(buffer);
 		entryListOffset = SuperReader.bytesToInt(buffer,SuperReader.LITTLE_ENDIAN);
 		
-		entries = new List<DoomWadEntry>((size + 1) * 2);
-		entryTable = new CaseInsensitiveHashedQueueMap<DoomWadEntry>(Math.max(3*size/4,2));
-		
-		// seek to entry list.
-		seek(entryListOffset);
+		entries = new WadDirectory(size);
+		batchEntries = new WadDirectory[2];
+		batchListOffsets = new int[2];
 		
-		// read entries.
-		byte[] entrybytes = new byte[Entry.WADENTRY_LEN];
-		for (int i = 0; i < size; i++)
+		// read entries in one go.
+		ByteBuffer list = ByteBuffer.allocate(size * DoomWadEntry.WADENTRY_LEN).order(ByteOrder.LITTLE_ENDIAN);
+		FileChannel channel = getChannel();
+		while (list.hasRemaining())
 		{
-			read(entrybytes);
-			Entry wfe = new Entry(entrybytes);
-			if (wfe.getName().length() > 0 || wfe.getSize() > 0)
-				entries.add(wfe);
-			entryTable.enqueue(wfe.getName(), wfe);
+			if (channel.read(list, entryListOffset + list.position()) < 0)
+				throw new WadException("Reached unexpected end of file.");
 		}
+		list.flip();
+		entries.read(list, size);
 	}
 
 	/**
@@ -153,15 +173,14 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	@Override	
 	public DoomWadEntry getEntry(int n)
 	{
-		return entries.getByIndex(n);
+		return entries.getEntry(n);
 	}
 
 	@Override	
 	public DoomWadEntry getEntry(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.head() : null;
+		int i = getIndexOf(s, 0);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
@@ -174,40 +193,30 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	@Override	
 	public DoomWadEntry getLastEntry(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.tail() : null;
+		int i = getLastIndexOf(s);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
 	public DoomWadEntry getNthEntry(String s, int n)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.get(n) : null;
+		int i = entries.getIndex().nthIndexOf(WadEntryIndex.getKey(s), n);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
 	public DoomWadEntry[] getAllEntries()
 	{
-		DoomWadEntry[] out = new DoomWadEntry[entries.size()];
-		entries.toArray(out);
-		return out;
+		return entries.toArray();
 	}
 	
 	@Override	
 	public DoomWadEntry[] getAllEntries(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> w = entryTable.get(s);
-		DoomWadEntry[] out = null;
-		if (w != null)
-		{
-			out = new DoomWadEntry[w.size()];
-			w.toArray(out);
-		}
-		else
-			out = new DoomWadEntry[0];
+		int[] indices = entries.getIndex().getIndices(WadEntryIndex.getKey(s));
+		DoomWadEntry[] out = new DoomWadEntry[indices.length];
+		for (int i = 0; i < indices.length; i++)
+			out[i] = getEntry(indices[i]);
 		return out;
 	}
 
@@ -220,22 +229,13 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	@Override	
 	public int getIndexOf(String entryname, int start)
 	{
-		entryname = DoomUtil.coerceToEntrySize(entryname);
-		for (int i = start; i < entries.size(); i++)
-			if (entries.getByIndex(i).getName().equalsIgnoreCase(entryname))
-				return i;
-		return -1;
+		return entries.getIndex().indexOf(WadEntryIndex.getKey(entryname), start);
 	}
 	
 	@Override	
 	public int getLastIndexOf(String entryname)
 	{
-		entryname = DoomUtil.coerceToEntrySize(entryname);
-		int out = -1;
-		for (int i = 0; i < entries.size(); i++)
-			if (entries.getByIndex(i).getName().equalsIgnoreCase(entryname))
-				out = i;
-		return out;
+		return entries.getIndex().lastIndexOf(WadEntryIndex.getKey(entryname));
 	}
 	
 	@Override	
@@ -310,6 +310,49 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 		return b != null ? new ByteArrayInputStream(b) : null;
 	}
 
+	@Override
+	public ByteBuffer getDataBuffer(int n) throws IOException
+	{
+		DoomWadEntry e = getEntry(n);
+		return e != null ? getDataBuffer(e) : null;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry) throws IOException
+	{
+		DoomWadEntry e = getEntry(entry);
+		return e != null ? getDataBuffer(e) : null;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry, int start) throws IOException
+	{
+		int i = getIndexOf(entry,start);
+		return i != -1 ? getDataBuffer(i) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The data is read into the buffer directly through this file's channel 
+	 * using a positional read, so the file pointer is not moved.
+	 */
+	@Override
+	public ByteBuffer getDataBuffer(DoomWadEntry entry) throws IOException
+	{
+		ByteBuffer out = ByteBuffer.allocate(entry.getSize());
+		FileChannel channel = getChannel();
+		long pos = entry.getOffset();
+		while (out.hasRemaining())
+		{
+			int n = channel.read(out, pos + out.position());
+			if (n < 0)
+				throw new IOException("Reached unexpected end of file.");
+		}
+		out.flip();
+		return out.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
 	@Override	
 	public int getSize()
 	{
@@ -319,7 +362,7 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	@Override	
 	public boolean contains(String entry)
 	{
-		return entryTable.containsKey(entry);
+		return getIndexOf(entry, 0) != -1;
 	}
 	
 	@Override	
@@ -363,39 +406,29 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	@Override	
 	public void add(String entryname, byte[] data) throws IOException
 	{
-		Entry entry = new Entry(entryname, data.length, entryListOffset);
-		entries.add(entry);
-		entryTable.enqueue(entry.getName(),entry);
+		entries.add(entryname, data.length, entryListOffset);
 
 		// add the data.
 		seek(entryListOffset);
 		write(data);
 		entryListOffset += data.length;
 		
-		// rewrite the list.
-		writeEntryList();
-
-		// write the number of entries and the new offset
-		writeHeader();
+		// rewrite the list and header.
+		updateDirectory();
 	}
 	
 	@Override
 	public void addAt(int index, String entryname, byte[] data) throws IOException
 	{
-		Entry entry = new Entry(entryname, data.length, entryListOffset);
-		entries.add(index, entry);
-		entryTable.enqueue(entry.getName(),entry);
+		entries.add(index, entryname, data.length, entryListOffset);
 
 		// add the data.
 		seek(entryListOffset);
 		write(data);
 		entryListOffset += data.length;
 		
-		// rewrite the list.
-		writeEntryList();
-
-		// write the number of entries and the new offset
-		writeHeader();
+		// rewrite the list and header.
+		updateDirectory();
 	}
 
 	@Override
@@ -408,9 +441,7 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 		
 		for (int i = 0; i < entrynames.length; i++)
 		{
-			Entry entry = new Entry(entrynames[i], data[i].length, ofs);
-			entries.add(entry);
-			entryTable.enqueue(entry.getName(), entry);
+			entries.add(entrynames[i], data[i].length, ofs);
 			dlen += data[i].length;
 			ofs += data[i].length;
 			bos.write(data[i]);
@@ -421,11 +452,8 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 		write(bos.toByteArray());
 		entryListOffset += dlen;
 		
-		// rewrite the list.
-		writeEntryList();
-
-		// write the number of entries and the new offset
-		writeHeader();
+		// rewrite the list and header.
+		updateDirectory();
 	}
 
 	@Override	
@@ -443,16 +471,25 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	@Override
 	public void renameEntry(int index, String newName) throws IOException
 	{
-		Entry entry = (Entry)getEntry(index);
-		if (entry == null)
+		if (index < 0 || index >= entries.size())
 			throw new IOException("Index is out of range.");
 		
-		entry.name = DoomUtil.coerceToEntrySize(newName);
+		entries.setName(index, newName);
+		
+		if (batchDepth > 0)
+			return;
 		
 		seek(entryListOffset + (index * DoomWadEntry.WADENTRY_LEN) + 8);
-		write(DoomUtil.coerceToEntry(newName).getBytes("ASCII"));
+		write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(entries.getRawName(index)).array());
+		getChannel().force(true);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The old data is not removed from the file. It is left as unused space that can be
+	 * reclaimed with {@link #compact()}.
+	 */
 	@Override
 	public void replaceEntry(int index, byte[] data) throws IOException
 	{
@@ -472,27 +509,182 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 		if (wfe == null)
 			throw new IOException("Index is out of range.");
 
-		// allocate space for data shift.
+		if (deferredCompaction || batchDepth > 0 || wfe.getSize() == 0)
+		{
+			updateDirectory();
+			return;
+		}
+
+		// shift the content after the entry down.
 		int entryEnd = wfe.getOffset()+wfe.getSize();
-		byte[] leftoverContent = new byte[entryListOffset-entryEnd];
-		
-		// store shifted content.
-		seek(entryEnd);
-		read(leftoverContent);
+		moveData(entryEnd, wfe.getOffset(), entryListOffset-entryEnd);
 		
-		// adjust offsets from last entry.
-		for (int i = n; i < entries.size(); i++)
+		// adjust offsets of entries that followed the removed data.
+		for (int i = 0; i < entries.size(); i++)
 		{
-			Entry e = (WadFile.Entry)entries.getByIndex(i);
-			e.offset -= wfe.getSize();
+			if (entries.getOffset(i) >= entryEnd)
+				entries.setOffset(i, entries.getOffset(i) - wfe.getSize());
 		}
 		
-		// start shift.
-		seek(wfe.getOffset());
-		write(leftoverContent);
 		entryListOffset -= wfe.getSize();
-		writeEntryList();
-		writeHeader();
+		updateDirectory();
+	}
+	
+	/**
+	 * Sets if deletions are deferred. If true, {@link #deleteEntry(int)} only removes the entry 
+	 * from the entry list and leaves its data in the file as unused space, instead of shifting
+	 * all of the data after it. Use {@link #compact()} to reclaim unused space.
+	 * This is false by default.
+	 * @param deferredCompaction true to defer, false to compact on each delete.
+	 * @since 2.11.0
+	 */
+	public void setDeferredCompaction(boolean deferredCompaction)
+	{
+		this.deferredCompaction = deferredCompaction;
+	}
+	
+	/**
+	 * Returns true if deletions only remove entries from the entry list.
+	 * @see #setDeferredCompaction(boolean)
+	 * @since 2.11.0
+	 */
+	public boolean isDeferredCompaction()
+	{
+		return deferredCompaction;
+	}
+	
+	/**
+	 * Removes all unused space from this file, left behind by deferred deletes and replaced entries.
+	 * <p>
+	 * Live entry data is copied, in order, through a fixed-size buffer into a new file next to this one,
+	 * followed by the new entry list and header. That file is synced and then renamed over this one in 
+	 * a single atomic move, so if this fails or is stopped partway through, this file is left as it was.
+	 * Entries that share or overlap data keep sharing it.
+	 * <p>
+	 * Since a WadFile can't switch to another file, this one is closed before the move, and the compacted
+	 * file is opened and returned in its place. If the move itself fails, this file is left closed (and unchanged).
+	 * @return a new WadFile, open on the compacted file, with the same deferred compaction setting.
+	 * @throws IOException if the new file can't be written or moved over this one.
+	 * @throws IllegalStateException if a batch is in progress.
+	 * @since 2.11.0
+	 */
+	public WadFile compact() throws IOException
+	{
+		if (batchDepth > 0)
+			throw new IllegalStateException("Can't compact while a batch is in progress.");
+
+		File file = new File(fileAbsolutePath);
+		File temp = File.createTempFile(fileName + ".compact", ".tmp", file.getAbsoluteFile().getParentFile());
+		boolean moved = false;
+		try {
+			writeCompacted(temp);
+			close();
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			moved = true;
+		} finally {
+			if (!moved)
+				temp.delete();
+		}
+
+		WadFile out = new WadFile(file);
+		out.setDeferredCompaction(deferredCompaction);
+		return out;
+	}
+	
+	// Writes a compacted copy of this file, then syncs it.
+	private void writeCompacted(File target) throws IOException
+	{
+		WadDirectory directory = new WadDirectory(entries);
+		int count = directory.size();
+
+		// sort entry indices by offset.
+		long[] order = new long[count];
+		for (int i = 0; i < count; i++)
+			order[i] = ((long)directory.getOffset(i) << 32) | i;
+		Arrays.sort(order);
+
+		RandomAccessFile out = new RandomAccessFile(target, "rw");
+		try {
+			FileChannel source = getChannel();
+			FileChannel channel = out.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(MOVE_BUFFER_SIZE);
+			int cursor = 12;
+			int spanStart = -1;
+			int spanEnd = -1;
+			int spanTarget = -1;
+			for (int n = 0; n < count; n++)
+			{
+				int index = (int)(order[n] & 0x0ffffffffL);
+				int offset = directory.getOffset(index);
+				int size = directory.getSize(index);
+				
+				// continues the current span.
+				if (spanStart >= 0 && offset >= spanStart && offset <= spanEnd)
+				{
+					spanEnd = Math.max(spanEnd, offset + size);
+					directory.setOffset(index, spanTarget + (offset - spanStart));
+					continue;
+				}
+				
+				// finish the current span.
+				if (spanStart >= 0)
+				{
+					copyData(source, spanStart, channel, spanTarget, spanEnd - spanStart, buffer);
+					cursor = spanTarget + (spanEnd - spanStart);
+					spanStart = -1;
+				}
+				
+				if (size == 0)
+				{
+					directory.setOffset(index, cursor);
+					continue;
+				}
+				
+				spanStart = offset;
+				spanEnd = offset + size;
+				spanTarget = cursor;
+				directory.setOffset(index, spanTarget);
+			}
+			
+			if (spanStart >= 0)
+			{
+				copyData(source, spanStart, channel, spanTarget, spanEnd - spanStart, buffer);
+				cursor = spanTarget + (spanEnd - spanStart);
+			}
+			
+			out.seek(0);
+			out.write(type.toString().getBytes("ASCII"));
+			out.write(SuperWriter.intToBytes(count,SuperWriter.LITTLE_ENDIAN));
+			out.write(SuperWriter.intToBytes(cursor,SuperWriter.LITTLE_ENDIAN));
+			out.seek(cursor);
+			out.write(directory.toBytes());
+			out.setLength(out.getFilePointer());
+			channel.force(true);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Copies a run of bytes from one channel to another with positional reads and writes, using the provided buffer.
+	 */
+	private static void copyData(FileChannel source, long sourceOffset, FileChannel target, long targetOffset, int length, ByteBuffer buffer) throws IOException
+	{
+		long copied = 0;
+		while (copied < length)
+		{
+			buffer.clear();
+			buffer.limit((int)Math.min(buffer.capacity(), length - copied));
+			while (buffer.hasRemaining())
+			{
+				if (source.read(buffer, sourceOffset + copied + buffer.position()) < 0)
+					throw new IOException("Reached unexpected end of file.");
+			}
+			buffer.flip();
+			while (buffer.hasRemaining())
+				target.write(buffer, targetOffset + copied + buffer.position());
+			copied += buffer.limit();
+		}
 	}
 	
 	@Override
@@ -514,9 +706,8 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 	public void unmapEntries(int startIndex, DoomWadEntry[] entryList) throws IOException
 	{
 		for (int i = 0; i < entryList.length; i++)
-			entries.replace(startIndex + i, entryList[i]);
-		writeEntryList();
-		writeHeader(); // just in case size of list is affected.
+			entries.set(startIndex + i, entryList[i]);
+		updateDirectory(); // just in case size of list is affected.
 	}
 	
 	@Override
@@ -525,14 +716,13 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 		entries.clear();
 		for (DoomWadEntry entry : entryList)
 			entries.add(entry);
-		writeEntryList();
-		writeHeader(); // just in case size of list is affected.
+		updateDirectory(); // just in case size of list is affected.
 	}
 
 	@Override
 	public Iterator<DoomWadEntry> getEntryIterator()
 	{
-		return (Iterator<DoomWadEntry>)entries.iterator();
+		return entries.iterator();
 	}
 	
 	/**
@@ -559,6 +749,130 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 		return fileAbsolutePath;
 	}
 
+	/**
+	 * Creates a read-only view of this file that is safe to read from multiple threads at once.
+	 * The reader opens its own read-only channel on this file and uses positional reads on it, so it
+	 * does not disturb (and is not disturbed by) this file's pointer, and a thread that is interrupted
+	 * while reading (which closes the channel it reads from) can only break that reader.
+	 * It sees the entry list as it is at the time of this call; changes made to this file afterward
+	 * may leave the reader's entries pointing at stale data.
+	 * The reader should be closed when it is no longer needed. Closing it does not close this file.
+	 * @return a new reader.
+	 * @throws IOException if the file can't be opened for reading.
+	 * @since 2.11.0
+	 */
+	public ConcurrentWadReader newReader() throws IOException
+	{
+		FileChannel channel = new RandomAccessFile(fileAbsolutePath, "r").getChannel();
+		return new ConcurrentWadReader(channel, type, new WadDirectory(entries));
+	}
+	
+	/**
+	 * Starts a batch of changes. Until the matching {@link #commit()}, additions and replacements 
+	 * still write entry data to the file, but after the end of the entry list that is on disk, and the 
+	 * entry list and header are only changed in memory. Deletions only remove entries from the entry
+	 * list, as if {@link #setDeferredCompaction(boolean) deferred compaction} were on. So until the
+	 * outermost batch is committed, the file on disk still reads as it did before the batch.
+	 * <p>
+	 * Batches may be nested; only the outermost {@link #commit()} writes the directory,
+	 * and {@link #rollback()} only discards the changes of the innermost batch.
+	 * @since 2.11.0
+	 */
+	public void beginBatch()
+	{
+		if (batchDepth == batchEntries.length)
+		{
+			batchEntries = Arrays.copyOf(batchEntries, batchDepth * 2);
+			batchListOffsets = Arrays.copyOf(batchListOffsets, batchDepth * 2);
+		}
+		batchEntries[batchDepth] = new WadDirectory(entries);
+		batchListOffsets[batchDepth] = entryListOffset;
+		// keep the entry list on disk intact: new data goes after it.
+		if (batchDepth == 0)
+			entryListOffset += entries.size() * DoomWadEntry.WADENTRY_LEN;
+		batchDepth++;
+	}
+	
+	/**
+	 * Ends a batch of changes started with {@link #beginBatch()}.
+	 * If this ends the outermost batch, the entry list is written after the data that was added,
+	 * then the header is pointed at it, and the file is synced. If nothing was changed, nothing is written.
+	 * @throws IOException if the directory could not be written.
+	 * @throws IllegalStateException if there is no batch in progress.
+	 * @since 2.11.0
+	 */
+	public void commit() throws IOException
+	{
+		if (batchDepth == 0)
+			throw new IllegalStateException("No batch in progress.");
+		batchDepth--;
+		WadDirectory saved = batchEntries[batchDepth];
+		int savedListOffset = batchListOffsets[batchDepth];
+		batchEntries[batchDepth] = null;
+		if (batchDepth > 0)
+			return;
+
+		// nothing added or changed: the entry list on disk is still right.
+		if (entryListOffset == savedListOffset + saved.size() * DoomWadEntry.WADENTRY_LEN 
+			&& Arrays.equals(entries.toBytes(), saved.toBytes()))
+		{
+			entryListOffset = savedListOffset;
+			return;
+		}
+
+		// the new entry list must be on disk before the header points at it.
+		writeEntryList();
+		getChannel().force(false);
+		writeHeader();
+		getChannel().force(true);
+	}
+	
+	/**
+	 * Ends a batch of changes started with {@link #beginBatch()}, discarding them.
+	 * The entry list and the entry list offset are put back the way they were at the start of the batch,
+	 * and the data that the batch added is cut off the end of the file. The entry list and header
+	 * on disk are not changed.
+	 * @throws IOException if the file could not be truncated.
+	 * @throws IllegalStateException if there is no batch in progress.
+	 * @since 2.11.0
+	 */
+	public void rollback() throws IOException
+	{
+		if (batchDepth == 0)
+			throw new IllegalStateException("No batch in progress.");
+		batchDepth--;
+		entries = batchEntries[batchDepth];
+		entryListOffset = batchListOffsets[batchDepth];
+		batchEntries[batchDepth] = null;
+		
+		// the outermost batch started with the entry list on disk at its offset, and nothing after it.
+		int end = entryListOffset;
+		if (batchDepth == 0)
+			end += entries.size() * DoomWadEntry.WADENTRY_LEN;
+		if (end < length())
+			setLength(end);
+	}
+	
+	/**
+	 * Returns true if a batch started by {@link #beginBatch()} is in progress.
+	 * @since 2.11.0
+	 */
+	public boolean isBatching()
+	{
+		return batchDepth > 0;
+	}
+	
+	/**
+	 * Closes this file. If batches are in progress, they are committed first.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		while (batchDepth > 0)
+			commit();
+		super.close();
+	}
+
 	@Override
 	public boolean isIWAD()
 	{
@@ -584,15 +898,46 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 
 	private DoomWadEntry removeEntry(int n)
 	{
-		DoomWadEntry wfe = entries.removeIndex(n);
-		return wfe;
+		return entries.remove(n);
+	}
+
+	/**
+	 * Moves a run of bytes in this file to a lower offset.
+	 */
+	private void moveData(int source, int destination, int length) throws IOException
+	{
+		if (source == destination)
+			return;
+		byte[] buffer = new byte[Math.min(length, MOVE_BUFFER_SIZE)];
+		int moved = 0;
+		while (moved < length)
+		{
+			int n = Math.min(buffer.length, length - moved);
+			seek(source + moved);
+			readFully(buffer, 0, n);
+			seek(destination + moved);
+			write(buffer, 0, n);
+			moved += n;
+		}
+	}
+
+	/**
+	 * Writes the entry list and header and syncs the file, unless a batch is in progress.
+	 */
+	private void updateDirectory() throws IOException
+	{
+		if (batchDepth > 0)
+			return;
+		writeEntryList();
+		writeHeader();
+		getChannel().force(true);
 	}
 
 	private void writeEntryList() throws IOException
 	{
+		byte[] list = entries.toBytes();
 		seek(entryListOffset);
-		for (DoomWadEntry wfe : entries)
-			write(wfe.toBytes());
+		write(list);
 		if (getFilePointer() < length())
 			setLength(getFilePointer());
 	}
@@ -630,25 +975,6 @@ public class WadFile extends RandomAccessFile implements DoomWad, Closeable
 			offset = o;
 		}
 		
-		/**
-		 * Creates a new WadEntry.
-		 * @param b					the array of bytes to use for the WadEntry.
-		 * @throws WadException		if the array is not length WADENTRY_LEN.
-		 */
-		private Entry(byte[] b) throws WadException
-		{
-			if (b.length != WADENTRY_LEN)
-				throw new WadException("Byte array should be length "+WADENTRY_LEN);
-			
-			ByteArrayInputStream bis = new ByteArrayInputStream(b);
-			SuperReader sr = new SuperReader(bis,SuperReader.LITTLE_ENDIAN);
-			try{
-				offset = sr.readInt();
-				size = sr.readInt();
-				name = DoomUtil.nameFix(sr.readASCIIString(DoomUtil.ENTRY_NAME_SIZE));
-			} catch (IOException e) {}
-		}
-		
 		@Override
 		public int getOffset()
 		{
@@ -13,6 +13,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 import com.blackrook.commons.ObjectPair;
 import com.blackrook.commons.linkedlist.Queue;
@@ -201,14 +203,31 @@ public final class WadIO
 	 * @param gameType	the expected game type.
 	 */
 	public static BufferedWad readWad(DoomWad wf, GameType gameType) throws IOException, WadException
+	{
+		return readWad(wf, gameType, null);
+	}
+
+	/**
+	 * Reads in a wad, using intuition to figure out where each entry is classified,
+	 * and returns a new BufferedWad with all of the data.
+	 * If an executor is provided, the maps are read first, decoded in parallel using
+	 * {@link DoomMap#loadAll(DoomWad, GameType, Executor)}.
+	 * @param wf		the input Wad file.
+	 * @param gameType	the expected game type.
+	 * @param executor	the executor to decode maps with, or null to decode them one at a time.
+	 * @since 2.11.0
+	 */
+	public static BufferedWad readWad(DoomWad wf, GameType gameType, Executor executor) throws IOException, WadException
 	{
 		BufferedWad out = new BufferedWad();
 		
 		DoomWadEntry currentEntry = null;
 	
+		int[] mapIndexList = DoomMap.getAllMapIndices(wf);
 		SortedList<Integer> mapIndices = new SortedList<Integer>();
-		for (int i : DoomMap.getAllMapIndices(wf))
+		for (int i : mapIndexList)
 			mapIndices.add(i);
+		DoomMap[] maps = executor != null ? DoomMap.loadAll(wf, gameType, executor) : null;
 	
 		Stack<String> stack = new Stack<String>(); 
 		
@@ -236,7 +255,7 @@ public final class WadIO
 				if (stack.isEmpty())
 				{
 					if (mapIndices.contains(i))
-						out.addMap(name, new DoomMap(wf, name));
+						out.addMap(name, maps != null ? maps[Arrays.binarySearch(mapIndexList, i)] : new DoomMap(wf, name));
 					else if (checkMusic(gameType, name))
 						out.addMusic(name, readMusicInfo(bytedata));
 					else if (checkSound(gameType, name))
@@ -13,11 +13,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
-import com.blackrook.commons.hash.CaseInsensitiveHashedQueueMap;
-import com.blackrook.commons.linkedlist.Queue;
-import com.blackrook.commons.list.List;
 import com.blackrook.doom.util.DoomUtil;
 import com.blackrook.io.SuperReader;
 import com.blackrook.io.SuperWriter;
@@ -42,14 +40,11 @@ public class WadMap implements DoomWad
 	/** Type of Wad File (IWAD or PWAD). */
 	private Type type;
 	/** The list of entries. */
-	protected List<DoomWadEntry> entries;
-	/** A Hashtable of this Wad's entries. */
-	private CaseInsensitiveHashedQueueMap<DoomWadEntry> entryTable;
+	protected WadDirectory entries;
 
 	private WadMap()
 	{
-		entries = new List<DoomWadEntry>();
-		entryTable = new CaseInsensitiveHashedQueueMap<DoomWadEntry>();
+		entries = new WadDirectory();
 	}
 	
 	/**
@@ -91,7 +86,6 @@ public class WadMap implements DoomWad
 	{
 		SuperReader sr = new SuperReader(in, SuperReader.LITTLE_ENDIAN);
 		entries.clear();
-		entryTable.clear();
 
 		try {
 			type = Type.valueOf(sr.readASCIIString(4));
@@ -101,38 +95,25 @@ public class WadMap implements DoomWad
 		int entryCount = sr.readInt();
 		int contentsize = sr.readInt() - 12;
 		
-		entries.setCapacity(entryCount);
-		
 		// skip content.
 		in.skip(contentsize);
 		
-		byte[] entrybuffer = new byte[DoomWadEntry.WADENTRY_LEN];
-		for (int x = 0; x < entryCount; x++)
-		{
-			sr.readBytes(entrybuffer);
-			Entry entry = new Entry(entrybuffer);
-			addEntry(entry);
-		}
-	}
-
-	private void addEntry(DoomWadEntry wfe)
-	{
-		entries.add(wfe);
-		entryTable.enqueue(wfe.getName(),wfe);
+		byte[] list = new byte[entryCount * DoomWadEntry.WADENTRY_LEN];
+		sr.readBytes(list);
+		entries.read(ByteBuffer.wrap(list), entryCount);
 	}
 
 	@Override	
 	public DoomWadEntry getEntry(int n)
 	{
-		return entries.getByIndex(n);
+		return entries.getEntry(n);
 	}
 
 	@Override	
 	public DoomWadEntry getEntry(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.head() : null;
+		int i = getIndexOf(s, 0);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
@@ -145,40 +126,30 @@ public class WadMap implements DoomWad
 	@Override	
 	public DoomWadEntry getLastEntry(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.tail() : null;
+		int i = getLastIndexOf(s);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
 	public DoomWadEntry getNthEntry(String s, int n)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> q = entryTable.get(s);
-		return q != null ? q.get(n) : null;
+		int i = entries.getIndex().nthIndexOf(WadEntryIndex.getKey(s), n);
+		return i != -1 ? getEntry(i) : null;
 	}
 
 	@Override	
 	public DoomWadEntry[] getAllEntries()
 	{
-		DoomWadEntry[] out = new DoomWadEntry[entries.size()];
-		entries.toArray(out);
-		return out;
+		return entries.toArray();
 	}
 	
 	@Override	
 	public DoomWadEntry[] getAllEntries(String s)
 	{
-		s = DoomUtil.coerceToEntrySize(s);
-		Queue<DoomWadEntry> w = entryTable.get(s);
-		DoomWadEntry[] out = null;
-		if (w != null)
-		{
-			out = new DoomWadEntry[w.size()];
-			w.toArray(out);
-		}
-		else
-			out = new DoomWadEntry[0];
+		int[] indices = entries.getIndex().getIndices(WadEntryIndex.getKey(s));
+		DoomWadEntry[] out = new DoomWadEntry[indices.length];
+		for (int i = 0; i < indices.length; i++)
+			out[i] = getEntry(indices[i]);
 		return out;
 	}
 
@@ -191,22 +162,13 @@ public class WadMap implements DoomWad
 	@Override	
 	public int getIndexOf(String entryname, int start)
 	{
-		entryname = DoomUtil.coerceToEntrySize(entryname);
-		for (int i = start; i < entries.size(); i++)
-			if (entries.getByIndex(i).getName().equalsIgnoreCase(entryname))
-				return i;
-		return -1;
+		return entries.getIndex().indexOf(WadEntryIndex.getKey(entryname), start);
 	}
 	
 	@Override	
 	public int getLastIndexOf(String entryname)
 	{
-		entryname = DoomUtil.coerceToEntrySize(entryname);
-		int out = -1;
-		for (int i = 0; i < entries.size(); i++)
-			if (entries.getByIndex(i).getName().equalsIgnoreCase(entryname))
-				out = i;
-		return out;
+		return entries.getIndex().lastIndexOf(WadEntryIndex.getKey(entryname));
 	}
 	
 	@Override
@@ -257,6 +219,30 @@ public class WadMap implements DoomWad
 		throw new UnsupportedOperationException("This class does not support getDataAsStream()");
 	}
 
+	@Override
+	public ByteBuffer getDataBuffer(int n) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support getDataBuffer()");
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support getDataBuffer()");
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(String entry, int start) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support getDataBuffer()");
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer(DoomWadEntry entry) throws IOException
+	{
+		throw new UnsupportedOperationException("This class does not support getDataBuffer()");
+	}
+
 	@Override
 	public int getSize()
 	{
@@ -266,7 +252,7 @@ public class WadMap implements DoomWad
 	@Override
 	public boolean contains(String entry)
 	{
-		return entryTable.containsKey(entry);
+		return getIndexOf(entry, 0) != -1;
 	}
 
 	@Override
@@ -13,20 +13,23 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
 
-import com.blackrook.commons.ObjectPair;
-import com.blackrook.commons.grid.SparseQueueGridMap;
-import com.blackrook.commons.hash.HashedQueueMap;
 import com.blackrook.commons.linkedlist.Queue;
-import com.blackrook.commons.math.Pair;
 import com.blackrook.doom.DataExportException;
 import com.blackrook.doom.DoomObject;
-import com.blackrook.io.SuperReader;
-import com.blackrook.io.SuperWriter;
 
 /**
  * Representation of the BLOCKMAP lump for a map.
  * This aids in collision detection for linedefs.
+ * <p>
+ * The linedef lists are stored in one array, each list ended by -1, and each block
+ * holds the start of its list in that array. Blocks can share lists, as they
+ * can in the lump itself ("compressed" blockmaps). Blocks are ordered row by row,
+ * as they are in the lump.
  * @author Matthew Tropiano
  */
 public class Blockmap implements DoomObject
@@ -36,9 +39,21 @@ public class Blockmap implements DoomObject
 	/** Grid origin Y-coordinate. */
 	private int startY;
 
-	/** Grid mapping to linedef indices. */
-	private SparseQueueGridMap<Integer> innerMap;
-	
+	/** Amount of grid columns. */
+	private int columns;
+	/** Amount of grid rows. */
+	private int rows;
+	/** Start of each block's list in lineIndices, or -1 if the block has no list. */
+	private int[] cellStart;
+	/** The linedef index lists, each ended by -1. */
+	private int[] lineIndices;
+	/** Amount of used values in lineIndices. */
+	private int lineIndexCount;
+	/** Amount of values in lineIndices that may no longer be used by any block. */
+	private int garbageCount;
+	/** The block whose list was last written to the end of lineIndices by a change (and is not shared), or -1. */
+	private int tailCell;
+
 	/**
 	 * Creates a new Blockmap, startX and startY set to 0.
 	 */
@@ -46,7 +61,7 @@ public class Blockmap implements DoomObject
 	{
 		this(0, 0);
 	}
-	
+
 	/**
 	 * Creates a new Blockmap.
 	 * @param startX	the grid lower-left start position (x-axis).
@@ -56,10 +71,56 @@ public class Blockmap implements DoomObject
 	{
 		this.startX = startX;
 		this.startY = startY;
-		
-		innerMap = new SparseQueueGridMap<Integer>(65535/128, 65535/128);
+		clear();
 	}
-	
+
+	/**
+	 * Creates a new Blockmap from already-built lists.
+	 * The arrays are used as-is, not copied.
+	 * @param startX	the grid lower-left start position (x-axis).
+	 * @param startY	the grid lower-left start position (y-axis).
+	 * @param columns	the amount of grid columns.
+	 * @param rows		the amount of grid rows.
+	 * @param cellStart	for each block, row by row, the start of its list in lineIndices, or -1 for no list.
+	 * 					Blocks may share lists.
+	 * @param lineIndices	the linedef index lists, each ended by -1.
+	 * @throws IllegalArgumentException if the amount of blocks does not match the columns and rows,
+	 * 		a block's list start is out of range, or the last list is not ended.
+	 * @since 2.11.0
+	 */
+	public Blockmap(int startX, int startY, int columns, int rows, int[] cellStart, int[] lineIndices)
+	{
+		if (columns < 0 || rows < 0 || cellStart.length != columns * rows)
+			throw new IllegalArgumentException("Amount of blocks does not match the column and row count.");
+		if (lineIndices.length > 0 && lineIndices[lineIndices.length - 1] != -1)
+			throw new IllegalArgumentException("The last linedef list does not end with -1.");
+		for (int s : cellStart)
+			if (s < -1 || s >= lineIndices.length)
+				throw new IllegalArgumentException("Block list start is out of range.");
+
+		this.startX = startX;
+		this.startY = startY;
+		this.columns = columns;
+		this.rows = rows;
+		this.cellStart = cellStart;
+		this.lineIndices = lineIndices;
+		this.lineIndexCount = lineIndices.length;
+		this.garbageCount = 0;
+		this.tailCell = -1;
+	}
+
+	// Removes all blocks.
+	private void clear()
+	{
+		columns = 0;
+		rows = 0;
+		cellStart = new int[0];
+		lineIndices = new int[16];
+		lineIndexCount = 0;
+		garbageCount = 0;
+		tailCell = -1;
+	}
+
 	/**
 	 * Adds a linedef index to this blockmap.
 	 * @param x	the grid row.
@@ -70,30 +131,169 @@ public class Blockmap implements DoomObject
 	{
 		if (x < 0 || y < 0 || linedefIndex < 0)
 			throw new IllegalArgumentException("Column, Row, or Index is out of range.");
-		innerMap.enqueue(x, y, linedefIndex);
+		ensureSize(x + 1, y + 1);
+		int cell = y * columns + x;
+		if (cell == tailCell)
+		{
+			// list is last and not shared: just move the terminator.
+			ensureCapacity(lineIndexCount + 1);
+			lineIndices[lineIndexCount - 1] = linedefIndex;
+			lineIndices[lineIndexCount++] = -1;
+		}
+		else
+			moveToEnd(cell, -1, linedefIndex);
 	}
-	
+
 	/**
 	 * Removes a linedef index to this blockmap.
 	 * @param x	the grid column.
 	 * @param y	the grid row.
 	 * @param linedefIndex	the linedef index to remove.
+	 * @return true if the index was found and removed, false if not.
 	 */
 	public boolean removeIndex(int x, int y, int linedefIndex)
 	{
 		if (x < 0 || y < 0 || linedefIndex < 0)
 			throw new IllegalArgumentException("Column, Row, or Index is out of range.");
-		return innerMap.get(x, y).remove(linedefIndex);
+		if (x >= columns || y >= rows)
+			return false;
+		int cell = y * columns + x;
+		int start = cellStart[cell];
+		if (start < 0)
+			return false;
+
+		int found = -1;
+		for (int i = start; lineIndices[i] != -1; i++)
+			if (lineIndices[i] == linedefIndex)
+			{
+				found = i;
+				break;
+			}
+		if (found < 0)
+			return false;
+
+		if (cell == tailCell)
+		{
+			System.arraycopy(lineIndices, found + 1, lineIndices, found, lineIndexCount - found - 1);
+			lineIndexCount--;
+		}
+		else
+			moveToEnd(cell, found - start, -1);
+		return true;
+	}
+
+	// Copies a block's list to the end, optionally leaving out one position and adding an index.
+	private void moveToEnd(int cell, int skip, int add)
+	{
+		int start = cellStart[cell];
+		int length = start < 0 ? 0 : getListLength(start);
+		if (start >= 0)
+			garbageCount += length + 1;
+		if (garbageCount > lineIndexCount / 2)
+		{
+			compact();
+			start = cellStart[cell];
+		}
+
+		ensureCapacity(lineIndexCount + length + 2);
+		int newStart = lineIndexCount;
+		for (int i = 0; i < length; i++)
+			if (i != skip)
+				lineIndices[lineIndexCount++] = lineIndices[start + i];
+		if (add >= 0)
+			lineIndices[lineIndexCount++] = add;
+		lineIndices[lineIndexCount++] = -1;
+		cellStart[cell] = newStart;
+		tailCell = cell;
+	}
+
+	// Rewrites the lists so that only the lists in use are kept. Shared lists stay shared.
+	private void compact()
+	{
+		int[] moved = new int[lineIndexCount];
+		Arrays.fill(moved, -1);
+		int[] out = new int[Math.max(16, lineIndexCount - garbageCount + 16)];
+		int count = 0;
+		for (int c = 0; c < cellStart.length; c++)
+		{
+			int start = cellStart[c];
+			if (start < 0)
+				continue;
+			if (moved[start] < 0)
+			{
+				int length = getListLength(start) + 1;
+				if (count + length > out.length)
+					out = Arrays.copyOf(out, Math.max(out.length * 2, count + length));
+				System.arraycopy(lineIndices, start, out, count, length);
+				moved[start] = count;
+				count += length;
+			}
+			cellStart[c] = moved[start];
+		}
+		lineIndices = out;
+		lineIndexCount = count;
+		garbageCount = 0;
+		tailCell = -1;
+	}
+
+	// Makes sure the grid is at least a certain size.
+	private void ensureSize(int minColumns, int minRows)
+	{
+		if (minColumns <= columns && minRows <= rows)
+			return;
+		int newColumns = Math.max(columns, minColumns);
+		int newRows = Math.max(rows, minRows);
+		int[] out = new int[newColumns * newRows];
+		Arrays.fill(out, -1);
+		for (int y = 0; y < rows; y++)
+			System.arraycopy(cellStart, y * columns, out, y * newColumns, columns);
+		if (tailCell >= 0)
+			tailCell = (tailCell / columns) * newColumns + (tailCell % columns);
+		cellStart = out;
+		columns = newColumns;
+		rows = newRows;
+	}
+
+	// Makes sure the list array can hold a certain amount of values.
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity > lineIndices.length)
+			lineIndices = Arrays.copyOf(lineIndices, Math.max(lineIndices.length * 2, capacity));
+	}
+
+	// Returns the length of the list at a position.
+	private int getListLength(int start)
+	{
+		int i = start;
+		while (lineIndices[i] != -1)
+			i++;
+		return i - start;
+	}
+
+	// Returns the start of the list of a block, or -1 if the block is out of range or has no list.
+	private int getListStart(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= columns || y >= rows)
+			return -1;
+		return cellStart[y * columns + x];
 	}
 
 	/**
 	 * Returns the list of linedef indices in a particular block.
+	 * The list is a copy: changing it does not change this blockmap.
+	 * May return null if the block has no list.
 	 * @param x	the grid column.
 	 * @param y	the grid row.
 	 */
 	public Queue<Integer> getIndexList(int x, int y)
 	{
-		return innerMap.get(x, y);
+		int start = getListStart(x, y);
+		if (start < 0)
+			return null;
+		Queue<Integer> out = new Queue<Integer>();
+		for (int i = start; lineIndices[i] != -1; i++)
+			out.add(lineIndices[i]);
+		return out;
 	}
 
 	/**
@@ -109,6 +309,68 @@ public class Blockmap implements DoomObject
 		return getIndexList(x, y);
 	}
 
+	/**
+	 * Returns the amount of linedef indices in a particular block.
+	 * @param x	the grid column.
+	 * @param y	the grid row.
+	 * @return the amount of indices, or 0 if the block has no list or is outside the grid.
+	 * @since 2.11.0
+	 */
+	public int getIndexCount(int x, int y)
+	{
+		int start = getListStart(x, y);
+		return start < 0 ? 0 : getListLength(start);
+	}
+
+	/**
+	 * Returns a linedef index in a particular block.
+	 * @param x	the grid column.
+	 * @param y	the grid row.
+	 * @param n	the position in the block's list.
+	 * @return the linedef index.
+	 * @throws ArrayIndexOutOfBoundsException if the block is outside the grid, or n is not less than {@link #getIndexCount(int, int)}.
+	 * @since 2.11.0
+	 */
+	public int getIndex(int x, int y, int n)
+	{
+		if (n < 0 || n >= getIndexCount(x, y))
+			throw new ArrayIndexOutOfBoundsException("No index " + n + " in block " + x + ", " + y);
+		return lineIndices[getListStart(x, y) + n];
+	}
+
+	/**
+	 * Returns the linedef indices in a particular block.
+	 * @param x	the grid column.
+	 * @param y	the grid row.
+	 * @return a new array of the indices, empty if the block has no list or is outside the grid.
+	 * @since 2.11.0
+	 */
+	public int[] getIndices(int x, int y)
+	{
+		int start = getListStart(x, y);
+		if (start < 0)
+			return new int[0];
+		return Arrays.copyOfRange(lineIndices, start, start + getListLength(start));
+	}
+
+	/**
+	 * Returns the amount of grid columns.
+	 * @since 2.11.0
+	 */
+	public int getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * Returns the amount of grid rows.
+	 * @since 2.11.0
+	 */
+	public int getRows()
+	{
+		return rows;
+	}
+
 	/**
 	 * Returns the map position start, X coordinate.
 	 */
@@ -136,7 +398,7 @@ public class Blockmap implements DoomObject
 			return -1;
 		return (int)((posX - startX) / 128);
 	}
-	
+
 	/**
 	 * Returns the row index used by a particular map position,
 	 * according to this grid's startY value.
@@ -160,157 +422,194 @@ public class Blockmap implements DoomObject
 		return true;
 	}
 
-	@Override
-	public byte[] getDoomBytes() throws DataExportException
+	/**
+	 * Returns the short offset of each block's list in the lump, plus the lump length in shorts.
+	 * Lists are placed in order of the first block that uses them, and all blocks without a list
+	 * share one empty list.
+	 */
+	private int[] getLumpOffsets()
 	{
-		callDoomCompatibilityCheck();
-		ByteArrayOutputStream bos = new ByteArrayOutputStream();
-		SuperWriter sw = new SuperWriter(bos,SuperWriter.LITTLE_ENDIAN);
-		try{
-			sw.writeShort((short)startX);
-			sw.writeShort((short)startY);
-			int max_x = 0;
-			int max_y = 0;
-
-			for (ObjectPair<Pair, Queue<Integer>> hp : innerMap)
+		int cells = columns * rows;
+		int[] out = new int[cells + 1];
+		int[] listOffset = new int[lineIndexCount];
+		Arrays.fill(listOffset, -1);
+		int emptyOffset = -1;
+		int offset = 4 + cells;
+		for (int c = 0; c < cells; c++)
+		{
+			int start = cellStart[c];
+			if (start < 0)
 			{
-				Pair p = hp.getKey();
-				max_x = Math.max(max_x, p.x);
-				max_y = Math.max(max_y, p.y);
-			}
-			max_x++;
-			max_y++;
-
-			sw.writeUnsignedShort(max_x);
-			sw.writeUnsignedShort(max_y);
-			
-			// convert linedef indices for offset calculation
-			short[][][] shorts = new short[max_x][max_y][];
-			
-			for (int x = 0; x < max_x; x++)
-				for (int y = 0; y < max_y; y++)
+				if (emptyOffset < 0)
 				{
-					Queue<Integer> list = innerMap.get(x,y);
-					if (list != null)
-					{
-						shorts[x][y] = new short[list.size()];
-						int n = 0;
-						for (Integer s : list)
-							shorts[x][y][n++] = s.shortValue();
-					}
-					else
-						shorts[x][y] = new short[0];
+					emptyOffset = offset;
+					offset += 2;
 				}
-			
-			// set starting offset
-			short offset = (short)(4 + (max_x*max_y));
-
-			// write offset table
-			for (int x = 0; x < max_x; x++)
-				for (int y = 0; y < max_y; y++)
-				{
-					sw.writeShort(offset);
-					offset += 2 + shorts[x][y].length;
-				}
-			
-			// write index lists
-			for (int x = 0; x < max_x; x++)
-				for (int y = 0; y < max_y; y++)
+				out[c] = emptyOffset;
+			}
+			else
+			{
+				if (listOffset[start] < 0)
 				{
-					sw.writeShort((short)0);
-					for (int n = 0; n < shorts[x][y].length; n++)
-						sw.writeShort(shorts[x][y][n]);
-					sw.writeShort((short)-1);
+					listOffset[start] = offset;
+					offset += 2 + getListLength(start);
 				}
+				out[c] = listOffset[start];
+			}
+		}
+		out[cells] = offset;
+		return out;
+	}
 
-		} catch (IOException e){}
-		
-		return bos.toByteArray();
+	/**
+	 * Returns the highest list offset (in shorts) that the BLOCKMAP lump for this blockmap would contain.
+	 * The lump stores offsets as unsigned 16-bit values, so it can't be exported for Doom
+	 * if this is more than 65535.
+	 * @since 2.11.0
+	 */
+	public int getMaxListOffset()
+	{
+		int[] offsets = getLumpOffsets();
+		int out = 0;
+		for (int c = 0; c < offsets.length - 1; c++)
+			out = Math.max(out, offsets[c]);
+		return out;
+	}
+
+	@Override
+	public byte[] getDoomBytes() throws DataExportException
+	{
+		callDoomCompatibilityCheck();
+		int cells = columns * rows;
+		int[] offsets = getLumpOffsets();
+
+		ByteBuffer out = ByteBuffer.allocate(offsets[cells] * 2).order(ByteOrder.LITTLE_ENDIAN);
+		out.putShort((short)startX);
+		out.putShort((short)startY);
+		out.putShort((short)columns);
+		out.putShort((short)rows);
+		for (int c = 0; c < cells; c++)
+			out.putShort((short)offsets[c]);
+
+		// lists were placed in block order, so the next list to write is the one at the current position.
+		for (int c = 0; c < cells; c++)
+		{
+			if (offsets[c] != out.position() >>> 1)
+				continue;
+			out.putShort((short)0);
+			int start = cellStart[c];
+			if (start >= 0)
+				for (int i = start; lineIndices[i] != -1; i++)
+					out.putShort((short)lineIndices[i]);
+			out.putShort((short)-1);
+		}
+
+		return out.array();
 	}
 
 	/**
-	 * Checks this data structure for data export integrity for the Doom format. 
+	 * Checks this data structure for data export integrity for the Doom format.
 	 * @throws DataExportException if a bad criterion is found.
 	 */
 	protected void callDoomCompatibilityCheck() throws DataExportException
 	{
 		checkShort("Grid start X", (int)startX);
 		checkShort("Grid start Y", (int)startY);
-		int max_x = 0;
-		int max_y = 0;
+		checkShortUnsigned("Columns", columns);
+		checkShortUnsigned("Rows", rows);
 		int idx = 0;
-		for (ObjectPair<Pair, Queue<Integer>> hp : innerMap)
-		{
-			Pair p = hp.getKey();
-			max_x = Math.max(max_x, p.x);
-			max_y = Math.max(max_y, p.y);
-			for (Integer i : hp.getValue())
-				idx = Math.max(idx,i);
-		}
-		checkShortUnsigned("Columns", max_x);
-		checkShortUnsigned("Rows", max_y);
+		for (int start : cellStart)
+			if (start >= 0)
+				for (int i = start; lineIndices[i] != -1; i++)
+					idx = Math.max(idx, lineIndices[i]);
 		checkShortUnsigned("Linedef index", idx);
+		checkShortUnsigned("List offset", getMaxListOffset());
 	}
 
 	@Override
 	public void readDoomBytes(InputStream in) throws IOException
 	{
-		SuperReader sr = new SuperReader(in,SuperReader.LITTLE_ENDIAN);
-		innerMap.clear();
-		startX = sr.readShort();
-		startY = sr.readShort();
-		int max_x = sr.readUnsignedShort();
-		int max_y = sr.readUnsignedShort();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int buf = 0;
+		while ((buf = in.read(buffer)) > 0)
+			bos.write(buffer, 0, buf);
+		readDoomBytes(ByteBuffer.wrap(bos.toByteArray()));
+	}
+
+	/**
+	 * Reads this blockmap from a buffer of BLOCKMAP lump data, starting at the buffer's position.
+	 * The lists are read in one pass, and blocks that share a list in the lump share it here, too.
+	 * The buffer's position is not changed.
+	 * @param buffer the buffer to read from.
+	 * @throws IOException if the data is not a valid blockmap.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer) throws IOException
+	{
+		ShortBuffer shorts = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+		int length = shorts.remaining();
+		if (length < 4)
+			throw new IOException("Blockmap is too short.");
+
+		clear();
+		startX = shorts.get(0);
+		startY = shorts.get(1);
+		int max_x = shorts.get(2) & 0x0ffff;
+		int max_y = shorts.get(3) & 0x0ffff;
+		int cells = max_x * max_y;
+		if (4 + cells > length)
+			throw new IOException("Blockmap offset table is incomplete.");
 
 		// read offset table
-		short[] indices = sr.readShorts(max_x*max_y);
-		
-		// data must be treated as a stream: find highest short offset so that the reading can stop.
+		int[] offsets = new int[cells];
+		int offMin = Integer.MAX_VALUE;
 		int offMax = -1;
-		for (short s : indices)
+		for (int c = 0; c < cells; c++)
 		{
-			int o = s & 0x0ffff;
+			int o = shorts.get(4 + c) & 0x0ffff;
+			offsets[c] = o;
+			offMin = o < offMin ? o : offMin;
 			offMax = o > offMax ? o : offMax;
 		}
-		
-		// precache linedef lists at each particular offset: blockmap may be compressed.
-		HashedQueueMap<Integer, Integer> indexList = new HashedQueueMap<Integer, Integer>();
-		int index = 4 + (max_x*max_y);
-		while (index <= offMax)
+
+		int[] starts = new int[cells];
+		int[] lists = new int[0];
+		if (cells > 0)
 		{
-			int nindex = index;
-			short n = sr.readShort();
-			nindex++;
-			
-			if (n != 0)
-				throw new IOException("Blockmap list at short index "+index+" should start with 0.");
-
-			n = sr.readShort();
-			nindex++;
-			while (n != -1)
+			// find the end of the last list.
+			if (offMax >= length)
+				throw new IOException("Blockmap list at short index "+offMax+" is past the end of the lump.");
+			int end = offMax + 1;
+			while (end < length && shorts.get(end) != -1)
+				end++;
+			if (end == length)
+				throw new IOException("Blockmap list at short index "+offMax+" does not end with -1.");
+			end++;
+
+			// the lists are copied as they are, so blocks that point at the same list still do.
+			short[] data = new short[end - offMin];
+			shorts.position(offMin);
+			shorts.get(data);
+			lists = new int[data.length];
+			for (int i = 0; i < data.length; i++)
+				lists[i] = data[i] == -1 ? -1 : data[i] & 0x0ffff;
+
+			for (int c = 0; c < cells; c++)
 			{
-				indexList.enqueue(index, (n & 0x0ffff));
-				n = sr.readShort();
-				nindex++;
+				int index = offsets[c] - offMin;
+				if (lists[index] != 0)
+					throw new IOException("Blockmap list at short index "+offsets[c]+" should start with 0.");
+				// skip the leading 0.
+				starts[c] = index + 1;
 			}
-			
-			index = nindex;
 		}
 
-		// read into internal blockmap table.
-		for (int i = 0; i < max_x; i++)
-			for (int j = 0; j < max_y; j++)
-			{
-				// "touch" entry. this is so the maximum column/row
-				// still gets written on call to getDoomBytes()
-				innerMap.set(i, j, new Queue<Integer>());			
-				
-				// add index list to map.
-				int ind = indices[(i*max_y)+j];
-				Queue<Integer> list = indexList.get(ind);
-				if (list != null) for (Integer line : list)
-					addIndex(i, j, line);
-			}
+		columns = max_x;
+		rows = max_y;
+		cellStart = starts;
+		lineIndices = lists;
+		lineIndexCount = lists.length;
 	}
 
 	@Override
@@ -318,5 +617,5 @@ public class Blockmap implements DoomObject
 	{
 		out.write(getDoomBytes());
 	}
-	
+
 }
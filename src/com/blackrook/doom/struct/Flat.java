@@ -15,6 +15,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import com.blackrook.commons.Common;
 import com.blackrook.commons.math.RMath;
@@ -210,6 +211,22 @@ public class Flat implements DoomGraphicObject
 			pixels[i] = (short)(sr.readByte() & 0x00ff);
 	}
 
+	/**
+	 * Reads this flat's pixels from a buffer, starting at the buffer's position.
+	 * The buffer's position is not changed.
+	 * @param buffer the buffer to read from.
+	 * @throws IOException if the buffer does not contain enough data.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer) throws IOException
+	{
+		int base = buffer.position();
+		if (buffer.limit() - base < width*height)
+			throw new IOException("Flat data is incomplete.");
+		for (int i = 0; i < width*height; i++)
+			pixels[i] = (short)(buffer.get(base + i) & 0x00ff);
+	}
+
 	@Override
 	public void writeDoomBytes(OutputStream out) throws IOException, DataExportException
 	{
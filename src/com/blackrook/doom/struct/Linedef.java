@@ -8,6 +8,7 @@
 package com.blackrook.doom.struct;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import com.blackrook.commons.Common;
 import com.blackrook.commons.list.List;
@@ -1165,6 +1166,96 @@ public class Linedef implements DoomObject, HexenObject, StrifeObject
 		checkFalse("Blocks Use", blocksUse);
 	}
 	
+	/**
+	 * Returns all of this linedef's boolean flags packed into a single value, one bit per flag.
+	 * This is for compact storage (see {@link com.blackrook.doom.PackedDoomMap}) and does not
+	 * correspond to any map format's flag field.
+	 * @return the packed flags.
+	 * @see #setPackedFlags(long)
+	 * @since 2.11.0
+	 */
+	public long getPackedFlags()
+	{
+		return 0L
+			| (impassable ? 1L << 0 : 0L)
+			| (blocksMonsters ? 1L << 1 : 0L)
+			| (twoSided ? 1L << 2 : 0L)
+			| (upperUnpegged ? 1L << 3 : 0L)
+			| (lowerUnpegged ? 1L << 4 : 0L)
+			| (secret ? 1L << 5 : 0L)
+			| (blocksSound ? 1L << 6 : 0L)
+			| (neverDrawn ? 1L << 7 : 0L)
+			| (alwaysDrawn ? 1L << 8 : 0L)
+			| (passThru ? 1L << 9 : 0L)
+			| (repeatable ? 1L << 10 : 0L)
+			| (playerCross ? 1L << 11 : 0L)
+			| (playerUse ? 1L << 12 : 0L)
+			| (monsterCross ? 1L << 13 : 0L)
+			| (monsterUse ? 1L << 14 : 0L)
+			| (missileImpact ? 1L << 15 : 0L)
+			| (playerPush ? 1L << 16 : 0L)
+			| (monsterPush ? 1L << 17 : 0L)
+			| (missileCross ? 1L << 18 : 0L)
+			| (railing ? 1L << 19 : 0L)
+			| (blockFloaters ? 1L << 20 : 0L)
+			| (clipMiddleTexture ? 1L << 21 : 0L)
+			| (translucent ? 1L << 22 : 0L)
+			| (anyCross ? 1L << 23 : 0L)
+			| (monsterActivate ? 1L << 24 : 0L)
+			| (blocksPlayers ? 1L << 25 : 0L)
+			| (blocksAll ? 1L << 26 : 0L)
+			| (firstSideOnly ? 1L << 27 : 0L)
+			| (zoneBoundary ? 1L << 28 : 0L)
+			| (wrapMiddleTexture ? 1L << 29 : 0L)
+			| (middleTexture3D ? 1L << 30 : 0L)
+			| (checkSwitchRange ? 1L << 31 : 0L)
+			| (blocksProjectiles ? 1L << 32 : 0L)
+			| (blocksUse ? 1L << 33 : 0L);
+	}
+
+	/**
+	 * Sets all of this linedef's boolean flags from a value returned by {@link #getPackedFlags()}.
+	 * @param flags the packed flags.
+	 * @since 2.11.0
+	 */
+	public void setPackedFlags(long flags)
+	{
+		impassable = (flags & (1L << 0)) != 0;
+		blocksMonsters = (flags & (1L << 1)) != 0;
+		twoSided = (flags & (1L << 2)) != 0;
+		upperUnpegged = (flags & (1L << 3)) != 0;
+		lowerUnpegged = (flags & (1L << 4)) != 0;
+		secret = (flags & (1L << 5)) != 0;
+		blocksSound = (flags & (1L << 6)) != 0;
+		neverDrawn = (flags & (1L << 7)) != 0;
+		alwaysDrawn = (flags & (1L << 8)) != 0;
+		passThru = (flags & (1L << 9)) != 0;
+		repeatable = (flags & (1L << 10)) != 0;
+		playerCross = (flags & (1L << 11)) != 0;
+		playerUse = (flags & (1L << 12)) != 0;
+		monsterCross = (flags & (1L << 13)) != 0;
+		monsterUse = (flags & (1L << 14)) != 0;
+		missileImpact = (flags & (1L << 15)) != 0;
+		playerPush = (flags & (1L << 16)) != 0;
+		monsterPush = (flags & (1L << 17)) != 0;
+		missileCross = (flags & (1L << 18)) != 0;
+		railing = (flags & (1L << 19)) != 0;
+		blockFloaters = (flags & (1L << 20)) != 0;
+		clipMiddleTexture = (flags & (1L << 21)) != 0;
+		translucent = (flags & (1L << 22)) != 0;
+		anyCross = (flags & (1L << 23)) != 0;
+		monsterActivate = (flags & (1L << 24)) != 0;
+		blocksPlayers = (flags & (1L << 25)) != 0;
+		blocksAll = (flags & (1L << 26)) != 0;
+		firstSideOnly = (flags & (1L << 27)) != 0;
+		zoneBoundary = (flags & (1L << 28)) != 0;
+		wrapMiddleTexture = (flags & (1L << 29)) != 0;
+		middleTexture3D = (flags & (1L << 30)) != 0;
+		checkSwitchRange = (flags & (1L << 31)) != 0;
+		blocksProjectiles = (flags & (1L << 32)) != 0;
+		blocksUse = (flags & (1L << 33)) != 0;
+	}
+
 	@Override
 	public void readDoomBytes(InputStream in) throws IOException
 	{
@@ -1178,6 +1269,24 @@ public class Linedef implements DoomObject, HexenObject, StrifeObject
 		sideBackRef = sr.readShort() & 0x0ffff;
 	}
 
+	/**
+	 * Reads this linedef's Doom-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getDoomLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer)
+	{
+		vertexStart = buffer.getShort() & 0x0ffff;
+		vertexEnd = buffer.getShort() & 0x0ffff;
+		setDoomBitFlags(buffer.getShort());
+		special = buffer.getShort() & 0x0ffff;
+		id = buffer.getShort() & 0x0ffff;
+		sideFrontRef = buffer.getShort() & 0x0ffff;
+		sideBackRef = buffer.getShort() & 0x0ffff;
+	}
+
 	@Override
 	public void readHexenBytes(InputStream in) throws IOException
 	{
@@ -1195,6 +1304,28 @@ public class Linedef implements DoomObject, HexenObject, StrifeObject
 		sideBackRef = sr.readShort();
 	}
 
+	/**
+	 * Reads this linedef's Hexen-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getHexenLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readHexenBytes(ByteBuffer buffer)
+	{
+		vertexStart = buffer.getShort() & 0x0ffff;
+		vertexEnd = buffer.getShort() & 0x0ffff;
+		setHexenBitFlags(buffer.getShort());
+		special = buffer.get() & 0x0ff;
+		argument0 = buffer.get();
+		argument1 = buffer.get();
+		argument2 = buffer.get();
+		argument3 = buffer.get();
+		argument4 = buffer.get();
+		sideFrontRef = buffer.getShort();
+		sideBackRef = buffer.getShort();
+	}
+
 	@Override
 	public void readStrifeBytes(InputStream in) throws IOException
 	{
@@ -1208,6 +1339,24 @@ public class Linedef implements DoomObject, HexenObject, StrifeObject
 		sideBackRef = sr.readShort() & 0x0ffff;
 	}
 
+	/**
+	 * Reads this linedef's Strife-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getStrifeLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readStrifeBytes(ByteBuffer buffer)
+	{
+		vertexStart = buffer.getShort() & 0x0ffff;
+		vertexEnd = buffer.getShort() & 0x0ffff;
+		setStrifeBitFlags(buffer.getShort());
+		special = buffer.getShort() & 0x0ffff;
+		id = buffer.getShort() & 0x0ffff;
+		sideFrontRef = buffer.getShort() & 0x0ffff;
+		sideBackRef = buffer.getShort() & 0x0ffff;
+	}
+
 	@Override
 	public void writeDoomBytes(OutputStream out) throws IOException, DataExportException
 	{
@@ -17,6 +17,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.blackrook.commons.Common;
 import com.blackrook.commons.hash.HashMap;
@@ -331,6 +333,43 @@ public class Patch implements DoomGraphicObject
 				
 	}
 
+	/**
+	 * Reads this patch from a buffer of Doom patch data, starting at the buffer's position.
+	 * Columns are read directly by their offsets, so compressed patches need no caching.
+	 * The buffer's position is not changed.
+	 * @param buffer the buffer to read from.
+	 * @throws IOException if the data is malformed or incomplete.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer) throws IOException
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int base = buf.position();
+		try {
+			setDimensions(buf.getShort(base) & 0x0ffff, buf.getShort(base + 2) & 0x0ffff);
+			offsetX = buf.getShort(base + 4);
+			offsetY = buf.getShort(base + 6);
+
+			int width = getWidth();
+			for (int x = 0; x < width; x++)
+			{
+				int pos = base + buf.getInt(base + 8 + (4 * x));
+				int y = buf.get(pos) & 0x0ff;
+				while (y != 255)
+				{
+					int span = buf.get(pos + 1) & 0x0ff;
+					pos += 3;
+					for (int j = 0; j < span; j++)
+						pixels[x][y+j] = (short)(buf.get(pos + j) & 0x0ff);
+					pos += span + 1;
+					y = buf.get(pos) & 0x0ff;
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Patch data is incomplete or malformed.", e);
+		}
+	}
+
 	/**
 	 * Reads a patch column from the reader.
 	 */
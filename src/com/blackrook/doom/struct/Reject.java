@@ -7,81 +7,285 @@
  ******************************************************************************/
 package com.blackrook.doom.struct;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
 
 import com.blackrook.doom.DataExportException;
 import com.blackrook.doom.DoomObject;
-import com.blackrook.io.SuperReader;
-import com.blackrook.io.SuperWriter;
 
 /**
  * Represents the Reject lump.
  * The reject lump is a lookup grid that hold information on what sectors can
- * "see" other sectors on the map used for thing sight algorithms. 
+ * "see" other sectors on the map used for thing sight algorithms.
+ * <p>
+ * The grid is stored as a packed bitset in the same bit order as the lump itself:
+ * one row per target sector, one bit per sector in each row, rows not padded.
  * @author Matthew Tropiano
  */
 public class Reject implements DoomObject
 {
-	/** The reject grid itself. */
-	private boolean[][] grid;
-	
+	/** The number of sectors. */
+	private int sectors;
+	/** The reject grid itself, 64 bits per word, least significant bit first. */
+	private long[] grid;
+
 	/**
 	 * Creates a new blank reject grid.
 	 * @param sectors	the number of sectors.
 	 */
 	public Reject(int sectors)
 	{
-		grid = new boolean[sectors][sectors];
+		if (sectors < 0)
+			throw new NegativeArraySizeException("Sector count cannot be negative.");
+		this.sectors = sectors;
+		this.grid = new long[(int)((getBitCount() + 63) >>> 6)];
+	}
+
+	/**
+	 * Returns the number of sectors in this grid.
+	 * @since 2.11.0
+	 */
+	public int getSectorCount()
+	{
+		return sectors;
+	}
+
+	/**
+	 * Returns the total amount of bits in the grid.
+	 */
+	private long getBitCount()
+	{
+		return (long)sectors * sectors;
+	}
+
+	/**
+	 * Returns the bit index of a sector pair, or throws an exception if out of range.
+	 */
+	private long getBitIndex(int sectorIndex, int targetSectorIndex)
+	{
+		if (sectorIndex < 0 || sectorIndex >= sectors)
+			throw new ArrayIndexOutOfBoundsException("Sector index out of range: " + sectorIndex);
+		if (targetSectorIndex < 0 || targetSectorIndex >= sectors)
+			throw new ArrayIndexOutOfBoundsException("Sector index out of range: " + targetSectorIndex);
+		return (long)targetSectorIndex * sectors + sectorIndex;
 	}
-	
+
 	/**
 	 * Checks whether a sector is visible from another.
 	 */
 	public boolean getSectorIsVisibleTo(int sectorIndex, int targetSectorIndex)
 	{
-		return grid[targetSectorIndex][sectorIndex];
+		long bit = getBitIndex(sectorIndex, targetSectorIndex);
+		return (grid[(int)(bit >>> 6)] & (1L << bit)) != 0;
 	}
-	
+
 	/**
 	 * Sets whether a sector is visible from another.
 	 */
 	public void setSectorIsVisibleTo(int sectorIndex, int targetSectorIndex, boolean flag)
 	{
-		grid[targetSectorIndex][sectorIndex] = flag;
+		long bit = getBitIndex(sectorIndex, targetSectorIndex);
+		if (flag)
+			grid[(int)(bit >>> 6)] |= (1L << bit);
+		else
+			grid[(int)(bit >>> 6)] &= ~(1L << bit);
+	}
+
+	/**
+	 * Returns the first sector at or after a sector index for which
+	 * {@link #getSectorIsVisibleTo(int, int) getSectorIsVisibleTo(sector, targetSectorIndex)} is true.
+	 * This is meant for iterating through a target's row of the grid without allocating anything:
+	 * <pre>
+	 * for (int s = reject.nextSectorVisibleTo(target, 0); s >= 0; s = reject.nextSectorVisibleTo(target, s + 1))
+	 *     ...
+	 * </pre>
+	 * @param targetSectorIndex the target sector index.
+	 * @param fromSectorIndex the sector index to start from (inclusive).
+	 * @return the next sector index, or -1 if there are no more.
+	 * @throws ArrayIndexOutOfBoundsException if targetSectorIndex is out of range.
+	 * @since 2.11.0
+	 */
+	public int nextSectorVisibleTo(int targetSectorIndex, int fromSectorIndex)
+	{
+		getBitIndex(0, targetSectorIndex);
+		if (fromSectorIndex < 0)
+			fromSectorIndex = 0;
+		if (fromSectorIndex >= sectors)
+			return -1;
+
+		long rowStart = (long)targetSectorIndex * sectors;
+		long bit = rowStart + fromSectorIndex;
+		long rowEnd = rowStart + sectors;
+		int w = (int)(bit >>> 6);
+		long word = grid[w] & (-1L << bit);
+		while (true)
+		{
+			if (word != 0)
+			{
+				long found = ((long)w << 6) + Long.numberOfTrailingZeros(word);
+				return found < rowEnd ? (int)(found - rowStart) : -1;
+			}
+			if (((long)(++w) << 6) >= rowEnd)
+				return -1;
+			word = grid[w];
+		}
+	}
+
+	/**
+	 * Returns the amount of sectors for which
+	 * {@link #getSectorIsVisibleTo(int, int) getSectorIsVisibleTo(sector, targetSectorIndex)} is true.
+	 * @param targetSectorIndex the target sector index.
+	 * @return the amount of set bits in the target sector's row.
+	 * @throws ArrayIndexOutOfBoundsException if targetSectorIndex is out of range.
+	 * @since 2.11.0
+	 */
+	public int getSectorVisibleToCount(int targetSectorIndex)
+	{
+		getBitIndex(0, targetSectorIndex);
+		long rowStart = (long)targetSectorIndex * sectors;
+		long rowEnd = rowStart + sectors;
+		int out = 0;
+		for (long bit = rowStart; bit < rowEnd; )
+		{
+			int w = (int)(bit >>> 6);
+			long wordEnd = Math.min(((long)w + 1) << 6, rowEnd);
+			long word = grid[w] & (-1L << bit);
+			if (wordEnd < ((long)w + 1) << 6)
+				word &= (1L << wordEnd) - 1;
+			out += Long.bitCount(word);
+			bit = wordEnd;
+		}
+		return out;
+	}
+
+	/**
+	 * Returns all sectors for which
+	 * {@link #getSectorIsVisibleTo(int, int) getSectorIsVisibleTo(sector, targetSectorIndex)} is true.
+	 * @param targetSectorIndex the target sector index.
+	 * @return a new BitSet with a bit set for each sector index.
+	 * @throws ArrayIndexOutOfBoundsException if targetSectorIndex is out of range.
+	 * @since 2.11.0
+	 */
+	public BitSet getSectorsVisibleTo(int targetSectorIndex)
+	{
+		getBitIndex(0, targetSectorIndex);
+		long[] out = new long[(sectors + 63) >>> 6];
+		long rowStart = (long)targetSectorIndex * sectors;
+		int shift = (int)(rowStart & 63);
+		int w = (int)(rowStart >>> 6);
+		for (int i = 0; i < out.length; i++, w++)
+		{
+			long word = grid[w] >>> shift;
+			if (shift != 0 && w + 1 < grid.length)
+				word |= grid[w + 1] << (64 - shift);
+			out[i] = word;
+		}
+		if ((sectors & 63) != 0)
+			out[out.length - 1] &= (1L << sectors) - 1;
+		return BitSet.valueOf(out);
+	}
+
+	/**
+	 * Sets which sectors are visible to a target sector, replacing its whole row.
+	 * Only bits 0 to {@link #getSectorCount()} - 1 of the set are used.
+	 * @param targetSectorIndex the target sector index.
+	 * @param visible the set of sector indices for which
+	 * {@link #getSectorIsVisibleTo(int, int) getSectorIsVisibleTo(sector, targetSectorIndex)} should be true.
+	 * @throws ArrayIndexOutOfBoundsException if targetSectorIndex is out of range.
+	 * @since 2.11.0
+	 */
+	public void setSectorsVisibleTo(int targetSectorIndex, BitSet visible)
+	{
+		getBitIndex(0, targetSectorIndex);
+		long rowStart = (long)targetSectorIndex * sectors;
+		long rowEnd = rowStart + sectors;
+		for (long bit = rowStart; bit < rowEnd; bit = (bit | 63) + 1)
+			grid[(int)(bit >>> 6)] &= ~rowMask(bit, rowEnd);
+		for (int s = visible.nextSetBit(0); s >= 0 && s < sectors; s = visible.nextSetBit(s + 1))
+		{
+			long bit = rowStart + s;
+			grid[(int)(bit >>> 6)] |= (1L << bit);
+		}
+	}
+
+	/**
+	 * Returns the mask of the bits in the word that contains a bit, from that bit up to an end bit (exclusive).
+	 */
+	private static long rowMask(long bit, long end)
+	{
+		long mask = -1L << bit;
+		long wordEnd = (bit | 63) + 1;
+		if (end < wordEnd)
+			mask &= (1L << end) - 1;
+		return mask;
 	}
-	
+
 	@Override
 	public boolean isDoomCompatible()
 	{
 		return true;
 	}
 
+	/**
+	 * Returns the length of this reject in Doom-formatted bytes.
+	 * @since 2.11.0
+	 */
+	public int getDoomLength()
+	{
+		return (int)((getBitCount() + 7) >>> 3);
+	}
+
 	@Override
 	public byte[] getDoomBytes() throws DataExportException
 	{
-		ByteArrayOutputStream bos = new ByteArrayOutputStream();
-		SuperWriter sw = new SuperWriter(bos,SuperWriter.LITTLE_ENDIAN);
-		try{
-			for (int i = 0; i < grid.length; i++)
-				for (int j = 0; j < grid[i].length; j++)
-					sw.writeBit(grid[i][j]);
-			sw.flushBits();
-		} catch (IOException e){}
-		
-		return bos.toByteArray();
+		int length = getDoomLength();
+		ByteBuffer out = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		int words = length >>> 3;
+		out.asLongBuffer().put(grid, 0, words);
+		out.position(words << 3);
+		for (int i = words << 3; i < length; i++)
+			out.put((byte)(grid[i >>> 3] >>> ((i & 7) << 3)));
+		return out.array();
 	}
 
 	@Override
 	public void readDoomBytes(InputStream in) throws IOException
 	{
-		SuperReader sr = new SuperReader(in,SuperReader.LITTLE_ENDIAN);
-		for (int i = 0; i < grid.length; i++)
-			for (int j = 0; j < grid[i].length && in.available() > 0; j++)
-				grid[i][j] = sr.readBit();
-		sr.byteAlign();
+		int length = getDoomLength();
+		byte[] data = new byte[length];
+		int n = 0;
+		int buf = 0;
+		while (n < length && (buf = in.read(data, n, length - n)) > 0)
+			n += buf;
+		readDoomBytes(ByteBuffer.wrap(data, 0, n));
+	}
+
+	/**
+	 * Reads this reject from a buffer of REJECT lump data, starting at the buffer's position.
+	 * If the buffer has less data than the grid needs, the rest of the grid is cleared.
+	 * The buffer's position is not changed.
+	 * @param buffer the buffer to read from.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer)
+	{
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int length = Math.min(buf.remaining(), getDoomLength());
+		int words = length >>> 3;
+		buf.asLongBuffer().get(grid, 0, words);
+		for (int i = words; i < grid.length; i++)
+			grid[i] = 0L;
+		buf.position(buf.position() + (words << 3));
+		for (int i = words << 3; i < length; i++)
+			grid[i >>> 3] |= (buf.get() & 0x0ffL) << ((i & 7) << 3);
+
+		// clear bits past the end of the grid.
+		if ((getBitCount() & 63) != 0)
+			grid[grid.length - 1] &= (1L << getBitCount()) - 1;
 	}
 
 	@Override
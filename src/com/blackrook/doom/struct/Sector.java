@@ -9,9 +9,11 @@ package com.blackrook.doom.struct;
 
 import java.awt.Color;
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import com.blackrook.doom.DataExportException;
 import com.blackrook.doom.DoomObject;
+import com.blackrook.doom.WadDirectory;
 import com.blackrook.doom.util.DoomUtil;
 import com.blackrook.io.SuperReader;
 import com.blackrook.io.SuperWriter;
@@ -516,6 +518,40 @@ public class Sector implements DoomObject
 		checkFalse("No Respawn", noRespawn);
 	}
 
+	/**
+	 * Returns all of this sector's boolean flags packed into a single value, one bit per flag.
+	 * This is for compact storage (see {@link com.blackrook.doom.PackedDoomMap}) and does not
+	 * correspond to any map format's flag field.
+	 * @return the packed flags.
+	 * @see #setPackedFlags(long)
+	 * @since 2.11.0
+	 */
+	public long getPackedFlags()
+	{
+		return 0L
+			| (floorLightingAbsolute ? 1L << 0 : 0L)
+			| (ceilingLightingAbsolute ? 1L << 1 : 0L)
+			| (silent ? 1L << 2 : 0L)
+			| (noFallingDamage ? 1L << 3 : 0L)
+			| (dropsActors ? 1L << 4 : 0L)
+			| (noRespawn ? 1L << 5 : 0L);
+	}
+
+	/**
+	 * Sets all of this sector's boolean flags from a value returned by {@link #getPackedFlags()}.
+	 * @param flags the packed flags.
+	 * @since 2.11.0
+	 */
+	public void setPackedFlags(long flags)
+	{
+		floorLightingAbsolute = (flags & (1L << 0)) != 0;
+		ceilingLightingAbsolute = (flags & (1L << 1)) != 0;
+		silent = (flags & (1L << 2)) != 0;
+		noFallingDamage = (flags & (1L << 3)) != 0;
+		dropsActors = (flags & (1L << 4)) != 0;
+		noRespawn = (flags & (1L << 5)) != 0;
+	}
+
 	@Override
 	public void readDoomBytes(InputStream in) throws IOException
 	{
@@ -529,6 +565,24 @@ public class Sector implements DoomObject
 		id = sr.readShort() & 0x0ffff;
 	}
 
+	/**
+	 * Reads this sector's Doom-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getDoomLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer)
+	{
+		floorHeight = buffer.getShort();
+		ceilingHeight = buffer.getShort();
+		floorTex = WadDirectory.decodeName(buffer.getLong());
+		ceilingTex = WadDirectory.decodeName(buffer.getLong());
+		lightLev = buffer.getShort() & 0x0ffff;
+		special = buffer.getShort() & 0x0ffff;
+		id = buffer.getShort() & 0x0ffff;
+	}
+
 	@Override
 	public void writeDoomBytes(OutputStream out) throws IOException, DataExportException
 	{
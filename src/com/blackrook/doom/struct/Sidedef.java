@@ -8,6 +8,7 @@
 package com.blackrook.doom.struct;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import com.blackrook.doom.*;
 import com.blackrook.doom.util.DoomUtil;
@@ -465,6 +466,40 @@ public class Sidedef implements DoomObject
 		checkFalse("No Decals", noDecals);
 	}
 	
+	/**
+	 * Returns all of this sidedef's boolean flags packed into a single value, one bit per flag.
+	 * This is for compact storage (see {@link com.blackrook.doom.PackedDoomMap}) and does not
+	 * correspond to any map format's flag field.
+	 * @return the packed flags.
+	 * @see #setPackedFlags(long)
+	 * @since 2.11.0
+	 */
+	public long getPackedFlags()
+	{
+		return 0L
+			| (lightAbsolute ? 1L << 0 : 0L)
+			| (noFakeContrast ? 1L << 1 : 0L)
+			| (smoothLighting ? 1L << 2 : 0L)
+			| (clipMiddleTexture ? 1L << 3 : 0L)
+			| (wrapMiddleTexture ? 1L << 4 : 0L)
+			| (noDecals ? 1L << 5 : 0L);
+	}
+
+	/**
+	 * Sets all of this sidedef's boolean flags from a value returned by {@link #getPackedFlags()}.
+	 * @param flags the packed flags.
+	 * @since 2.11.0
+	 */
+	public void setPackedFlags(long flags)
+	{
+		lightAbsolute = (flags & (1L << 0)) != 0;
+		noFakeContrast = (flags & (1L << 1)) != 0;
+		smoothLighting = (flags & (1L << 2)) != 0;
+		clipMiddleTexture = (flags & (1L << 3)) != 0;
+		wrapMiddleTexture = (flags & (1L << 4)) != 0;
+		noDecals = (flags & (1L << 5)) != 0;
+	}
+
 	@Override
 	public void readDoomBytes(InputStream in) throws IOException
 	{
@@ -477,6 +512,23 @@ public class Sidedef implements DoomObject
 		sectorRef = sr.readShort() & 0x0ffff;
 	}
 
+	/**
+	 * Reads this sidedef's Doom-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getDoomLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer)
+	{
+		xOffs = buffer.getShort();
+		yOffs = buffer.getShort();
+		upperTex = WadDirectory.decodeName(buffer.getLong());
+		lowerTex = WadDirectory.decodeName(buffer.getLong());
+		middleTex = WadDirectory.decodeName(buffer.getLong());
+		sectorRef = buffer.getShort() & 0x0ffff;
+	}
+
 	@Override
 	public void writeDoomBytes(OutputStream out) throws IOException, DataExportException
 	{
@@ -8,6 +8,7 @@
 package com.blackrook.doom.struct;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import com.blackrook.commons.Common;
 import com.blackrook.doom.DataExportException;
@@ -1048,6 +1049,80 @@ public class Thing implements DoomObject, HexenObject, StrifeObject
 		checkFalse("Skill 8", appearsOnSkill8);
 	}
 	
+	/**
+	 * Returns all of this thing's boolean flags packed into a single value, one bit per flag.
+	 * This is for compact storage (see {@link com.blackrook.doom.PackedDoomMap}) and does not
+	 * correspond to any map format's flag field.
+	 * @return the packed flags.
+	 * @see #setPackedFlags(long)
+	 * @since 2.11.0
+	 */
+	public long getPackedFlags()
+	{
+		return 0L
+			| (appearsOnSkill1 ? 1L << 0 : 0L)
+			| (appearsOnSkill2 ? 1L << 1 : 0L)
+			| (appearsOnSkill3 ? 1L << 2 : 0L)
+			| (appearsOnSkill4 ? 1L << 3 : 0L)
+			| (appearsOnSkill5 ? 1L << 4 : 0L)
+			| (ambusher ? 1L << 5 : 0L)
+			| (appearsOnSinglePlayer ? 1L << 6 : 0L)
+			| (appearsOnCooperative ? 1L << 7 : 0L)
+			| (appearsOnDeathmatch ? 1L << 8 : 0L)
+			| (appearsForClass1 ? 1L << 9 : 0L)
+			| (appearsForClass2 ? 1L << 10 : 0L)
+			| (appearsForClass3 ? 1L << 11 : 0L)
+			| (friendly ? 1L << 12 : 0L)
+			| (standing ? 1L << 13 : 0L)
+			| (dormant ? 1L << 14 : 0L)
+			| (strifeAlly ? 1L << 15 : 0L)
+			| (translucent ? 1L << 16 : 0L)
+			| (invisible ? 1L << 17 : 0L)
+			| (appearsOnSkill6 ? 1L << 18 : 0L)
+			| (appearsOnSkill7 ? 1L << 19 : 0L)
+			| (appearsOnSkill8 ? 1L << 20 : 0L)
+			| (appearsForClass4 ? 1L << 21 : 0L)
+			| (appearsForClass5 ? 1L << 22 : 0L)
+			| (appearsForClass6 ? 1L << 23 : 0L)
+			| (appearsForClass7 ? 1L << 24 : 0L)
+			| (appearsForClass8 ? 1L << 25 : 0L);
+	}
+
+	/**
+	 * Sets all of this thing's boolean flags from a value returned by {@link #getPackedFlags()}.
+	 * @param flags the packed flags.
+	 * @since 2.11.0
+	 */
+	public void setPackedFlags(long flags)
+	{
+		appearsOnSkill1 = (flags & (1L << 0)) != 0;
+		appearsOnSkill2 = (flags & (1L << 1)) != 0;
+		appearsOnSkill3 = (flags & (1L << 2)) != 0;
+		appearsOnSkill4 = (flags & (1L << 3)) != 0;
+		appearsOnSkill5 = (flags & (1L << 4)) != 0;
+		ambusher = (flags & (1L << 5)) != 0;
+		appearsOnSinglePlayer = (flags & (1L << 6)) != 0;
+		appearsOnCooperative = (flags & (1L << 7)) != 0;
+		appearsOnDeathmatch = (flags & (1L << 8)) != 0;
+		appearsForClass1 = (flags & (1L << 9)) != 0;
+		appearsForClass2 = (flags & (1L << 10)) != 0;
+		appearsForClass3 = (flags & (1L << 11)) != 0;
+		friendly = (flags & (1L << 12)) != 0;
+		standing = (flags & (1L << 13)) != 0;
+		dormant = (flags & (1L << 14)) != 0;
+		strifeAlly = (flags & (1L << 15)) != 0;
+		translucent = (flags & (1L << 16)) != 0;
+		invisible = (flags & (1L << 17)) != 0;
+		appearsOnSkill6 = (flags & (1L << 18)) != 0;
+		appearsOnSkill7 = (flags & (1L << 19)) != 0;
+		appearsOnSkill8 = (flags & (1L << 20)) != 0;
+		appearsForClass4 = (flags & (1L << 21)) != 0;
+		appearsForClass5 = (flags & (1L << 22)) != 0;
+		appearsForClass6 = (flags & (1L << 23)) != 0;
+		appearsForClass7 = (flags & (1L << 24)) != 0;
+		appearsForClass8 = (flags & (1L << 25)) != 0;
+	}
+
 	@Override
 	public void readDoomBytes(InputStream in) throws IOException
 	{
@@ -1059,6 +1134,22 @@ public class Thing implements DoomObject, HexenObject, StrifeObject
 		setDoomBitFlags(sr.readShort());
 	}
 
+	/**
+	 * Reads this thing's Doom-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getDoomLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer)
+	{
+		xpos = buffer.getShort();
+		ypos = buffer.getShort();
+		angle = buffer.getShort() & 0x0ffff;
+		type = buffer.getShort() & 0x0ffff;
+		setDoomBitFlags(buffer.getShort());
+	}
+
 	@Override
 	public void readHexenBytes(InputStream in) throws IOException
 	{
@@ -1078,6 +1169,30 @@ public class Thing implements DoomObject, HexenObject, StrifeObject
 		argument4 = sr.readByte() & 0x00ff;
 	}
 
+	/**
+	 * Reads this thing's Hexen-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getHexenLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readHexenBytes(ByteBuffer buffer)
+	{
+		id = buffer.getShort() & 0x0ffff;
+		xpos = buffer.getShort();
+		ypos = buffer.getShort();
+		zpos = buffer.getShort();
+		angle = buffer.getShort() & 0x0ffff;
+		type = buffer.getShort() & 0x0ffff;
+		setHexenBitFlags(buffer.getShort());
+		special = buffer.get() & 0x00ff;
+		argument0 = buffer.get() & 0x00ff;
+		argument1 = buffer.get() & 0x00ff;
+		argument2 = buffer.get() & 0x00ff;
+		argument3 = buffer.get() & 0x00ff;
+		argument4 = buffer.get() & 0x00ff;
+	}
+
 	@Override
 	public void readStrifeBytes(InputStream in) throws IOException
 	{
@@ -1089,6 +1204,22 @@ public class Thing implements DoomObject, HexenObject, StrifeObject
 		setStrifeBitFlags(sr.readShort());
 	}
 
+	/**
+	 * Reads this thing's Strife-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getStrifeLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readStrifeBytes(ByteBuffer buffer)
+	{
+		xpos = buffer.getShort();
+		ypos = buffer.getShort();
+		angle = buffer.getShort() & 0x0ffff;
+		type = buffer.getShort() & 0x0ffff;
+		setStrifeBitFlags(buffer.getShort());
+	}
+
 	@Override
 	public void writeDoomBytes(OutputStream out) throws IOException, DataExportException
 	{
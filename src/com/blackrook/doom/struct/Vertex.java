@@ -10,6 +10,7 @@ package com.blackrook.doom.struct;
 import static com.blackrook.doom.DoomObjectUtils.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import com.blackrook.doom.DataExportException;
 import com.blackrook.doom.DoomObject;
@@ -99,6 +100,19 @@ public class Vertex implements DoomObject
 		ypos = sr.readShort();
 	}
 
+	/**
+	 * Reads this vertex's Doom-formatted data from a buffer, starting at the buffer's position.
+	 * The buffer's position is advanced past the data, and the buffer must be in little-endian order.
+	 * @param buffer the buffer to read from.
+	 * @throws java.nio.BufferUnderflowException if the buffer has fewer than {@link #getDoomLength()} bytes remaining.
+	 * @since 2.11.0
+	 */
+	public void readDoomBytes(ByteBuffer buffer)
+	{
+		xpos = buffer.getShort();
+		ypos = buffer.getShort();
+	}
+
 	@Override
 	public void writeDoomBytes(OutputStream out) throws IOException, DataExportException
 	{
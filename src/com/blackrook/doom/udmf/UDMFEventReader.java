@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.udmf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads UDMF data one structure and one field at a time, without building a {@link UDMFTable}.
+ * <p>
+ * {@link #nextStruct()} moves to the start of the next structure and returns its type name,
+ * and {@link #nextField()} moves to the next field of that structure. The current field's name
+ * and value are available through the <code>getField...()</code> methods until the next call to
+ * either. Fields are only converted to Strings when asked for, so a scan that only looks at a few
+ * fields (like counting things by type) runs in constant memory.
+ * <pre>
+ * UDMFEventReader reader = new UDMFEventReader(buffer);
+ * String type;
+ * while ((type = reader.nextStruct()) != null)
+ * {
+ *     while (reader.nextField())
+ *     {
+ *         // reader.getFieldName(), reader.getFieldInt(), ...
+ *     }
+ * }
+ * </pre>
+ * Global fields (like "namespace") are read by {@link #nextField()} before the first structure,
+ * and are kept in {@link #getGlobalFields()}, including ones that {@link #nextStruct()} passes over.
+ * <p>
+ * This is NOT a thread safe object.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ */
+public class UDMFEventReader
+{
+	/** The tokenizer. */
+	private UDMFLexer lexer;
+	/** Global fields read so far. */
+	private UDMFStruct globalFields;
+
+	/** Current structure type, or null if not in a structure. */
+	private String structType;
+	/** Structure type of a structure start that was reached by nextField() outside of a structure. */
+	private String pendingStructType;
+	/** Current field name, or null if there is no current field. */
+	private String fieldName;
+	/** If true, the current field's semicolon still has to be read. */
+	private boolean pendingSemicolon;
+	/** If true, the end of the data was reached. */
+	private boolean ended;
+
+	/**
+	 * Creates a new reader for the remaining bytes in a buffer.
+	 * @param buffer the buffer to read. Its position is not changed.
+	 */
+	public UDMFEventReader(ByteBuffer buffer)
+	{
+		this.lexer = new UDMFLexer(buffer);
+		this.globalFields = new UDMFStruct(false);
+		this.structType = null;
+		this.pendingStructType = null;
+		this.fieldName = null;
+		this.pendingSemicolon = false;
+		this.ended = false;
+	}
+
+	/**
+	 * Moves to the start of the next structure, skipping the rest of the current one and
+	 * any global fields before the next one (which are added to {@link #getGlobalFields()}).
+	 * @return the structure's type name, or null if there are no more structures.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 */
+	public String nextStruct()
+	{
+		while (structType != null)
+			nextField();
+
+		while (pendingStructType == null && !ended)
+			nextField();
+
+		structType = pendingStructType;
+		pendingStructType = null;
+		return structType;
+	}
+
+	/**
+	 * Moves to the next field of the current structure, or the next global field if not in a structure.
+	 * Global fields are also added to {@link #getGlobalFields()}.
+	 * @return true if there is a field, false at the end of the current structure
+	 * 		(or, outside of a structure, at the start of a structure or the end of the data).
+	 * @throws UDMFParseException if a parsing error occurs.
+	 */
+	public boolean nextField()
+	{
+		fieldName = null;
+		if (pendingSemicolon)
+		{
+			pendingSemicolon = false;
+			if (lexer.nextToken() != UDMFLexer.TYPE_SEMICOLON)
+				throw lexer.createException("Expected ';'.");
+		}
+		if (ended || pendingStructType != null)
+			return false;
+
+		int type = lexer.nextToken();
+		if (structType != null)
+		{
+			if (type == UDMFLexer.TYPE_RBRACE)
+			{
+				structType = null;
+				return false;
+			}
+			if (type != UDMFLexer.TYPE_IDENTIFIER)
+				throw lexer.createException("Expected field expression or '}'.");
+			String name = lexer.getTokenString();
+			if (lexer.nextToken() != UDMFLexer.TYPE_EQUALS)
+				throw lexer.createException("Expected '='.");
+			readValue(name);
+			return true;
+		}
+
+		if (type == UDMFLexer.TYPE_END_OF_STREAM)
+		{
+			ended = true;
+			return false;
+		}
+		if (type != UDMFLexer.TYPE_IDENTIFIER)
+			throw lexer.createException("Expected global value or structure.");
+
+		String name = lexer.getTokenString();
+		switch (lexer.nextToken())
+		{
+			case UDMFLexer.TYPE_EQUALS:
+				readValue(name);
+				putField(globalFields);
+				return true;
+			case UDMFLexer.TYPE_LBRACE:
+				pendingStructType = name;
+				return false;
+			default:
+				throw lexer.createException("Expected field expression or start of structure.");
+		}
+	}
+
+	// Reads a field value token.
+	private void readValue(String name)
+	{
+		switch (lexer.nextToken())
+		{
+			case UDMFLexer.TYPE_STRING:
+			case UDMFLexer.TYPE_INTEGER:
+			case UDMFLexer.TYPE_FLOAT:
+			case UDMFLexer.TYPE_TRUE:
+			case UDMFLexer.TYPE_FALSE:
+				break;
+			default:
+				throw lexer.createException("Expected valid value.");
+		}
+		fieldName = name;
+		pendingSemicolon = true;
+	}
+
+	/**
+	 * Returns the type name of the current structure, or null if not in a structure.
+	 */
+	public String getStructType()
+	{
+		return structType;
+	}
+
+	/**
+	 * Returns the global fields read so far.
+	 */
+	public UDMFStruct getGlobalFields()
+	{
+		return globalFields;
+	}
+
+	/**
+	 * Returns the line number of the current field, starting from 1.
+	 */
+	public int getLine()
+	{
+		return lexer.getTokenLine();
+	}
+
+	/**
+	 * Returns the name of the current field.
+	 * Names are cached by the reader, so this does not usually create a String.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public String getFieldName()
+	{
+		checkField();
+		return fieldName;
+	}
+
+	/**
+	 * Returns true if the current field's name equals a String, ignoring case.
+	 * @param name the name to compare with.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public boolean isFieldName(String name)
+	{
+		checkField();
+		return fieldName.equalsIgnoreCase(name);
+	}
+
+	/**
+	 * Returns the type of the current field's value.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public UDMFStruct.Type getFieldType()
+	{
+		checkField();
+		switch (lexer.getTokenType())
+		{
+			case UDMFLexer.TYPE_INTEGER:
+				return UDMFStruct.Type.INTEGER;
+			case UDMFLexer.TYPE_FLOAT:
+				return UDMFStruct.Type.FLOAT;
+			case UDMFLexer.TYPE_TRUE:
+			case UDMFLexer.TYPE_FALSE:
+				return UDMFStruct.Type.BOOLEAN;
+			default:
+				return UDMFStruct.Type.STRING;
+		}
+	}
+
+	/**
+	 * Returns the current field's value as an integer.
+	 * Converts other types the way {@link UDMFStruct#getInt(String)} does.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public int getFieldInt()
+	{
+		checkField();
+		switch (lexer.getTokenType())
+		{
+			case UDMFLexer.TYPE_INTEGER:
+				return lexer.getTokenInt();
+			case UDMFLexer.TYPE_FLOAT:
+				return (int)Math.floor(lexer.getTokenFloat());
+			case UDMFLexer.TYPE_TRUE:
+				return 1;
+			case UDMFLexer.TYPE_FALSE:
+				return 0;
+			default:
+				return toStruct().getInt(fieldName);
+		}
+	}
+
+	/**
+	 * Returns the current field's value as a float.
+	 * Converts other types the way {@link UDMFStruct#getFloat(String)} does.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public float getFieldFloat()
+	{
+		checkField();
+		switch (lexer.getTokenType())
+		{
+			case UDMFLexer.TYPE_INTEGER:
+			case UDMFLexer.TYPE_FLOAT:
+				return lexer.getTokenFloat();
+			case UDMFLexer.TYPE_TRUE:
+				return 1.0f;
+			case UDMFLexer.TYPE_FALSE:
+				return 0.0f;
+			default:
+				return toStruct().getFloat(fieldName);
+		}
+	}
+
+	/**
+	 * Returns the current field's value as a boolean.
+	 * Converts other types the way {@link UDMFStruct#getBoolean(String)} does.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public boolean getFieldBoolean()
+	{
+		checkField();
+		switch (lexer.getTokenType())
+		{
+			case UDMFLexer.TYPE_TRUE:
+				return true;
+			case UDMFLexer.TYPE_STRING:
+				return Boolean.parseBoolean(lexer.getTokenString());
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Returns the current field's value as a String.
+	 * Converts other types the way {@link UDMFStruct#getString(String)} does.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public String getFieldString()
+	{
+		checkField();
+		switch (lexer.getTokenType())
+		{
+			case UDMFLexer.TYPE_STRING:
+				return lexer.getTokenString();
+			default:
+				return toStruct().getString(fieldName);
+		}
+	}
+
+	/**
+	 * Puts the current field into a structure, as the type it was read as.
+	 * @param struct the structure to put the field into.
+	 * @throws IllegalStateException if there is no current field.
+	 */
+	public void putField(UDMFStruct struct)
+	{
+		checkField();
+		switch (lexer.getTokenType())
+		{
+			case UDMFLexer.TYPE_INTEGER:
+				struct.put(fieldName, lexer.getTokenInt());
+				break;
+			case UDMFLexer.TYPE_FLOAT:
+				struct.put(fieldName, lexer.getTokenFloat());
+				break;
+			case UDMFLexer.TYPE_TRUE:
+			case UDMFLexer.TYPE_FALSE:
+				struct.put(fieldName, lexer.getTokenBoolean());
+				break;
+			default:
+				struct.put(fieldName, lexer.getTokenString());
+				break;
+		}
+	}
+
+	/**
+	 * Reads the rest of the current structure's fields into a structure.
+	 * @param struct the structure to put the fields into.
+	 * @return the structure.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 */
+	public UDMFStruct readStruct(UDMFStruct struct)
+	{
+		while (nextField())
+			putField(struct);
+		return struct;
+	}
+
+	/**
+	 * Creates a {@link UDMFParseException} for an error at the current field, with its line number.
+	 * @param message the error message.
+	 */
+	public UDMFParseException createException(String message)
+	{
+		return lexer.createException(message);
+	}
+
+	// Returns the current field in a structure of its own, for conversions.
+	private UDMFStruct toStruct()
+	{
+		UDMFStruct out = new UDMFStruct(1, UDMFStruct.DEFAULT_REHASH, false);
+		putField(out);
+		return out;
+	}
+
+	// Throws an exception if there is no current field.
+	private void checkField()
+	{
+		if (fieldName == null)
+			throw new IllegalStateException("No current field.");
+	}
+
+}
@@ -0,0 +1,615 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.udmf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Splits UTF-8 (or ASCII) UDMF text into tokens.
+ * <p>
+ * The lexer reads the bytes of a {@link ByteBuffer} in place, from its position to its limit,
+ * without changing the buffer's position. Tokens are byte ranges: keywords are recognized
+ * and numbers are parsed straight from the bytes, and Strings are only created when asked for.
+ * Identifiers are cached, so that the field names that repeat in every structure are created once.
+ * <p>
+ * Integers are decimal (leading zeroes do not make them octal) or hexadecimal with a "0x" prefix.
+ * Decimal integers that do not fit in an <code>int</code> are read as floats.
+ * <p>
+ * This is NOT a thread safe object.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ */
+public class UDMFLexer
+{
+	/** Token type: end of the data. */
+	public static final int TYPE_END_OF_STREAM = 0;
+	/** Token type: identifier. */
+	public static final int TYPE_IDENTIFIER = 1;
+	/** Token type: quoted string. */
+	public static final int TYPE_STRING = 2;
+	/** Token type: integer. */
+	public static final int TYPE_INTEGER = 3;
+	/** Token type: floating-point number. */
+	public static final int TYPE_FLOAT = 4;
+	/** Token type: the keyword "true" (any case). */
+	public static final int TYPE_TRUE = 5;
+	/** Token type: the keyword "false" (any case). */
+	public static final int TYPE_FALSE = 6;
+	/** Token type: '='. */
+	public static final int TYPE_EQUALS = 7;
+	/** Token type: '{'. */
+	public static final int TYPE_LBRACE = 8;
+	/** Token type: '}'. */
+	public static final int TYPE_RBRACE = 9;
+	/** Token type: ';'. */
+	public static final int TYPE_SEMICOLON = 10;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	/** Identifier cache size (power of two). */
+	private static final int IDENTIFIER_CACHE_SIZE = 1024;
+	/** Exactly representable powers of ten. */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	/** Exactly representable powers of ten (float). */
+	private static final float[] POWERS_OF_TEN_FLOAT = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+	/** The data. */
+	private ByteBuffer buffer;
+	/** Current read position. */
+	private int position;
+	/** End of the data. */
+	private int limit;
+	/** Current line number. */
+	private int line;
+
+	/** Current token type. */
+	private int tokenType;
+	/** Current token line number. */
+	private int tokenLine;
+	/** Current token start (inside the quotes for strings, after a '+' sign for numbers). */
+	private int tokenStart;
+	/** Current token end (exclusive). */
+	private int tokenEnd;
+	/** Current identifier hash. */
+	private int tokenHash;
+	/** True if the current string token has escape sequences. */
+	private boolean tokenEscaped;
+
+	/** Integer token value. */
+	private int intValue;
+	/** Float token mantissa digits. */
+	private long mantissa;
+	/** Float token decimal exponent. */
+	private int exponent;
+	/** True if the float token mantissa fits in {@link #mantissa} exactly. */
+	private boolean mantissaExact;
+
+	/** Scratch space for decoding. */
+	private byte[] scratch;
+	/** Identifier cache, by hash. */
+	private String[] identifiers;
+
+	/**
+	 * Creates a new lexer for the remaining bytes in a buffer.
+	 * A UTF-8 byte order mark at the start is skipped.
+	 * @param buffer the buffer to read. Its position is not changed.
+	 */
+	public UDMFLexer(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+		this.line = 1;
+		this.tokenType = TYPE_END_OF_STREAM;
+		this.scratch = new byte[64];
+		this.identifiers = new String[IDENTIFIER_CACHE_SIZE];
+
+		if (limit - position >= 3 && (buffer.get(position) & 0xff) == 0xEF && (buffer.get(position + 1) & 0xff) == 0xBB && (buffer.get(position + 2) & 0xff) == 0xBF)
+			position += 3;
+	}
+
+	/**
+	 * Reads the next token.
+	 * @return the token type.
+	 * @throws UDMFParseException if the text is not a valid token.
+	 */
+	public int nextToken()
+	{
+		skipWhitespace();
+		tokenLine = line;
+		tokenStart = position;
+		if (position >= limit)
+		{
+			tokenEnd = position;
+			return tokenType = TYPE_END_OF_STREAM;
+		}
+
+		int c = buffer.get(position);
+		switch (c)
+		{
+			case '=':
+				return delimiter(TYPE_EQUALS);
+			case '{':
+				return delimiter(TYPE_LBRACE);
+			case '}':
+				return delimiter(TYPE_RBRACE);
+			case ';':
+				return delimiter(TYPE_SEMICOLON);
+			case '"':
+				return readString();
+			default:
+				if (isIdentifierStart(c))
+					return readIdentifier();
+				else if (isDigit(c) || c == '-' || c == '+' || c == '.')
+					return readNumber();
+				else
+					throw createException("Unexpected character '" + (char)(c & 0xff) + "'.");
+		}
+	}
+
+	/**
+	 * Returns the type of the current token.
+	 */
+	public int getTokenType()
+	{
+		return tokenType;
+	}
+
+	/**
+	 * Returns the line number of the current token, starting from 1.
+	 */
+	public int getTokenLine()
+	{
+		return tokenLine;
+	}
+
+	/**
+	 * Returns true if the current token's text equals a String, without creating a String.
+	 * For strings, this compares the raw text between the quotes.
+	 * @param s the String to compare with (ASCII).
+	 */
+	public boolean tokenEquals(String s)
+	{
+		return tokenEquals(s, false);
+	}
+
+	/**
+	 * Returns true if the current token's text equals a String, ignoring ASCII case, without creating a String.
+	 * For strings, this compares the raw text between the quotes.
+	 * @param s the String to compare with (ASCII).
+	 */
+	public boolean tokenEqualsIgnoreCase(String s)
+	{
+		return tokenEquals(s, true);
+	}
+
+	/**
+	 * Returns the current token as a String.
+	 * Identifiers are returned as-is (and cached), strings are returned without their quotes and
+	 * with their escape sequences replaced, numbers are returned as written (without a leading '+'),
+	 * and keywords are returned as written.
+	 */
+	public String getTokenString()
+	{
+		switch (tokenType)
+		{
+			case TYPE_END_OF_STREAM:
+				return null;
+			case TYPE_IDENTIFIER:
+				return getIdentifier();
+			case TYPE_STRING:
+				return tokenEscaped ? decodeScratch(unescape()) : decode(tokenStart, tokenEnd);
+			default:
+				return decode(tokenStart, tokenEnd);
+		}
+	}
+
+	/**
+	 * Returns the value of the current integer token.
+	 * @throws IllegalStateException if the current token is not an integer.
+	 */
+	public int getTokenInt()
+	{
+		if (tokenType != TYPE_INTEGER)
+			throw new IllegalStateException("Current token is not an integer.");
+		return intValue;
+	}
+
+	/**
+	 * Returns the value of the current integer or float token, as a float.
+	 * For float tokens, the result is the same as {@link Float#parseFloat(String)} on the token text.
+	 * @throws IllegalStateException if the current token is not a number.
+	 */
+	public float getTokenFloat()
+	{
+		if (tokenType == TYPE_INTEGER)
+			return (float)intValue;
+		if (tokenType != TYPE_FLOAT)
+			throw new IllegalStateException("Current token is not a number.");
+		// exact operands and one rounding.
+		if (mantissaExact && mantissa < (1L << 24) && Math.abs(exponent) < POWERS_OF_TEN_FLOAT.length)
+		{
+			float m = mantissa;
+			float out = exponent < 0 ? m / POWERS_OF_TEN_FLOAT[-exponent] : m * POWERS_OF_TEN_FLOAT[exponent];
+			return isNegative() ? -out : out;
+		}
+		return Float.parseFloat(decode(tokenStart, tokenEnd));
+	}
+
+	/**
+	 * Returns the value of the current integer or float token, as a double.
+	 * For float tokens, the result is the same as {@link Double#parseDouble(String)} on the token text.
+	 * @throws IllegalStateException if the current token is not a number.
+	 */
+	public double getTokenDouble()
+	{
+		if (tokenType == TYPE_INTEGER)
+			return intValue;
+		if (tokenType != TYPE_FLOAT)
+			throw new IllegalStateException("Current token is not a number.");
+		// exact operands and one rounding.
+		if (mantissaExact && mantissa < (1L << 53) && Math.abs(exponent) < POWERS_OF_TEN.length)
+		{
+			double m = mantissa;
+			double out = exponent < 0 ? m / POWERS_OF_TEN[-exponent] : m * POWERS_OF_TEN[exponent];
+			return isNegative() ? -out : out;
+		}
+		return Double.parseDouble(decode(tokenStart, tokenEnd));
+	}
+
+	/**
+	 * Returns the value of the current keyword token.
+	 * @throws IllegalStateException if the current token is not "true" or "false".
+	 */
+	public boolean getTokenBoolean()
+	{
+		if (tokenType == TYPE_TRUE)
+			return true;
+		if (tokenType == TYPE_FALSE)
+			return false;
+		throw new IllegalStateException("Current token is not a boolean.");
+	}
+
+	/**
+	 * Creates an exception for an error at the current token, with its line number.
+	 * @param message the error message.
+	 */
+	public UDMFParseException createException(String message)
+	{
+		return new UDMFParseException("Line " + tokenLine + ": " + message);
+	}
+
+	// Returns a single-character token.
+	private int delimiter(int type)
+	{
+		tokenEnd = ++position;
+		return tokenType = type;
+	}
+
+	// Skips whitespace and comments.
+	private void skipWhitespace()
+	{
+		while (position < limit)
+		{
+			int c = buffer.get(position);
+			if (c == '\n')
+			{
+				line++;
+				position++;
+			}
+			else if (c == ' ' || c == '\t' || c == '\r' || c == '\f')
+				position++;
+			else if (c == '/' && position + 1 < limit && buffer.get(position + 1) == '/')
+			{
+				position += 2;
+				while (position < limit && buffer.get(position) != '\n')
+					position++;
+			}
+			else if (c == '/' && position + 1 < limit && buffer.get(position + 1) == '*')
+			{
+				tokenLine = line;
+				position += 2;
+				while (true)
+				{
+					if (position + 1 >= limit)
+						throw createException("Comment is not closed.");
+					c = buffer.get(position);
+					if (c == '*' && buffer.get(position + 1) == '/')
+						break;
+					if (c == '\n')
+						line++;
+					position++;
+				}
+				position += 2;
+			}
+			else
+				break;
+		}
+	}
+
+	// Reads an identifier or keyword.
+	private int readIdentifier()
+	{
+		int hash = 0;
+		int c;
+		while (position < limit && isIdentifierPart(c = buffer.get(position)))
+		{
+			hash = 31 * hash + c;
+			position++;
+		}
+		tokenEnd = position;
+		tokenHash = hash;
+		if (tokenEquals("true", true))
+			return tokenType = TYPE_TRUE;
+		else if (tokenEquals("false", true))
+			return tokenType = TYPE_FALSE;
+		return tokenType = TYPE_IDENTIFIER;
+	}
+
+	// Reads a quoted string.
+	private int readString()
+	{
+		tokenEscaped = false;
+		tokenStart = ++position;
+		while (true)
+		{
+			if (position >= limit)
+				throw createException("String is not closed.");
+			int c = buffer.get(position);
+			if (c == '"')
+				break;
+			else if (c == '\\')
+			{
+				tokenEscaped = true;
+				position++;
+				if (position < limit && buffer.get(position) == '\n')
+					line++;
+			}
+			else if (c == '\n')
+				line++;
+			position++;
+		}
+		tokenEnd = position++;
+		return tokenType = TYPE_STRING;
+	}
+
+	// Reads an integer or float.
+	private int readNumber()
+	{
+		int c = buffer.get(position);
+		if (c == '+')
+			tokenStart = ++position;
+		else if (c == '-')
+			position++;
+
+		if (position + 1 < limit && buffer.get(position) == '0' && (buffer.get(position + 1) | 0x20) == 'x')
+			return readHexInteger();
+
+		boolean negative = c == '-';
+		long value = 0;
+		int digits = 0;
+		int exp = 0;
+		boolean exact = true;
+		boolean isFloat = false;
+
+		while (position < limit && isDigit(c = buffer.get(position)))
+		{
+			if (value < 100000000000000000L)
+				value = value * 10 + (c - '0');
+			else
+			{
+				exp++;
+				exact &= c == '0';
+			}
+			digits++;
+			position++;
+		}
+		if (position < limit && buffer.get(position) == '.')
+		{
+			isFloat = true;
+			position++;
+			while (position < limit && isDigit(c = buffer.get(position)))
+			{
+				if (value < 100000000000000000L)
+				{
+					value = value * 10 + (c - '0');
+					exp--;
+				}
+				else
+					exact &= c == '0';
+				digits++;
+				position++;
+			}
+		}
+		if (digits == 0)
+			throw createException("Malformed number.");
+
+		if (position < limit && (buffer.get(position) | 0x20) == 'e')
+		{
+			isFloat = true;
+			position++;
+			boolean expNegative = false;
+			if (position < limit && ((c = buffer.get(position)) == '+' || c == '-'))
+			{
+				expNegative = c == '-';
+				position++;
+			}
+			int e = 0;
+			int expDigits = 0;
+			while (position < limit && isDigit(c = buffer.get(position)))
+			{
+				if (e < 100000)
+					e = e * 10 + (c - '0');
+				expDigits++;
+				position++;
+			}
+			if (expDigits == 0)
+				throw createException("Malformed number exponent.");
+			exp += expNegative ? -e : e;
+		}
+		endNumber();
+
+		if (!isFloat && exact && exp == 0 && value <= (negative ? 0x80000000L : 0x7fffffffL))
+		{
+			intValue = (int)(negative ? -value : value);
+			return tokenType = TYPE_INTEGER;
+		}
+
+		mantissa = value;
+		exponent = exp;
+		mantissaExact = exact;
+		return tokenType = TYPE_FLOAT;
+	}
+
+	// Reads a hexadecimal integer, after the sign.
+	private int readHexInteger()
+	{
+		boolean negative = buffer.get(tokenStart) == '-';
+		position += 2;
+		long value = 0;
+		int digits = 0;
+		int c;
+		while (position < limit && (c = hexValue(buffer.get(position))) >= 0)
+		{
+			value = (value << 4) | c;
+			if (value > 0xffffffffL)
+				throw createException("Hexadecimal number is out of range.");
+			digits++;
+			position++;
+		}
+		if (digits == 0)
+			throw createException("Malformed hexadecimal number.");
+		endNumber();
+		intValue = (int)(negative ? -value : value);
+		return tokenType = TYPE_INTEGER;
+	}
+
+	// Checks that a number is not followed by identifier characters.
+	private void endNumber()
+	{
+		if (position < limit && (isIdentifierPart(buffer.get(position)) || buffer.get(position) == '.'))
+			throw createException("Malformed number.");
+		tokenEnd = position;
+	}
+
+	// Returns true if the current number token is negative.
+	private boolean isNegative()
+	{
+		return buffer.get(tokenStart) == '-';
+	}
+
+	// Compares the token text with a String.
+	private boolean tokenEquals(String s, boolean ignoreCase)
+	{
+		int len = tokenEnd - tokenStart;
+		if (len != s.length())
+			return false;
+		for (int i = 0; i < len; i++)
+		{
+			int a = buffer.get(tokenStart + i);
+			int b = s.charAt(i);
+			if (a != b && !(ignoreCase && isLetter(a) && (a | 0x20) == (b | 0x20)))
+				return false;
+		}
+		return true;
+	}
+
+	// Returns the current identifier from the cache, or creates and caches it.
+	private String getIdentifier()
+	{
+		int slot = (tokenHash ^ (tokenHash >>> 16)) & (IDENTIFIER_CACHE_SIZE - 1);
+		String out = identifiers[slot];
+		if (out == null || !tokenEquals(out, false))
+			identifiers[slot] = out = decode(tokenStart, tokenEnd);
+		return out;
+	}
+
+	// Replaces the escape sequences of the current string token into the scratch space, and returns the length.
+	private int unescape()
+	{
+		ensureScratch(tokenEnd - tokenStart);
+		int n = 0;
+		for (int i = tokenStart; i < tokenEnd; i++)
+		{
+			byte b = buffer.get(i);
+			if (b == '\\' && i + 1 < tokenEnd)
+			{
+				b = buffer.get(++i);
+				switch (b)
+				{
+					case 'n': b = '\n'; break;
+					case 't': b = '\t'; break;
+					case 'r': b = '\r'; break;
+					default: break;
+				}
+			}
+			scratch[n++] = b;
+		}
+		return n;
+	}
+
+	// Creates a String from a range of bytes in the buffer.
+	private String decode(int start, int end)
+	{
+		int len = end - start;
+		ensureScratch(len);
+		for (int i = 0; i < len; i++)
+			scratch[i] = buffer.get(start + i);
+		return decodeScratch(len);
+	}
+
+	// Creates a String from the start of the scratch space.
+	private String decodeScratch(int len)
+	{
+		return new String(scratch, 0, len, UTF_8);
+	}
+
+	// Makes sure the scratch space can hold an amount of bytes.
+	private void ensureScratch(int len)
+	{
+		if (scratch.length < len)
+			scratch = new byte[Math.max(len, scratch.length * 2)];
+	}
+
+	private static boolean isDigit(int c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLetter(int c)
+	{
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isIdentifierStart(int c)
+	{
+		return isLetter(c) || c == '_';
+	}
+
+	private static boolean isIdentifierPart(int c)
+	{
+		return isLetter(c) || isDigit(c) || c == '_';
+	}
+
+	// Returns the value of a hexadecimal digit, or -1 if it isn't one.
+	private static int hexValue(int c)
+	{
+		if (isDigit(c))
+			return c - '0';
+		c |= 0x20;
+		if (c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		return -1;
+	}
+
+}
@@ -9,13 +9,8 @@ package com.blackrook.doom.udmf;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-
-import com.blackrook.commons.linkedlist.Stack;
-import com.blackrook.lang.Lexer;
-import com.blackrook.lang.LexerKernel;
-import com.blackrook.lang.Parser;
-import com.blackrook.lang.ParserException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Reads UDMF data.
@@ -24,7 +19,7 @@ import com.blackrook.lang.ParserException;
 public final class UDMFReader
 {
 	private UDMFReader() {}
-	
+
 	/**
 	 * Reads UDMF-formatted data into a UDMFTable.
 	 * This will read until the end of the stream is reached.
@@ -34,366 +29,63 @@ public final class UDMFReader
 	 */
 	public static UDMFTable readData(InputStream in) throws IOException
 	{
-		ULexer lexer = new ULexer(new InputStreamReader(in,"UTF8"));
-		UParser parser = new UParser(lexer);
-		return parser.getTable();
+		byte[] b = new byte[65536];
+		int len = 0;
+		int n;
+		while ((n = in.read(b, len, b.length - len)) >= 0)
+		{
+			len += n;
+			if (len == b.length)
+				b = Arrays.copyOf(b, b.length * 2);
+		}
+		return readData(ByteBuffer.wrap(b, 0, len));
 	}
-	
+
 	/**
-	 * Parser for UDMF data.
-	 * This is NOT a thread safe object - if read is called by more
-	 * than one thread at once, undefined behavior may occur.
-	 * @author Matthew Tropiano
+	 * Reads UDMF-formatted data into a UDMFTable, from the remaining bytes in a buffer.
+	 * The text is read by a {@link UDMFEventReader}, and values are stored as the
+	 * types that they were written as. The structures are created without locking
+	 * (see {@link UDMFStruct#isThreadSafe()}).
+	 * Does not change the buffer's position.
+	 * @param buffer the buffer to read from.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 * @since 2.11.0
 	 */
-	private static class UParser extends Parser
+	public static UDMFTable readData(ByteBuffer buffer)
 	{
-		/** Struct stack. */
-		private Stack<UDMFStruct> structStack;
-
-		private String currentStructType;
-		private String currentId;
-		private String currentValue;
-		
-		private UDMFTable table;
-		
-		/**
-		 * Creates a new instance of a UDMF Reader.
-		 */
-		public UParser(ULexer lexer)
-		{
-			super(lexer);
-			read();
-		}
-		
-		/**
-		 * Reads in UDMF text and returns a UDMFTable representing the structure.
-		 * @throws ParserException if a parsing error occurs.
-		 */
-		public void read()
-		{
-			structStack = new Stack<UDMFStruct>();
-			table = new UDMFTable();
-			structStack.push(table.getGlobalFields());
-			
-			nextToken();
-			
-			while (currentToken() != null && StructureList());
+		UDMFEventReader reader = new UDMFEventReader(buffer);
+		UDMFTable table = new UDMFTable();
 
-			String[] errors = getErrorMessages();
-			if (errors.length > 0)
-			{
-				StringBuilder sb = new StringBuilder();
-				for (int i = 0; i < errors.length; i++)
-				{
-					sb.append(errors[i]);
-					if (i < errors.length-1)
-						sb.append('\n');
-				}
-				throw new UDMFParseException(sb.toString());
-			}
-			
-		}
-
-		public UDMFTable getTable()
-		{
-			return table;
-		}
-
-		private boolean StructureList()
-		{
-			if (currentType(ULexer.TYPE_IDENTIFIER))
-			{
-				currentId = currentToken().getLexeme();
-				nextToken();
-				
-				if (currentType(ULexer.TYPE_EQUALS))
-				{
-					nextToken();
-					
-					if (!Value())
-					{
-						currentId = null;
-						return false;
-					}
-					
-					if (!matchTypeStrict(ULexer.TYPE_SEMICOLON))
-						return false;
-					
-					structStack.peek().put(currentId, currentValue);
-					currentId = null;
-					currentValue = null;
-					
-					return true;
-				}
-				else if (currentType(ULexer.TYPE_LBRACE))
-				{
-					currentStructType = currentId;
-					nextToken();
-					
-					UDMFStruct struct = new UDMFStruct();
-					structStack.push(struct);
-					if (!FieldExpressionList())
-					{
-						structStack.pop();
-						return false;
-					}
-
-					if (!matchTypeStrict(ULexer.TYPE_RBRACE))
-						return false;
+		String type;
+		while ((type = reader.nextStruct()) != null)
+			table.addStruct(type, reader.readStruct(new UDMFStruct(false)));
 
-					structStack.pop();
-					table.addStruct(currentStructType, struct);
-					return true;
-				}
-				else
-				{
-					addErrorMessage("Expected field expression or start of structure.");
-					return false;
-				}
-			}
-			else if (currentType(ULexer.TYPE_END_OF_STREAM))
-				return true;
+		UDMFStruct globals = reader.getGlobalFields();
+		for (int i = 0; i < globals.size(); i++)
+			copyField(globals, i, table.getGlobalFields());
 
-			addErrorMessage("Expected global value or structure.");
-			return false;
-			
-		}
-		
-		private boolean doField()
-		{
-			currentId = currentToken().getLexeme();
-			nextToken();
-			
-			if (!matchTypeStrict(ULexer.TYPE_EQUALS))
-				return false;
-			
-			if (!Value())
-			{
-				currentId = null;
-				return false;
-			}
-			
-			if (!matchTypeStrict(ULexer.TYPE_SEMICOLON))
-				return false;
-			
-			structStack.peek().put(currentId, currentValue);
-			currentId = null;
-			currentValue = null;
-			
-			return true;
-		}
-
-		/*
-		 * FieldExpressionList := IDENTIFIER = Value ; FieldExpressionList | [e]
-		 */
-		private boolean FieldExpressionList()
-		{
-			if (currentType(ULexer.TYPE_IDENTIFIER))
-			{
-				if (!doField())
-					return false;
-				return FieldExpressionList();
-			}
-			
-			return true; 
-		}
-
-		/*
-		 * Number := STRING | TRUE | FALSE | IntegerValue | FloatValue
-		 */
-		private boolean Value()
-		{
-			if (currentType(ULexer.TYPE_STRING))
-			{
-				currentValue = currentToken().getLexeme();
-				nextToken();
-				return true;
-			}
-			else if (currentType(ULexer.TYPE_TRUE))
-			{
-				currentValue = currentToken().getLexeme();
-				nextToken();
-				return true;
-			}
-			else if (currentType(ULexer.TYPE_FALSE))
-			{
-				currentValue = currentToken().getLexeme();
-				nextToken();
-				return true;
-			}
-			else if (IntegerValue())
-				return true;
-			else if (FloatValue())
-				return true;
-			
-			addErrorMessage("Expected valid value.");
-			return false; 
-		}
-		
-		/*
-		 * IntegerValue := PLUS INTEGER | MINUS INTEGER | INTEGER 
-		 */
-		private boolean IntegerValue()
-		{
-			if (matchType(ULexer.TYPE_MINUS))
-			{
-				if (currentType(ULexer.TYPE_NUMBER))
-				{
-					try {
-						Integer.parseInt(currentToken().getLexeme());
-						currentValue = "-"+currentToken().getLexeme();
-					} catch (NumberFormatException e) {
-						return false;
-					}
-					nextToken();
-					return true;
-				}
-			}
-			else if (matchType(ULexer.TYPE_PLUS))
-			{
-				if (currentType(ULexer.TYPE_NUMBER))
-				{
-					try {
-						Integer.parseInt(currentToken().getLexeme());
-						currentValue = currentToken().getLexeme();
-					} catch (NumberFormatException e) {
-						return false;
-					}
-					nextToken();
-					return true;
-				}
-			}
-			else if (currentType(ULexer.TYPE_NUMBER))
-			{
-				{
-					try {
-						Integer.parseInt(currentToken().getLexeme());
-						currentValue = currentToken().getLexeme();
-					} catch (NumberFormatException e) {
-						return false;
-					}
-					nextToken();
-					return true;
-				}
-			}
-			
-			return false;
-		}
-		
-		/*
-		 * FloatValue := PLUS FLOAT | MINUS FLOAT | FLOAT 
-		 */
-		private boolean FloatValue()
-		{
-			if (matchType(ULexer.TYPE_MINUS))
-			{
-				if (currentType(ULexer.TYPE_NUMBER))
-				{
-					try {
-						Float.parseFloat(currentToken().getLexeme());
-						currentValue = "-"+currentToken().getLexeme();
-					} catch (NumberFormatException e) {
-						return false;
-					}
-					nextToken();
-					return true;
-				}
-			}
-			else if (matchType(ULexer.TYPE_PLUS))
-			{
-				if (currentType(ULexer.TYPE_NUMBER))
-				{
-					try {
-						Float.parseFloat(currentToken().getLexeme());
-						currentValue = currentToken().getLexeme();
-					} catch (NumberFormatException e) {
-						return false;
-					}
-					nextToken();
-					return true;
-				}
-			}
-			else if (currentType(ULexer.TYPE_NUMBER))
-			{
-				{
-					try {
-						Float.parseFloat(currentToken().getLexeme());
-						currentValue = currentToken().getLexeme();
-					} catch (NumberFormatException e) {
-						return false;
-					}
-					nextToken();
-					return true;
-				}
-			}
-			
-			return false;
-		}
-		
-		@Override
-		protected String getTypeErrorText(int tokenType)
-		{
-			switch (tokenType)
-			{
-				case ULexer.TYPE_LBRACE:
-					return "'{'";
-				case ULexer.TYPE_RBRACE:
-					return "'}'";
-				case ULexer.TYPE_EQUALS:
-					return "'='";
-				case ULexer.TYPE_SEMICOLON:
-					return "';'";
-				case ULexer.TYPE_PLUS:
-					return "'+'";
-				case ULexer.TYPE_MINUS:
-					return "'-'";
-			}
-			return null;
-		}
-}
+		return table;
+	}
 
-	/**
-	 * Lexer for the UDMFParser.
-	 * @author Matthew Tropiano
-	 */
-	private static class ULexer extends Lexer
+	// Copies a field from one structure to another, as its stored type.
+	private static void copyField(UDMFStruct from, int i, UDMFStruct to)
 	{
-
-		public static final int TYPE_COMMENT =		0;
-		public static final int TYPE_TRUE = 		1;
-		public static final int TYPE_FALSE = 		2;
-		public static final int TYPE_EQUALS = 		3;
-		public static final int TYPE_LBRACE = 		4;
-		public static final int TYPE_RBRACE = 		5;
-		public static final int TYPE_SEMICOLON = 	6;
-		public static final int TYPE_PLUS = 		7;
-		public static final int TYPE_MINUS = 		8;
-		
-		private static final LexerKernel KERNEL = new LexerKernel()
-		{{
-			addCommentStartDelimiter("/*", TYPE_COMMENT);
-			addCommentLineDelimiter("//", TYPE_COMMENT);
-			addCommentEndDelimiter("*/", TYPE_COMMENT);
-			
-			addCaseInsensitiveKeyword("true", TYPE_TRUE);
-			addCaseInsensitiveKeyword("false", TYPE_FALSE);
-
-			addStringDelimiter('"', '"');
-			
-			addDelimiter(";", TYPE_SEMICOLON);
-			addDelimiter("=", TYPE_EQUALS);
-			addDelimiter("{", TYPE_LBRACE);
-			addDelimiter("}", TYPE_RBRACE);
-			addDelimiter("+", TYPE_PLUS);
-			addDelimiter("-", TYPE_MINUS);
-	}};
-		
-		public ULexer(InputStreamReader in)
+		String key = from.getKey(i);
+		switch (from.getType(i))
 		{
-			super(KERNEL, "UDMFLexer", in);
+			case INTEGER:
+				to.put(key, from.getRawValue(i));
+				break;
+			case FLOAT:
+				to.put(key, Float.intBitsToFloat(from.getRawValue(i)));
+				break;
+			case BOOLEAN:
+				to.put(key, from.getRawValue(i) != 0);
+				break;
+			default:
+				to.put(key, from.getStringValue(i));
+				break;
 		}
-
 	}
 
-	
 }
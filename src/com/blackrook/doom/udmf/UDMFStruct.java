@@ -7,16 +7,61 @@
  ******************************************************************************/
 package com.blackrook.doom.udmf;
 
-import com.blackrook.commons.hash.CaseInsensitiveHashMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * An abstract representation of a UDMF structure.
- * Each <code>identifier = value;</code> field describes a (String, String) pair.
+ * Each <code>identifier = value;</code> field describes a (String, value) pair, where the
+ * value is stored as the type it was added as (see {@link Type}). Field names are case-insensitive,
+ * and fields are kept in the order that they were first added.
  * This structure does not hold a name identifying what the structure type is.
+ * <p>
+ * By default, changes to a structure are synchronized, so that several threads can add fields to it at once.
+ * Structures created with <code>threadSafe</code> set to false skip the locking, for single-threaded use.
  * @author Matthew Tropiano
  */
-public class UDMFStruct extends CaseInsensitiveHashMap<String>
+public class UDMFStruct
 {
+	/** Default capacity. */
+	public static final int DEFAULT_CAPACITY = 10;
+	/** Default rehash ratio. */
+	public static final float DEFAULT_REHASH = 0.75f;
+
+	/**
+	 * Field value types.
+	 * @since 2.11.0
+	 */
+	public static enum Type
+	{
+		STRING,
+		INTEGER,
+		FLOAT,
+		BOOLEAN;
+	}
+
+	private static final Type[] TYPES = Type.values();
+
+	/** If true, changes are synchronized. */
+	private boolean threadSafe;
+	/** The ratio of field count to index size. */
+	private float ratio;
+
+	/** Field names, in order. */
+	private String[] keys;
+	/** Field types (Type ordinals). */
+	private byte[] types;
+	/** Integer and boolean values, and float values as raw bits. */
+	private int[] values;
+	/** String values. */
+	private String[] strings;
+	/** Amount of fields. */
+	private int size;
+
+	/** Hash index: field index + 1, or 0 for an empty slot. */
+	private int[] index;
+
 	/**
 	 * Creates a new UDMFStruct with capacity 10, rehash ratio 0.75.
 	 */
@@ -24,16 +69,16 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 	{
 		this(DEFAULT_CAPACITY, DEFAULT_REHASH);
 	}
-	
+
 	/**
-	 * Creates a new UDMFStruct with capacity <i>cap</i> and rehash ratio 0.75. 
+	 * Creates a new UDMFStruct with capacity <i>cap</i> and rehash ratio 0.75.
 	 * @param cap	the capacity. cannot be negative.
 	 */
 	public UDMFStruct(int cap)
 	{
 		this(cap, DEFAULT_REHASH);
 	}
-	
+
 	/**
 	 * Creates a new UDMFStruct.
 	 * @param cap	the capacity. cannot be negative.
@@ -42,56 +87,262 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 	 */
 	public UDMFStruct(int cap, float ratio)
 	{
-		super(cap,ratio);
+		this(cap, ratio, true);
+	}
+
+	/**
+	 * Creates a new UDMFStruct with capacity 10, rehash ratio 0.75.
+	 * @param threadSafe if true, changes are synchronized. if false, they are not, and this should only be changed by one thread at a time.
+	 * @since 2.11.0
+	 */
+	public UDMFStruct(boolean threadSafe)
+	{
+		this(DEFAULT_CAPACITY, DEFAULT_REHASH, threadSafe);
+	}
+
+	/**
+	 * Creates a new UDMFStruct.
+	 * @param cap	the capacity. cannot be negative.
+	 * @param ratio	the ratio of capacity/tablesize. if this ratio is exceeded, the table's capacity is expanded, and the table is rehashed.
+	 * @param threadSafe if true, changes are synchronized. if false, they are not, and this should only be changed by one thread at a time.
+	 * @throws IllegalArgumentException if capacity is negative or ratio is 0 or less.
+	 * @since 2.11.0
+	 */
+	public UDMFStruct(int cap, float ratio, boolean threadSafe)
+	{
+		if (cap < 0)
+			throw new IllegalArgumentException("Capacity cannot be negative.");
+		if (ratio <= 0f)
+			throw new IllegalArgumentException("Ratio must be greater than 0.");
+		cap = Math.max(cap, 1);
+		this.threadSafe = threadSafe;
+		this.ratio = ratio;
+		this.keys = new String[cap];
+		this.types = new byte[cap];
+		this.values = new int[cap];
+		this.strings = new String[cap];
+		this.size = 0;
+		this.index = new int[getIndexSize(cap)];
+	}
+
+	/**
+	 * Returns true if changes to this structure are synchronized.
+	 * @since 2.11.0
+	 */
+	public boolean isThreadSafe()
+	{
+		return threadSafe;
 	}
-	
+
 	/**
 	 * Adds a new entry to this structure.
 	 * If the entry already exists in this structure, its value is replaced.
 	 * @param key	the key.
 	 * @param value	the value associated with this key.
 	 */
-	public synchronized void put(String key, int value)
+	public void put(String key, int value)
 	{
-		put(key,String.valueOf(value));
+		set(key, Type.INTEGER, value, null);
 	}
-	
+
 	/**
 	 * Adds a new entry to this structure.
 	 * If the entry already exists in this structure, its value is replaced.
 	 * @param key	the key.
 	 * @param value	the value associated with this key.
 	 */
-	public synchronized void put(String key, float value)
+	public void put(String key, float value)
 	{
-		put(key,String.valueOf(value));
+		set(key, Type.FLOAT, Float.floatToRawIntBits(value), null);
 	}
-	
+
 	/**
 	 * Adds a new entry to this structure.
 	 * If the entry already exists in this structure, its value is replaced.
 	 * @param key	the key.
 	 * @param value	the value associated with this key.
 	 */
-	public synchronized void put(String key, boolean value)
+	public void put(String key, boolean value)
 	{
-		put(key,String.valueOf(value));
+		set(key, Type.BOOLEAN, value ? 1 : 0, null);
 	}
-	
+
 	/**
 	 * Adds a new entry to this structure.
 	 * If the entry already exists in this structure, its value is replaced.
+	 * The value is stored as a String, even if it looks like a number or boolean,
+	 * but {@link UDMFWriter} writes Strings that are UDMF numbers or booleans without quotes.
 	 * @param key	the key.
 	 * @param value	the value associated with this key.
 	 */
-	@Override
-	public synchronized void put(String key, String value)
+	public void put(String key, String value)
 	{
-		if (containsKey(key))
-			removeUsingKey(key);
-		super.put(key,value);
+		set(key, Type.STRING, 0, value);
 	}
-	
+
+	/**
+	 * Removes an entry from this structure.
+	 * @param key	the key.
+	 * @return the removed value as a String, or null if there was no such entry.
+	 */
+	public String removeUsingKey(String key)
+	{
+		if (!threadSafe)
+			return removeField(key);
+		synchronized (this)
+		{
+			return removeField(key);
+		}
+	}
+
+	/**
+	 * Removes all entries from this structure.
+	 */
+	public void clear()
+	{
+		if (!threadSafe)
+			clearFields();
+		else
+		{
+			synchronized (this)
+			{
+				clearFields();
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this structure has an entry.
+	 * @param key	the key.
+	 */
+	public boolean containsKey(String key)
+	{
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns the amount of entries in this structure.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns true if this structure has no entries.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns an iterator over the keys in this structure, in the order that they were added.
+	 * The iterator does not support removal.
+	 */
+	public Iterator<String> keyIterator()
+	{
+		return new Iterator<String>()
+		{
+			private int i = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				return i < size;
+			}
+
+			@Override
+			public String next()
+			{
+				if (i >= size)
+					throw new NoSuchElementException();
+				return keys[i++];
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the key of an entry, by its position in this structure.
+	 * @param i the entry position, from 0 to {@link #size()} - 1.
+	 * @throws ArrayIndexOutOfBoundsException if the position is out of range.
+	 * @since 2.11.0
+	 */
+	public String getKey(int i)
+	{
+		checkIndex(i);
+		return keys[i];
+	}
+
+	/**
+	 * Returns the type of a value, by its position in this structure.
+	 * @param i the entry position, from 0 to {@link #size()} - 1.
+	 * @throws ArrayIndexOutOfBoundsException if the position is out of range.
+	 * @since 2.11.0
+	 */
+	public Type getType(int i)
+	{
+		checkIndex(i);
+		return TYPES[types[i]];
+	}
+
+	/**
+	 * Returns the type of a value.
+	 * @param key	the key.
+	 * @return the type, or null if the value does not exist.
+	 * @since 2.11.0
+	 */
+	public Type getType(String key)
+	{
+		int i = find(key);
+		return i < 0 ? null : TYPES[types[i]];
+	}
+
+	/**
+	 * Returns the value of an entry, by its position in this structure, as it was stored.
+	 * For {@link Type#INTEGER}, this is the integer. For {@link Type#BOOLEAN}, this is 1 for true and 0 for false.
+	 * For {@link Type#FLOAT}, this is the raw bits of the float (see {@link Float#intBitsToFloat(int)}).
+	 * For {@link Type#STRING}, this is 0.
+	 * @param i the entry position, from 0 to {@link #size()} - 1.
+	 * @throws ArrayIndexOutOfBoundsException if the position is out of range.
+	 * @since 2.11.0
+	 */
+	public int getRawValue(int i)
+	{
+		checkIndex(i);
+		return values[i];
+	}
+
+	/**
+	 * Returns the String value of an entry, by its position in this structure.
+	 * @param i the entry position, from 0 to {@link #size()} - 1.
+	 * @return the String, or null if the entry is not a {@link Type#STRING} or was added as null.
+	 * @throws ArrayIndexOutOfBoundsException if the position is out of range.
+	 * @since 2.11.0
+	 */
+	public String getStringValue(int i)
+	{
+		checkIndex(i);
+		return strings[i];
+	}
+
+	/**
+	 * Gets a value from this structure as a String.
+	 * If the value does not exist, this returns null.
+	 * Values that were not added as Strings are converted, as in {@link #getString(String)}.
+	 * @param key	the key.
+	 */
+	public String get(String key)
+	{
+		return getString(key, null);
+	}
+
 	/**
 	 * Gets a value from this structure as a String.
 	 * If the value does not exist, this returns the empty string.
@@ -103,11 +354,11 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 	{
 		return getString(key, "");
 	}
-	
+
 	/**
 	 * Gets a value from this structure as an integer.
 	 * If the value does not exist, this returns 0.
-	 * If the value was originally added as a String, this returns it as 0.
+	 * If the value was originally added as a String, this returns it parsed as an integer (decimal or "0x" hexadecimal), or 0 if it isn't one.
 	 * If the value was originally added as a float, this returns it as the floor of that float value.
 	 * If the value was originally added as an boolean, this returns it as 0 if false, 1 if true.
 	 */
@@ -115,11 +366,11 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 	{
 		return getInt(key, 0);
 	}
-	
+
 	/**
 	 * Gets a value from this structure as a float.
 	 * If the value does not exist, this returns 0.0.
-	 * If the value was originally added as a String, this returns it as 0.0.
+	 * If the value was originally added as a String, this returns it parsed as a float, or 0.0 if it isn't one.
 	 * If the value was originally added as a integer, this returns it as a float with a zero mantissa.
 	 * If the value was originally added as an boolean, this returns it as 0.0 if false, 1.0 if true.
 	 */
@@ -127,11 +378,12 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 	{
 		return getFloat(key, 0.0f);
 	}
-	
+
 	/**
 	 * Gets a value from this structure as a boolean.
 	 * If the value does not exist, this returns false.
 	 * If the value was originally added as a String, this returns true if this value equals "true", ignoring case.
+	 * If the value was originally added as a number, this returns false.
 	 */
 	public boolean getBoolean(String key)
 	{
@@ -147,22 +399,95 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 	 */
 	public String getString(String key, String def)
 	{
-		String s = get(key);
-		if (s == null)
+		int i = find(key);
+		if (i < 0)
 			return def;
-		return s;
+		switch (TYPES[types[i]])
+		{
+			case INTEGER:
+				return String.valueOf(values[i]);
+			case FLOAT:
+				return String.valueOf(Float.intBitsToFloat(values[i]));
+			case BOOLEAN:
+				return values[i] != 0 ? "true" : "false";
+			default:
+				return strings[i] != null ? strings[i] : def;
+		}
 	}
 
 	/**
 	 * Gets a value from this structure as an integer.
 	 * Returns the value in <code>def</code> if the key does not exist.
-	 * If the value was originally added as a String, this returns it as 0.
+	 * If the value was originally added as a String, this returns it parsed as an integer (decimal or "0x" hexadecimal), or 0 if it isn't one.
 	 * If the value was originally added as a float, this returns it as the floor of that float value.
 	 * If the value was originally added as an boolean, this returns it as 0 if false, 1 if true.
 	 */
 	public int getInt(String key, int def)
 	{
-		String s = get(key);
+		int i = find(key);
+		if (i < 0)
+			return def;
+		switch (TYPES[types[i]])
+		{
+			case INTEGER:
+			case BOOLEAN:
+				return values[i];
+			case FLOAT:
+				return (int)Math.floor(Float.intBitsToFloat(values[i]));
+			default:
+				return parseInt(strings[i], def);
+		}
+	}
+
+	/**
+	 * Gets a value from this structure as a float.
+	 * Returns the value in <code>def</code> if the key does not exist.
+	 * If the value was originally added as a String, this returns it parsed as a float, or 0.0 if it isn't one.
+	 * If the value was originally added as an integer, this returns it as a float with a zero mantissa.
+	 * If the value was originally added as an boolean, this returns it as 0.0 if false, 1.0 if true.
+	 */
+	public float getFloat(String key, float def)
+	{
+		int i = find(key);
+		if (i < 0)
+			return def;
+		switch (TYPES[types[i]])
+		{
+			case INTEGER:
+			case BOOLEAN:
+				return (float)values[i];
+			case FLOAT:
+				return Float.intBitsToFloat(values[i]);
+			default:
+				return parseFloat(strings[i], def);
+		}
+	}
+
+	/**
+	 * Gets a value from this structure as a boolean.
+	 * Returns the value in <code>def</code> if the key does not exist.
+	 * If the value was originally added as a String, this returns true if this value equals "true", ignoring case.
+	 * If the value was originally added as a number, this returns false.
+	 */
+	public boolean getBoolean(String key, boolean def)
+	{
+		int i = find(key);
+		if (i < 0)
+			return def;
+		switch (TYPES[types[i]])
+		{
+			case BOOLEAN:
+				return values[i] != 0;
+			case STRING:
+				return strings[i] != null ? Boolean.parseBoolean(strings[i]) : def;
+			default:
+				return false;
+		}
+	}
+
+	// Parses a String value as an integer, the way String values always have been.
+	private static int parseInt(String s, int def)
+	{
 		if (s == null)
 			return def;
 		try {
@@ -177,16 +502,9 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 		}
 	}
 
-	/**
-	 * Gets a value from this structure as a float.
-	 * Returns the value in <code>def</code> if the key does not exist.
-	 * If the value was originally added as a String, this returns it as 0.0.
-	 * If the value was originally added as an integer, this returns it as a float with a zero mantissa.
-	 * If the value was originally added as an boolean, this returns it as 0.0 if false, 1.0 if true.
-	 */
-	public float getFloat(String key, float def)
+	// Parses a String value as a float, the way String values always have been.
+	private static float parseFloat(String s, float def)
 	{
-		String s = get(key);
 		if (s == null)
 			return def;
 		try {
@@ -201,19 +519,141 @@ public class UDMFStruct extends CaseInsensitiveHashMap<String>
 		}
 	}
 
-	/**
-	 * Gets a value from this structure as a boolean.
-	 * Returns the value in <code>def</code> if the key does not exist.
-	 * If the value was originally added as a String, this returns true if this value equals "true", ignoring case.
-	 */
-	public boolean getBoolean(String key, boolean def)
+	// Sets a field, with locking if this is thread-safe.
+	private void set(String key, Type type, int value, String string)
 	{
-		String s = get(key);
-		if (s == null)
-			return def;
-		return Boolean.parseBoolean(s);
+		if (!threadSafe)
+			setField(key, type, value, string);
+		else
+		{
+			synchronized (this)
+			{
+				setField(key, type, value, string);
+			}
+		}
+	}
+
+	// Sets a field.
+	private void setField(String key, Type type, int value, String string)
+	{
+		int i = find(key);
+		if (i < 0)
+		{
+			if (size == keys.length)
+				grow();
+			i = size++;
+			keys[i] = key;
+			addToIndex(i);
+		}
+		types[i] = (byte)type.ordinal();
+		values[i] = value;
+		strings[i] = string;
+	}
+
+	// Removes a field, keeping the order of the others.
+	private String removeField(String key)
+	{
+		int i = find(key);
+		if (i < 0)
+			return null;
+		String out = getString(key, null);
+		int move = size - i - 1;
+		System.arraycopy(keys, i + 1, keys, i, move);
+		System.arraycopy(types, i + 1, types, i, move);
+		System.arraycopy(values, i + 1, values, i, move);
+		System.arraycopy(strings, i + 1, strings, i, move);
+		size--;
+		keys[size] = null;
+		strings[size] = null;
+		rebuildIndex(index.length);
+		return out;
+	}
+
+	// Removes all fields.
+	private void clearFields()
+	{
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(strings, 0, size, null);
+		Arrays.fill(index, 0);
+		size = 0;
+	}
+
+	// Returns the position of a field, or -1 if it isn't in this structure.
+	private int find(String key)
+	{
+		int[] index = this.index;
+		int mask = index.length - 1;
+		int slot = hash(key) & mask;
+		int i;
+		while ((i = index[slot]) != 0)
+		{
+			String k = keys[i - 1];
+			if (k == key || (k != null && k.equalsIgnoreCase(key)))
+				return i - 1;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	// Adds a field position to the index.
+	private void addToIndex(int i)
+	{
+		int mask = index.length - 1;
+		int slot = hash(keys[i]) & mask;
+		while (index[slot] != 0)
+			slot = (slot + 1) & mask;
+		index[slot] = i + 1;
+	}
+
+	// Grows the field arrays, and the index if it is too full.
+	private void grow()
+	{
+		int cap = keys.length * 2;
+		keys = Arrays.copyOf(keys, cap);
+		types = Arrays.copyOf(types, cap);
+		values = Arrays.copyOf(values, cap);
+		strings = Arrays.copyOf(strings, cap);
+		int indexSize = getIndexSize(cap);
+		if (indexSize > index.length)
+			rebuildIndex(indexSize);
+	}
+
+	// Rebuilds the index.
+	private void rebuildIndex(int indexSize)
+	{
+		int[] n = new int[indexSize];
+		int mask = indexSize - 1;
+		for (int i = 0; i < size; i++)
+		{
+			int slot = hash(keys[i]) & mask;
+			while (n[slot] != 0)
+				slot = (slot + 1) & mask;
+			n[slot] = i + 1;
+		}
+		index = n;
+	}
+
+	// Returns the index size for a capacity: a power of two with room to spare.
+	private int getIndexSize(int cap)
+	{
+		int min = Math.max((int)Math.ceil(cap / ratio), cap + 1);
+		return Integer.highestOneBit(Math.max(min - 1, 1)) << 1;
+	}
+
+	// Returns a case-insensitive hash of a key.
+	private static int hash(String key)
+	{
+		int h = 0;
+		for (int i = 0; i < key.length(); i++)
+			h = 31 * h + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+		return h ^ (h >>> 16);
+	}
+
+	// Throws an exception if an entry position is out of range.
+	private void checkIndex(int i)
+	{
+		if (i < 0 || i >= size)
+			throw new ArrayIndexOutOfBoundsException(i);
 	}
-	
 
-	
 }
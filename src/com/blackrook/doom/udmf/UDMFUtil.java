@@ -56,6 +56,7 @@ public final class UDMFUtil
 	/**
 	 * Converts a DoomMap to a UDMF structure using a specified namespace.
 	 * See UDMFWriter for a means of exporting this structure to text.
+	 * Structure lists that the map did not load (and are null) are left out.
 	 * @param namespace	the UDMF namespace to use.
 	 * @param dm		the DoomMap to convert.
 	 * @return			a UDMFTable that is a UDMF representation of this map.
@@ -66,39 +67,54 @@ public final class UDMFUtil
 		
 		out.getGlobalFields().put("namespace", namespace.getName());
 		
-		for (Linedef linedef : dm.getLinedefList())
+		if (dm.getLinedefList() != null)
 		{
-			UDMFStruct struct = new UDMFStruct();
-			namespace.setLinedefAttribs(linedef, struct);
-			out.addStruct("linedef", struct);
+			for (Linedef linedef : dm.getLinedefList())
+			{
+				UDMFStruct struct = new UDMFStruct();
+				namespace.setLinedefAttribs(linedef, struct);
+				out.addStruct("linedef", struct);
+			}
 		}
 		
-		for (Sidedef sidedef : dm.getSidedefList())
+		if (dm.getSidedefList() != null)
 		{
-			UDMFStruct struct = new UDMFStruct();
-			namespace.setSidedefAttribs(sidedef, struct);
-			out.addStruct("sidedef", struct);
+			for (Sidedef sidedef : dm.getSidedefList())
+			{
+				UDMFStruct struct = new UDMFStruct();
+				namespace.setSidedefAttribs(sidedef, struct);
+				out.addStruct("sidedef", struct);
+			}
 		}
 		
-		for (Sector sector : dm.getSectorList())
+		if (dm.getSectorList() != null)
 		{
-			UDMFStruct struct = new UDMFStruct();
-			namespace.setSectorAttribs(sector, struct);
-			out.addStruct("sector", struct);
+			for (Sector sector : dm.getSectorList())
+			{
+				UDMFStruct struct = new UDMFStruct();
+				namespace.setSectorAttribs(sector, struct);
+				out.addStruct("sector", struct);
+			}
 		}
 		
-		for (Vertex vertex : dm.getVertexList())
+		if (dm.getVertexList() != null)
 		{
-			UDMFStruct struct = new UDMFStruct();
-			namespace.setVertexAttribs(vertex, struct);
-			out.addStruct("vertex", struct);
+			for (Vertex vertex : dm.getVertexList())
+			{
+				UDMFStruct struct = new UDMFStruct();
+				namespace.setVertexAttribs(vertex, struct);
+				out.addStruct("vertex", struct);
+			}
 		}
 		
-		for (Thing thing : dm.getThingList())
+		if (dm.getThingList() != null)
 		{
-			UDMFStruct struct = new UDMFStruct();
-			namespace.setThingAttribs(thing, struct);
-			out.addStruct("thing", struct);
+			for (Thing thing : dm.getThingList())
+			{
+				UDMFStruct struct = new UDMFStruct();
+				namespace.setThingAttribs(thing, struct);
+				out.addStruct("thing", struct);
+			}
 		}
 		
 		return out;
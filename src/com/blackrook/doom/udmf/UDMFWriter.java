@@ -9,18 +9,31 @@ package com.blackrook.doom.udmf;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Writes UDMF data.
+ * <p>
+ * Text is encoded as UTF-8 straight into a buffer, which is written out when it fills up.
+ * Numbers are formatted into the buffer without creating Strings.
+ * <p>
+ * Normal output puts each field on its own line, with the structures' fields indented and
+ * each structure commented with its position among the structures of its type.
+ * Compact output leaves out the comments, indentation and spacing, and puts each structure on one line.
  * @author Matthew Tropiano
  */
 public final class UDMFWriter
 {
+	/** Size of the output buffer. */
+	private static final int BUFFER_SIZE = 65536;
+	/** Exactly representable powers of ten (float). */
+	private static final float[] POWERS_OF_TEN_FLOAT = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
 	private UDMFWriter() {}
-	
+
 	/**
 	 * Writes UDMF-formatted data into an OutputStream.
 	 * Does not close the OutputStream at the end of the write.
@@ -29,79 +42,361 @@ public final class UDMFWriter
 	 */
 	public static void writeData(UDMFTable table, OutputStream out) throws IOException
 	{
-		PrintWriter pw = new PrintWriter(new OutputStreamWriter(out, "UTF8"), true);
-		
-		writeFields(table.getGlobalFields(), pw, "");
+		writeData(table, out, false);
+	}
+
+	/**
+	 * Writes UDMF-formatted data into an OutputStream.
+	 * Does not close the OutputStream at the end of the write.
+	 * @param out the OutputStream to write to.
+	 * @param compact if true, the output has no comments, indentation or extra whitespace.
+	 * @throws IOException if the output stream cannot be written to.
+	 * @since 2.11.0
+	 */
+	public static void writeData(UDMFTable table, OutputStream out, boolean compact) throws IOException
+	{
+		Output output = new Output(out, null);
+		writeTable(table, output, compact);
+		output.flush();
+		out.flush();
+	}
+
+	/**
+	 * Writes UDMF-formatted data into a channel.
+	 * Does not close the channel at the end of the write.
+	 * @param channel the channel to write to.
+	 * @throws IOException if the channel cannot be written to.
+	 * @since 2.11.0
+	 */
+	public static void writeData(UDMFTable table, WritableByteChannel channel) throws IOException
+	{
+		writeData(table, channel, false);
+	}
+
+	/**
+	 * Writes UDMF-formatted data into a channel.
+	 * Does not close the channel at the end of the write.
+	 * @param channel the channel to write to.
+	 * @param compact if true, the output has no comments, indentation or extra whitespace.
+	 * @throws IOException if the channel cannot be written to.
+	 * @since 2.11.0
+	 */
+	public static void writeData(UDMFTable table, WritableByteChannel channel, boolean compact) throws IOException
+	{
+		Output output = new Output(null, channel);
+		writeTable(table, output, compact);
+		output.flush();
+	}
+
+	/**
+	 * Writes the whole table.
+	 */
+	private static void writeTable(UDMFTable table, Output out, boolean compact) throws IOException
+	{
+		writeFields(table.getGlobalFields(), out, compact, false);
 
 		for (String strName : table.getAllStructNames())
 		{
 			int x = 0;
 			for (UDMFStruct struct : table.getStructs(strName))
 			{
-				writeStructStart(strName, pw, x, "");
-				writeFields(struct, pw, "\t");
-				writeStructEnd(strName, pw, x, "");
+				writeStructStart(strName, out, x, compact);
+				writeFields(struct, out, compact, true);
+				writeStructEnd(out, compact);
 				x++;
 			}
 		}
-		
 	}
 
 	/**
 	 * Writes the fields out to the stream.
 	 */
-	private static void writeFields(UDMFStruct struct, PrintWriter pw, String lineprefix)
+	private static void writeFields(UDMFStruct struct, Output out, boolean compact, boolean inStruct) throws IOException
 	{
-		Iterator<String> it = struct.keyIterator();
-		while(it.hasNext())
+		for (int i = 0; i < struct.size(); i++)
 		{
-			String fieldName = it.next();
-			pw.println(lineprefix + fieldName + " = "+renderFieldData(struct.get(fieldName))+";");
+			if (inStruct && !compact)
+				out.write('\t');
+			out.writeChars(struct.getKey(i), false);
+			out.writeAscii(compact ? "=" : " = ");
+			writeFieldData(struct, i, out);
+			out.write(';');
+			if (!compact || !inStruct)
+				out.write('\n');
 		}
 	}
-	
+
 	/**
 	 * Starts the structure.
 	 */
-	private static void writeStructStart(String name, PrintWriter pw, int count, String lineprefix)
+	private static void writeStructStart(String name, Output out, int count, boolean compact) throws IOException
 	{
-		pw.println(lineprefix + name + " // " + count);
-		pw.println(lineprefix + "{");
+		out.writeChars(name, false);
+		if (compact)
+			out.write('{');
+		else
+		{
+			out.writeAscii(" // ");
+			out.writeInt(count);
+			out.writeAscii("\n{\n");
+		}
 	}
-	
+
 	/**
 	 * Ends the structure.
 	 */
-	private static void writeStructEnd(String name, PrintWriter pw, int count, String lineprefix)
+	private static void writeStructEnd(Output out, boolean compact) throws IOException
 	{
-		pw.println(lineprefix + "}");
-		pw.println();
+		out.writeAscii(compact ? "}\n" : "}\n\n");
 	}
-	
-	private static String renderFieldData(String data)
+
+	/**
+	 * Writes a field value as the type that it was stored as.
+	 */
+	private static void writeFieldData(UDMFStruct struct, int i, Output out) throws IOException
 	{
-		if (data == null)
-			return "\"\"";
-		
-		try {
-			float f = Float.parseFloat(data);
-			if (noMantissa(f))
-				return ((int)f)+"";
-			else
-				return f+"";
-		} catch (NumberFormatException e) {
-			if (data.equalsIgnoreCase("true"))
-				return "true";
-			else if (data.equalsIgnoreCase("false"))
-				return "false";
-			else
-				return "\""+data+"\"";
+		switch (struct.getType(i))
+		{
+			case INTEGER:
+				out.writeInt(struct.getRawValue(i));
+				break;
+			case FLOAT:
+				out.writeFloat(Float.intBitsToFloat(struct.getRawValue(i)));
+				break;
+			case BOOLEAN:
+				out.writeAscii(struct.getRawValue(i) != 0 ? "true" : "false");
+				break;
+			default:
+			{
+				String data = struct.getStringValue(i);
+				if (data == null)
+					out.writeAscii("\"\"");
+				else if (data.equalsIgnoreCase("true") || data.equalsIgnoreCase("false"))
+					out.writeAscii(data.toLowerCase());
+				else if (isNumber(data))
+					out.writeAscii(data);
+				else
+				{
+					out.write('"');
+					out.writeChars(data, true);
+					out.write('"');
+				}
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Returns true if a String is a UDMF integer or float, as read by {@link UDMFLexer}:
+	 * an optional sign, followed by a hexadecimal integer of up to 8 digits, or by
+	 * decimal digits with an optional fraction and exponent.
+	 * Strings like these were always written unquoted, so they still are.
+	 */
+	private static boolean isNumber(String s)
+	{
+		int len = s.length();
+		int i = 0;
+		if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+			i++;
+
+		if (i + 1 < len && s.charAt(i) == '0' && (s.charAt(i + 1) | 0x20) == 'x')
+		{
+			i += 2;
+			int digits = len - i;
+			if (digits == 0 || digits > 8)
+				return false;
+			for (; i < len; i++)
+				if (!isHexDigit(s.charAt(i)))
+					return false;
+			return true;
+		}
+
+		int digits = 0;
+		for (; i < len && isDigit(s.charAt(i)); i++)
+			digits++;
+		if (i < len && s.charAt(i) == '.')
+			for (i++; i < len && isDigit(s.charAt(i)); i++)
+				digits++;
+		if (digits == 0)
+			return false;
+
+		if (i < len && (s.charAt(i) | 0x20) == 'e')
+		{
+			i++;
+			if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+				i++;
+			int expDigits = 0;
+			for (; i < len && isDigit(s.charAt(i)); i++)
+				expDigits++;
+			if (expDigits == 0)
+				return false;
 		}
+		return i == len;
 	}
-	
-	private static boolean noMantissa(float f)
+
+	private static boolean isDigit(int c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isHexDigit(int c)
 	{
-		return f - Math.floor(f) == 0.0;
+		return isDigit(c) || ((c | 0x20) >= 'a' && (c | 0x20) <= 'f');
+	}
+
+	/**
+	 * A buffer that is written to an OutputStream or channel when it fills up.
+	 */
+	private static class Output
+	{
+		private OutputStream out;
+		private WritableByteChannel channel;
+		private byte[] buffer;
+		private int length;
+
+		Output(OutputStream out, WritableByteChannel channel)
+		{
+			this.out = out;
+			this.channel = channel;
+			this.buffer = new byte[BUFFER_SIZE];
+			this.length = 0;
+		}
+
+		// Writes one byte.
+		void write(int b) throws IOException
+		{
+			if (length == buffer.length)
+				flush();
+			buffer[length++] = (byte)b;
+		}
+
+		// Writes an ASCII String.
+		void writeAscii(String s) throws IOException
+		{
+			for (int i = 0; i < s.length(); i++)
+				write(s.charAt(i));
+		}
+
+		// Writes a String as UTF-8, optionally escaping quotes and backslashes.
+		void writeChars(String s, boolean escape) throws IOException
+		{
+			int len = s.length();
+			for (int i = 0; i < len; i++)
+			{
+				int c = s.charAt(i);
+				if (c < 0x80)
+				{
+					if (escape && (c == '"' || c == '\\'))
+						write('\\');
+					write(c);
+				}
+				else if (c < 0x800)
+				{
+					write(0xC0 | (c >> 6));
+					write(0x80 | (c & 0x3F));
+				}
+				else if (Character.isHighSurrogate((char)c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1)))
+				{
+					int cp = Character.toCodePoint((char)c, s.charAt(++i));
+					write(0xF0 | (cp >> 18));
+					write(0x80 | ((cp >> 12) & 0x3F));
+					write(0x80 | ((cp >> 6) & 0x3F));
+					write(0x80 | (cp & 0x3F));
+				}
+				else
+				{
+					// unpaired surrogates are replaced, like the String encoders do.
+					if (Character.isSurrogate((char)c))
+						c = '?';
+					write(0xE0 | (c >> 12));
+					write(0x80 | ((c >> 6) & 0x3F));
+					write(0x80 | (c & 0x3F));
+				}
+			}
+		}
+
+		// Writes an integer in decimal.
+		void writeInt(int value) throws IOException
+		{
+			if (buffer.length - length < 11)
+				flush();
+			long v = value;
+			if (v < 0)
+			{
+				buffer[length++] = '-';
+				v = -v;
+			}
+			int end = length + digitCount(v);
+			for (int i = end - 1; i >= length; i--)
+			{
+				buffer[i] = (byte)('0' + (v % 10));
+				v /= 10;
+			}
+			length = end;
+		}
+
+		/*
+		 * Writes a float. Whole numbers are written as integers. Others are written with the
+		 * fewest decimal places (up to 10) that read back as the same float, or by Float.toString()
+		 * if there are none.
+		 */
+		void writeFloat(float f) throws IOException
+		{
+			if (f - Math.floor(f) == 0.0 && Math.abs(f) < 2147483648f)
+			{
+				writeInt((int)f);
+				return;
+			}
+
+			float abs = Math.abs(f);
+			for (int places = 1; places < POWERS_OF_TEN_FLOAT.length; places++)
+			{
+				long m = Math.round((double)abs * POWERS_OF_TEN_FLOAT[places]);
+				// exact operands and one rounding, same as parsing the digits.
+				if (m < (1L << 24) && (float)m / POWERS_OF_TEN_FLOAT[places] == abs)
+				{
+					if (f < 0)
+						write('-');
+					long scale = (long)POWERS_OF_TEN_FLOAT[places];
+					writeInt((int)(m / scale));
+					write('.');
+					long frac = m % scale;
+					for (int i = digitCount(frac); i < places; i++)
+						write('0');
+					writeInt((int)frac);
+					return;
+				}
+			}
+			writeAscii(String.valueOf(f));
+		}
+
+		// Writes out the buffer.
+		void flush() throws IOException
+		{
+			if (length == 0)
+				return;
+			if (out != null)
+				out.write(buffer, 0, length);
+			else
+			{
+				ByteBuffer b = ByteBuffer.wrap(buffer, 0, length);
+				while (b.hasRemaining())
+					channel.write(b);
+			}
+			length = 0;
+		}
+
+		// Returns the amount of decimal digits in a non-negative number.
+		private static int digitCount(long v)
+		{
+			int out = 1;
+			while (v >= 10)
+			{
+				v /= 10;
+				out++;
+			}
+			return out;
+		}
 	}
-	
+
 }
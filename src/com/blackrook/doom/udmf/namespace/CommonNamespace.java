@@ -12,95 +12,735 @@ import com.blackrook.doom.struct.Sector;
 import com.blackrook.doom.struct.Sidedef;
 import com.blackrook.doom.struct.Thing;
 import com.blackrook.doom.struct.Vertex;
+import com.blackrook.doom.udmf.UDMFEventReader;
 import com.blackrook.doom.udmf.UDMFStruct;
+import com.blackrook.doom.udmf.namespace.UDMFField.BooleanField;
+import com.blackrook.doom.udmf.namespace.UDMFField.FloatField;
+import com.blackrook.doom.udmf.namespace.UDMFField.IntField;
+import com.blackrook.doom.udmf.namespace.UDMFField.StringField;
 
 /**
  * Common namespace for all Doom structures - should be "super-called" by
  * all namespaces that extend this class and override its methods 
  * in order to set common keyword values across all implementing namespaces.
+ * <p>
+ * Fields are read through a {@link UDMFFieldTable} for each type of structure, which is put
+ * together from the <code>add...Fields()</code> methods the first time that it is needed.
+ * The <code>get...Attribs()</code> methods read a structure through these tables. The
+ * <code>read...Attribs()</code> methods set each field straight from the reader as it is read,
+ * through the same tables, unless a namespace that extends this class overrides
+ * <code>get...Attribs()</code> for that type of structure, in which case they read the structure
+ * into a {@link UDMFStruct} and call it. So namespaces can either add fields or
+ * override <code>get...Attribs()</code>.
  * @author Matthew Tropiano
  */
 public abstract class CommonNamespace extends UDMFNamespace
 {
 
+	/** Compiled linedef fields. */
+	private volatile UDMFFieldTable<Linedef> linedefFields;
+	/** Compiled sidedef fields. */
+	private volatile UDMFFieldTable<Sidedef> sidedefFields;
+	/** Compiled sector fields. */
+	private volatile UDMFFieldTable<Sector> sectorFields;
+	/** Compiled vertex fields. */
+	private volatile UDMFFieldTable<Vertex> vertexFields;
+	/** Compiled thing fields. */
+	private volatile UDMFFieldTable<Thing> thingFields;
+
+	/** True if getLinedefAttribs() is overridden. */
+	private final boolean linedefAttribsOverridden;
+	/** True if getSidedefAttribs() is overridden. */
+	private final boolean sidedefAttribsOverridden;
+	/** True if getSectorAttribs() is overridden. */
+	private final boolean sectorAttribsOverridden;
+	/** True if getVertexAttribs() is overridden. */
+	private final boolean vertexAttribsOverridden;
+	/** True if getThingAttribs() is overridden. */
+	private final boolean thingAttribsOverridden;
+
+	/**
+	 * Creates a new namespace.
+	 */
+	protected CommonNamespace()
+	{
+		linedefAttribsOverridden = isOverridden("getLinedefAttribs", Linedef.class);
+		sidedefAttribsOverridden = isOverridden("getSidedefAttribs", Sidedef.class);
+		sectorAttribsOverridden = isOverridden("getSectorAttribs", Sector.class);
+		vertexAttribsOverridden = isOverridden("getVertexAttribs", Vertex.class);
+		thingAttribsOverridden = isOverridden("getThingAttribs", Thing.class);
+	}
+
+	// Returns true if a get...Attribs() method is overridden by this namespace's class.
+	private boolean isOverridden(String methodName, Class<?> type)
+	{
+		try {
+			return getClass().getMethod(methodName, UDMFStruct.class, type).getDeclaringClass() != CommonNamespace.class;
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the table of fields that this namespace reads into linedefs, creating it the first time.
+	 * @since 2.11.0
+	 */
+	public UDMFFieldTable<Linedef> getLinedefFieldTable()
+	{
+		UDMFFieldTable<Linedef> out = linedefFields;
+		if (out == null)
+		{
+			synchronized (this)
+			{
+				if ((out = linedefFields) == null)
+				{
+					out = new UDMFFieldTable<Linedef>();
+					addLinedefFields(out);
+					linedefFields = out;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the table of fields that this namespace reads into sidedefs, creating it the first time.
+	 * @since 2.11.0
+	 */
+	public UDMFFieldTable<Sidedef> getSidedefFieldTable()
+	{
+		UDMFFieldTable<Sidedef> out = sidedefFields;
+		if (out == null)
+		{
+			synchronized (this)
+			{
+				if ((out = sidedefFields) == null)
+				{
+					out = new UDMFFieldTable<Sidedef>();
+					addSidedefFields(out);
+					sidedefFields = out;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the table of fields that this namespace reads into sectors, creating it the first time.
+	 * @since 2.11.0
+	 */
+	public UDMFFieldTable<Sector> getSectorFieldTable()
+	{
+		UDMFFieldTable<Sector> out = sectorFields;
+		if (out == null)
+		{
+			synchronized (this)
+			{
+				if ((out = sectorFields) == null)
+				{
+					out = new UDMFFieldTable<Sector>();
+					addSectorFields(out);
+					sectorFields = out;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the table of fields that this namespace reads into vertices, creating it the first time.
+	 * @since 2.11.0
+	 */
+	public UDMFFieldTable<Vertex> getVertexFieldTable()
+	{
+		UDMFFieldTable<Vertex> out = vertexFields;
+		if (out == null)
+		{
+			synchronized (this)
+			{
+				if ((out = vertexFields) == null)
+				{
+					out = new UDMFFieldTable<Vertex>();
+					addVertexFields(out);
+					vertexFields = out;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the table of fields that this namespace reads into things, creating it the first time.
+	 * @since 2.11.0
+	 */
+	public UDMFFieldTable<Thing> getThingFieldTable()
+	{
+		UDMFFieldTable<Thing> out = thingFields;
+		if (out == null)
+		{
+			synchronized (this)
+			{
+				if ((out = thingFields) == null)
+				{
+					out = new UDMFFieldTable<Thing>();
+					addThingFields(out);
+					thingFields = out;
+				}
+			}
+		}
+		return out;
+	}
+
 	@Override
 	public void getLinedefAttribs(UDMFStruct struct, Linedef linedef)
 	{
-		linedef.setComment(struct.getString("comment"));
+		getLinedefFieldTable().read(struct, linedef);
+	}
 
-		linedef.setId(struct.getInt("id"));
-		linedef.setVertexStart(struct.getInt("v1"));
-		linedef.setVertexEnd(struct.getInt("v2"));
-		linedef.setFrontSidedef(struct.getInt("sidefront"));
-		linedef.setBackSidedef(struct.getInt("sideback"));
-		
-		linedef.setImpassable(struct.getBoolean("blocking"));
-		linedef.setBlocksMonsters(struct.getBoolean("blockmonsters"));
-		linedef.setTwoSided(struct.getBoolean("twosided"));
-		linedef.setUpperUnpegged(struct.getBoolean("dontpegtop"));
-		linedef.setLowerUnpegged(struct.getBoolean("dontpegbottom"));
-		linedef.setSecret(struct.getBoolean("secret"));
-		linedef.setBlocksSound(struct.getBoolean("blocksound"));
-		linedef.setNeverDrawn(struct.getBoolean("dontdraw"));
-		linedef.setAlwaysDrawn(struct.getBoolean("mapped"));
-		
-		linedef.setSpecial(struct.getInt("special"));
+	@Override
+	public void getSidedefAttribs(UDMFStruct struct, Sidedef sidedef)
+	{
+		getSidedefFieldTable().read(struct, sidedef);
 	}
-	
+
 	@Override
 	public void getSectorAttribs(UDMFStruct struct, Sector sector)
 	{
-		sector.setComment(struct.getString("comment"));
-
-		sector.setTag(struct.getInt("id"));
-		sector.setFloorHeight(struct.getInt("heightfloor"));
-		sector.setCeilingHeight(struct.getInt("heightceiling"));
-		sector.setFloorTexture(struct.getString("texturefloor"));
-		sector.setCeilingTexture(struct.getString("textureceiling"));
-		sector.setLightLevel(struct.getInt("lightlevel"));
-		sector.setSpecial(struct.getInt("special"));
+		getSectorFieldTable().read(struct, sector);
 	}
 
 	@Override
-	public void getSidedefAttribs(UDMFStruct struct, Sidedef sidedef)
+	public void getVertexAttribs(UDMFStruct struct, Vertex vertex)
 	{
-		sidedef.setComment(struct.getString("comment"));
-		
-		sidedef.setOffsetX(struct.getInt("offsetx"));
-		sidedef.setOffsetY(struct.getInt("offsety"));
-		sidedef.setUpperTexture(struct.getString("texturetop"));
-		sidedef.setLowerTexture(struct.getString("texturebottom"));
-		sidedef.setMiddleTexture(struct.getString("texturemiddle"));
-		sidedef.setSectorRef(struct.getInt("sector"));
+		getVertexFieldTable().read(struct, vertex);
 	}
 
 	@Override
 	public void getThingAttribs(UDMFStruct struct, Thing thing)
 	{
-		thing.setComment(struct.getString("comment"));
+		getThingFieldTable().read(struct, thing);
+	}
 
-		thing.setId(struct.getInt("id"));
-		thing.setX(struct.getFloat("x"));
-		thing.setY(struct.getFloat("y"));
-		thing.setAngle(struct.getInt("angle"));
-		thing.setType(struct.getInt("type"));
-		
-		thing.setSkill1(struct.getBoolean("skill1"));
-		thing.setSkill2(struct.getBoolean("skill2"));
-		thing.setSkill3(struct.getBoolean("skill3"));
-		thing.setSkill4(struct.getBoolean("skill4"));
-		thing.setSkill5(struct.getBoolean("skill5"));
-		thing.setAmbusher(struct.getBoolean("ambush"));
-		thing.setAppearsOnSinglePlayer(struct.getBoolean("single"));
-		thing.setAppearsOnDeathmatch(struct.getBoolean("dm"));
-		thing.setAppearsOnCooperative(struct.getBoolean("coop"));
+	@Override
+	public void readLinedefAttribs(UDMFEventReader reader, Linedef linedef)
+	{
+		if (linedefAttribsOverridden)
+			super.readLinedefAttribs(reader, linedef);
+		else
+			getLinedefFieldTable().read(reader, linedef);
 	}
 
 	@Override
-	public void getVertexAttribs(UDMFStruct struct, Vertex vertex)
+	public void readSidedefAttribs(UDMFEventReader reader, Sidedef sidedef)
+	{
+		if (sidedefAttribsOverridden)
+			super.readSidedefAttribs(reader, sidedef);
+		else
+			getSidedefFieldTable().read(reader, sidedef);
+	}
+
+	@Override
+	public void readSectorAttribs(UDMFEventReader reader, Sector sector)
+	{
+		if (sectorAttribsOverridden)
+			super.readSectorAttribs(reader, sector);
+		else
+			getSectorFieldTable().read(reader, sector);
+	}
+
+	@Override
+	public void readVertexAttribs(UDMFEventReader reader, Vertex vertex)
+	{
+		if (vertexAttribsOverridden)
+			super.readVertexAttribs(reader, vertex);
+		else
+			getVertexFieldTable().read(reader, vertex);
+	}
+
+	@Override
+	public void readThingAttribs(UDMFEventReader reader, Thing thing)
+	{
+		if (thingAttribsOverridden)
+			super.readThingAttribs(reader, thing);
+		else
+			getThingFieldTable().read(reader, thing);
+	}
+
+	/**
+	 * Adds the fields that this namespace reads into linedefs.
+	 * Namespaces that extend this class should call this first, and then add or replace their own fields.
+	 * @param table the table to add fields to.
+	 * @since 2.11.0
+	 */
+	protected void addLinedefFields(UDMFFieldTable<Linedef> table)
 	{
-		vertex.setX(struct.getFloat("x"));
-		vertex.setY(struct.getFloat("y"));
+		table.add(new StringField<Linedef>("comment")
+		{
+			@Override
+			protected void set(Linedef linedef, String value)
+			{
+				linedef.setComment(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("id")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setId(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("v1")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setVertexStart(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("v2")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setVertexEnd(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("sidefront")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setFrontSidedef(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("sideback")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setBackSidedef(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("blocking")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setImpassable(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("blockmonsters")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBlocksMonsters(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("twosided")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setTwoSided(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("dontpegtop")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setUpperUnpegged(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("dontpegbottom")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setLowerUnpegged(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("secret")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setSecret(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("blocksound")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBlocksSound(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("dontdraw")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setNeverDrawn(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("mapped")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setAlwaysDrawn(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("special")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setSpecial(value);
+			}
+		});
+	}
+	
+	/**
+	 * Adds the fields that this namespace reads into sectors.
+	 * Namespaces that extend this class should call this first, and then add or replace their own fields.
+	 * @param table the table to add fields to.
+	 * @since 2.11.0
+	 */
+	protected void addSectorFields(UDMFFieldTable<Sector> table)
+	{
+		table.add(new StringField<Sector>("comment")
+		{
+			@Override
+			protected void set(Sector sector, String value)
+			{
+				sector.setComment(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("id")
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setTag(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("heightfloor")
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setFloorHeight(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("heightceiling")
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setCeilingHeight(value);
+			}
+		});
+
+		table.add(new StringField<Sector>("texturefloor")
+		{
+			@Override
+			protected void set(Sector sector, String value)
+			{
+				sector.setFloorTexture(value);
+			}
+		});
+
+		table.add(new StringField<Sector>("textureceiling")
+		{
+			@Override
+			protected void set(Sector sector, String value)
+			{
+				sector.setCeilingTexture(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("lightlevel")
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setLightLevel(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("special")
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setSpecial(value);
+			}
+		});
+	}
+
+	/**
+	 * Adds the fields that this namespace reads into sidedefs.
+	 * Namespaces that extend this class should call this first, and then add or replace their own fields.
+	 * @param table the table to add fields to.
+	 * @since 2.11.0
+	 */
+	protected void addSidedefFields(UDMFFieldTable<Sidedef> table)
+	{
+		table.add(new StringField<Sidedef>("comment")
+		{
+			@Override
+			protected void set(Sidedef sidedef, String value)
+			{
+				sidedef.setComment(value);
+			}
+		});
+
+		table.add(new IntField<Sidedef>("offsetx")
+		{
+			@Override
+			protected void set(Sidedef sidedef, int value)
+			{
+				sidedef.setOffsetX(value);
+			}
+		});
+
+		table.add(new IntField<Sidedef>("offsety")
+		{
+			@Override
+			protected void set(Sidedef sidedef, int value)
+			{
+				sidedef.setOffsetY(value);
+			}
+		});
+
+		table.add(new StringField<Sidedef>("texturetop")
+		{
+			@Override
+			protected void set(Sidedef sidedef, String value)
+			{
+				sidedef.setUpperTexture(value);
+			}
+		});
+
+		table.add(new StringField<Sidedef>("texturebottom")
+		{
+			@Override
+			protected void set(Sidedef sidedef, String value)
+			{
+				sidedef.setLowerTexture(value);
+			}
+		});
+
+		table.add(new StringField<Sidedef>("texturemiddle")
+		{
+			@Override
+			protected void set(Sidedef sidedef, String value)
+			{
+				sidedef.setMiddleTexture(value);
+			}
+		});
+
+		table.add(new IntField<Sidedef>("sector")
+		{
+			@Override
+			protected void set(Sidedef sidedef, int value)
+			{
+				sidedef.setSectorRef(value);
+			}
+		});
+	}
+
+	/**
+	 * Adds the fields that this namespace reads into things.
+	 * Namespaces that extend this class should call this first, and then add or replace their own fields.
+	 * @param table the table to add fields to.
+	 * @since 2.11.0
+	 */
+	protected void addThingFields(UDMFFieldTable<Thing> table)
+	{
+		table.add(new StringField<Thing>("comment")
+		{
+			@Override
+			protected void set(Thing thing, String value)
+			{
+				thing.setComment(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("id")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setId(value);
+			}
+		});
+
+		table.add(new FloatField<Thing>("x")
+		{
+			@Override
+			protected void set(Thing thing, float value)
+			{
+				thing.setX(value);
+			}
+		});
+
+		table.add(new FloatField<Thing>("y")
+		{
+			@Override
+			protected void set(Thing thing, float value)
+			{
+				thing.setY(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("angle")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setAngle(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("type")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setType(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill1")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill1(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill2")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill2(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill3")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill3(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill4")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill4(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill5")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill5(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("ambush")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setAmbusher(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("single")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setAppearsOnSinglePlayer(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("dm")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setAppearsOnDeathmatch(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("coop")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setAppearsOnCooperative(value);
+			}
+		});
+	}
+
+	/**
+	 * Adds the fields that this namespace reads into vertices.
+	 * Namespaces that extend this class should call this first, and then add or replace their own fields.
+	 * @param table the table to add fields to.
+	 * @since 2.11.0
+	 */
+	protected void addVertexFields(UDMFFieldTable<Vertex> table)
+	{
+		table.add(new FloatField<Vertex>("x")
+		{
+			@Override
+			protected void set(Vertex vertex, float value)
+			{
+				vertex.setX(value);
+			}
+		});
+
+		table.add(new FloatField<Vertex>("y")
+		{
+			@Override
+			protected void set(Vertex vertex, float value)
+			{
+				vertex.setY(value);
+			}
+		});
 	}
 
 	@Override
@@ -10,6 +10,7 @@ package com.blackrook.doom.udmf.namespace;
 import com.blackrook.doom.struct.Linedef;
 import com.blackrook.doom.struct.Thing;
 import com.blackrook.doom.udmf.UDMFStruct;
+import com.blackrook.doom.udmf.namespace.UDMFField.BooleanField;
 
 /**
  * UDMF namespace for Doom data.
@@ -25,17 +26,33 @@ public class DoomNamespace extends CommonNamespace
 	}
 
 	@Override
-	public void getLinedefAttribs(UDMFStruct struct, Linedef linedef)
+	protected void addLinedefFields(UDMFFieldTable<Linedef> table)
 	{
-		super.getLinedefAttribs(struct, linedef);
-		linedef.setBoomPassThru(struct.getBoolean("passuse"));
+		super.addLinedefFields(table);
+
+		table.add(new BooleanField<Linedef>("passuse")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBoomPassThru(value);
+			}
+		});
 	}
 
 	@Override
-	public void getThingAttribs(UDMFStruct struct, Thing thing)
+	protected void addThingFields(UDMFFieldTable<Thing> table)
 	{
-		super.getThingAttribs(struct, thing);
-		thing.setFriendly(struct.getBoolean("friendly"));
+		super.addThingFields(table);
+
+		table.add(new BooleanField<Thing>("friendly")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setFriendly(value);
+			}
+		});
 	}
 
 	@Override
@@ -10,6 +10,8 @@ package com.blackrook.doom.udmf.namespace;
 import com.blackrook.doom.struct.Linedef;
 import com.blackrook.doom.struct.Thing;
 import com.blackrook.doom.udmf.UDMFStruct;
+import com.blackrook.doom.udmf.namespace.UDMFField.BooleanField;
+import com.blackrook.doom.udmf.namespace.UDMFField.IntField;
 
 /**
  * UDMF namespace for Hexen data.
@@ -25,43 +27,231 @@ public class HexenNamespace extends CommonNamespace
 	}
 
 	@Override
-	public void getLinedefAttribs(UDMFStruct struct, Linedef linedef)
+	protected void addLinedefFields(UDMFFieldTable<Linedef> table)
 	{
-		super.getLinedefAttribs(struct, linedef);
-
-		linedef.setActivatesByPlayerCross(struct.getBoolean("playercross"));
-		linedef.setActivatesByPlayerUse(struct.getBoolean("playeruse"));
-		linedef.setActivatesByMonsterCross(struct.getBoolean("monstercross"));
-		linedef.setActivatesByMonsterUse(struct.getBoolean("monsteruse"));
-		linedef.setActivatesByMissileImpact(struct.getBoolean("impact"));
-		linedef.setActivatesByPlayerPush(struct.getBoolean("playerpush"));
-		linedef.setActivatesByMonsterPush(struct.getBoolean("monsterpush"));
-		linedef.setActivatesByMissileCross(struct.getBoolean("missilecross"));
-		linedef.setRepeatable(struct.getBoolean("repeatspecial"));
-		
-		linedef.setArgument0(struct.getInt("argument0"));
-		linedef.setArgument1(struct.getInt("argument1"));
-		linedef.setArgument2(struct.getInt("argument2"));
-		linedef.setArgument3(struct.getInt("argument3"));
-		linedef.setArgument4(struct.getInt("argument4"));
+		super.addLinedefFields(table);
+
+		table.add(new BooleanField<Linedef>("playercross")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByPlayerCross(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("playeruse")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByPlayerUse(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("monstercross")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMonsterCross(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("monsteruse")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMonsterUse(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("impact")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMissileImpact(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("playerpush")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByPlayerPush(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("monsterpush")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMonsterPush(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("missilecross")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMissileCross(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("repeatspecial")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setRepeatable(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument0")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument0(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument1")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument1(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument2")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument2(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument3")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument3(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument4")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument4(value);
+			}
+		});
 	}
 
 	@Override
-	public void getThingAttribs(UDMFStruct struct, Thing thing)
+	protected void addThingFields(UDMFFieldTable<Thing> table)
 	{
-		super.getThingAttribs(struct, thing);
-
-		thing.setSpecial(struct.getInt("special"));
-		thing.setArgument0(struct.getInt("argument0"));
-		thing.setArgument1(struct.getInt("argument1"));
-		thing.setArgument2(struct.getInt("argument2"));
-		thing.setArgument3(struct.getInt("argument3"));
-		thing.setArgument4(struct.getInt("argument4"));
-		
-		thing.setDormant(struct.getBoolean("dormant"));
-		thing.setClass1(struct.getBoolean("class1"));
-		thing.setClass2(struct.getBoolean("class2"));
-		thing.setClass3(struct.getBoolean("class3"));
+		super.addThingFields(table);
+
+		table.add(new IntField<Thing>("special")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setSpecial(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument0")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument0(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument1")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument1(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument2")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument2(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument3")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument3(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument4")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument4(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("dormant")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setDormant(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class1")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass1(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class2")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass2(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class3")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass3(value);
+			}
+		});
 	}
 
 	@Override
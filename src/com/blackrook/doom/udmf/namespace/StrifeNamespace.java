@@ -10,6 +10,7 @@ package com.blackrook.doom.udmf.namespace;
 import com.blackrook.doom.struct.Linedef;
 import com.blackrook.doom.struct.Thing;
 import com.blackrook.doom.udmf.UDMFStruct;
+import com.blackrook.doom.udmf.namespace.UDMFField.BooleanField;
 
 /**
  * UDMF namespace for Strife data.
@@ -25,22 +26,78 @@ public class StrifeNamespace extends CommonNamespace
 	}
 
 	@Override
-	public void getLinedefAttribs(UDMFStruct struct, Linedef linedef)
+	protected void addLinedefFields(UDMFFieldTable<Linedef> table)
 	{
-		super.getLinedefAttribs(struct, linedef);
-		linedef.setTranslucent(struct.getBoolean("translucent"));
-		linedef.setRailing(struct.getBoolean("jumpover"));
-		linedef.setBlockFloaters(struct.getBoolean("blockfloaters"));
+		super.addLinedefFields(table);
+
+		table.add(new BooleanField<Linedef>("translucent")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setTranslucent(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("jumpover")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setRailing(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("blockfloaters")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBlockFloaters(value);
+			}
+		});
 	}
 
 	@Override
-	public void getThingAttribs(UDMFStruct struct, Thing thing)
+	protected void addThingFields(UDMFFieldTable<Thing> table)
 	{
-		super.getThingAttribs(struct, thing);
-		thing.setTranslucent(struct.getBoolean("translucent"));
-		thing.setStandsStill(struct.getBoolean("standing"));
-		thing.setStrifeAlly(struct.getBoolean("strifeally"));
-		thing.setInvisible(struct.getBoolean("invisible"));
+		super.addThingFields(table);
+
+		table.add(new BooleanField<Thing>("translucent")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setTranslucent(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("standing")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setStandsStill(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("strifeally")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setStrifeAlly(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("invisible")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setInvisible(value);
+			}
+		});
 	}
 
 	@Override
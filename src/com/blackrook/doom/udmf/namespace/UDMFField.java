@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.udmf.namespace;
+
+import com.blackrook.doom.udmf.UDMFEventReader;
+import com.blackrook.doom.udmf.UDMFStruct;
+
+/**
+ * A UDMF field that a namespace knows for a type of map object, and how to set it on that object.
+ * Fields are added to a {@link UDMFFieldTable}, usually as anonymous subclasses of
+ * {@link IntField}, {@link FloatField}, {@link BooleanField} or {@link StringField}:
+ * <pre>
+ * table.add(new UDMFField.IntField&lt;Linedef&gt;("v1")
+ * {
+ *     protected void set(Linedef linedef, int value)
+ *     {
+ *         linedef.setVertexStart(value);
+ *     }
+ * });
+ * </pre>
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ * @param <T> the type of object that this field is set on.
+ */
+public abstract class UDMFField<T>
+{
+	/** The field name. */
+	private String name;
+
+	/**
+	 * Creates a new field.
+	 * @param name the field name.
+	 */
+	protected UDMFField(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Returns this field's name.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Sets this field on an object from the current field of a reader.
+	 * @param reader the reader.
+	 * @param object the object to set this field on.
+	 */
+	public abstract void read(UDMFEventReader reader, T object);
+
+	/**
+	 * Sets this field on an object from a structure.
+	 * @param struct the structure.
+	 * @param key the key of this field in the structure.
+	 * @param object the object to set this field on.
+	 */
+	public abstract void read(UDMFStruct struct, String key, T object);
+
+	/**
+	 * Sets this field on an object to its value when it is not in a structure.
+	 * @param object the object to set this field on.
+	 */
+	public abstract void setDefault(T object);
+
+	/**
+	 * A field read as an integer.
+	 * @param <T> the type of object that this field is set on.
+	 */
+	public abstract static class IntField<T> extends UDMFField<T>
+	{
+		/** The default value. */
+		private int defaultValue;
+
+		/**
+		 * Creates a new field with a default value of 0.
+		 * @param name the field name.
+		 */
+		protected IntField(String name)
+		{
+			this(name, 0);
+		}
+
+		/**
+		 * Creates a new field.
+		 * @param name the field name.
+		 * @param defaultValue the value when the field is not in a structure.
+		 */
+		protected IntField(String name, int defaultValue)
+		{
+			super(name);
+			this.defaultValue = defaultValue;
+		}
+
+		/**
+		 * Sets this field's value on an object.
+		 * @param object the object.
+		 * @param value the value.
+		 */
+		protected abstract void set(T object, int value);
+
+		@Override
+		public void read(UDMFEventReader reader, T object)
+		{
+			set(object, reader.getFieldInt());
+		}
+
+		@Override
+		public void read(UDMFStruct struct, String key, T object)
+		{
+			set(object, struct.getInt(key, defaultValue));
+		}
+
+		@Override
+		public void setDefault(T object)
+		{
+			set(object, defaultValue);
+		}
+	}
+
+	/**
+	 * A field read as a float.
+	 * @param <T> the type of object that this field is set on.
+	 */
+	public abstract static class FloatField<T> extends UDMFField<T>
+	{
+		/** The default value. */
+		private float defaultValue;
+
+		/**
+		 * Creates a new field with a default value of 0.
+		 * @param name the field name.
+		 */
+		protected FloatField(String name)
+		{
+			this(name, 0.0f);
+		}
+
+		/**
+		 * Creates a new field.
+		 * @param name the field name.
+		 * @param defaultValue the value when the field is not in a structure.
+		 */
+		protected FloatField(String name, float defaultValue)
+		{
+			super(name);
+			this.defaultValue = defaultValue;
+		}
+
+		/**
+		 * Sets this field's value on an object.
+		 * @param object the object.
+		 * @param value the value.
+		 */
+		protected abstract void set(T object, float value);
+
+		@Override
+		public void read(UDMFEventReader reader, T object)
+		{
+			set(object, reader.getFieldFloat());
+		}
+
+		@Override
+		public void read(UDMFStruct struct, String key, T object)
+		{
+			set(object, struct.getFloat(key, defaultValue));
+		}
+
+		@Override
+		public void setDefault(T object)
+		{
+			set(object, defaultValue);
+		}
+	}
+
+	/**
+	 * A field read as a boolean, false by default.
+	 * @param <T> the type of object that this field is set on.
+	 */
+	public abstract static class BooleanField<T> extends UDMFField<T>
+	{
+		/**
+		 * Creates a new field.
+		 * @param name the field name.
+		 */
+		protected BooleanField(String name)
+		{
+			super(name);
+		}
+
+		/**
+		 * Sets this field's value on an object.
+		 * @param object the object.
+		 * @param value the value.
+		 */
+		protected abstract void set(T object, boolean value);
+
+		@Override
+		public void read(UDMFEventReader reader, T object)
+		{
+			set(object, reader.getFieldBoolean());
+		}
+
+		@Override
+		public void read(UDMFStruct struct, String key, T object)
+		{
+			set(object, struct.getBoolean(key));
+		}
+
+		@Override
+		public void setDefault(T object)
+		{
+			set(object, false);
+		}
+	}
+
+	/**
+	 * A field read as a String.
+	 * @param <T> the type of object that this field is set on.
+	 */
+	public abstract static class StringField<T> extends UDMFField<T>
+	{
+		/** The default value. */
+		private String defaultValue;
+
+		/**
+		 * Creates a new field with a default value of "".
+		 * @param name the field name.
+		 */
+		protected StringField(String name)
+		{
+			this(name, "");
+		}
+
+		/**
+		 * Creates a new field.
+		 * @param name the field name.
+		 * @param defaultValue the value when the field is not in a structure.
+		 */
+		protected StringField(String name, String defaultValue)
+		{
+			super(name);
+			this.defaultValue = defaultValue;
+		}
+
+		/**
+		 * Sets this field's value on an object.
+		 * @param object the object.
+		 * @param value the value.
+		 */
+		protected abstract void set(T object, String value);
+
+		@Override
+		public void read(UDMFEventReader reader, T object)
+		{
+			set(object, reader.getFieldString());
+		}
+
+		@Override
+		public void read(UDMFStruct struct, String key, T object)
+		{
+			set(object, struct.getString(key, defaultValue));
+		}
+
+		@Override
+		public void setDefault(T object)
+		{
+			set(object, defaultValue);
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.udmf.namespace;
+
+import java.util.Arrays;
+
+import com.blackrook.doom.udmf.UDMFEventReader;
+import com.blackrook.doom.udmf.UDMFStruct;
+
+/**
+ * A table of the UDMF fields that a namespace knows for one type of map object,
+ * and how to set each of them on that object.
+ * <p>
+ * Fields are found by name (ignoring case) with one lookup per field that is present
+ * in the data, and set straight from a {@link UDMFEventReader} or a {@link UDMFStruct}.
+ * Before that, every field in the table is set to the default value that it declares.
+ * <p>
+ * A field can also have aliases: other names that set the same field, but only if the
+ * field itself is not in the same structure.
+ * <p>
+ * Fields should all be added before the table is used. Reading is thread safe after that.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ * @param <T> the type of object that the fields are set on.
+ */
+public class UDMFFieldTable<T>
+{
+	/** Default capacity. */
+	private static final int DEFAULT_CAPACITY = 32;
+
+	/** The fields, in the order that they were added. */
+	private UDMFField<T>[] fields;
+	/** Amount of fields. */
+	private int size;
+	/** Alias names. */
+	private String[] aliasNames;
+	/** The positions of the fields that the aliases set. */
+	private int[] aliasTargets;
+	/** Amount of aliases. */
+	private int aliasCount;
+	/**
+	 * Open-addressed name index: field position + 1, -(alias position + 1) for aliases, or 0 if empty.
+	 */
+	private int[] index;
+
+	/**
+	 * Creates a new, empty field table.
+	 */
+	@SuppressWarnings("unchecked")
+	public UDMFFieldTable()
+	{
+		this.fields = (UDMFField<T>[])new UDMFField<?>[DEFAULT_CAPACITY];
+		this.size = 0;
+		this.aliasNames = new String[4];
+		this.aliasTargets = new int[4];
+		this.aliasCount = 0;
+		this.index = new int[DEFAULT_CAPACITY * 2];
+	}
+
+	/**
+	 * Adds a field to this table.
+	 * If a field with the same name (ignoring case) is already in this table, it is replaced.
+	 * @param field the field to add.
+	 * @return this table.
+	 * @throws IllegalArgumentException if the name is already used by an alias.
+	 */
+	public UDMFFieldTable<T> add(UDMFField<T> field)
+	{
+		int code = find(field.getName());
+		if (code > 0)
+		{
+			fields[code - 1] = field;
+			return this;
+		}
+		else if (code < 0)
+			throw new IllegalArgumentException("\"" + field.getName() + "\" is already an alias.");
+
+		if (size == fields.length)
+			fields = Arrays.copyOf(fields, size * 2);
+		fields[size++] = field;
+		addToIndex(field.getName(), size);
+		return this;
+	}
+
+	/**
+	 * Adds another name for a field in this table.
+	 * The alias sets the field only if the field's own name is not in the same structure,
+	 * so the field's own name takes precedence no matter which comes first.
+	 * @param alias the other name.
+	 * @param name the name of the field.
+	 * @return this table.
+	 * @throws IllegalArgumentException if there is no field called <code>name</code>,
+	 * 		or <code>alias</code> is already used.
+	 */
+	public UDMFFieldTable<T> addAlias(String alias, String name)
+	{
+		int target = find(name);
+		if (target <= 0)
+			throw new IllegalArgumentException("No field called \"" + name + "\".");
+		if (find(alias) != 0)
+			throw new IllegalArgumentException("\"" + alias + "\" is already in the table.");
+
+		if (aliasCount == aliasNames.length)
+		{
+			aliasNames = Arrays.copyOf(aliasNames, aliasCount * 2);
+			aliasTargets = Arrays.copyOf(aliasTargets, aliasCount * 2);
+		}
+		aliasNames[aliasCount] = alias;
+		aliasTargets[aliasCount] = target - 1;
+		aliasCount++;
+		addToIndex(alias, -aliasCount);
+		return this;
+	}
+
+	/**
+	 * Returns the field with a name (ignoring case), or the field that an alias sets,
+	 * or null if there isn't one.
+	 * @param name the field name.
+	 */
+	public UDMFField<T> getField(String name)
+	{
+		int code = find(name);
+		if (code > 0)
+			return fields[code - 1];
+		else if (code < 0)
+			return fields[aliasTargets[-code - 1]];
+		return null;
+	}
+
+	/**
+	 * Returns the field at a position in this table, in the order that they were added.
+	 * @param i the position.
+	 */
+	public UDMFField<T> getField(int i)
+	{
+		if (i < 0 || i >= size)
+			throw new ArrayIndexOutOfBoundsException(i);
+		return fields[i];
+	}
+
+	/**
+	 * Returns the amount of fields in this table, not counting aliases.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Sets the defaults of all of the fields in this table on an object.
+	 * @param object the object to set fields on.
+	 */
+	public void setDefaults(T object)
+	{
+		for (int i = 0; i < size; i++)
+			fields[i].setDefault(object);
+	}
+
+	/**
+	 * Reads the rest of the fields of the structure that a reader is in, and sets them on an
+	 * object, after setting the defaults of all of the fields in this table.
+	 * Fields that are not in this table are skipped.
+	 * @param reader the reader, in the structure to read.
+	 * @param object the object to set fields on.
+	 * @throws com.blackrook.doom.udmf.UDMFParseException if a parsing error occurs.
+	 */
+	public void read(UDMFEventReader reader, T object)
+	{
+		setDefaults(object);
+		boolean[] present = aliasCount > 0 ? new boolean[size] : null;
+		while (reader.nextField())
+		{
+			int code = find(reader.getFieldName());
+			if (code > 0)
+			{
+				fields[code - 1].read(reader, object);
+				if (present != null)
+					present[code - 1] = true;
+			}
+			else if (code < 0)
+			{
+				int target = aliasTargets[-code - 1];
+				if (!present[target])
+					fields[target].read(reader, object);
+			}
+		}
+	}
+
+	/**
+	 * Sets the fields of a structure on an object, after setting the defaults of all of
+	 * the fields in this table. Fields that are not in this table are skipped.
+	 * @param struct the structure to read.
+	 * @param object the object to set fields on.
+	 */
+	public void read(UDMFStruct struct, T object)
+	{
+		setDefaults(object);
+		for (int i = 0; i < struct.size(); i++)
+		{
+			String key = struct.getKey(i);
+			int code = find(key);
+			if (code > 0)
+				fields[code - 1].read(struct, key, object);
+			else if (code < 0)
+			{
+				UDMFField<T> field = fields[aliasTargets[-code - 1]];
+				if (!struct.containsKey(field.getName()))
+					field.read(struct, key, object);
+			}
+		}
+	}
+
+	// Finds the index code of a name (see index), or 0 if it isn't in the table.
+	private int find(String name)
+	{
+		int mask = index.length - 1;
+		int slot = hash(name) & mask;
+		int code;
+		while ((code = index[slot]) != 0)
+		{
+			String k = code > 0 ? fields[code - 1].getName() : aliasNames[-code - 1];
+			if (k == name || k.equalsIgnoreCase(name))
+				return code;
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+
+	/*
+	 * Adds the index code of a field or alias that was just added (and is already counted)
+	 * to the index. If the index is more than half full, it is rebuilt at twice the size instead.
+	 */
+	private void addToIndex(String name, int code)
+	{
+		if ((size + aliasCount) * 2 <= index.length)
+		{
+			putInIndex(name, code);
+			return;
+		}
+		index = new int[index.length * 2];
+		for (int i = 0; i < size; i++)
+			putInIndex(fields[i].getName(), i + 1);
+		for (int i = 0; i < aliasCount; i++)
+			putInIndex(aliasNames[i], -(i + 1));
+	}
+
+	// Puts a name's index code in the first free slot.
+	private void putInIndex(String name, int code)
+	{
+		int mask = index.length - 1;
+		int slot = hash(name) & mask;
+		while (index[slot] != 0)
+			slot = (slot + 1) & mask;
+		index[slot] = code;
+	}
+
+	// Case-insensitive hash, the same as the one UDMFStruct uses.
+	private static int hash(String key)
+	{
+		int h = 0;
+		for (int i = 0; i < key.length(); i++)
+			h = 31 * h + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -12,6 +12,8 @@ import com.blackrook.doom.struct.Sector;
 import com.blackrook.doom.struct.Sidedef;
 import com.blackrook.doom.struct.Thing;
 import com.blackrook.doom.struct.Vertex;
+import com.blackrook.doom.udmf.UDMFEventReader;
+import com.blackrook.doom.udmf.UDMFParseException;
 import com.blackrook.doom.udmf.UDMFStruct;
 
 /**
@@ -33,6 +35,19 @@ public abstract class UDMFNamespace
 	 * @param linedef	the linedef to apply attributes to.
 	 */
 	public abstract void getLinedefAttribs(UDMFStruct struct, Linedef linedef);
+
+	/**
+	 * Applies attributes to a linedef from the rest of the structure that a reader is in.
+	 * By default, this reads the fields into a UDMFStruct and calls {@link #getLinedefAttribs(UDMFStruct, Linedef)}.
+	 * @param reader	the reader, in a linedef structure.
+	 * @param linedef	the linedef to apply attributes to.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 * @since 2.11.0
+	 */
+	public void readLinedefAttribs(UDMFEventReader reader, Linedef linedef)
+	{
+		getLinedefAttribs(reader.readStruct(new UDMFStruct(false)), linedef);
+	}
 	
 	/**
 	 * Applies attributes from a UDMF structure to a sidedef.
@@ -42,6 +57,19 @@ public abstract class UDMFNamespace
 	 */
 	public abstract void getSidedefAttribs(UDMFStruct struct, Sidedef sidedef);
 
+	/**
+	 * Applies attributes to a sidedef from the rest of the structure that a reader is in.
+	 * By default, this reads the fields into a UDMFStruct and calls {@link #getSidedefAttribs(UDMFStruct, Sidedef)}.
+	 * @param reader	the reader, in a sidedef structure.
+	 * @param sidedef	the sidedef to apply attributes to.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 * @since 2.11.0
+	 */
+	public void readSidedefAttribs(UDMFEventReader reader, Sidedef sidedef)
+	{
+		getSidedefAttribs(reader.readStruct(new UDMFStruct(false)), sidedef);
+	}
+
 	/**
 	 * Applies attributes from a UDMF structure to a sector.
 	 * The structure used presumably holds sector attributes. 
@@ -50,6 +78,19 @@ public abstract class UDMFNamespace
 	 */
 	public abstract void getSectorAttribs(UDMFStruct struct, Sector sector);
 
+	/**
+	 * Applies attributes to a sector from the rest of the structure that a reader is in.
+	 * By default, this reads the fields into a UDMFStruct and calls {@link #getSectorAttribs(UDMFStruct, Sector)}.
+	 * @param reader	the reader, in a sector structure.
+	 * @param sector	the sector to apply attributes to.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 * @since 2.11.0
+	 */
+	public void readSectorAttribs(UDMFEventReader reader, Sector sector)
+	{
+		getSectorAttribs(reader.readStruct(new UDMFStruct(false)), sector);
+	}
+
 	/**
 	 * Applies attributes from a UDMF structure to a vertex.
 	 * The structure used presumably holds vertex attributes. 
@@ -58,6 +99,19 @@ public abstract class UDMFNamespace
 	 */
 	public abstract void getVertexAttribs(UDMFStruct struct, Vertex vertex);
 
+	/**
+	 * Applies attributes to a vertex from the rest of the structure that a reader is in.
+	 * By default, this reads the fields into a UDMFStruct and calls {@link #getVertexAttribs(UDMFStruct, Vertex)}.
+	 * @param reader	the reader, in a vertex structure.
+	 * @param vertex	the vertex to apply attributes to.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 * @since 2.11.0
+	 */
+	public void readVertexAttribs(UDMFEventReader reader, Vertex vertex)
+	{
+		getVertexAttribs(reader.readStruct(new UDMFStruct(false)), vertex);
+	}
+
 	/**
 	 * Applies attributes from a UDMF structure to a thing.
 	 * The structure used presumably holds thing attributes. 
@@ -66,6 +120,19 @@ public abstract class UDMFNamespace
 	 */
 	public abstract void getThingAttribs(UDMFStruct struct, Thing thing);
 
+	/**
+	 * Applies attributes to a thing from the rest of the structure that a reader is in.
+	 * By default, this reads the fields into a UDMFStruct and calls {@link #getThingAttribs(UDMFStruct, Thing)}.
+	 * @param reader	the reader, in a thing structure.
+	 * @param thing	the thing to apply attributes to.
+	 * @throws UDMFParseException if a parsing error occurs.
+	 * @since 2.11.0
+	 */
+	public void readThingAttribs(UDMFEventReader reader, Thing thing)
+	{
+		getThingAttribs(reader.readStruct(new UDMFStruct(false)), thing);
+	}
+
 	/**
 	 * Applies attributes from a linedef to a UDMF structure.
 	 * @param linedef	the linedef to use.
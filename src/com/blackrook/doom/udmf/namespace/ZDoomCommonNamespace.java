@@ -13,6 +13,10 @@ import com.blackrook.doom.struct.Sector;
 import com.blackrook.doom.struct.Sidedef;
 import com.blackrook.doom.struct.Thing;
 import com.blackrook.doom.udmf.UDMFStruct;
+import com.blackrook.doom.udmf.namespace.UDMFField.BooleanField;
+import com.blackrook.doom.udmf.namespace.UDMFField.FloatField;
+import com.blackrook.doom.udmf.namespace.UDMFField.IntField;
+import com.blackrook.doom.udmf.namespace.UDMFField.StringField;
 
 /**
  * Common namespace for all ZDoom-compatible structures - should be "super-called" by
@@ -24,136 +28,885 @@ public abstract class ZDoomCommonNamespace extends CommonNamespace
 {
 
 	@Override
-	public void getLinedefAttribs(UDMFStruct struct, Linedef linedef)
+	protected void addLinedefFields(UDMFFieldTable<Linedef> table)
 	{
-		super.getLinedefAttribs(struct, linedef);
-		
-		linedef.setBoomPassThru(struct.getBoolean("passuse"));
-
-		linedef.setTranslucent(struct.getBoolean("translucent"));
-		linedef.setRailing(struct.getBoolean("jumpover"));
-		linedef.setBlockFloaters(struct.getBoolean("blockfloaters"));
-
-		linedef.setActivatesByPlayerCross(struct.getBoolean("playercross"));
-		linedef.setActivatesByPlayerUse(struct.getBoolean("playeruse"));
-		linedef.setActivatesByMonsterCross(struct.getBoolean("monstercross"));
-		linedef.setActivatesByMonsterUse(struct.getBoolean("monsteruse"));
-		linedef.setActivatesByMissileImpact(struct.getBoolean("impact"));
-		linedef.setActivatesByPlayerPush(struct.getBoolean("playerpush"));
-		linedef.setActivatesByMonsterPush(struct.getBoolean("monsterpush"));
-		linedef.setActivatesByMissileCross(struct.getBoolean("missilecross"));
-		linedef.setRepeatable(struct.getBoolean("repeatspecial"));
-		
-		linedef.setArgument0(struct.getInt("argument0"));
-		linedef.setArgument1(struct.getInt("argument1"));
-		linedef.setArgument2(struct.getInt("argument2"));
-		linedef.setArgument3(struct.getInt("argument3"));
-		linedef.setArgument4(struct.getInt("argument4"));
-		
-		linedef.setAlpha(struct.getFloat("alpha", 1.0f));
-		linedef.setRenderStyle(struct.getString("renderstyle",Linedef.RENDERSTYLE_TRANSLUCENT));
-		linedef.setActivateByAnyCross(struct.getBoolean("anycross"));
-		linedef.setActivatableByMonster(struct.getBoolean("monsteractivate"));
-		linedef.setBlocksPlayers(struct.getBoolean("blockplayers"));
-		linedef.setBlocksAll(struct.getBoolean("blockeverything"));
-		linedef.setFirstSideOnly(struct.getBoolean("firstsideonly"));
-		linedef.setZoneBoundary(struct.getBoolean("zoneboundary"));
-		linedef.setClipMiddleTexture(struct.getBoolean("clipmidtex"));
-		linedef.setWrapMiddleTexture(struct.getBoolean("wrapmidtex"));
-		linedef.setMiddleTextureIs3D(struct.getBoolean("midtex3d"));
-		linedef.setCheckSwitchRange(struct.getBoolean("checkswitchrange"));
-		linedef.setBlocksPlayers(struct.getBoolean("blocksplayers"));
-		linedef.setBlocksUse(struct.getBoolean("blockuse"));
+		super.addLinedefFields(table);
+
+		table.add(new BooleanField<Linedef>("passuse")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBoomPassThru(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("translucent")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setTranslucent(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("jumpover")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setRailing(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("blockfloaters")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBlockFloaters(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("playercross")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByPlayerCross(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("playeruse")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByPlayerUse(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("monstercross")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMonsterCross(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("monsteruse")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMonsterUse(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("impact")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMissileImpact(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("playerpush")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByPlayerPush(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("monsterpush")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMonsterPush(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("missilecross")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatesByMissileCross(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("repeatspecial")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setRepeatable(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument0")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument0(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument1")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument1(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument2")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument2(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument3")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument3(value);
+			}
+		});
+
+		table.add(new IntField<Linedef>("argument4")
+		{
+			@Override
+			protected void set(Linedef linedef, int value)
+			{
+				linedef.setArgument4(value);
+			}
+		});
+
+		table.add(new FloatField<Linedef>("alpha", 1.0f)
+		{
+			@Override
+			protected void set(Linedef linedef, float value)
+			{
+				linedef.setAlpha(value);
+			}
+		});
+
+		table.add(new StringField<Linedef>("renderstyle", Linedef.RENDERSTYLE_TRANSLUCENT)
+		{
+			@Override
+			protected void set(Linedef linedef, String value)
+			{
+				linedef.setRenderStyle(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("anycross")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivateByAnyCross(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("monsteractivate")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setActivatableByMonster(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("blockplayers")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBlocksPlayers(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("blockeverything")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBlocksAll(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("firstsideonly")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setFirstSideOnly(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("zoneboundary")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setZoneBoundary(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("clipmidtex")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setClipMiddleTexture(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("wrapmidtex")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setWrapMiddleTexture(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("midtex3d")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setMiddleTextureIs3D(value);
+			}
+		});
+
+		table.add(new BooleanField<Linedef>("checkswitchrange")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setCheckSwitchRange(value);
+			}
+		});
+
+		// "blocksplayers" sets the same flag, but only if "blockplayers" is not in the structure.
+		table.addAlias("blocksplayers", "blockplayers");
+
+		table.add(new BooleanField<Linedef>("blockuse")
+		{
+			@Override
+			protected void set(Linedef linedef, boolean value)
+			{
+				linedef.setBlocksUse(value);
+			}
+		});
 	}
 
 	@Override
-	public void getSectorAttribs(UDMFStruct struct, Sector sector)
+	protected void addSectorFields(UDMFFieldTable<Sector> table)
 	{
-		super.getSectorAttribs(struct, sector);
-		
-		sector.setFloorOffsetX(struct.getFloat("xpanningfloor"));
-		sector.setFloorOffsetY(struct.getFloat("ypanningfloor"));
-		sector.setCeilingOffsetX(struct.getFloat("xpanningceiling"));
-		sector.setCeilingOffsetY(struct.getFloat("ypanningceiling"));
-		sector.setFloorScaleX(struct.getFloat("xscalefloor", 1.0f));
-		sector.setFloorScaleY(struct.getFloat("yscalefloor", 1.0f));
-		sector.setCeilingScaleX(struct.getFloat("xscaleceiling", 1.0f));
-		sector.setCeilingScaleY(struct.getFloat("yscaleceiling", 1.0f));
-		sector.setFloorRotation(struct.getFloat("rotationfloor"));
-		sector.setCeilingRotation(struct.getFloat("rotationceiling"));
-		sector.setFloorLighting(struct.getInt("lightfloor"));
-		sector.setCeilingLighting(struct.getInt("lightceiling"));
-		sector.setFloorLightingAbsolute(struct.getBoolean("lightfloorabsolute"));
-		sector.setCeilingLightingAbsolute(struct.getBoolean("lightceilingabsolute"));
-		sector.setGravity(struct.getFloat("gravity", 1.0f));
-		sector.setLightColor(Common.argbToColor(struct.getInt("lightcolor",0xffffffff)));
-		sector.setFadeColor(Common.argbToColor(struct.getInt("fadecolor",0xff000000)));
-		sector.setDesaturation(struct.getFloat("desaturation"));
-		sector.setSilent(struct.getBoolean("silent"));
-		sector.setNoFallingDamage(struct.getBoolean("nofallingdamage"));
-		sector.setDropsActors(struct.getBoolean("dropactors"));
-		sector.setNoRespawn(struct.getBoolean("norespawn"));
+		super.addSectorFields(table);
+
+		table.add(new FloatField<Sector>("xpanningfloor")
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setFloorOffsetX(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("ypanningfloor")
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setFloorOffsetY(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("xpanningceiling")
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setCeilingOffsetX(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("ypanningceiling")
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setCeilingOffsetY(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("xscalefloor", 1.0f)
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setFloorScaleX(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("yscalefloor", 1.0f)
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setFloorScaleY(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("xscaleceiling", 1.0f)
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setCeilingScaleX(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("yscaleceiling", 1.0f)
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setCeilingScaleY(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("rotationfloor")
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setFloorRotation(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("rotationceiling")
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setCeilingRotation(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("lightfloor")
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setFloorLighting(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("lightceiling")
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setCeilingLighting(value);
+			}
+		});
+
+		table.add(new BooleanField<Sector>("lightfloorabsolute")
+		{
+			@Override
+			protected void set(Sector sector, boolean value)
+			{
+				sector.setFloorLightingAbsolute(value);
+			}
+		});
+
+		table.add(new BooleanField<Sector>("lightceilingabsolute")
+		{
+			@Override
+			protected void set(Sector sector, boolean value)
+			{
+				sector.setCeilingLightingAbsolute(value);
+			}
+		});
+
+		table.add(new FloatField<Sector>("gravity", 1.0f)
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setGravity(value);
+			}
+		});
+
+		table.add(new IntField<Sector>("lightcolor", 0xffffffff)
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setLightColor(Common.argbToColor(value));
+			}
+		});
+
+		table.add(new IntField<Sector>("fadecolor", 0xff000000)
+		{
+			@Override
+			protected void set(Sector sector, int value)
+			{
+				sector.setFadeColor(Common.argbToColor(value));
+			}
+		});
+
+		table.add(new FloatField<Sector>("desaturation")
+		{
+			@Override
+			protected void set(Sector sector, float value)
+			{
+				sector.setDesaturation(value);
+			}
+		});
+
+		table.add(new BooleanField<Sector>("silent")
+		{
+			@Override
+			protected void set(Sector sector, boolean value)
+			{
+				sector.setSilent(value);
+			}
+		});
+
+		table.add(new BooleanField<Sector>("nofallingdamage")
+		{
+			@Override
+			protected void set(Sector sector, boolean value)
+			{
+				sector.setNoFallingDamage(value);
+			}
+		});
+
+		table.add(new BooleanField<Sector>("dropactors")
+		{
+			@Override
+			protected void set(Sector sector, boolean value)
+			{
+				sector.setDropsActors(value);
+			}
+		});
+
+		table.add(new BooleanField<Sector>("norespawn")
+		{
+			@Override
+			protected void set(Sector sector, boolean value)
+			{
+				sector.setNoRespawn(value);
+			}
+		});
 	}
 
 	@Override
-	public void getSidedefAttribs(UDMFStruct struct, Sidedef sidedef)
+	protected void addSidedefFields(UDMFFieldTable<Sidedef> table)
 	{
-		super.getSidedefAttribs(struct, sidedef);
-		
-		sidedef.setUpperTextureScaleX(struct.getFloat("scalex_top", 1.0f));
-		sidedef.setUpperTextureScaleY(struct.getFloat("scaley_top", 1.0f));
-		sidedef.setMiddleTextureScaleX(struct.getFloat("scalex_mid", 1.0f));
-		sidedef.setMiddleTextureScaleY(struct.getFloat("scaley_mid", 1.0f));
-		sidedef.setLowerTextureScaleX(struct.getFloat("scalex_bottom", 1.0f));
-		sidedef.setLowerTextureScaleY(struct.getFloat("scaley_bottom", 1.0f));
-		sidedef.setUpperTextureOffsetX(struct.getFloat("offsetx_top"));
-		sidedef.setUpperTextureOffsetY(struct.getFloat("offsety_top"));
-		sidedef.setMiddleTextureOffsetX(struct.getFloat("offsetx_mid"));
-		sidedef.setMiddleTextureOffsetY(struct.getFloat("offsety_mid"));
-		sidedef.setLowerTextureOffsetX(struct.getFloat("offsetx_bottom"));
-		sidedef.setLowerTextureOffsetY(struct.getFloat("offsety_bottom"));
-		sidedef.setLight(struct.getInt("light"));
-		sidedef.setLightAbsolute(struct.getBoolean("lightabsolute"));
-		sidedef.setNotUseFakeContrast(struct.getBoolean("nofakecontrast"));
-		sidedef.setSmoothlyLit(struct.getBoolean("smoothlighting"));
-		sidedef.setClipMiddleTexture(struct.getBoolean("clipmidtex"));
-		sidedef.setWrapMiddleTexture(struct.getBoolean("wrapmidtex"));
-		sidedef.setNoDecals(struct.getBoolean("nodecals"));
+		super.addSidedefFields(table);
+
+		table.add(new FloatField<Sidedef>("scalex_top", 1.0f)
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setUpperTextureScaleX(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("scaley_top", 1.0f)
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setUpperTextureScaleY(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("scalex_mid", 1.0f)
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setMiddleTextureScaleX(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("scaley_mid", 1.0f)
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setMiddleTextureScaleY(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("scalex_bottom", 1.0f)
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setLowerTextureScaleX(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("scaley_bottom", 1.0f)
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setLowerTextureScaleY(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("offsetx_top")
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setUpperTextureOffsetX(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("offsety_top")
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setUpperTextureOffsetY(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("offsetx_mid")
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setMiddleTextureOffsetX(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("offsety_mid")
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setMiddleTextureOffsetY(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("offsetx_bottom")
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setLowerTextureOffsetX(value);
+			}
+		});
+
+		table.add(new FloatField<Sidedef>("offsety_bottom")
+		{
+			@Override
+			protected void set(Sidedef sidedef, float value)
+			{
+				sidedef.setLowerTextureOffsetY(value);
+			}
+		});
+
+		table.add(new IntField<Sidedef>("light")
+		{
+			@Override
+			protected void set(Sidedef sidedef, int value)
+			{
+				sidedef.setLight(value);
+			}
+		});
+
+		table.add(new BooleanField<Sidedef>("lightabsolute")
+		{
+			@Override
+			protected void set(Sidedef sidedef, boolean value)
+			{
+				sidedef.setLightAbsolute(value);
+			}
+		});
+
+		table.add(new BooleanField<Sidedef>("nofakecontrast")
+		{
+			@Override
+			protected void set(Sidedef sidedef, boolean value)
+			{
+				sidedef.setNotUseFakeContrast(value);
+			}
+		});
+
+		table.add(new BooleanField<Sidedef>("smoothlighting")
+		{
+			@Override
+			protected void set(Sidedef sidedef, boolean value)
+			{
+				sidedef.setSmoothlyLit(value);
+			}
+		});
+
+		table.add(new BooleanField<Sidedef>("clipmidtex")
+		{
+			@Override
+			protected void set(Sidedef sidedef, boolean value)
+			{
+				sidedef.setClipMiddleTexture(value);
+			}
+		});
+
+		table.add(new BooleanField<Sidedef>("wrapmidtex")
+		{
+			@Override
+			protected void set(Sidedef sidedef, boolean value)
+			{
+				sidedef.setWrapMiddleTexture(value);
+			}
+		});
+
+		table.add(new BooleanField<Sidedef>("nodecals")
+		{
+			@Override
+			protected void set(Sidedef sidedef, boolean value)
+			{
+				sidedef.setNoDecals(value);
+			}
+		});
 	}
 
 	@Override
-	public void getThingAttribs(UDMFStruct struct, Thing thing)
+	protected void addThingFields(UDMFFieldTable<Thing> table)
 	{
-		super.getThingAttribs(struct, thing);
-		
-		thing.setFriendly(struct.getBoolean("friendly"));
-
-		thing.setTranslucent(struct.getBoolean("translucent"));
-		thing.setStandsStill(struct.getBoolean("standing"));
-		thing.setStrifeAlly(struct.getBoolean("strifeally"));
-		thing.setInvisible(struct.getBoolean("invisible"));
-
-		thing.setSpecial(struct.getInt("special"));
-		thing.setArgument0(struct.getInt("argument0"));
-		thing.setArgument1(struct.getInt("argument1"));
-		thing.setArgument2(struct.getInt("argument2"));
-		thing.setArgument3(struct.getInt("argument3"));
-		thing.setArgument4(struct.getInt("argument4"));
-		
-		thing.setDormant(struct.getBoolean("dormant"));
-		thing.setClass1(struct.getBoolean("class1"));
-		thing.setClass2(struct.getBoolean("class2"));
-		thing.setClass3(struct.getBoolean("class3"));
-
-		thing.setSkill6(struct.getBoolean("skill6"));
-		thing.setSkill7(struct.getBoolean("skill7"));
-		thing.setSkill8(struct.getBoolean("skill8"));
-
-		thing.setClass4(struct.getBoolean("class4"));
-		thing.setClass5(struct.getBoolean("class5"));
-		thing.setClass6(struct.getBoolean("class6"));
-		thing.setClass7(struct.getBoolean("class7"));
-		thing.setClass8(struct.getBoolean("class8"));
+		super.addThingFields(table);
+
+		table.add(new BooleanField<Thing>("friendly")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setFriendly(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("translucent")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setTranslucent(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("standing")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setStandsStill(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("strifeally")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setStrifeAlly(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("invisible")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setInvisible(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("special")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setSpecial(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument0")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument0(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument1")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument1(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument2")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument2(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument3")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument3(value);
+			}
+		});
+
+		table.add(new IntField<Thing>("argument4")
+		{
+			@Override
+			protected void set(Thing thing, int value)
+			{
+				thing.setArgument4(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("dormant")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setDormant(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class1")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass1(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class2")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass2(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class3")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass3(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill6")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill6(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill7")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill7(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("skill8")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setSkill8(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class4")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass4(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class5")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass5(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class6")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass6(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class7")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass7(value);
+			}
+		});
+
+		table.add(new BooleanField<Thing>("class8")
+		{
+			@Override
+			protected void set(Thing thing, boolean value)
+			{
+				thing.setClass8(value);
+			}
+		});
 	}
 
 	@Override
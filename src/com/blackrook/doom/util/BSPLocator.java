@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.MapException;
+import com.blackrook.doom.struct.BSPNode;
+import com.blackrook.doom.struct.BSPSegment;
+import com.blackrook.doom.struct.BSPSubsector;
+import com.blackrook.doom.struct.Linedef;
+import com.blackrook.doom.struct.Sidedef;
+
+/**
+ * Finds the subsectors and sectors that contain points, by walking a map's BSP tree.
+ * <p>
+ * The node partitions and children are copied into arrays when the locator is created,
+ * along with the sector of each subsector (from the side of the linedef of its first segment,
+ * as the engine does it). A lookup takes one partition test per tree level and does not allocate.
+ * Points are classified against partitions the way the engine does, so points on a partition
+ * line go where the engine would put them.
+ * <p>
+ * The locator does not change after it is created, so it can be shared between threads.
+ * It does not follow later changes to the map.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ */
+public class BSPLocator
+{
+	/** The amount of points that a single task looks up. */
+	private static final int POINT_TASK_SIZE = 4096;
+
+	/** Node partitions: four per node (x, y, delta x, delta y). */
+	private int[] partitions;
+	/** Node right (front) children: node index, or the bitwise complement of a subsector index. */
+	private int[] rightChild;
+	/** Node left (back) children: node index, or the bitwise complement of a subsector index. */
+	private int[] leftChild;
+	/** The sector of each subsector, or -1 if it could not be found. */
+	private int[] subsectorSector;
+
+	/**
+	 * Creates a new locator from a map's BSP nodes, subsectors and segments.
+	 * @param map the map to use.
+	 * @throws MapException if the map has no nodes or subsectors loaded,
+	 * 		a node references a node or subsector that does not exist,
+	 * 		or the nodes reachable from the root node form a loop.
+	 */
+	public BSPLocator(DoomMap map) throws MapException
+	{
+		List<BSPNode> nodeList = map.getBSPNodeList();
+		List<BSPSubsector> subsectorList = map.getBSPSubsectorList();
+		List<BSPSegment> segmentList = map.getBSPSegmentList();
+		if (nodeList == null || subsectorList == null || segmentList == null)
+			throw new MapException("Map has no BSP nodes, subsectors or segments.");
+		if (subsectorList.size() == 0)
+			throw new MapException("Map has no subsectors.");
+
+		int nodeCount = nodeList.size();
+		int subsectorCount = subsectorList.size();
+		partitions = new int[nodeCount * 4];
+		rightChild = new int[nodeCount];
+		leftChild = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+		{
+			BSPNode node = nodeList.getByIndex(i);
+			partitions[i * 4] = node.getPartitionLineX();
+			partitions[i * 4 + 1] = node.getPartitionLineY();
+			partitions[i * 4 + 2] = node.getPartitionDeltaX();
+			partitions[i * 4 + 3] = node.getPartitionDeltaY();
+			rightChild[i] = getChild(i, node.rightIsLeaf(), node.getRightIndex(), nodeCount, subsectorCount);
+			leftChild[i] = getChild(i, node.leftIsLeaf(), node.getLeftIndex(), nodeCount, subsectorCount);
+		}
+		checkForLoops();
+
+		List<Linedef> linedefList = map.getLinedefList();
+		List<Sidedef> sidedefList = map.getSidedefList();
+		subsectorSector = new int[subsectorCount];
+		for (int i = 0; i < subsectorCount; i++)
+		{
+			subsectorSector[i] = -1;
+			BSPSubsector subsector = subsectorList.getByIndex(i);
+			int seg = subsector.getSegStartIndex();
+			if (subsector.getSegCount() <= 0 || seg < 0 || seg >= segmentList.size())
+				continue;
+			BSPSegment segment = segmentList.getByIndex(seg);
+			int line = segment.getLinedefIndex();
+			if (line < 0 || line >= linedefList.size())
+				continue;
+			Linedef linedef = linedefList.getByIndex(line);
+			int side = segment.getDirection() == BSPSegment.DIRECTION_SAME_AS_LINEDEF ? linedef.getFrontSidedef() : linedef.getBackSidedef();
+			if (side < 0 || side >= sidedefList.size())
+				continue;
+			subsectorSector[i] = sidedefList.getByIndex(side).getSectorRef();
+		}
+	}
+
+	// Returns the encoded child of a node, or throws an exception if it doesn't exist.
+	private static int getChild(int node, boolean leaf, int index, int nodeCount, int subsectorCount) throws MapException
+	{
+		if (leaf)
+		{
+			if (index < 0 || index >= subsectorCount)
+				throw new MapException("Node " + node + " references a subsector that does not exist.");
+			return ~index;
+		}
+		if (index < 0 || index >= nodeCount)
+			throw new MapException("Node " + node + " references a node that does not exist.");
+		return index;
+	}
+
+	/*
+	 * Throws an exception if a node reachable from the root node leads back to itself,
+	 * so that lookups always reach a subsector. Nodes are walked depth-first without recursion,
+	 * and each node is only walked once.
+	 */
+	private void checkForLoops() throws MapException
+	{
+		int nodeCount = rightChild.length;
+		if (nodeCount == 0)
+			return;
+
+		// 0: not reached, 1: on the current path, 2: done.
+		byte[] state = new byte[nodeCount];
+		// the current path, and the next child to walk (0: right, 1: left, 2: none) of each node on it.
+		int[] path = new int[nodeCount];
+		int[] nextChild = new int[nodeCount];
+
+		int depth = 0;
+		path[0] = nodeCount - 1;
+		state[nodeCount - 1] = 1;
+		while (depth >= 0)
+		{
+			int node = path[depth];
+			if (nextChild[depth] == 2)
+			{
+				state[node] = 2;
+				depth--;
+				continue;
+			}
+			int child = nextChild[depth] == 0 ? rightChild[node] : leftChild[node];
+			nextChild[depth]++;
+			if (child < 0 || state[child] == 2)
+				continue;
+			if (state[child] == 1)
+				throw new MapException("Node " + node + " references node " + child + ", which leads back to it.");
+			state[child] = 1;
+			depth++;
+			path[depth] = child;
+			nextChild[depth] = 0;
+		}
+	}
+
+	/**
+	 * Returns the amount of subsectors.
+	 */
+	public int getSubsectorCount()
+	{
+		return subsectorSector.length;
+	}
+
+	/**
+	 * Returns the sector of a subsector.
+	 * @param subsector the subsector index.
+	 * @return the sector index, or -1 if the subsector's sector could not be found.
+	 * @throws ArrayIndexOutOfBoundsException if the subsector index is out of range.
+	 */
+	public int getSubsectorSector(int subsector)
+	{
+		return subsectorSector[subsector];
+	}
+
+	/**
+	 * Returns the subsector that contains a point.
+	 * @param x the point's X-coordinate.
+	 * @param y the point's Y-coordinate.
+	 * @return the subsector index.
+	 */
+	public int getSubsectorAt(float x, float y)
+	{
+		// maps with one subsector have no nodes.
+		if (rightChild.length == 0)
+			return 0;
+
+		int node = rightChild.length - 1;
+		while (node >= 0)
+		{
+			int p = node * 4;
+			node = isOnBackSide(x, y, partitions[p], partitions[p + 1], partitions[p + 2], partitions[p + 3]) ? leftChild[node] : rightChild[node];
+		}
+		return ~node;
+	}
+
+	/**
+	 * Returns the sector that contains a point.
+	 * @param x the point's X-coordinate.
+	 * @param y the point's Y-coordinate.
+	 * @return the sector index, or -1 if the sector of the point's subsector could not be found.
+	 */
+	public int getSectorAt(float x, float y)
+	{
+		return subsectorSector[getSubsectorAt(x, y)];
+	}
+
+	/**
+	 * Finds the subsectors that contain a set of points.
+	 * @param x the points' X-coordinates.
+	 * @param y the points' Y-coordinates.
+	 * @param out the array to put the subsector indices into, one per point.
+	 * @throws ArrayIndexOutOfBoundsException if the arrays are not all the same length.
+	 */
+	public void getSubsectorsAt(float[] x, float[] y, int[] out)
+	{
+		checkLengths(x, y, out);
+		lookup(x, y, out, 0, out.length, false);
+	}
+
+	/**
+	 * Finds the subsectors that contain a set of points, in parallel.
+	 * @param x the points' X-coordinates.
+	 * @param y the points' Y-coordinates.
+	 * @param out the array to put the subsector indices into, one per point.
+	 * @param pool the pool to run the lookups on.
+	 * @throws ArrayIndexOutOfBoundsException if the arrays are not all the same length.
+	 */
+	public void getSubsectorsAt(float[] x, float[] y, int[] out, ForkJoinPool pool)
+	{
+		checkLengths(x, y, out);
+		pool.invoke(new LookupTask(x, y, out, 0, out.length, false));
+	}
+
+	/**
+	 * Finds the sectors that contain a set of points.
+	 * @param x the points' X-coordinates.
+	 * @param y the points' Y-coordinates.
+	 * @param out the array to put the sector indices into, one per point (-1 if not found).
+	 * @throws ArrayIndexOutOfBoundsException if the arrays are not all the same length.
+	 */
+	public void getSectorsAt(float[] x, float[] y, int[] out)
+	{
+		checkLengths(x, y, out);
+		lookup(x, y, out, 0, out.length, true);
+	}
+
+	/**
+	 * Finds the sectors that contain a set of points, in parallel.
+	 * @param x the points' X-coordinates.
+	 * @param y the points' Y-coordinates.
+	 * @param out the array to put the sector indices into, one per point (-1 if not found).
+	 * @param pool the pool to run the lookups on.
+	 * @throws ArrayIndexOutOfBoundsException if the arrays are not all the same length.
+	 */
+	public void getSectorsAt(float[] x, float[] y, int[] out, ForkJoinPool pool)
+	{
+		checkLengths(x, y, out);
+		pool.invoke(new LookupTask(x, y, out, 0, out.length, true));
+	}
+
+	// Throws an exception if the coordinate and output arrays are not the same length.
+	private static void checkLengths(float[] x, float[] y, int[] out)
+	{
+		if (x.length != out.length || y.length != out.length)
+			throw new ArrayIndexOutOfBoundsException("Coordinate and output arrays must be the same length.");
+	}
+
+	// Looks up a range of points.
+	private void lookup(float[] x, float[] y, int[] out, int start, int end, boolean sectors)
+	{
+		for (int i = start; i < end; i++)
+			out[i] = sectors ? getSectorAt(x[i], y[i]) : getSubsectorAt(x[i], y[i]);
+	}
+
+	/**
+	 * Returns true if a point is on the back (left) side of a partition line.
+	 * Same as the engine's R_PointOnSide(), including its handling of axis-aligned partitions.
+	 */
+	private static boolean isOnBackSide(float x, float y, int px, int py, int pdx, int pdy)
+	{
+		if (pdx == 0)
+			return x <= px ? pdy > 0 : pdy < 0;
+		if (pdy == 0)
+			return y <= py ? pdx < 0 : pdx > 0;
+
+		double left = pdy * ((double)x - px);
+		double right = ((double)y - py) * pdx;
+		return right >= left;
+	}
+
+	/** Looks up a range of points. */
+	private class LookupTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 2086423384739626425L;
+
+		private float[] x;
+		private float[] y;
+		private int[] out;
+		private int start;
+		private int end;
+		private boolean sectors;
+
+		LookupTask(float[] x, float[] y, int[] out, int start, int end, boolean sectors)
+		{
+			this.x = x;
+			this.y = y;
+			this.out = out;
+			this.start = start;
+			this.end = end;
+			this.sectors = sectors;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (end - start > POINT_TASK_SIZE)
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll(new LookupTask(x, y, out, start, mid, sectors), new LookupTask(x, y, out, mid, end, sectors));
+			}
+			else
+				lookup(x, y, out, start, end, sectors);
+		}
+	}
+
+}
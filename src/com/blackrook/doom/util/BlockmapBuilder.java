@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.MapException;
+import com.blackrook.doom.struct.Blockmap;
+import com.blackrook.doom.struct.Linedef;
+import com.blackrook.doom.struct.Vertex;
+
+/**
+ * Builds blockmaps from map geometry.
+ * <p>
+ * The grid starts 8 map units below and to the left of the lowest vertex coordinates, and covers
+ * every vertex. Each linedef is added to every 128x128 block that it passes through, and every
+ * block's list is in linedef order. Blocks with identical lists share one list (including the
+ * empty ones), which is what "compressed" blockmaps do.
+ * <p>
+ * The linedefs are rasterized in parallel on a {@link ForkJoinPool}, in ranges of linedefs.
+ * <p>
+ * Large maps can produce lists that start past the 16-bit offset limit of the BLOCKMAP lump, even
+ * with compressed lists. Check {@link Blockmap#getMaxListOffset()} against 65535 (or call
+ * {@link Blockmap#isDoomCompatible()}) before exporting the result.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ */
+public final class BlockmapBuilder
+{
+	/** Block size in map units. */
+	public static final int BLOCK_SIZE = 128;
+	/** Distance in map units between the lowest vertex coordinates and the grid origin. */
+	public static final int BLOCK_MARGIN = 8;
+	/** The amount of linedefs that a single task rasterizes. */
+	private static final int LINE_TASK_SIZE = 1024;
+
+	private BlockmapBuilder() {}
+
+	/**
+	 * Builds a blockmap for a map, using a new {@link ForkJoinPool}.
+	 * @param map the map to use.
+	 * @return a new Blockmap.
+	 * @throws MapException if a linedef references a vertex that does not exist.
+	 * @see #build(DoomMap, ForkJoinPool)
+	 */
+	public static Blockmap build(DoomMap map) throws MapException
+	{
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return build(map, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Builds a blockmap for a map.
+	 * <p>
+	 * The map's linedefs and vertices are read on the calling thread. The linedefs are then
+	 * rasterized on the pool, and the lists are gathered and compressed on the calling thread.
+	 * @param map the map to use.
+	 * @param pool the pool to rasterize the linedefs on.
+	 * @return a new Blockmap. If the map has no vertices, the blockmap is empty.
+	 * @throws MapException if a linedef references a vertex that does not exist.
+	 * @throws NullPointerException if map or pool is null.
+	 */
+	public static Blockmap build(DoomMap map, ForkJoinPool pool) throws MapException
+	{
+		List<Linedef> linedefList = map.getLinedefList();
+		List<Vertex> vertexList = map.getVertexList();
+		if (vertexList.size() == 0)
+			return new Blockmap();
+
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < vertexList.size(); i++)
+		{
+			Vertex v = vertexList.getByIndex(i);
+			minX = Math.min(minX, v.getX());
+			minY = Math.min(minY, v.getY());
+			maxX = Math.max(maxX, v.getX());
+			maxY = Math.max(maxY, v.getY());
+		}
+
+		Grid grid = new Grid();
+		grid.startX = (int)Math.floor(minX) - BLOCK_MARGIN;
+		grid.startY = (int)Math.floor(minY) - BLOCK_MARGIN;
+		grid.columns = (int)Math.floor((maxX - grid.startX) / BLOCK_SIZE) + 1;
+		grid.rows = (int)Math.floor((maxY - grid.startY) / BLOCK_SIZE) + 1;
+
+		// line coordinates relative to the grid origin.
+		int lineCount = linedefList.size();
+		grid.coords = new double[lineCount * 4];
+		for (int i = 0; i < lineCount; i++)
+		{
+			Linedef line = linedefList.getByIndex(i);
+			int v1 = line.getVertexStart();
+			int v2 = line.getVertexEnd();
+			if (v1 < 0 || v1 >= vertexList.size() || v2 < 0 || v2 >= vertexList.size())
+				throw new MapException("Linedef " + i + " references a vertex that does not exist.");
+			grid.coords[i * 4] = vertexList.getByIndex(v1).getX() - grid.startX;
+			grid.coords[i * 4 + 1] = vertexList.getByIndex(v1).getY() - grid.startY;
+			grid.coords[i * 4 + 2] = vertexList.getByIndex(v2).getX() - grid.startX;
+			grid.coords[i * 4 + 3] = vertexList.getByIndex(v2).getY() - grid.startY;
+		}
+
+		Chunk[] chunks = new Chunk[(lineCount + LINE_TASK_SIZE - 1) / LINE_TASK_SIZE];
+		pool.invoke(new RasterizeTask(grid, chunks, 0, chunks.length, lineCount));
+
+		// gather the lists, in chunk order, so that each block's list is in linedef order.
+		int cells = grid.columns * grid.rows;
+		int[] rawStart = new int[cells + 1];
+		for (Chunk chunk : chunks)
+			for (int i = 0; i < chunk.count; i++)
+				rawStart[chunk.cells[i] + 1]++;
+		for (int c = 0; c < cells; c++)
+			rawStart[c + 1] += rawStart[c];
+		int[] raw = new int[rawStart[cells]];
+		int[] fill = Arrays.copyOf(rawStart, cells);
+		for (Chunk chunk : chunks)
+			for (int i = 0; i < chunk.count; i++)
+				raw[fill[chunk.cells[i]]++] = chunk.lines[i];
+
+		return compress(grid, raw, rawStart);
+	}
+
+	/**
+	 * Creates a Blockmap from gathered lists, storing each distinct list once.
+	 */
+	private static Blockmap compress(Grid grid, int[] raw, int[] rawStart)
+	{
+		int cells = rawStart.length - 1;
+		int[] cellStart = new int[cells];
+		int[] lists = new int[raw.length + cells];
+		int listCount = 0;
+
+		int tableSize = Integer.highestOneBit(Math.max(cells, 1) * 2 - 1) << 1;
+		int[] table = new int[tableSize];
+		Arrays.fill(table, -1);
+		int mask = tableSize - 1;
+
+		for (int c = 0; c < cells; c++)
+		{
+			int start = rawStart[c];
+			int end = rawStart[c + 1];
+			int hash = 1;
+			for (int i = start; i < end; i++)
+				hash = 31 * hash + raw[i];
+			hash ^= hash >>> 16;
+
+			int slot = hash & mask;
+			while (table[slot] >= 0 && !listEquals(lists, table[slot], raw, start, end))
+				slot = (slot + 1) & mask;
+
+			if (table[slot] < 0)
+			{
+				table[slot] = listCount;
+				System.arraycopy(raw, start, lists, listCount, end - start);
+				listCount += end - start;
+				lists[listCount++] = -1;
+			}
+			cellStart[c] = table[slot];
+		}
+
+		return new Blockmap(grid.startX, grid.startY, grid.columns, grid.rows, cellStart, Arrays.copyOf(lists, listCount));
+	}
+
+	// Returns true if the -1-terminated list at a position equals a range of values.
+	private static boolean listEquals(int[] lists, int listStart, int[] values, int start, int end)
+	{
+		for (int i = start; i < end; i++)
+			if (lists[listStart++] != values[i])
+				return false;
+		return lists[listStart] == -1;
+	}
+
+	/** Grid dimensions and linedef coordinates relative to the grid origin. */
+	private static class Grid
+	{
+		private int startX;
+		private int startY;
+		private int columns;
+		private int rows;
+		private double[] coords;
+
+		/**
+		 * Adds a linedef to the blocks it passes through,
+		 * column by column, from the rows that it spans in each column.
+		 */
+		void rasterize(int line, Chunk out)
+		{
+			double x1 = coords[line * 4];
+			double y1 = coords[line * 4 + 1];
+			double x2 = coords[line * 4 + 2];
+			double y2 = coords[line * 4 + 3];
+			if (x1 > x2)
+			{
+				double t = x1; x1 = x2; x2 = t;
+				t = y1; y1 = y2; y2 = t;
+			}
+
+			int colStart = clamp((int)Math.floor(x1 / BLOCK_SIZE), columns);
+			int colEnd = clamp((int)Math.floor(x2 / BLOCK_SIZE), columns);
+			for (int col = colStart; col <= colEnd; col++)
+			{
+				double ya, yb;
+				if (x1 == x2)
+				{
+					ya = y1;
+					yb = y2;
+				}
+				else
+				{
+					double xa = Math.max(x1, col * BLOCK_SIZE);
+					double xb = Math.min(x2, (col + 1) * BLOCK_SIZE);
+					ya = y1 + (xa - x1) * (y2 - y1) / (x2 - x1);
+					yb = y1 + (xb - x1) * (y2 - y1) / (x2 - x1);
+				}
+				int rowStart = clamp((int)Math.floor(Math.min(ya, yb) / BLOCK_SIZE), rows);
+				int rowEnd = clamp((int)Math.floor(Math.max(ya, yb) / BLOCK_SIZE), rows);
+				for (int row = rowStart; row <= rowEnd; row++)
+					out.add(row * columns + col, line);
+			}
+		}
+
+		// Clamps a column or row to the grid.
+		private static int clamp(int value, int count)
+		{
+			return Math.max(0, Math.min(value, count - 1));
+		}
+	}
+
+	/** The blocks that a range of linedefs were added to. */
+	private static class Chunk
+	{
+		private int[] cells = new int[LINE_TASK_SIZE * 2];
+		private int[] lines = new int[LINE_TASK_SIZE * 2];
+		private int count = 0;
+
+		void add(int cell, int line)
+		{
+			if (count == cells.length)
+			{
+				cells = Arrays.copyOf(cells, count * 2);
+				lines = Arrays.copyOf(lines, count * 2);
+			}
+			cells[count] = cell;
+			lines[count] = line;
+			count++;
+		}
+	}
+
+	/** Rasterizes a range of linedef chunks. */
+	private static class RasterizeTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = -4187203385316021471L;
+
+		private Grid grid;
+		private Chunk[] chunks;
+		private int start;
+		private int end;
+		private int lineCount;
+
+		RasterizeTask(Grid grid, Chunk[] chunks, int start, int end, int lineCount)
+		{
+			this.grid = grid;
+			this.chunks = chunks;
+			this.start = start;
+			this.end = end;
+			this.lineCount = lineCount;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (end - start > 1)
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll(new RasterizeTask(grid, chunks, start, mid, lineCount), new RasterizeTask(grid, chunks, mid, end, lineCount));
+			}
+			else if (start < end)
+			{
+				Chunk chunk = new Chunk();
+				int lineEnd = Math.min((start + 1) * LINE_TASK_SIZE, lineCount);
+				for (int line = start * LINE_TASK_SIZE; line < lineEnd; line++)
+					grid.rasterize(line, chunk);
+				chunks[start] = chunk;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,507 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.MapException;
+import com.blackrook.doom.struct.Blockmap;
+import com.blackrook.doom.struct.Linedef;
+import com.blackrook.doom.struct.Vertex;
+
+/**
+ * Answers spatial queries about a map's linedefs, using its blockmap to find candidates.
+ * <p>
+ * The index copies the linedef coordinates and block lists when it is created, and does not
+ * change after that, so it can be shared between threads. It does not follow later changes to
+ * the map or blockmap. Linedefs that the blockmap does not list in a block are not found in that block,
+ * so the blockmap should be up to date (see {@link BlockmapBuilder}).
+ * <p>
+ * Queries that return more than one linedef fill an {@link IndexIterator}, which is created
+ * once with {@link #createIterator()} and reused, so that queries do not allocate.
+ * An iterator can be used by one thread at a time.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ */
+public class MapSpatialIndex
+{
+	/** Block size in map units. */
+	private static final int BLOCK_SIZE = 128;
+
+	/** Grid origin X-coordinate. */
+	private double startX;
+	/** Grid origin Y-coordinate. */
+	private double startY;
+	/** Amount of grid columns. */
+	private int columns;
+	/** Amount of grid rows. */
+	private int rows;
+	/** Start of each block's linedefs in blockLines, plus the end of the last block. */
+	private int[] blockStart;
+	/** The linedef indices of all blocks. */
+	private int[] blockLines;
+	/** Linedef coordinates, four per linedef. */
+	private double[] coords;
+
+	/**
+	 * Creates a new index for a map, using its blockmap.
+	 * If the map has no blockmap, one is built with {@link BlockmapBuilder}.
+	 * @param map the map to use.
+	 * @throws MapException if a linedef references a vertex that does not exist.
+	 */
+	public MapSpatialIndex(DoomMap map) throws MapException
+	{
+		this(map, map.getBlockmap() != null ? map.getBlockmap() : BlockmapBuilder.build(map));
+	}
+
+	/**
+	 * Creates a new index for a map.
+	 * @param map the map to use.
+	 * @param blockmap the blockmap to use for the map. Linedef indices that do not exist in the map are ignored.
+	 * @throws MapException if a linedef references a vertex that does not exist.
+	 */
+	public MapSpatialIndex(DoomMap map, Blockmap blockmap) throws MapException
+	{
+		List<Linedef> linedefList = map.getLinedefList();
+		List<Vertex> vertexList = map.getVertexList();
+		int lineCount = linedefList.size();
+
+		coords = new double[lineCount * 4];
+		for (int i = 0; i < lineCount; i++)
+		{
+			Linedef line = linedefList.getByIndex(i);
+			int v1 = line.getVertexStart();
+			int v2 = line.getVertexEnd();
+			if (v1 < 0 || v1 >= vertexList.size() || v2 < 0 || v2 >= vertexList.size())
+				throw new MapException("Linedef " + i + " references a vertex that does not exist.");
+			coords[i * 4] = vertexList.getByIndex(v1).getX();
+			coords[i * 4 + 1] = vertexList.getByIndex(v1).getY();
+			coords[i * 4 + 2] = vertexList.getByIndex(v2).getX();
+			coords[i * 4 + 3] = vertexList.getByIndex(v2).getY();
+		}
+
+		startX = blockmap.getStartX();
+		startY = blockmap.getStartY();
+		columns = blockmap.getColumns();
+		rows = blockmap.getRows();
+		blockStart = new int[columns * rows + 1];
+		int[] lines = new int[64];
+		int count = 0;
+		for (int y = 0; y < rows; y++)
+			for (int x = 0; x < columns; x++)
+			{
+				blockStart[y * columns + x] = count;
+				for (int line : blockmap.getIndices(x, y))
+				{
+					if (line >= lineCount)
+						continue;
+					if (count == lines.length)
+						lines = Arrays.copyOf(lines, count * 2);
+					lines[count++] = line;
+				}
+			}
+		blockStart[columns * rows] = count;
+		blockLines = Arrays.copyOf(lines, count);
+	}
+
+	/**
+	 * Creates a new iterator for the results of this index's queries.
+	 */
+	public IndexIterator createIterator()
+	{
+		return new IndexIterator(coords.length / 4);
+	}
+
+	/**
+	 * Returns the amount of linedefs in this index.
+	 */
+	public int getLinedefCount()
+	{
+		return coords.length / 4;
+	}
+
+	/**
+	 * Finds the linedefs that touch or cross a rectangle.
+	 * The linedefs are not in any particular order.
+	 * @param x0 a corner's X-coordinate.
+	 * @param y0 a corner's Y-coordinate.
+	 * @param x1 the opposite corner's X-coordinate.
+	 * @param y1 the opposite corner's Y-coordinate.
+	 * @param out the iterator to fill. It is reset first.
+	 * @return out.
+	 */
+	public IndexIterator getLinedefsInRectangle(double x0, double y0, double x1, double y1, IndexIterator out)
+	{
+		out.clear();
+		double minX = Math.min(x0, x1), maxX = Math.max(x0, x1);
+		double minY = Math.min(y0, y1), maxY = Math.max(y0, y1);
+
+		int colStart = Math.max(getColumn(minX), 0);
+		int colEnd = Math.min(getColumn(maxX), columns - 1);
+		int rowStart = Math.max(getRow(minY), 0);
+		int rowEnd = Math.min(getRow(maxY), rows - 1);
+		for (int row = rowStart; row <= rowEnd; row++)
+			for (int col = colStart; col <= colEnd; col++)
+			{
+				int cell = row * columns + col;
+				for (int i = blockStart[cell]; i < blockStart[cell + 1]; i++)
+				{
+					int line = blockLines[i];
+					if (out.mark(line) && lineTouchesRectangle(line, minX, minY, maxX, maxY))
+						out.add(line);
+				}
+			}
+		return out;
+	}
+
+	/**
+	 * Finds the linedefs that touch or cross a line segment, such as a ray cast.
+	 * The blocks that the segment passes through are visited in order from the start point
+	 * to the end point, and the linedefs are in the order of the blocks that they were found in.
+	 * Linedefs in the same block are not in any particular order.
+	 * @param x0 the start point's X-coordinate.
+	 * @param y0 the start point's Y-coordinate.
+	 * @param x1 the end point's X-coordinate.
+	 * @param y1 the end point's Y-coordinate.
+	 * @param out the iterator to fill. It is reset first.
+	 * @return out.
+	 */
+	public IndexIterator getLinedefsOnSegment(double x0, double y0, double x1, double y1, IndexIterator out)
+	{
+		out.clear();
+		if (columns == 0 || rows == 0)
+			return out;
+
+		// clip the segment to the grid (in block units).
+		double gx0 = (x0 - startX) / BLOCK_SIZE, gy0 = (y0 - startY) / BLOCK_SIZE;
+		double dx = (x1 - x0) / BLOCK_SIZE, dy = (y1 - y0) / BLOCK_SIZE;
+		double t0 = clipSegment(gx0, gy0, dx, dy, 0, 0, columns, rows, false);
+		if (Double.isNaN(t0))
+			return out;
+		double t1 = clipSegment(gx0, gy0, dx, dy, 0, 0, columns, rows, true);
+
+		double sx = gx0 + dx * t0, sy = gy0 + dy * t0;
+		double ex = gx0 + dx * t1, ey = gy0 + dy * t1;
+		int col = clamp((int)Math.floor(sx), columns), row = clamp((int)Math.floor(sy), rows);
+		int endCol = clamp((int)Math.floor(ex), columns), endRow = clamp((int)Math.floor(ey), rows);
+
+		// walk the blocks.
+		int stepX = dx > 0 ? 1 : -1;
+		int stepY = dy > 0 ? 1 : -1;
+		double tDeltaX = dx != 0 ? Math.abs(1.0 / dx) : Double.POSITIVE_INFINITY;
+		double tDeltaY = dy != 0 ? Math.abs(1.0 / dy) : Double.POSITIVE_INFINITY;
+		double tMaxX = dx > 0 ? (col + 1 - sx) / dx : dx < 0 ? (sx - col) / -dx : Double.POSITIVE_INFINITY;
+		double tMaxY = dy > 0 ? (row + 1 - sy) / dy : dy < 0 ? (sy - row) / -dy : Double.POSITIVE_INFINITY;
+		int steps = Math.abs(endCol - col) + Math.abs(endRow - row);
+		for (int n = 0; n <= steps; n++)
+		{
+			int cell = row * columns + col;
+			for (int i = blockStart[cell]; i < blockStart[cell + 1]; i++)
+			{
+				int line = blockLines[i];
+				if (out.mark(line) && lineTouchesSegment(line, x0, y0, x1, y1))
+					out.add(line);
+			}
+
+			if (tMaxX < tMaxY ? col != endCol : row == endRow)
+			{
+				tMaxX += tDeltaX;
+				col += stepX;
+			}
+			else
+			{
+				tMaxY += tDeltaY;
+				row += stepY;
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Finds the linedef closest to a point.
+	 * @param x the point's X-coordinate.
+	 * @param y the point's Y-coordinate.
+	 * @param maxDistance the maximum distance to search.
+	 * @return the index of the closest linedef, or -1 if there is none within maxDistance.
+	 */
+	public int getNearestLinedef(double x, double y, double maxDistance)
+	{
+		if (columns == 0 || rows == 0)
+			return -1;
+
+		int col = clamp(getColumn(x), columns);
+		int row = clamp(getRow(y), rows);
+		int out = -1;
+		double best = maxDistance;
+		for (int ring = 0; ; ring++)
+		{
+			// the blocks in this ring lie outside the box of the blocks in earlier rings.
+			if (ring > 0)
+			{
+				double left = startX + (col - ring + 1) * BLOCK_SIZE;
+				double right = startX + (col + ring) * BLOCK_SIZE;
+				double bottom = startY + (row - ring + 1) * BLOCK_SIZE;
+				double top = startY + (row + ring) * BLOCK_SIZE;
+				if (x >= left && x <= right && y >= bottom && y <= top)
+				{
+					double bound = Math.min(Math.min(x - left, right - x), Math.min(y - bottom, top - y));
+					if (bound > best)
+						break;
+				}
+			}
+			if (col - ring < 0 && col + ring >= columns && row - ring < 0 && row + ring >= rows)
+				break;
+
+			for (int r = row - ring; r <= row + ring; r++)
+			{
+				if (r < 0 || r >= rows)
+					continue;
+				// only the edge of the ring: every block on the top and bottom rows, the two ends on the others.
+				int step = (r == row - ring || r == row + ring) ? 1 : Math.max(ring * 2, 1);
+				for (int c = col - ring; c <= col + ring; c += step)
+				{
+					if (c < 0 || c >= columns)
+						continue;
+					int cell = r * columns + c;
+					for (int i = blockStart[cell]; i < blockStart[cell + 1]; i++)
+					{
+						int line = blockLines[i];
+						double d = getDistance(line, x, y);
+						if (d < best || (d == best && out < 0))
+						{
+							best = d;
+							out = line;
+						}
+					}
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the distance from a point to a linedef.
+	 * @param linedef the linedef index.
+	 * @param x the point's X-coordinate.
+	 * @param y the point's Y-coordinate.
+	 * @return the distance in map units.
+	 * @throws ArrayIndexOutOfBoundsException if the linedef index is out of range.
+	 */
+	public double getDistance(int linedef, double x, double y)
+	{
+		double lx1 = coords[linedef * 4], ly1 = coords[linedef * 4 + 1];
+		double dx = coords[linedef * 4 + 2] - lx1, dy = coords[linedef * 4 + 3] - ly1;
+		double lengthSquared = dx * dx + dy * dy;
+		double t = lengthSquared > 0 ? ((x - lx1) * dx + (y - ly1) * dy) / lengthSquared : 0.0;
+		t = Math.max(0.0, Math.min(1.0, t));
+		double px = lx1 + dx * t - x;
+		double py = ly1 + dy * t - y;
+		return Math.sqrt(px * px + py * py);
+	}
+
+	// Returns the grid column of an X-coordinate, from -1 to columns (may be outside the grid).
+	private int getColumn(double x)
+	{
+		return (int)Math.max(-1, Math.min(columns, Math.floor((x - startX) / BLOCK_SIZE)));
+	}
+
+	// Returns the grid row of a Y-coordinate, from -1 to rows (may be outside the grid).
+	private int getRow(double y)
+	{
+		return (int)Math.max(-1, Math.min(rows, Math.floor((y - startY) / BLOCK_SIZE)));
+	}
+
+	// Clamps a column or row to the grid.
+	private static int clamp(int value, int count)
+	{
+		return Math.max(0, Math.min(value, count - 1));
+	}
+
+	/**
+	 * Clips a segment (a start point plus a delta) to a box, and returns where the part
+	 * inside the box starts or ends, from 0 to 1, or NaN if no part is inside the box.
+	 */
+	private static double clipSegment(double x0, double y0, double dx, double dy, double minX, double minY, double maxX, double maxY, boolean end)
+	{
+		double t0 = 0.0, t1 = 1.0;
+		for (int i = 0; i < 4; i++)
+		{
+			double p, q;
+			switch (i)
+			{
+				case 0: p = -dx; q = x0 - minX; break;
+				case 1: p = dx; q = maxX - x0; break;
+				case 2: p = -dy; q = y0 - minY; break;
+				default: p = dy; q = maxY - y0; break;
+			}
+			if (p == 0)
+			{
+				if (q < 0)
+					return Double.NaN;
+				continue;
+			}
+			double r = q / p;
+			if (p < 0)
+			{
+				if (r > t1)
+					return Double.NaN;
+				t0 = Math.max(t0, r);
+			}
+			else
+			{
+				if (r < t0)
+					return Double.NaN;
+				t1 = Math.min(t1, r);
+			}
+		}
+		return end ? t1 : t0;
+	}
+
+	// Returns true if a linedef touches or crosses a rectangle.
+	private boolean lineTouchesRectangle(int line, double minX, double minY, double maxX, double maxY)
+	{
+		double x0 = coords[line * 4], y0 = coords[line * 4 + 1];
+		double dx = coords[line * 4 + 2] - x0, dy = coords[line * 4 + 3] - y0;
+		return !Double.isNaN(clipSegment(x0, y0, dx, dy, minX, minY, maxX, maxY, false));
+	}
+
+	// Returns true if a linedef touches or crosses a segment.
+	private boolean lineTouchesSegment(int line, double x0, double y0, double x1, double y1)
+	{
+		double ax = coords[line * 4], ay = coords[line * 4 + 1];
+		double bx = coords[line * 4 + 2], by = coords[line * 4 + 3];
+		double d1 = side(x0, y0, x1, y1, ax, ay);
+		double d2 = side(x0, y0, x1, y1, bx, by);
+		double d3 = side(ax, ay, bx, by, x0, y0);
+		double d4 = side(ax, ay, bx, by, x1, y1);
+		if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0)))
+			return true;
+		return (d1 == 0 && onSegment(x0, y0, x1, y1, ax, ay))
+			|| (d2 == 0 && onSegment(x0, y0, x1, y1, bx, by))
+			|| (d3 == 0 && onSegment(ax, ay, bx, by, x0, y0))
+			|| (d4 == 0 && onSegment(ax, ay, bx, by, x1, y1));
+	}
+
+	// Returns which side of a line a point is on: positive for left, negative for right, 0 for on it.
+	private static double side(double lx1, double ly1, double lx2, double ly2, double x, double y)
+	{
+		return (lx2 - lx1) * (y - ly1) - (ly2 - ly1) * (x - lx1);
+	}
+
+	// Returns true if a point on a segment's line is within the segment's bounds.
+	private static boolean onSegment(double x0, double y0, double x1, double y1, double x, double y)
+	{
+		return x >= Math.min(x0, x1) && x <= Math.max(x0, x1) && y >= Math.min(y0, y1) && y <= Math.max(y0, y1);
+	}
+
+	/**
+	 * A reusable list of linedef indices returned by a query.
+	 * Filling it again does not allocate, once it has grown to the largest result.
+	 */
+	public static class IndexIterator
+	{
+		/** The found indices. */
+		private int[] indices;
+		/** The amount of found indices. */
+		private int count;
+		/** The next index to return. */
+		private int position;
+		/** For each linedef, the query that last saw it. */
+		private int[] stamps;
+		/** The current query. */
+		private int stamp;
+
+		private IndexIterator(int lineCount)
+		{
+			this.indices = new int[16];
+			this.count = 0;
+			this.position = 0;
+			this.stamps = new int[lineCount];
+			this.stamp = 0;
+		}
+
+		// Starts a new query.
+		private void clear()
+		{
+			count = 0;
+			position = 0;
+			if (++stamp == 0)
+			{
+				Arrays.fill(stamps, 0);
+				stamp = 1;
+			}
+		}
+
+		// Marks a linedef as seen in this query. Returns false if it already was.
+		private boolean mark(int line)
+		{
+			if (stamps[line] == stamp)
+				return false;
+			stamps[line] = stamp;
+			return true;
+		}
+
+		private void add(int line)
+		{
+			if (count == indices.length)
+				indices = Arrays.copyOf(indices, count * 2);
+			indices[count++] = line;
+		}
+
+		/**
+		 * Returns true if there are more indices to return.
+		 */
+		public boolean hasNext()
+		{
+			return position < count;
+		}
+
+		/**
+		 * Returns the next linedef index.
+		 * @throws NoSuchElementException if there are no more indices.
+		 */
+		public int next()
+		{
+			if (position >= count)
+				throw new NoSuchElementException();
+			return indices[position++];
+		}
+
+		/**
+		 * Returns the amount of indices found by the last query.
+		 */
+		public int size()
+		{
+			return count;
+		}
+
+		/**
+		 * Returns an index found by the last query.
+		 * @param n the position of the index, from 0 to {@link #size()} - 1.
+		 * @throws ArrayIndexOutOfBoundsException if n is out of range.
+		 */
+		public int get(int n)
+		{
+			if (n < 0 || n >= count)
+				throw new ArrayIndexOutOfBoundsException(n);
+			return indices[n];
+		}
+
+		/**
+		 * Starts returning the indices from the first one again.
+		 */
+		public void rewind()
+		{
+			position = 0;
+		}
+	}
+
+}
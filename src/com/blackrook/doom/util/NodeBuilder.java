@@ -0,0 +1,751 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.blackrook.commons.hash.HashMap;
+import com.blackrook.commons.list.List;
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.MapException;
+import com.blackrook.doom.struct.BSPNode;
+import com.blackrook.doom.struct.BSPSegment;
+import com.blackrook.doom.struct.BSPSubsector;
+import com.blackrook.doom.struct.Linedef;
+import com.blackrook.doom.struct.RawData;
+import com.blackrook.doom.struct.Sidedef;
+import com.blackrook.doom.struct.Vertex;
+
+/**
+ * Builds BSP trees (nodes, subsectors and segments) from map geometry.
+ * <p>
+ * Each side of each linedef starts out as one segment. A set of segments is split by the line
+ * of one of its segments, chosen by cost: each segment that would be split costs
+ * {@link #getSplitCost()}, and each segment of difference between the two sides costs
+ * {@link #getBalanceCost()}. At most {@link #getCandidateLimit()} evenly-spaced segments are tried
+ * as partitions for each set. A set that no segment's line divides is convex, and becomes a subsector.
+ * The two sides of a partition are built in parallel on a {@link ForkJoinPool} when they are large enough.
+ * <p>
+ * The result can be written as vanilla NODES, SEGS and SSECTORS (with the new vertices added to the map),
+ * or, if it exceeds the limits of those lumps, as ZDoom extended nodes ("XNOD").
+ * <p>
+ * A NodeBuilder can be used by several threads at once, as long as its settings are not being changed.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ */
+public class NodeBuilder
+{
+	/** Default cost of splitting a segment. */
+	public static final int DEFAULT_SPLIT_COST = 8;
+	/** Default cost of a segment of difference between the sides of a partition. */
+	public static final int DEFAULT_BALANCE_COST = 1;
+	/** Default amount of segments tried as partitions for a set. */
+	public static final int DEFAULT_CANDIDATE_LIMIT = 64;
+
+	/** Distance tolerance in map units. Points this close to a line are on it. */
+	private static final double EPSILON = 1.0 / 256.0;
+	/** The amount of segments that both sides of a partition need for them to be built in parallel. */
+	private static final int PARALLEL_THRESHOLD = 256;
+
+	/** Segment classification: in front of (right of) a partition. */
+	private static final int FRONT = 0;
+	/** Segment classification: behind (left of) a partition. */
+	private static final int BACK = 1;
+	/** Segment classification: crosses a partition. */
+	private static final int SPLIT = 2;
+
+	/** Cost of splitting a segment. */
+	private int splitCost;
+	/** Cost of a segment of difference between the sides of a partition. */
+	private int balanceCost;
+	/** Amount of segments tried as partitions for a set. */
+	private int candidateLimit;
+
+	/**
+	 * Creates a new node builder with the default settings.
+	 */
+	public NodeBuilder()
+	{
+		splitCost = DEFAULT_SPLIT_COST;
+		balanceCost = DEFAULT_BALANCE_COST;
+		candidateLimit = DEFAULT_CANDIDATE_LIMIT;
+	}
+
+	/**
+	 * Returns the cost of splitting a segment when choosing a partition.
+	 */
+	public int getSplitCost()
+	{
+		return splitCost;
+	}
+
+	/**
+	 * Sets the cost of splitting a segment when choosing a partition.
+	 * Higher values make fewer splits (and new vertices), at the expense of a less balanced tree.
+	 * @throws IllegalArgumentException if the cost is negative.
+	 */
+	public void setSplitCost(int splitCost)
+	{
+		if (splitCost < 0)
+			throw new IllegalArgumentException("Cost cannot be negative.");
+		this.splitCost = splitCost;
+	}
+
+	/**
+	 * Returns the cost of each segment of difference between the two sides of a partition.
+	 */
+	public int getBalanceCost()
+	{
+		return balanceCost;
+	}
+
+	/**
+	 * Sets the cost of each segment of difference between the two sides of a partition.
+	 * Higher values make a more balanced (shallower) tree, at the expense of more splits.
+	 * @throws IllegalArgumentException if the cost is negative.
+	 */
+	public void setBalanceCost(int balanceCost)
+	{
+		if (balanceCost < 0)
+			throw new IllegalArgumentException("Cost cannot be negative.");
+		this.balanceCost = balanceCost;
+	}
+
+	/**
+	 * Returns the amount of segments tried as partitions for each set of segments.
+	 */
+	public int getCandidateLimit()
+	{
+		return candidateLimit;
+	}
+
+	/**
+	 * Sets the amount of segments tried as partitions for each set of segments.
+	 * Higher values may find better partitions, but take longer.
+	 * @throws IllegalArgumentException if the limit is less than 1.
+	 */
+	public void setCandidateLimit(int candidateLimit)
+	{
+		if (candidateLimit < 1)
+			throw new IllegalArgumentException("Limit must be at least 1.");
+		this.candidateLimit = candidateLimit;
+	}
+
+	/**
+	 * Builds the nodes for a map, using a new {@link ForkJoinPool}.
+	 * @param map the map to use.
+	 * @return the built nodes.
+	 * @throws MapException if a linedef or sidedef references a vertex, sidedef or sector that does not exist,
+	 * 		or the map has no linedef sides to build from.
+	 * @see #build(DoomMap, ForkJoinPool)
+	 */
+	public Result build(DoomMap map) throws MapException
+	{
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return build(map, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Builds the nodes for a map.
+	 * The map is not changed: see {@link Result#applyTo(DoomMap)}.
+	 * <p>
+	 * The map's vertices, linedefs and sidedefs are read on the calling thread. The tree is built on
+	 * the pool, and then numbered (children before parents, the root last) on the calling thread.
+	 * @param map the map to use.
+	 * @param pool the pool to build the tree on.
+	 * @return the built nodes.
+	 * @throws MapException if a linedef or sidedef references a vertex, sidedef or sector that does not exist,
+	 * 		or the map has no linedef sides to build from.
+	 * @throws NullPointerException if map or pool is null.
+	 */
+	public Result build(DoomMap map, ForkJoinPool pool) throws MapException
+	{
+		List<Vertex> vertexList = map.getVertexList();
+		List<Linedef> linedefList = map.getLinedefList();
+		List<Sidedef> sidedefList = map.getSidedefList();
+		int sectorCount = map.getSectorList().size();
+
+		Seg[] segs = new Seg[linedefList.size() * 2];
+		int segCount = 0;
+		for (int i = 0; i < linedefList.size(); i++)
+		{
+			Linedef line = linedefList.getByIndex(i);
+			int v1 = line.getVertexStart();
+			int v2 = line.getVertexEnd();
+			if (v1 < 0 || v1 >= vertexList.size() || v2 < 0 || v2 >= vertexList.size())
+				throw new MapException("Linedef " + i + " references a vertex that does not exist.");
+			double x1 = vertexList.getByIndex(v1).getX();
+			double y1 = vertexList.getByIndex(v1).getY();
+			double x2 = vertexList.getByIndex(v2).getX();
+			double y2 = vertexList.getByIndex(v2).getY();
+			if (Math.abs(x2 - x1) <= EPSILON && Math.abs(y2 - y1) <= EPSILON)
+				continue;
+
+			int front = line.getFrontSidedef();
+			int back = line.getBackSidedef();
+			if (front >= 0 && front < sidedefList.size())
+			{
+				checkSector(sidedefList, front, sectorCount);
+				segs[segCount++] = new Seg(x1, y1, x2, y2, v1, v2, i, BSPSegment.DIRECTION_SAME_AS_LINEDEF, 0.0);
+			}
+			if (back >= 0 && back < sidedefList.size())
+			{
+				checkSector(sidedefList, back, sectorCount);
+				segs[segCount++] = new Seg(x2, y2, x1, y1, v2, v1, i, BSPSegment.DIRECTION_OPPOSITE_LINEDEF, 0.0);
+			}
+		}
+		if (segCount == 0)
+			throw new MapException("Map has no linedef sides to build nodes from.");
+
+		Seg[] start = new Seg[segCount];
+		System.arraycopy(segs, 0, start, 0, segCount);
+		Tree root = pool.invoke(new BuildTask(start));
+
+		Result out = new Result(vertexList.size(), map.getOriginalFormat() == DoomMap.Format.UDMF);
+		out.emit(root);
+		out.checkLimits();
+		return out;
+	}
+
+	// Throws an exception if a sidedef's sector does not exist.
+	private static void checkSector(List<Sidedef> sidedefList, int sidedef, int sectorCount) throws MapException
+	{
+		int sector = sidedefList.getByIndex(sidedef).getSectorRef();
+		if (sector < 0 || sector >= sectorCount)
+			throw new MapException("Sidedef " + sidedef + " references a sector that does not exist.");
+	}
+
+	/**
+	 * Builds a tree from a set of segments.
+	 */
+	private Tree build(Seg[] segs)
+	{
+		Seg partition = choosePartition(segs);
+		if (partition == null)
+			return new Leaf(segs);
+
+		int frontCount = 0, backCount = 0;
+		for (Seg seg : segs)
+		{
+			switch (classify(seg, partition))
+			{
+				case FRONT: frontCount++; break;
+				case BACK: backCount++; break;
+				default: frontCount++; backCount++; break;
+			}
+		}
+
+		Seg[] front = new Seg[frontCount];
+		Seg[] back = new Seg[backCount];
+		int f = 0, b = 0;
+		for (Seg seg : segs)
+		{
+			switch (classify(seg, partition))
+			{
+				case FRONT:
+					front[f++] = seg;
+					break;
+				case BACK:
+					back[b++] = seg;
+					break;
+				default:
+				{
+					double d1 = side(partition, seg.x1, seg.y1);
+					double d2 = side(partition, seg.x2, seg.y2);
+					double t = d1 / (d1 - d2);
+					double x = seg.x1 + (seg.x2 - seg.x1) * t;
+					double y = seg.y1 + (seg.y2 - seg.y1) * t;
+					Seg first = new Seg(seg.x1, seg.y1, x, y, seg.v1, -1, seg.linedef, seg.direction, seg.offset);
+					Seg second = new Seg(x, y, seg.x2, seg.y2, -1, seg.v2, seg.linedef, seg.direction, seg.offset + first.getLength());
+					first.copyLine(seg);
+					second.copyLine(seg);
+					if (d1 < 0)
+					{
+						front[f++] = first;
+						back[b++] = second;
+					}
+					else
+					{
+						back[b++] = first;
+						front[f++] = second;
+					}
+				}
+				break;
+			}
+		}
+
+		Tree right, left;
+		if (front.length >= PARALLEL_THRESHOLD && back.length >= PARALLEL_THRESHOLD)
+		{
+			ForkJoinTask<Tree> backTask = new BuildTask(back).fork();
+			right = build(front);
+			left = backTask.join();
+		}
+		else
+		{
+			right = build(front);
+			left = build(back);
+		}
+		return new Branch(partition, right, left);
+	}
+
+	/**
+	 * Chooses the partition with the lowest cost, trying evenly-spaced segments first,
+	 * then all of them if none of those divide the set.
+	 * @return the segment whose line is the partition, or null if the set is convex.
+	 */
+	private Seg choosePartition(Seg[] segs)
+	{
+		int step = Math.max(1, segs.length / candidateLimit);
+		Seg out = choosePartition(segs, step);
+		if (out == null && step > 1)
+			out = choosePartition(segs, 1);
+		return out;
+	}
+
+	// Chooses the partition with the lowest cost among every step-th segment, or null if none divide the set.
+	private Seg choosePartition(Seg[] segs, int step)
+	{
+		Seg out = null;
+		long best = Long.MAX_VALUE;
+		for (int c = 0; c < segs.length; c += step)
+		{
+			Seg candidate = segs[c];
+			int front = 0, back = 0, splits = 0;
+			long cost = 0;
+			for (Seg seg : segs)
+			{
+				switch (classify(seg, candidate))
+				{
+					case FRONT: front++; break;
+					case BACK: back++; break;
+					default: splits++; cost += splitCost; break;
+				}
+				if (cost >= best)
+					break;
+			}
+			if (cost >= best || (back == 0 && splits == 0))
+				continue;
+			cost += (long)Math.abs(front - back) * balanceCost;
+			if (cost < best)
+			{
+				best = cost;
+				out = candidate;
+			}
+		}
+		return out;
+	}
+
+	// Returns the distance of a point from a segment's line, negative on the right (front) side.
+	private static double side(Seg partition, double x, double y)
+	{
+		return (partition.ldx * (y - partition.ly) - partition.ldy * (x - partition.lx)) / partition.lineLength;
+	}
+
+	// Classifies a segment against the line of a partition segment.
+	private static int classify(Seg seg, Seg partition)
+	{
+		double d1 = side(partition, seg.x1, seg.y1);
+		double d2 = side(partition, seg.x2, seg.y2);
+		boolean on1 = Math.abs(d1) <= EPSILON;
+		boolean on2 = Math.abs(d2) <= EPSILON;
+		if (on1 && on2)
+		{
+			double dot = (seg.x2 - seg.x1) * partition.ldx + (seg.y2 - seg.y1) * partition.ldy;
+			return dot > 0 ? FRONT : BACK;
+		}
+		if (d1 <= EPSILON && d2 <= EPSILON)
+			return FRONT;
+		if (d1 >= -EPSILON && d2 >= -EPSILON)
+			return BACK;
+		return SPLIT;
+	}
+
+	/** A segment, and the linedef line that it lies on (oriented the same way). */
+	private static class Seg
+	{
+		private double x1, y1, x2, y2;
+		/** Original vertex indices, or -1 for new vertices. */
+		private int v1, v2;
+		private int linedef;
+		private int direction;
+		/** Distance from the start of the linedef side. */
+		private double offset;
+		/** The line. */
+		private double lx, ly, ldx, ldy, lineLength;
+
+		Seg(double x1, double y1, double x2, double y2, int v1, int v2, int linedef, int direction, double offset)
+		{
+			this.x1 = x1;
+			this.y1 = y1;
+			this.x2 = x2;
+			this.y2 = y2;
+			this.v1 = v1;
+			this.v2 = v2;
+			this.linedef = linedef;
+			this.direction = direction;
+			this.offset = offset;
+			this.lx = x1;
+			this.ly = y1;
+			this.ldx = x2 - x1;
+			this.ldy = y2 - y1;
+			this.lineLength = Math.sqrt(ldx * ldx + ldy * ldy);
+		}
+
+		// Uses the line of another segment.
+		void copyLine(Seg seg)
+		{
+			lx = seg.lx;
+			ly = seg.ly;
+			ldx = seg.ldx;
+			ldy = seg.ldy;
+			lineLength = seg.lineLength;
+		}
+
+		double getLength()
+		{
+			double dx = x2 - x1, dy = y2 - y1;
+			return Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+
+	/** A built tree. */
+	private static abstract class Tree
+	{
+		protected double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		protected double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+	}
+
+	/** A subsector. */
+	private static class Leaf extends Tree
+	{
+		private Seg[] segs;
+
+		Leaf(Seg[] segs)
+		{
+			this.segs = segs;
+			for (Seg seg : segs)
+			{
+				minX = Math.min(minX, Math.min(seg.x1, seg.x2));
+				minY = Math.min(minY, Math.min(seg.y1, seg.y2));
+				maxX = Math.max(maxX, Math.max(seg.x1, seg.x2));
+				maxY = Math.max(maxY, Math.max(seg.y1, seg.y2));
+			}
+		}
+	}
+
+	/** A node. */
+	private static class Branch extends Tree
+	{
+		private Seg partition;
+		private Tree right;
+		private Tree left;
+
+		Branch(Seg partition, Tree right, Tree left)
+		{
+			this.partition = partition;
+			this.right = right;
+			this.left = left;
+			minX = Math.min(right.minX, left.minX);
+			minY = Math.min(right.minY, left.minY);
+			maxX = Math.max(right.maxX, left.maxX);
+			maxY = Math.max(right.maxY, left.maxY);
+		}
+	}
+
+	/** Builds a tree. */
+	private class BuildTask extends RecursiveTask<Tree>
+	{
+		private static final long serialVersionUID = -6052186004612960410L;
+
+		private Seg[] segs;
+
+		BuildTask(Seg[] segs)
+		{
+			this.segs = segs;
+		}
+
+		@Override
+		protected Tree compute()
+		{
+			return build(segs);
+		}
+	}
+
+	/**
+	 * The output of a node builder: nodes, subsectors, segments, and the vertices
+	 * that splitting segments added.
+	 */
+	public static class Result
+	{
+		/** Subsector flag for extended node children. */
+		private static final int EXTENDED_SUBSECTOR = 0x80000000;
+
+		/** Amount of vertices in the map before building. */
+		private int originalVertexCount;
+		/** New vertex coordinates, as 16.16 fixed-point (x, y). */
+		private int[] newVertices;
+		/** Amount of new vertices. */
+		private int newVertexCount;
+		/** New vertex indices (relative to the original count), by packed fixed-point coordinates. */
+		private HashMap<Long, Integer> newVertexMap;
+
+		private List<BSPSegment> segments;
+		private List<BSPSubsector> subsectors;
+		private List<BSPNode> nodes;
+		/** True if the vanilla lumps can't hold the result. */
+		private boolean extended;
+
+		private Result(int originalVertexCount, boolean extended)
+		{
+			this.originalVertexCount = originalVertexCount;
+			this.newVertices = new int[64];
+			this.newVertexCount = 0;
+			this.newVertexMap = new HashMap<Long, Integer>();
+			this.segments = new List<BSPSegment>();
+			this.subsectors = new List<BSPSubsector>();
+			this.nodes = new List<BSPNode>();
+			this.extended = extended;
+		}
+
+		/**
+		 * Adds a tree, children first.
+		 * Returns the child reference for the tree: a node index, or a subsector index with the high bit set.
+		 */
+		private int emit(Tree tree)
+		{
+			if (tree instanceof Leaf)
+			{
+				Leaf leaf = (Leaf)tree;
+				BSPSubsector subsector = new BSPSubsector();
+				subsector.setSegStartIndex(segments.size());
+				subsector.setSegCount(leaf.segs.length);
+				for (Seg seg : leaf.segs)
+				{
+					BSPSegment segment = new BSPSegment();
+					segment.setVertexStart(seg.v1 >= 0 ? seg.v1 : getNewVertex(seg.x1, seg.y1));
+					segment.setVertexEnd(seg.v2 >= 0 ? seg.v2 : getNewVertex(seg.x2, seg.y2));
+					segment.setAngle((int)Math.round(Math.atan2(seg.y2 - seg.y1, seg.x2 - seg.x1) * 32768.0 / Math.PI) & 0x0ffff);
+					segment.setLinedefIndex(seg.linedef);
+					segment.setDirection(seg.direction);
+					segment.setOffset((int)Math.round(seg.offset));
+					segments.add(segment);
+				}
+				subsectors.add(subsector);
+				return EXTENDED_SUBSECTOR | (subsectors.size() - 1);
+			}
+
+			Branch branch = (Branch)tree;
+			int right = emit(branch.right);
+			int left = emit(branch.left);
+
+			BSPNode node = new BSPNode();
+			Seg p = branch.partition;
+			node.setPartitionLineX((int)Math.round(p.lx));
+			node.setPartitionLineY((int)Math.round(p.ly));
+			node.setPartitionDeltaX((int)Math.round(p.ldx));
+			node.setPartitionDeltaY((int)Math.round(p.ldy));
+			Tree r = branch.right, l = branch.left;
+			node.setRightRect((int)Math.ceil(r.maxY), (int)Math.floor(r.minY), (int)Math.floor(r.minX), (int)Math.ceil(r.maxX));
+			node.setLeftRect((int)Math.ceil(l.maxY), (int)Math.floor(l.minY), (int)Math.floor(l.minX), (int)Math.ceil(l.maxX));
+			node.setRightIsLeaf((right & EXTENDED_SUBSECTOR) != 0);
+			node.setRightIndex(right & ~EXTENDED_SUBSECTOR);
+			node.setLeftIsLeaf((left & EXTENDED_SUBSECTOR) != 0);
+			node.setLeftIndex(left & ~EXTENDED_SUBSECTOR);
+			nodes.add(node);
+			return nodes.size() - 1;
+		}
+
+		// Returns the index of a new vertex, adding it if it wasn't added yet.
+		private int getNewVertex(double x, double y)
+		{
+			int fx = (int)Math.round(x * 65536.0);
+			int fy = (int)Math.round(y * 65536.0);
+			Long key = ((long)fx << 32) | (fy & 0x0ffffffffL);
+			Integer index = newVertexMap.get(key);
+			if (index == null)
+			{
+				if (newVertexCount * 2 == newVertices.length)
+				{
+					int[] n = new int[newVertices.length * 2];
+					System.arraycopy(newVertices, 0, n, 0, newVertices.length);
+					newVertices = n;
+				}
+				newVertices[newVertexCount * 2] = fx;
+				newVertices[newVertexCount * 2 + 1] = fy;
+				index = newVertexCount++;
+				newVertexMap.put(key, index);
+			}
+			return originalVertexCount + index;
+		}
+
+		// Decides whether the vanilla lumps can hold this result.
+		private void checkLimits()
+		{
+			if (originalVertexCount + newVertexCount > 65535 || segments.size() > 65535 || subsectors.size() > 32767 || nodes.size() > 32767)
+				extended = true;
+			for (int i = 0; !extended && i < newVertexCount * 2; i++)
+				extended = Math.round(newVertices[i] / 65536.0) < Short.MIN_VALUE || Math.round(newVertices[i] / 65536.0) > Short.MAX_VALUE;
+			for (int i = 0; !extended && i < segments.size(); i++)
+				extended = !segments.getByIndex(i).isDoomCompatible();
+			for (int i = 0; !extended && i < nodes.size(); i++)
+				extended = !nodes.getByIndex(i).isDoomCompatible();
+		}
+
+		/**
+		 * Returns true if the result does not fit in vanilla NODES, SEGS and SSECTORS lumps
+		 * (too many vertices, segments, subsectors or nodes, or values out of range),
+		 * or was built for a UDMF map, and so has to be written as extended nodes.
+		 */
+		public boolean needsExtendedNodes()
+		{
+			return extended;
+		}
+
+		/**
+		 * Returns the amount of vertices that were in the map before building.
+		 */
+		public int getOriginalVertexCount()
+		{
+			return originalVertexCount;
+		}
+
+		/**
+		 * Returns the vertices added by splitting segments, with their coordinates rounded to whole
+		 * map units as they would be in a VERTEXES lump. The segments reference them starting
+		 * at {@link #getOriginalVertexCount()}.
+		 */
+		public List<Vertex> getNewVertexList()
+		{
+			List<Vertex> out = new List<Vertex>(Math.max(newVertexCount, 1));
+			for (int i = 0; i < newVertexCount; i++)
+			{
+				Vertex v = new Vertex();
+				v.setX(Math.round(newVertices[i * 2] / 65536.0));
+				v.setY(Math.round(newVertices[i * 2 + 1] / 65536.0));
+				out.add(v);
+			}
+			return out;
+		}
+
+		/**
+		 * Returns the segments, in subsector order.
+		 */
+		public List<BSPSegment> getSegmentList()
+		{
+			return segments;
+		}
+
+		/**
+		 * Returns the subsectors.
+		 */
+		public List<BSPSubsector> getSubsectorList()
+		{
+			return subsectors;
+		}
+
+		/**
+		 * Returns the nodes. Children come before their parents, and the root is last.
+		 */
+		public List<BSPNode> getNodeList()
+		{
+			return nodes;
+		}
+
+		/**
+		 * Returns this result as ZDoom uncompressed extended nodes ("XNOD"),
+		 * which keep the new vertices in fixed-point precision.
+		 */
+		public RawData getExtendedNodes()
+		{
+			int length = 4 + 8 + newVertexCount * 8
+				+ 4 + subsectors.size() * 4
+				+ 4 + segments.size() * 11
+				+ 4 + nodes.size() * 32;
+			ByteBuffer out = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+			out.put((byte)'X').put((byte)'N').put((byte)'O').put((byte)'D');
+
+			out.putInt(originalVertexCount);
+			out.putInt(newVertexCount);
+			for (int i = 0; i < newVertexCount * 2; i++)
+				out.putInt(newVertices[i]);
+
+			out.putInt(subsectors.size());
+			for (int i = 0; i < subsectors.size(); i++)
+				out.putInt(subsectors.getByIndex(i).getSegCount());
+
+			out.putInt(segments.size());
+			for (int i = 0; i < segments.size(); i++)
+			{
+				BSPSegment seg = segments.getByIndex(i);
+				out.putInt(seg.getVertexStart());
+				out.putInt(seg.getVertexEnd());
+				out.putShort((short)seg.getLinedefIndex());
+				out.put((byte)seg.getDirection());
+			}
+
+			out.putInt(nodes.size());
+			for (int i = 0; i < nodes.size(); i++)
+			{
+				BSPNode node = nodes.getByIndex(i);
+				out.putShort((short)node.getPartitionLineX());
+				out.putShort((short)node.getPartitionLineY());
+				out.putShort((short)node.getPartitionDeltaX());
+				out.putShort((short)node.getPartitionDeltaY());
+				for (int r : node.getRightRect())
+					out.putShort((short)r);
+				for (int r : node.getLeftRect())
+					out.putShort((short)r);
+				out.putInt(node.rightIsLeaf() ? EXTENDED_SUBSECTOR | node.getRightIndex() : node.getRightIndex());
+				out.putInt(node.leftIsLeaf() ? EXTENDED_SUBSECTOR | node.getLeftIndex() : node.getLeftIndex());
+			}
+
+			return new RawData(out.array());
+		}
+
+		/**
+		 * Puts this result into a map.
+		 * If the vanilla lumps can hold it, the new vertices are added to the map's vertices,
+		 * and the map's segments, subsectors and nodes are replaced (and its ZDoom nodes removed).
+		 * Otherwise, the map's ZDoom nodes are set to {@link #getExtendedNodes()}, and its
+		 * segments, subsectors and nodes are removed.
+		 * <p>
+		 * The map should be the one that this was built from, and not changed since.
+		 * @param map the map to change.
+		 */
+		public void applyTo(DoomMap map)
+		{
+			if (extended)
+			{
+				map.setZNodes(getExtendedNodes());
+				map.setBSPSegmentList(null);
+				map.setBSPSubsectorList(null);
+				map.setBSPNodeList(null);
+			}
+			else
+			{
+				List<Vertex> vertices = map.getVertexList();
+				for (Vertex v : getNewVertexList())
+					vertices.add(v);
+				map.setBSPSegmentList(segments);
+				map.setBSPSubsectorList(subsectors);
+				map.setBSPNodeList(nodes);
+				map.setZNodes(null);
+			}
+		}
+	}
+
+}
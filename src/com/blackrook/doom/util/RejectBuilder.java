@@ -0,0 +1,503 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.doom.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.doom.DoomMap;
+import com.blackrook.doom.MapException;
+import com.blackrook.doom.struct.Linedef;
+import com.blackrook.doom.struct.Reject;
+import com.blackrook.doom.struct.Sidedef;
+import com.blackrook.doom.struct.Vertex;
+
+/**
+ * Builds REJECT tables from map geometry.
+ * <p>
+ * Every two-sided linedef between two different sectors is a portal from one sector into the other.
+ * A sector can see another if a straight line can pass from the first sector through a chain of portals
+ * into the other. For every portal that leaves a sector, the chains are followed depth-first, and each
+ * portal in the chain is clipped to the part that can still be reached by a line through the first portal
+ * and the part of the previous portal that was left, using the lines that separate those two
+ * (as in portal-based visibility). A chain stops when nothing of the next portal is left.
+ * <p>
+ * The result is conservative: sectors may be marked as seeing each other when they can't, but never the
+ * other way around. Sector heights are ignored, as they can change during play, and visibility is made
+ * symmetric. The sectors are traced in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * The resulting {@link Reject} follows the REJECT lump: a set bit means that the two sectors
+ * <i>cannot</i> see each other.
+ * @author Matthew Tropiano
+ * @since 2.11.0
+ */
+public final class RejectBuilder
+{
+	/** Distance tolerance in map units. Points this close to a line count as being on either side of it. */
+	private static final double EPSILON = 1.0 / 1024.0;
+	/** The amount of portals that a single task floods. */
+	private static final int PORTAL_TASK_SIZE = 32;
+
+	private RejectBuilder() {}
+
+	/**
+	 * Builds a REJECT table for a map, using a new {@link ForkJoinPool}.
+	 * @param map the map to use.
+	 * @return a new Reject with an entry for each sector in the map.
+	 * @throws MapException if a linedef or sidedef references a vertex, sidedef or sector that does not exist.
+	 * @see #build(DoomMap, ForkJoinPool)
+	 */
+	public static Reject build(DoomMap map) throws MapException
+	{
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return build(map, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Builds a REJECT table for a map.
+	 * <p>
+	 * The map's linedefs, sidedefs, vertices and sectors are read on the calling thread.
+	 * The portals between sectors are then flooded and the sectors traced on the pool, and
+	 * the result is written to the Reject on the calling thread.
+	 * @param map the map to use.
+	 * @param pool the pool to trace the sectors on.
+	 * @return a new Reject with an entry for each sector in the map.
+	 * @throws MapException if a linedef or sidedef references a vertex, sidedef or sector that does not exist.
+	 * @throws NullPointerException if map or pool is null.
+	 */
+	public static Reject build(DoomMap map, ForkJoinPool pool) throws MapException
+	{
+		int sectorCount = map.getSectorList().size();
+		Portals portals = new Portals(map, sectorCount);
+
+		pool.invoke(new FloodTask(portals, 0, portals.count));
+		long[][] visible = new long[sectorCount][];
+		pool.invoke(new TraceTask(portals, visible, 0, sectorCount));
+
+		// a sector can see another if either trace found the other.
+		for (int a = 0; a < sectorCount; a++)
+			for (int b = nextSetBit(visible[a], 0); b >= 0; b = nextSetBit(visible[a], b + 1))
+				visible[b][a >>> 6] |= 1L << a;
+
+		Reject out = new Reject(sectorCount);
+		long[] rejected = new long[portals.words];
+		for (int s = 0; s < sectorCount; s++)
+		{
+			for (int i = 0; i < rejected.length; i++)
+				rejected[i] = ~visible[s][i];
+			out.setSectorsVisibleTo(s, BitSet.valueOf(rejected));
+		}
+		return out;
+	}
+
+	// Returns the next set bit in a bitset at or after an index, or -1 if none.
+	private static int nextSetBit(long[] bits, int from)
+	{
+		int w = from >>> 6;
+		if (w >= bits.length)
+			return -1;
+		long word = bits[w] & (-1L << from);
+		while (true)
+		{
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			if (++w == bits.length)
+				return -1;
+			word = bits[w];
+		}
+	}
+
+	// Returns true if every bit set in b is set in a.
+	private static boolean containsAll(long[] a, long[] b)
+	{
+		for (int i = 0; i < a.length; i++)
+			if ((b[i] & ~a[i]) != 0)
+				return false;
+		return true;
+	}
+
+	// Returns the distance of a point from a line, positive on the left side of the line.
+	private static double distance(double lx1, double ly1, double lx2, double ly2, double x, double y)
+	{
+		double dx = lx2 - lx1;
+		double dy = ly2 - ly1;
+		return (dx * (y - ly1) - dy * (x - lx1)) / Math.sqrt(dx * dx + dy * dy);
+	}
+
+	// Clips a segment to one side of a line. Returns false if nothing is left.
+	private static boolean clip(double[] seg, double lx1, double ly1, double lx2, double ly2, boolean left)
+	{
+		double dx = lx2 - lx1;
+		double dy = ly2 - ly1;
+		if (dx * dx + dy * dy <= EPSILON * EPSILON)
+			return true;
+
+		double d1 = distance(lx1, ly1, lx2, ly2, seg[0], seg[1]);
+		double d2 = distance(lx1, ly1, lx2, ly2, seg[2], seg[3]);
+		if (!left)
+		{
+			d1 = -d1;
+			d2 = -d2;
+		}
+
+		if (d1 >= -EPSILON && d2 >= -EPSILON)
+			return true;
+		if (d1 < -EPSILON && d2 < -EPSILON)
+			return false;
+
+		double t = (d1 + EPSILON) / (d1 - d2);
+		double x = seg[0] + (seg[2] - seg[0]) * t;
+		double y = seg[1] + (seg[3] - seg[1]) * t;
+		if (d1 < -EPSILON)
+		{
+			seg[0] = x;
+			seg[1] = y;
+		}
+		else
+		{
+			seg[2] = x;
+			seg[3] = y;
+		}
+		return true;
+	}
+
+	/**
+	 * Clips a segment to the area that a line through a source and a pass segment can reach
+	 * past the pass segment, using each line through an endpoint of both that has
+	 * the source on one side and the pass segment on the other.
+	 * Returns false if nothing is left.
+	 */
+	private static boolean clipSeparators(double[] seg, double[] source, double[] pass)
+	{
+		for (int i = 0; i < 4; i += 2)
+		{
+			double sx = source[i], sy = source[i + 1];
+			double ox = source[2 - i], oy = source[3 - i];
+			for (int j = 0; j < 4; j += 2)
+			{
+				double px = pass[j], py = pass[j + 1];
+				double qx = pass[2 - j], qy = pass[3 - j];
+				double dx = px - sx, dy = py - sy;
+				if (dx * dx + dy * dy <= EPSILON * EPSILON)
+					continue;
+
+				double ds = distance(sx, sy, px, py, ox, oy);
+				if (Math.abs(ds) <= EPSILON)
+					continue;
+				double dp = distance(sx, sy, px, py, qx, qy);
+				if (ds > 0 ? dp > EPSILON : dp < -EPSILON)
+					continue;
+				if (!clip(seg, sx, sy, px, py, ds < 0))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The portals between the sectors of a map.
+	 * Each portal is oriented so that the sector it leads into is on its left.
+	 */
+	private static class Portals
+	{
+		/** Amount of sectors. */
+		private int sectorCount;
+		/** Amount of longs in a sector bitset. */
+		private int words;
+		/** Amount of portals. */
+		private int count;
+		/** Portal coordinates, four per portal. */
+		private double[] coords;
+		/** The linedef that each portal came from. */
+		private int[] linedefs;
+		/** The sector that each portal leads into. */
+		private int[] toSector;
+		/** The portals that leave each sector. */
+		private int[][] sectorPortals;
+		/** For each portal, the sectors that a line through it could possibly reach. */
+		private long[][] mightSee;
+
+		Portals(DoomMap map, int sectorCount) throws MapException
+		{
+			List<Linedef> linedefList = map.getLinedefList();
+			List<Sidedef> sidedefList = map.getSidedefList();
+			List<Vertex> vertexList = map.getVertexList();
+			int sidedefCount = sidedefList.size();
+			int vertexCount = vertexList.size();
+
+			this.sectorCount = sectorCount;
+			this.words = (sectorCount + 63) >>> 6;
+			this.coords = new double[linedefList.size() * 8];
+			this.linedefs = new int[linedefList.size() * 2];
+			this.toSector = new int[linedefList.size() * 2];
+			int[] fromSector = new int[linedefList.size() * 2];
+			int[] sectorPortalCount = new int[sectorCount];
+
+			for (int i = 0; i < linedefList.size(); i++)
+			{
+				Linedef line = linedefList.getByIndex(i);
+				int front = line.getFrontSidedef();
+				int back = line.getBackSidedef();
+				if (front < 0 || front >= sidedefCount || back < 0 || back >= sidedefCount)
+					continue;
+
+				int v1 = line.getVertexStart();
+				int v2 = line.getVertexEnd();
+				if (v1 < 0 || v1 >= vertexCount || v2 < 0 || v2 >= vertexCount)
+					throw new MapException("Linedef " + i + " references a vertex that does not exist.");
+				int frontSector = getSector(sidedefList, front, sectorCount);
+				int backSector = getSector(sidedefList, back, sectorCount);
+				if (frontSector == backSector)
+					continue;
+
+				double x1 = vertexList.getByIndex(v1).getX();
+				double y1 = vertexList.getByIndex(v1).getY();
+				double x2 = vertexList.getByIndex(v2).getX();
+				double y2 = vertexList.getByIndex(v2).getY();
+				if ((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1) <= EPSILON * EPSILON)
+					continue;
+
+				// the front side is on the right, so the back side is on the left.
+				addPortal(i, frontSector, backSector, x1, y1, x2, y2, fromSector);
+				addPortal(i, backSector, frontSector, x2, y2, x1, y1, fromSector);
+				sectorPortalCount[frontSector]++;
+				sectorPortalCount[backSector]++;
+			}
+
+			this.sectorPortals = new int[sectorCount][];
+			for (int s = 0; s < sectorCount; s++)
+			{
+				sectorPortals[s] = new int[sectorPortalCount[s]];
+				sectorPortalCount[s] = 0;
+			}
+			for (int p = 0; p < count; p++)
+				sectorPortals[fromSector[p]][sectorPortalCount[fromSector[p]]++] = p;
+
+			this.mightSee = new long[count][];
+		}
+
+		// Returns the sector index of a sidedef, or throws an exception if it doesn't exist.
+		private static int getSector(List<Sidedef> sidedefList, int sidedef, int sectorCount) throws MapException
+		{
+			int out = sidedefList.getByIndex(sidedef).getSectorRef();
+			if (out < 0 || out >= sectorCount)
+				throw new MapException("Sidedef " + sidedef + " references a sector that does not exist.");
+			return out;
+		}
+
+		private void addPortal(int linedef, int from, int to, double x1, double y1, double x2, double y2, int[] fromSector)
+		{
+			coords[count * 4] = x1;
+			coords[count * 4 + 1] = y1;
+			coords[count * 4 + 2] = x2;
+			coords[count * 4 + 3] = y2;
+			linedefs[count] = linedef;
+			fromSector[count] = from;
+			toSector[count] = to;
+			count++;
+		}
+
+		// Copies a portal's coordinates into a segment.
+		private void getSegment(int portal, double[] seg)
+		{
+			System.arraycopy(coords, portal * 4, seg, 0, 4);
+		}
+
+		// Clips a segment to the far side of a portal.
+		private boolean clipFront(double[] seg, int portal)
+		{
+			int c = portal * 4;
+			return clip(seg, coords[c], coords[c + 1], coords[c + 2], coords[c + 3], true);
+		}
+
+		/**
+		 * Finds the sectors reachable through a portal by crossing only portals
+		 * that are at least partly on its far side.
+		 * @param portal the portal.
+		 * @param stack a scratch array with room for every sector.
+		 */
+		void flood(int portal, int[] stack)
+		{
+			int c = portal * 4;
+			long[] out = new long[words];
+			int top = 0;
+			out[toSector[portal] >>> 6] |= 1L << toSector[portal];
+			stack[top++] = toSector[portal];
+			while (top > 0)
+			{
+				for (int p : sectorPortals[stack[--top]])
+				{
+					int to = toSector[p];
+					if ((out[to >>> 6] & (1L << to)) != 0 || linedefs[p] == linedefs[portal])
+						continue;
+					double d1 = distance(coords[c], coords[c + 1], coords[c + 2], coords[c + 3], coords[p * 4], coords[p * 4 + 1]);
+					double d2 = distance(coords[c], coords[c + 1], coords[c + 2], coords[c + 3], coords[p * 4 + 2], coords[p * 4 + 3]);
+					if (d1 < -EPSILON && d2 < -EPSILON)
+						continue;
+					out[to >>> 6] |= 1L << to;
+					stack[top++] = to;
+				}
+			}
+			mightSee[portal] = out;
+		}
+
+		/**
+		 * Finds the sectors that a sector can see. Requires that all portals were flooded.
+		 * @param source the source sector.
+		 * @return a bitset of the sectors found, including the source sector.
+		 */
+		long[] trace(int source)
+		{
+			long[] seen = new long[words];
+			boolean[] onPath = new boolean[sectorCount];
+			seen[source >>> 6] |= 1L << source;
+			onPath[source] = true;
+
+			double[] sourceSeg = new double[4];
+			double[] seg = new double[4];
+			// the chain being followed: for each step, the clipped portal, the portal, the sector entered, and the next portal to try.
+			double[][] windows = new double[16][];
+			int[] via = new int[16];
+			int[] sectors = new int[16];
+			int[] next = new int[16];
+
+			for (int s : sectorPortals[source])
+			{
+				int entered = toSector[s];
+				seen[entered >>> 6] |= 1L << entered;
+				if (onPath[entered] || containsAll(seen, mightSee[s]))
+					continue;
+
+				getSegment(s, sourceSeg);
+				int depth = 0;
+				windows[0] = sourceSeg;
+				via[0] = s;
+				sectors[0] = entered;
+				next[0] = 0;
+				onPath[entered] = true;
+
+				while (depth >= 0)
+				{
+					int[] list = sectorPortals[sectors[depth]];
+					if (next[depth] == list.length)
+					{
+						onPath[sectors[depth]] = false;
+						depth--;
+						continue;
+					}
+
+					int p = list[next[depth]++];
+					int to = toSector[p];
+					if (onPath[to])
+						continue;
+
+					getSegment(p, seg);
+					if (!clipFront(seg, s))
+						continue;
+					if (depth > 0 && (!clipFront(seg, via[depth]) || !clipSeparators(seg, sourceSeg, windows[depth])))
+						continue;
+
+					seen[to >>> 6] |= 1L << to;
+					if (containsAll(seen, mightSee[p]))
+						continue;
+
+					if (++depth == via.length)
+					{
+						windows = Arrays.copyOf(windows, depth * 2);
+						via = Arrays.copyOf(via, depth * 2);
+						sectors = Arrays.copyOf(sectors, depth * 2);
+						next = Arrays.copyOf(next, depth * 2);
+					}
+					if (windows[depth] == null)
+						windows[depth] = new double[4];
+					System.arraycopy(seg, 0, windows[depth], 0, 4);
+					via[depth] = p;
+					sectors[depth] = to;
+					next[depth] = 0;
+					onPath[to] = true;
+				}
+			}
+			return seen;
+		}
+
+	}
+
+	/** Floods a range of portals. */
+	private static class FloodTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = -2785419316374469063L;
+
+		private Portals portals;
+		private int start;
+		private int end;
+
+		FloodTask(Portals portals, int start, int end)
+		{
+			this.portals = portals;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (end - start > PORTAL_TASK_SIZE)
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll(new FloodTask(portals, start, mid), new FloodTask(portals, mid, end));
+			}
+			else
+			{
+				int[] stack = new int[portals.sectorCount];
+				for (int p = start; p < end; p++)
+					portals.flood(p, stack);
+			}
+		}
+	}
+
+	/** Traces a range of sectors. */
+	private static class TraceTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4510985338806516213L;
+
+		private Portals portals;
+		private long[][] visible;
+		private int start;
+		private int end;
+
+		TraceTask(Portals portals, long[][] visible, int start, int end)
+		{
+			this.portals = portals;
+			this.visible = visible;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (end - start > 1)
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll(new TraceTask(portals, visible, start, mid), new TraceTask(portals, visible, mid, end));
+			}
+			else if (start < end)
+			{
+				visible[start] = portals.trace(start);
+			}
+		}
+	}
+
+}